@@ -9,8 +9,13 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
@@ -23,6 +28,11 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractParserXLSX {
 
+  /**
+   * Records a {@link DatabaseSubscriber} requests at a time.
+   */
+  public static final int LOAD_BATCH = 256;
+
   /**
    * Logger for the class.
    */
@@ -43,6 +53,11 @@ public abstract class AbstractParserXLSX {
    */
   protected CellStyle headerStyle;
 
+  /**
+   * Rows loaded between commits when checkpointing, 0 to load without checkpoints.  See {@link LoadCheckpoint}.
+   */
+  protected int checkpointRows;
+
   /**
    * Constructor for AbstractParserXLSX.
    * @param sourceFile the file being parsed.
@@ -71,19 +86,292 @@ public abstract class AbstractParserXLSX {
    * @throws IOException thrown if an exception occurs during processing.
    */
   public void process() throws IOException{
-    try (final XSSFWorkbook workbook = XSSFWorkbookFactory.createWorkbook(this.sourceFile, true);){
+    try (final XSSFWorkbook workbook = openWorkbook();){
       load(workbook);
     } catch (SQLException e) {
       throw new IOException("Exception processing " + this.sourceFile.getAbsolutePath(), e);
     }
     //end process
   }
+
+  /**
+   * Open the {@link #sourceFile} read-only.
+   * @return the workbook.
+   * @throws IOException thrown if the file can not be read.
+   */
+  protected XSSFWorkbook openWorkbook() throws IOException {
+    return XSSFWorkbookFactory.createWorkbook(this.sourceFile, true);
+  }
   
+  /**
+   * Commit the load every so many rows, recording the progress so that loading the file into the same
+   * (persistent) Database again continues where the last load stopped.  Needs the
+   * <code>LOAD_PROGRESS</code> table.
+   * @param checkpointRows Rows loaded between commits, 0 to load without checkpoints.
+   */
+  public void setCheckpointRows(final int checkpointRows) {
+    this.checkpointRows = checkpointRows;
+  }
+
+  /**
+   * @return the checkpoint of loading the file, null if not checkpointing.
+   * @throws SQLException thrown if the progress can not be read.
+   */
+  protected LoadCheckpoint checkpoint() throws SQLException {
+    return this.checkpointRows > 0 ? new LoadCheckpoint(this.c, this.sourceFile, this.checkpointRows) : null;
+  }
+
   /**
    * @return the headerStyle
    */
   public CellStyle getHeaderStyle() {
     return this.headerStyle;
   }
-  
+
+  /**
+   * Walks the rows of a range of sheets, decoding each row as it is reached.
+   *
+   * @param <T> the record type.
+   */
+  protected abstract static class RowIterator<T> implements Iterator<T> {
+
+    /**
+     * The workbook.
+     */
+    private final Workbook workbook;
+
+    /**
+     * Index of the sheet after the last.
+     */
+    private final int endSheet;
+
+    /**
+     * Index of the current sheet.
+     */
+    private int sheetIndex;
+
+    /**
+     * The current sheet, null before it is started.
+     */
+    private Sheet sheet;
+
+    /**
+     * Index of the next row of the current sheet.
+     */
+    private int rowIndex;
+
+    /**
+     * The next record, null if not yet decoded.
+     */
+    private T next;
+
+    /**
+     * @param workbook   The workbook.
+     * @param firstSheet Index of the first sheet.
+     * @param endSheet   Index of the sheet after the last.
+     */
+    protected RowIterator(final Workbook workbook, final int firstSheet, final int endSheet) {
+      this.workbook = workbook;
+      this.sheetIndex = firstSheet;
+      this.endSheet = endSheet;
+      // end <init>
+    }
+
+    /**
+     * Called when a sheet is reached.
+     * @param currentSheet the sheet.
+     */
+    protected void startSheet(final Sheet currentSheet) {
+      // Nothing by default.
+    }
+
+    /**
+     * Decode a row.  As with the loaders, the last row of each sheet is not read.
+     * @param currentSheet the sheet.
+     * @param row the row, not null.
+     * @param j index of the row.
+     * @return the record, null to skip the row.
+     */
+    protected abstract T decode(Sheet currentSheet, Row row, int j);
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+      while (this.next == null && this.sheetIndex < this.endSheet) {
+        if (this.sheet == null) {
+          this.sheet = this.workbook.getSheetAt(this.sheetIndex);
+          this.rowIndex = 0;
+          startSheet(this.sheet);
+        }
+        if (this.rowIndex < this.sheet.getLastRowNum()) {
+          final int j = this.rowIndex++;
+          final Row row = this.sheet.getRow(j);
+          if (row != null) {
+            this.next = decode(this.sheet, row, j);
+          }
+        } else {
+          this.sheet = null;
+          this.sheetIndex++;
+        }
+      }
+      return this.next != null;
+      // end hasNext
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } // else
+      final T result = this.next;
+      this.next = null;
+      return result;
+    }
+
+  }
+
+  /**
+   * Loads records into the Database, as a {@link RecordFlow.Subscriber} or called directly.  Records are
+   * requested {@link #LOAD_BATCH} at a time.
+   *
+   * @param <T> the record type.
+   */
+  public abstract class DatabaseSubscriber<T> implements RecordFlow.Subscriber<T>, AutoCloseable {
+
+    /**
+     * Completed with the number of records stored, or the failure.
+     */
+    protected final CompletableFuture<Integer> completion = new CompletableFuture<>();
+
+    /**
+     * The subscription, null if called directly.
+     */
+    protected RecordFlow.Subscription subscription;
+
+    /**
+     * Records received since the last request.
+     */
+    private int received;
+
+    /**
+     * Records stored.
+     */
+    protected int stored;
+
+    /**
+     * Prepare the statements.
+     * @throws SQLException thrown if the statements can not be prepared.
+     */
+    public abstract void open() throws SQLException;
+
+    /**
+     * Store a record.
+     * @param record the record.
+     * @return true if stored, false if skipped.
+     * @throws SQLException thrown if the record can't be inserted into the Database.
+     */
+    public abstract boolean store(T record) throws SQLException;
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public abstract void close() throws SQLException;
+
+    /**
+     * @return completed with the number of records stored once the records are loaded, or with the failure.
+     */
+    public CompletableFuture<Integer> getCompletion() {
+      return this.completion;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.RecordFlow.Subscriber#onSubscribe(com.j2eeguys.dems.RecordFlow.Subscription)
+     */
+    @Override
+    public void onSubscribe(final RecordFlow.Subscription newSubscription) {
+      this.subscription = newSubscription;
+      try {
+        open();
+      } catch (SQLException e) {
+        newSubscription.cancel();
+        fail(e);
+        return;
+      }
+      newSubscription.request(LOAD_BATCH);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.RecordFlow.Subscriber#onNext(java.lang.Object)
+     */
+    @Override
+    public void onNext(final T item) {
+      if (this.completion.isDone()) {
+        return;
+      } // else
+      try {
+        if (store(item)) {
+          this.stored++;
+        }
+      } catch (SQLException | RuntimeException e) {
+        this.subscription.cancel();
+        fail(e);
+        return;
+      }
+      if (++this.received == LOAD_BATCH) {
+        this.received = 0;
+        this.subscription.request(LOAD_BATCH);
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.RecordFlow.Subscriber#onError(java.lang.Throwable)
+     */
+    @Override
+    public void onError(final Throwable throwable) {
+      fail(throwable);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.RecordFlow.Subscriber#onComplete()
+     */
+    @Override
+    public void onComplete() {
+      try {
+        close();
+        this.completion.complete(Integer.valueOf(this.stored));
+      } catch (SQLException e) {
+        this.completion.completeExceptionally(e);
+      }
+    }
+
+    /**
+     * Close the statements and complete with the failure.
+     * @param throwable the failure.
+     */
+    private void fail(final Throwable throwable) {
+      try {
+        close();
+      } catch (SQLException e) {
+        throwable.addSuppressed(e);
+      }
+      AbstractParserXLSX.this.LOGGER.warn("Unable to load {}: {}", AbstractParserXLSX.this.sourceFile,
+          throwable.toString());
+      this.completion.completeExceptionally(throwable);
+    }
+
+  }
+
 }//end AbstractParserXLSX
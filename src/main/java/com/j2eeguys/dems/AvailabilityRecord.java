@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.sql.Date;
+
+/**
+ * One worker's answer for one day of the Availability Survey, decoded from a row of a day sheet.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class AvailabilityRecord {
+
+  /**
+   * Last Name of the worker.
+   */
+  protected final String lastName;
+
+  /**
+   * First Name of the worker.
+   */
+  protected final String firstName;
+
+  /**
+   * VR # of the worker, empty if not supplied.
+   */
+  protected final String vrId;
+
+  /**
+   * Precinct of the worker, empty if not supplied.
+   */
+  protected final String precinct;
+
+  /**
+   * Role of the worker.
+   */
+  protected final String role;
+
+  /**
+   * Day answered for.
+   */
+  protected final Date day;
+
+  /**
+   * If 'Yes' was checked.
+   */
+  protected final boolean yes;
+
+  /**
+   * If 'No' was checked.
+   */
+  protected final boolean no;
+
+  /**
+   * Where the answer came from, such as the sheet name (for logging purposes).
+   */
+  protected final String source;
+
+  /**
+   * Shifts checked, one bit per shift; {@link Shifts#WHOLE_DAY} if none.
+   */
+  protected final int shifts;
+
+  /**
+   * Constructor for AvailabilityRecord.
+   *
+   * @param lastName  Last Name of the worker.
+   * @param firstName First Name of the worker.
+   * @param vrId      VR # of the worker, empty if not supplied.
+   * @param precinct  Precinct of the worker, empty if not supplied.
+   * @param role      Role of the worker.
+   * @param day       Day answered for.
+   * @param yes       If 'Yes' was checked.
+   * @param no        If 'No' was checked.
+   * @param source    Where the answer came from (for logging purposes).
+   */
+  public AvailabilityRecord(final String lastName, final String firstName, final String vrId,
+      final String precinct, final String role, final Date day, final boolean yes, final boolean no,
+      final String source) {
+    this(lastName, firstName, vrId, precinct, role, day, yes, no, source, Shifts.WHOLE_DAY);
+    // end <init>
+  }
+
+  /**
+   * Constructor for AvailabilityRecord.
+   *
+   * @param lastName  Last Name of the worker.
+   * @param firstName First Name of the worker.
+   * @param vrId      VR # of the worker, empty if not supplied.
+   * @param precinct  Precinct of the worker, empty if not supplied.
+   * @param role      Role of the worker.
+   * @param day       Day answered for.
+   * @param yes       If 'Yes' was checked.
+   * @param no        If 'No' was checked.
+   * @param source    Where the answer came from (for logging purposes).
+   * @param shifts    Shifts checked, one bit per shift; {@link Shifts#WHOLE_DAY} if none.
+   */
+  public AvailabilityRecord(final String lastName, final String firstName, final String vrId,
+      final String precinct, final String role, final Date day, final boolean yes, final boolean no,
+      final String source, final int shifts) {
+    this.lastName = lastName;
+    this.firstName = firstName;
+    this.vrId = vrId;
+    this.precinct = precinct;
+    this.role = role;
+    this.day = day;
+    this.yes = yes;
+    this.no = no;
+    this.source = source;
+    this.shifts = shifts;
+    // end <init>
+  }
+
+  /**
+   * @return true if the VR # is numeric, and so unique per person.
+   */
+  public boolean hasVrId() {
+    return this.vrId.length() > 0 && Character.isDigit(this.vrId.charAt(0));
+  }
+
+  /**
+   * @return a key identifying the worker across sheets and surveys: the VR # if numeric, otherwise the name.
+   */
+  public String getWorkerKey() {
+    return hasVrId() ? this.vrId : this.lastName + ", " + this.firstName;
+  }
+
+  /**
+   * @return true if the worker is available: 'Yes' checked and 'No' not checked.
+   */
+  public boolean isAvailable() {
+    return this.yes && !this.no;
+  }
+
+  /**
+   * @return true if both 'Yes' & 'No' are checked.
+   */
+  public boolean isConflicted() {
+    return this.yes && this.no;
+  }
+
+  /**
+   * @return the lastName
+   */
+  public String getLastName() {
+    return this.lastName;
+  }
+
+  /**
+   * @return the firstName
+   */
+  public String getFirstName() {
+    return this.firstName;
+  }
+
+  /**
+   * @return the VR #, empty if not supplied.
+   */
+  public String getVrId() {
+    return this.vrId;
+  }
+
+  /**
+   * @return the precinct, empty if not supplied.
+   */
+  public String getPrecinct() {
+    return this.precinct;
+  }
+
+  /**
+   * @return the role
+   */
+  public String getRole() {
+    return this.role;
+  }
+
+  /**
+   * @return the day
+   */
+  public Date getDay() {
+    return this.day;
+  }
+
+  /**
+   * @return if 'Yes' was checked.
+   */
+  public boolean isYes() {
+    return this.yes;
+  }
+
+  /**
+   * @return if 'No' was checked.
+   */
+  public boolean isNo() {
+    return this.no;
+  }
+
+  /**
+   * @return where the answer came from.
+   */
+  public String getSource() {
+    return this.source;
+  }
+
+  /**
+   * @return the shifts checked, one bit per shift; {@link Shifts#WHOLE_DAY} if none.
+   */
+  public int getShifts() {
+    return this.shifts;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return this.lastName + ',' + this.firstName + ',' + this.vrId + ',' + this.precinct + ',' + this.role + ','
+        + (this.yes ? "Checked" : "") + ',' + (this.no ? "Checked" : "");
+  }
+
+}
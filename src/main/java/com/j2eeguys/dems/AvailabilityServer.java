@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server answering availability lookups as JSON from the Database
+ * populated by {@link SurveyAvailability}.
+ * <ul>
+ * <li><code>GET /availability/day/yyyy-mm-dd</code> - workers available on the day.</li>
+ * <li><code>GET /availability/worker/{id}</code> - a worker and all of their available days.</li>
+ * <li><code>GET /availability/precinct/{precinct}</code> - the workers of a precinct and their days.</li>
+ * </ul>
+ * Responses are cached until {@link #invalidate()} is called, which should happen after every ingest.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class AvailabilityServer implements Closeable {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(AvailabilityServer.class);
+
+  /**
+   * Context path all lookups are served under.
+   */
+  public static final String CONTEXT = "/availability/";
+
+  /**
+   * Maximum number of cached responses kept before the eldest is dropped.
+   */
+  protected static final int MAX_CACHE_ENTRIES = 1024;
+
+  /**
+   * Connection URL to the Database. Each request uses its own connection so lookups don't serialize on one.
+   */
+  protected final String url;
+
+  /**
+   * The underlying HTTP Server.
+   */
+  protected final HttpServer server;
+
+  /**
+   * Bounded pool handling the requests.
+   */
+  protected final ThreadPoolExecutor executor;
+
+  /**
+   * Cached responses, keyed by request path.
+   */
+  protected final Map<String, byte[]> cache = Collections.synchronizedMap(
+      new LinkedHashMap<String, byte[]>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+          return size() > MAX_CACHE_ENTRIES;
+        }
+      });
+
+  /**
+   * Incremented on every invalidation, so a response built from stale data is never cached.
+   */
+  protected final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Constructor for AvailabilityServer, listening on the loopback address only.
+   *
+   * @param url     Connection URL to the Database.
+   * @param port    the port to listen on, 0 to pick a free port.
+   * @param threads the maximum number of requests handled concurrently.
+   * @throws IOException thrown if the server can not be bound to the port.
+   */
+  public AvailabilityServer(final String url, final int port, final int threads) throws IOException {
+    this(url, null, port, threads);
+    // end <init>
+  }
+
+  /**
+   * Constructor for AvailabilityServer.  The lookups answer with worker names, VR # and precinct without
+   * authentication, so only listen beyond the loopback address on a trusted network.
+   *
+   * @param url     Connection URL to the Database.
+   * @param host    the address to listen on, null for the loopback address.
+   * @param port    the port to listen on, 0 to pick a free port.
+   * @param threads the maximum number of requests handled concurrently.
+   * @throws IOException thrown if the server can not be bound to the port.
+   */
+  public AvailabilityServer(final String url, final InetAddress host, final int port, final int threads)
+      throws IOException {
+    this.url = url;
+    this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(threads * 16), new ThreadPoolExecutor.CallerRunsPolicy());
+    this.server = HttpServer.create(
+        new InetSocketAddress(host == null ? InetAddress.getLoopbackAddress() : host, port), 0);
+    this.server.setExecutor(this.executor);
+    this.server.createContext(CONTEXT, this::handle);
+    // end <init>
+  }
+
+  /**
+   * Start serving requests.
+   */
+  public void start() {
+    this.server.start();
+    LOGGER.info("Serving availability on {}", this.server.getAddress());
+    // end start
+  }
+
+  /**
+   * @return the port the server is listening on.
+   */
+  public int getPort() {
+    return this.server.getAddress().getPort();
+  }
+
+  /**
+   * Drops all cached responses. Call after new data has been loaded into the Database.
+   */
+  public void invalidate() {
+    this.generation.incrementAndGet();
+    this.cache.clear();
+    LOGGER.debug("Response cache invalidated");
+    // end invalidate
+  }
+
+  /**
+   * Handle a single request.
+   *
+   * @param exchange the request/response exchange.
+   * @throws IOException thrown if the response can not be sent.
+   */
+  protected void handle(final HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        send(exchange, 405, "{\"error\":\"GET only\"}".getBytes(StandardCharsets.UTF_8));
+        return;
+      } // else
+      final String path = exchange.getRequestURI().getPath();
+      byte[] body = this.cache.get(path);
+      if (body == null) {
+        final long gen = this.generation.get();
+        final String json;
+        try {
+          json = lookup(path);
+        } catch (IllegalArgumentException e) {
+          send(exchange, 400, ("{\"error\":" + quote(e.getMessage()) + '}').getBytes(StandardCharsets.UTF_8));
+          return;
+        } catch (SQLException e) {
+          LOGGER.error("Exception looking up {}", path, e);
+          send(exchange, 500, "{\"error\":\"Database failure\"}".getBytes(StandardCharsets.UTF_8));
+          return;
+        }
+        if (json == null) {
+          send(exchange, 404, "{\"error\":\"Not found\"}".getBytes(StandardCharsets.UTF_8));
+          return;
+        } // else
+        body = json.getBytes(StandardCharsets.UTF_8);
+        if (gen == this.generation.get()) {
+          this.cache.put(path, body);
+        }
+      } // end cache miss
+      send(exchange, 200, body);
+    } finally {
+      exchange.close();
+    }
+    // end handle
+  }
+
+  /**
+   * Send the response body.
+   *
+   * @param exchange the request/response exchange.
+   * @param status   HTTP Status code.
+   * @param body     JSON body to send.
+   * @throws IOException thrown if the response can not be sent.
+   */
+  protected void send(final HttpExchange exchange, final int status, final byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(status, body.length);
+    try (final OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+    // end send
+  }
+
+  /**
+   * Look up the data for the request path.
+   *
+   * @param path the path of the request.
+   * @return the JSON response, or null if there's nothing at the path.
+   * @throws SQLException thrown if the Database can not be queried.
+   */
+  protected String lookup(final String path) throws SQLException {
+    final String[] parts = path.substring(CONTEXT.length()).split("/");
+    if (parts.length != 2) {
+      return null;
+    } // else
+    try (final Connection conn = DriverManager.getConnection(this.url, "SA", "")) {
+      switch (parts[0]) {
+        case "day":
+          return lookupDay(conn, Date.valueOf(parts[1]));
+        case "worker":
+          return lookupWorker(conn, parseInt(parts[1]));
+        case "precinct":
+          return lookupPrecinct(conn, parseInt(parts[1]));
+        default:
+          return null;
+      }
+    }
+    // end lookup
+  }
+
+  /**
+   * List the workers available on a day.
+   *
+   * @param conn Connection to the Database.
+   * @param day  the day being looked up.
+   * @return JSON listing the workers.
+   * @throws SQLException thrown if the Database can not be queried.
+   */
+  protected String lookupDay(final Connection conn, final Date day) throws SQLException {
+    try (final PreparedStatement ps = conn.prepareStatement(
+        "SELECT W.ID, W.LAST_NAME, W.FIRST_NAME, W.VR_ID, W.PRECINCT, W.ROLE FROM WORKER W "
+            + "JOIN AVAILABILITY A ON A.ID = W.ID WHERE A.DAY = ? ORDER BY W.LAST_NAME, W.FIRST_NAME")) {
+      ps.setDate(1, day);
+      final StringBuilder sb = new StringBuilder(1024);
+      sb.append("{\"day\":\"").append(day).append("\",\"workers\":[");
+      try (final ResultSet rs = ps.executeQuery()) {
+        boolean first = true;
+        while (rs.next()) {
+          if (!first) {
+            sb.append(',');
+          }
+          first = false;
+          appendWorker(sb, rs);
+          sb.append('}');
+        }
+      }
+      return sb.append("]}").toString();
+    }
+    // end lookupDay
+  }
+
+  /**
+   * Look up a worker and their available days.
+   *
+   * @param conn Connection to the Database.
+   * @param id   Database ID of the worker.
+   * @return JSON for the worker, null if not found.
+   * @throws SQLException thrown if the Database can not be queried.
+   */
+  protected String lookupWorker(final Connection conn, final int id) throws SQLException {
+    try (final PreparedStatement ps = conn.prepareStatement(
+        "SELECT W.ID, W.LAST_NAME, W.FIRST_NAME, W.VR_ID, W.PRECINCT, W.ROLE, A.DAY FROM WORKER W "
+            + "LEFT JOIN AVAILABILITY A ON A.ID = W.ID WHERE W.ID = ? ORDER BY A.DAY")) {
+      ps.setInt(1, id);
+      try (final ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          return null;
+        } // else
+        final StringBuilder sb = new StringBuilder(256);
+        appendWorkerDays(sb, rs);
+        return sb.toString();
+      }
+    }
+    // end lookupWorker
+  }
+
+  /**
+   * List the workers of a precinct with their available days.
+   *
+   * @param conn     Connection to the Database.
+   * @param precinct the precinct being looked up.
+   * @return JSON listing the workers.
+   * @throws SQLException thrown if the Database can not be queried.
+   */
+  protected String lookupPrecinct(final Connection conn, final int precinct) throws SQLException {
+    try (final PreparedStatement ps = conn.prepareStatement(
+        "SELECT W.ID, W.LAST_NAME, W.FIRST_NAME, W.VR_ID, W.PRECINCT, W.ROLE, A.DAY FROM WORKER W "
+            + "LEFT JOIN AVAILABILITY A ON A.ID = W.ID WHERE W.PRECINCT = ? "
+            + "ORDER BY W.LAST_NAME, W.FIRST_NAME, W.ID, A.DAY")) {
+      ps.setInt(1, precinct);
+      final StringBuilder sb = new StringBuilder(1024);
+      sb.append("{\"precinct\":").append(precinct).append(",\"workers\":[");
+      try (final ResultSet rs = ps.executeQuery()) {
+        boolean more = rs.next();
+        boolean first = true;
+        while (more) {
+          if (!first) {
+            sb.append(',');
+          }
+          first = false;
+          more = appendWorkerDays(sb, rs);
+        }
+      }
+      return sb.append("]}").toString();
+    }
+    // end lookupPrecinct
+  }
+
+  /**
+   * Append a worker and their days, consuming the rows of the ResultSet that belong to the worker.
+   *
+   * @param sb Buffer to append to.
+   * @param rs ResultSet positioned on the first row of the worker, with DAY as the 7th column.
+   * @return true if the ResultSet is positioned on the next worker, false if exhausted.
+   * @throws SQLException thrown if the ResultSet can not be read.
+   */
+  private static boolean appendWorkerDays(final StringBuilder sb, final ResultSet rs) throws SQLException {
+    final int id = rs.getInt(1);
+    appendWorker(sb, rs);
+    sb.append(",\"days\":[");
+    boolean more;
+    boolean first = true;
+    do {
+      final Date day = rs.getDate(7);
+      if (day != null) {
+        if (!first) {
+          sb.append(',');
+        }
+        first = false;
+        sb.append('"').append(day).append('"');
+      }
+      more = rs.next();
+    } while (more && rs.getInt(1) == id);
+    sb.append("]}");
+    return more;
+    // end appendWorkerDays
+  }
+
+  /**
+   * Append the worker columns as an unterminated JSON object.
+   *
+   * @param sb Buffer to append to.
+   * @param rs ResultSet with ID, LAST_NAME, FIRST_NAME, VR_ID, PRECINCT, ROLE as the first columns.
+   * @throws SQLException thrown if the ResultSet can not be read.
+   */
+  private static void appendWorker(final StringBuilder sb, final ResultSet rs) throws SQLException {
+    sb.append("{\"id\":").append(rs.getInt(1));
+    sb.append(",\"lastName\":").append(quote(rs.getString(2)));
+    sb.append(",\"firstName\":").append(quote(rs.getString(3)));
+    sb.append(",\"vrId\":").append(quote(rs.getString(4)));
+    final int precinct = rs.getInt(5);
+    sb.append(",\"precinct\":").append(rs.wasNull() ? "null" : Integer.toString(precinct));
+    sb.append(",\"role\":").append(quote(rs.getString(6)));
+    // end appendWorker
+  }
+
+  /**
+   * Quote a String for JSON.
+   *
+   * @param value the value to quote.
+   * @return the quoted value, or <code>null</code>.
+   */
+  static String quote(final String value) {
+    if (value == null) {
+      return "null";
+    } // else
+    final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char ch = value.charAt(i);
+      if (ch == '"' || ch == '\\') {
+        sb.append('\\').append(ch);
+      } else if (ch < 0x20) {
+        sb.append(String.format("\\u%04x", Integer.valueOf(ch)));
+      } else {
+        sb.append(ch);
+      }
+    }
+    return sb.append('"').toString();
+    // end quote
+  }
+
+  /**
+   * Parse a path parameter.
+   *
+   * @param value the path parameter.
+   * @return the integer value.
+   * @throws IllegalArgumentException thrown if the value isn't a number.
+   */
+  private static int parseInt(final String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not a number: " + value, e);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() {
+    this.server.stop(0);
+    this.executor.shutdown();
+    // end close
+  }
+
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of the parsed survey data, so later runs with unchanged input spreadsheets can reload
+ * the Database without parsing the spreadsheets.
+ * <p>
+ * The snapshot holds a digest of the input files, the worker table with its text columns encoded as
+ * indexes into a dictionary of distinct values, a bitset of available days per worker, the header style
+ * and any merge conflicts. It is read through a memory mapped buffer.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class AvailabilitySnapshot {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(AvailabilitySnapshot.class);
+
+  /**
+   * Marks a snapshot file ("DEMS").
+   */
+  protected static final int MAGIC = 0x44454D53;
+
+  /**
+   * Version of the snapshot layout. Bump when the layout changes.
+   */
+  protected static final int VERSION = 1;
+
+  /**
+   * Dictionary index of a null value.
+   */
+  protected static final int NULL_INDEX = -1;
+
+  /**
+   * Text columns of the WORKER table, in snapshot order.
+   */
+  protected static final String[] WORKER_COLUMNS = {"VR_ID", "LAST_NAME", "FIRST_NAME", "ROLE", "CITY", "PHONE",
+      "EMAIL", "EXPERIENCED", "LANGUAGES", "LOCATION", "NOTES"};
+
+  /**
+   * The snapshot file.
+   */
+  protected final File file;
+
+  /**
+   * The input files the snapshot is built from, null entries are skipped.
+   */
+  protected final List<File> inputs;
+
+  /**
+   * Options affecting how the inputs are parsed, such as the merge policy.
+   */
+  protected final String options;
+
+  /**
+   * Header style restored by {@link #load(Connection)}.
+   */
+  protected CellStyle headerStyle;
+
+  /**
+   * Merge conflicts restored by {@link #load(Connection)}.
+   */
+  protected List<SurveyMerge.Conflict> conflicts = Collections.emptyList();
+
+  /**
+   * Digest of the inputs, computed once.
+   */
+  private byte[] inputDigest;
+
+  /**
+   * Constructor for AvailabilitySnapshot.
+   *
+   * @param file    The snapshot file.
+   * @param inputs  The input files the snapshot is built from, null entries are skipped.  Null to load the
+   *                  snapshot whatever it was built from, such as a baseline for a {@link SurveyDiff}.
+   * @param options Options affecting how the inputs are parsed, such as the merge policy.
+   */
+  public AvailabilitySnapshot(final File file, final List<File> inputs, final String options) {
+    this.file = file;
+    this.inputs = inputs;
+    this.options = options;
+    // end <init>
+  }
+
+  /**
+   * A worker decoded from the snapshot.
+   */
+  protected static class SnapshotWorker {
+
+    /**
+     * Database ID of the worker.
+     */
+    final int id;
+
+    /**
+     * Precinct, {@link Integer#MIN_VALUE} if none.
+     */
+    final int precinct;
+
+    /**
+     * Values of the {@link AvailabilitySnapshot#WORKER_COLUMNS}.
+     */
+    final String[] values = new String[WORKER_COLUMNS.length];
+
+    /**
+     * Indexes of the days the worker is available.
+     */
+    BitSet available;
+
+    /**
+     * @param id       Database ID of the worker.
+     * @param precinct Precinct, {@link Integer#MIN_VALUE} if none.
+     */
+    SnapshotWorker(final int id, final int precinct) {
+      this.id = id;
+      this.precinct = precinct;
+      // end <init>
+    }
+
+  }
+
+  /**
+   * Load the snapshot into the empty Database, if it was built from the same inputs (or any inputs, if
+   * there are no inputs).  The whole snapshot is read before anything is inserted, and the inserts are
+   * rolled back if any fails, so a snapshot that can't be loaded leaves the Database empty for parsing.
+   *
+   * @param c Connection to the Database.
+   * @return true if loaded, false if the snapshot is missing, stale or unreadable and the inputs must be
+   *         parsed.
+   * @throws SQLException thrown if the Database can not be rolled back.
+   */
+  public boolean load(final Connection c) throws SQLException {
+    if (!this.file.isFile()) {
+      return false;
+    } // else
+    final long start = System.currentTimeMillis();
+    try (final FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        LOGGER.info("Snapshot {} is from another version, parsing", this.file.getName());
+        return false;
+      } // else
+      final byte[] digest = new byte[buffer.getShort()];
+      buffer.get(digest);
+      if (this.inputs != null && !Arrays.equals(digest, inputDigest())) {
+        LOGGER.info("Inputs changed since snapshot {}, parsing", this.file.getName());
+        return false;
+      } // else
+      final String[] dictionary = new String[buffer.getInt()];
+      for (int i = 0; i < dictionary.length; i++) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      this.headerStyle = readStyle(buffer, dictionary);
+      final Date[] days = new Date[buffer.getInt()];
+      for (int i = 0; i < days.length; i++) {
+        days[i] = Date.valueOf(LocalDate.ofEpochDay(buffer.getInt()));
+      }
+      final List<SnapshotWorker> workers = readWorkers(buffer, dictionary, days);
+      final List<SurveyMerge.Conflict> snapshotConflicts = readConflicts(buffer, dictionary);
+      final boolean autoCommit = c.getAutoCommit();
+      c.setAutoCommit(false);
+      try {
+        loadWorkers(c, workers, days);
+      } catch (SQLException e) {
+        c.rollback();
+        LOGGER.warn("Unable to load snapshot {}, parsing: {}", this.file.getAbsolutePath(), e.toString());
+        return false;
+      } finally {
+        c.setAutoCommit(autoCommit);
+      }
+      this.conflicts = snapshotConflicts;
+      LOGGER.info("Loaded {} workers from snapshot {} in {}ms", Integer.valueOf(workers.size()),
+          this.file.getName(), Long.valueOf(System.currentTimeMillis() - start));
+      return true;
+    } catch (IOException | RuntimeException e) {
+      // BufferUnderflowException and friends mean a truncated or corrupt snapshot.
+      LOGGER.warn("Unable to read snapshot {}, parsing: {}", this.file.getAbsolutePath(), e.toString());
+      return false;
+    }
+    // end load
+  }
+
+  /**
+   * Read the workers and their availability from the snapshot.
+   *
+   * @param buffer     the snapshot, positioned at the worker count.
+   * @param dictionary the text values.
+   * @param days       the days the bitsets refer to.
+   * @return the workers.
+   */
+  protected List<SnapshotWorker> readWorkers(final ByteBuffer buffer, final String[] dictionary,
+      final Date[] days) {
+    final int workerCount = buffer.getInt();
+    final int words = (days.length + 63) / 64;
+    final List<SnapshotWorker> workers = new ArrayList<>(workerCount);
+    final long[] bits = new long[words];
+    for (int w = 0; w < workerCount; w++) {
+      final SnapshotWorker worker = new SnapshotWorker(buffer.getInt(), buffer.getInt());
+      for (int i = 0; i < WORKER_COLUMNS.length; i++) {
+        worker.values[i] = lookup(dictionary, buffer.getInt());
+      }
+      for (int i = 0; i < words; i++) {
+        bits[i] = buffer.getLong();
+      }
+      worker.available = BitSet.valueOf(bits);
+      if (worker.available.length() > days.length) {
+        throw new IllegalStateException("Day " + worker.available.length() + " is not in the snapshot");
+      } // else
+      workers.add(worker);
+    }
+    return workers;
+    // end readWorkers
+  }
+
+  /**
+   * Insert the workers and their availability read from the snapshot, and commit them.
+   *
+   * @param c       Connection to the Database.
+   * @param workers the workers.
+   * @param days    the days the bitsets refer to.
+   * @throws SQLException thrown if the data can't be inserted into the Database.
+   */
+  protected void loadWorkers(final Connection c, final List<SnapshotWorker> workers, final Date[] days)
+      throws SQLException {
+    int maxId = -1;
+    final StringBuilder sql = new StringBuilder("INSERT INTO WORKER (ID, PRECINCT");
+    for (final String column : WORKER_COLUMNS) {
+      sql.append(", ").append(column);
+    }
+    sql.append(") VALUES (?, ?");
+    for (int i = 0; i < WORKER_COLUMNS.length; i++) {
+      sql.append(", ?");
+    }
+    sql.append(')');
+    try (final PreparedStatement insertWorker = c.prepareStatement(sql.toString());
+        final PreparedStatement insertAvailable =
+            c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (?,?)");
+        final Statement s = c.createStatement()) {
+      for (final SnapshotWorker worker : workers) {
+        maxId = Math.max(maxId, worker.id);
+        insertWorker.setInt(1, worker.id);
+        if (worker.precinct == Integer.MIN_VALUE) {
+          insertWorker.setNull(2, Types.SMALLINT);
+        } else {
+          insertWorker.setInt(2, worker.precinct);
+        }
+        for (int i = 0; i < WORKER_COLUMNS.length; i++) {
+          insertWorker.setString(i + 3, worker.values[i]);
+        }
+        insertWorker.addBatch();
+        for (int d = worker.available.nextSetBit(0); d >= 0; d = worker.available.nextSetBit(d + 1)) {
+          insertAvailable.setInt(1, worker.id);
+          insertAvailable.setDate(2, days[d]);
+          insertAvailable.addBatch();
+        }
+      }
+      // Workers first, the availability references them.
+      insertWorker.executeBatch();
+      insertAvailable.executeBatch();
+      // DDL commits, so only once the rows are in.
+      c.commit();
+      s.execute("ALTER TABLE WORKER ALTER COLUMN ID RESTART WITH " + (maxId + 1));
+    }
+    // end loadWorkers
+  }
+
+  /**
+   * Write a snapshot of the Database, replacing any previous snapshot.  Failures are logged, not thrown,
+   * as the snapshot is only an optimization.
+   *
+   * @param c           Connection to the Database.
+   * @param headerStyle the header style of the parsed survey, may be null.
+   * @param conflicts   the merge conflicts found while parsing.
+   * @throws SQLException thrown if the Database can not be read.
+   */
+  public void write(final Connection c, final CellStyle headerStyle, final List<SurveyMerge.Conflict> conflicts)
+      throws SQLException {
+    final Map<String, Integer> dictionary = new HashMap<>();
+    final List<String> values = new ArrayList<>();
+    // Day -> bit index, assigned in day order once all the days are known.
+    final TreeMap<Long, Integer> dayIndex = new TreeMap<>();
+    final Map<Integer, List<Long>> availability = new HashMap<>();
+    try (final Statement s = c.createStatement();
+        final ResultSet rs = s.executeQuery("SELECT ID, DAY FROM AVAILABILITY ORDER BY ID, DAY")) {
+      while (rs.next()) {
+        final Long day = Long.valueOf(rs.getDate(2).toLocalDate().toEpochDay());
+        dayIndex.put(day, null);
+        List<Long> days = availability.get(Integer.valueOf(rs.getInt(1)));
+        if (days == null) {
+          days = new ArrayList<>();
+          availability.put(Integer.valueOf(rs.getInt(1)), days);
+        }
+        days.add(day);
+      }
+    }
+    int index = 0;
+    for (final Map.Entry<Long, Integer> entry : dayIndex.entrySet()) {
+      entry.setValue(Integer.valueOf(index++));
+    }
+    final File temp = new File(this.file.getPath() + ".tmp");
+    try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      final List<int[]> workers = new ArrayList<>();
+      final StringBuilder sql = new StringBuilder("SELECT ID, PRECINCT");
+      for (final String column : WORKER_COLUMNS) {
+        sql.append(", ").append(column);
+      }
+      sql.append(" FROM WORKER ORDER BY ID");
+      try (final Statement s = c.createStatement(); final ResultSet rs = s.executeQuery(sql.toString())) {
+        while (rs.next()) {
+          final int[] worker = new int[WORKER_COLUMNS.length + 2];
+          worker[0] = rs.getInt(1);
+          worker[1] = rs.getInt(2);
+          if (rs.wasNull()) {
+            worker[1] = Integer.MIN_VALUE;
+          }
+          for (int i = 0; i < WORKER_COLUMNS.length; i++) {
+            worker[i + 2] = encode(dictionary, values, rs.getString(i + 3));
+          }
+          workers.add(worker);
+        }
+      }
+      final List<int[]> encodedConflicts = new ArrayList<>(conflicts.size());
+      for (final SurveyMerge.Conflict conflict : conflicts) {
+        final AvailabilityRecord record = conflict.getRecord();
+        encodedConflicts.add(new int[] {encode(dictionary, values, record.getLastName()),
+            encode(dictionary, values, record.getFirstName()), encode(dictionary, values, record.getVrId()),
+            encode(dictionary, values, record.getPrecinct()), encode(dictionary, values, record.getRole()),
+            encode(dictionary, values, record.getSource()), encode(dictionary, values, conflict.getDescription()),
+            (int) record.getDay().toLocalDate().toEpochDay(), (record.isYes() ? 1 : 0) | (record.isNo() ? 2 : 0)});
+      }
+      final int fontName = headerStyle instanceof XSSFCellStyle
+          ? encode(dictionary, values, ((XSSFCellStyle) headerStyle).getFont().getFontName()) : NULL_INDEX;
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      final byte[] digest = inputDigest();
+      out.writeShort(digest.length);
+      out.write(digest);
+      out.writeInt(values.size());
+      for (final String value : values) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      writeStyle(out, headerStyle, fontName);
+      out.writeInt(dayIndex.size());
+      for (final Long day : dayIndex.keySet()) {
+        out.writeInt(day.intValue());
+      }
+      out.writeInt(workers.size());
+      final int words = (dayIndex.size() + 63) / 64;
+      for (final int[] worker : workers) {
+        for (final int value : worker) {
+          out.writeInt(value);
+        }
+        final BitSet available = new BitSet(dayIndex.size());
+        final List<Long> days = availability.get(Integer.valueOf(worker[0]));
+        if (days != null) {
+          for (final Long day : days) {
+            available.set(dayIndex.get(day).intValue());
+          }
+        }
+        final long[] bits = Arrays.copyOf(available.toLongArray(), words);
+        for (final long word : bits) {
+          out.writeLong(word);
+        }
+      }
+      out.writeInt(encodedConflicts.size());
+      for (final int[] conflict : encodedConflicts) {
+        for (final int value : conflict) {
+          out.writeInt(value);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write snapshot {}: {}", this.file.getAbsolutePath(), e.getMessage());
+      temp.delete();
+      return;
+    }
+    try {
+      Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      LOGGER.info("Wrote snapshot {}", this.file.getAbsolutePath());
+    } catch (IOException e) {
+      LOGGER.warn("Unable to replace snapshot {}: {}", this.file.getAbsolutePath(), e.getMessage());
+      temp.delete();
+    }
+    // end write
+  }
+
+  /**
+   * Read the merge conflicts.
+   *
+   * @param buffer     the snapshot, positioned at the conflict count.
+   * @param dictionary the text values.
+   * @return the conflicts.
+   */
+  protected List<SurveyMerge.Conflict> readConflicts(final ByteBuffer buffer, final String[] dictionary) {
+    final int count = buffer.getInt();
+    final List<SurveyMerge.Conflict> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final String lastName = lookup(dictionary, buffer.getInt());
+      final String firstName = lookup(dictionary, buffer.getInt());
+      final String vrId = lookup(dictionary, buffer.getInt());
+      final String precinct = lookup(dictionary, buffer.getInt());
+      final String role = lookup(dictionary, buffer.getInt());
+      final String source = lookup(dictionary, buffer.getInt());
+      final String description = lookup(dictionary, buffer.getInt());
+      final Date day = Date.valueOf(LocalDate.ofEpochDay(buffer.getInt()));
+      final int flags = buffer.getInt();
+      result.add(new SurveyMerge.Conflict(new AvailabilityRecord(lastName, firstName, vrId, precinct, role, day,
+          (flags & 1) != 0, (flags & 2) != 0, source), description));
+    }
+    return result;
+    // end readConflicts
+  }
+
+  /**
+   * Write the parts of the header style that are restored: font, fill and alignment.
+   */
+  private static void writeStyle(final DataOutputStream out, final CellStyle headerStyle, final int fontName)
+      throws IOException {
+    if (!(headerStyle instanceof XSSFCellStyle)) {
+      out.writeBoolean(false);
+      return;
+    } // else
+    final XSSFCellStyle style = (XSSFCellStyle) headerStyle;
+    final XSSFFont font = style.getFont();
+    out.writeBoolean(true);
+    out.writeInt(fontName);
+    out.writeShort(font.getFontHeight());
+    out.writeBoolean(font.getBold());
+    out.writeBoolean(font.getItalic());
+    writeColor(out, font.getXSSFColor(), font.getColor());
+    out.writeShort(style.getFillPattern().getCode());
+    writeColor(out, style.getFillForegroundXSSFColor(), style.getFillForegroundColor());
+    out.writeShort(style.getAlignment().getCode());
+  }
+
+  /**
+   * Write a color as RGB if it has one, else as an indexed color.
+   */
+  private static void writeColor(final DataOutputStream out, final XSSFColor color, final short indexed)
+      throws IOException {
+    final byte[] rgb = color == null ? null : color.getRGB();
+    if (rgb == null) {
+      out.writeByte(0);
+      out.writeShort(indexed);
+    } else {
+      out.writeByte(rgb.length);
+      out.write(rgb);
+    }
+  }
+
+  /**
+   * Read the header style into a new workbook.
+   *
+   * @return the header style, or null if none was stored.
+   */
+  private static CellStyle readStyle(final ByteBuffer buffer, final String[] dictionary) {
+    if (buffer.get() == 0) {
+      return null;
+    } // else
+    @SuppressWarnings("resource") // In memory only, the style needs the workbook to stay open.
+    final XSSFWorkbook workbook = new XSSFWorkbook();
+    final XSSFCellStyle style = workbook.createCellStyle();
+    final XSSFFont font = workbook.createFont();
+    font.setFontName(lookup(dictionary, buffer.getInt()));
+    font.setFontHeight(buffer.getShort());
+    font.setBold(buffer.get() != 0);
+    font.setItalic(buffer.get() != 0);
+    final XSSFColor fontColor = readColor(buffer);
+    if (fontColor == null) {
+      font.setColor(buffer.getShort());
+    } else {
+      font.setColor(fontColor);
+    }
+    style.setFont(font);
+    style.setFillPattern(FillPatternType.forInt(buffer.getShort()));
+    final XSSFColor fillColor = readColor(buffer);
+    if (fillColor == null) {
+      style.setFillForegroundColor(buffer.getShort());
+    } else {
+      style.setFillForegroundColor(fillColor);
+    }
+    style.setAlignment(HorizontalAlignment.forInt(buffer.getShort()));
+    return style;
+  }
+
+  /**
+   * Read an RGB color.
+   *
+   * @return the color, or null if an indexed color follows.
+   */
+  private static XSSFColor readColor(final ByteBuffer buffer) {
+    final int length = buffer.get();
+    if (length == 0) {
+      return null;
+    } // else
+    final byte[] rgb = new byte[length];
+    buffer.get(rgb);
+    return new XSSFColor(rgb, null);
+  }
+
+  /**
+   * @param dictionary value -> dictionary index, updated with new values.
+   * @param values     the dictionary values, in index order.
+   * @param value      the value to encode, may be null.
+   * @return the dictionary index of the value.
+   */
+  private static int encode(final Map<String, Integer> dictionary, final List<String> values, final String value) {
+    if (value == null) {
+      return NULL_INDEX;
+    } // else
+    Integer index = dictionary.get(value);
+    if (index == null) {
+      index = Integer.valueOf(values.size());
+      values.add(value);
+      dictionary.put(value, index);
+    }
+    return index.intValue();
+  }
+
+  /**
+   * @return the value at a dictionary index, null for {@link #NULL_INDEX}.
+   */
+  private static String lookup(final String[] dictionary, final int index) {
+    return index == NULL_INDEX ? null : dictionary[index];
+  }
+
+  /**
+   * @return the SHA-256 digest of the layout version, the options and the content of each input file.
+   * @throws IOException thrown if an input can not be read.
+   */
+  protected byte[] inputDigest() throws IOException {
+    if (this.inputDigest == null) {
+      final MessageDigest md;
+      try {
+        md = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 is a required algorithm", e);
+      }
+      md.update((VERSION + "|" + this.options).getBytes(StandardCharsets.UTF_8));
+      final byte[] buffer = new byte[64 * 1024];
+      for (final File input : this.inputs) {
+        if (input == null) {
+          continue;
+        } // else
+        md.update(input.getName().getBytes(StandardCharsets.UTF_8));
+        try (final InputStream in = new BufferedInputStream(new FileInputStream(input))) {
+          for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            md.update(buffer, 0, read);
+          }
+        }
+      }
+      this.inputDigest = md.digest();
+    }
+    return this.inputDigest;
+  }
+
+  /**
+   * @return the header style restored by {@link #load(Connection)}, null if none.
+   */
+  public CellStyle getHeaderStyle() {
+    return this.headerStyle;
+  }
+
+  /**
+   * @return the merge conflicts restored by {@link #load(Connection)}.
+   */
+  public List<SurveyMerge.Conflict> getConflicts() {
+    return this.conflicts;
+  }
+
+}
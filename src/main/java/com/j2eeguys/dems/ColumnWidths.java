@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * Tracks the widest value written to each column of a sheet, so the column widths can be set once the
+ * sheet is built.  Unlike {@link Sheet#autoSizeColumn(int)}, which re-reads every cell and measures it with
+ * AWT font metrics, this only counts characters as the values are written, so it costs nothing noticeable
+ * and works headless and with streaming workbooks.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class ColumnWidths {
+
+  /**
+   * Characters added to the widest value, for the cell margins.
+   */
+  protected static final int PADDING = 2;
+
+  /**
+   * Widest column, in characters, so long notes don't push the other columns off screen.
+   */
+  protected static final int MAX_CHARS = 60;
+
+  /**
+   * Widest value written to each column, in characters.
+   */
+  private int[] widths = new int[16];
+
+  /**
+   * Create a cell holding a value, tracking its width.
+   *
+   * @param row    the row.
+   * @param column the column of the cell.
+   * @param value  the value, may be null.
+   * @return the cell.
+   */
+  public Cell createCell(final Row row, final int column, final String value) {
+    final Cell cell = row.createCell(column);
+    cell.setCellValue(value);
+    track(column, value);
+    return cell;
+  }
+
+  /**
+   * Track a value written to a column.
+   *
+   * @param column the column.
+   * @param value  the value, may be null.
+   */
+  public void track(final int column, final String value) {
+    if (value == null) {
+      return;
+    } // else
+    if (column >= this.widths.length) {
+      this.widths = Arrays.copyOf(this.widths, Math.max(column + 1, this.widths.length * 2));
+    }
+    if (value.length() > this.widths[column]) {
+      this.widths[column] = value.length();
+    }
+    // end track
+  }
+
+  /**
+   * Set the width of each column written to from its widest value.
+   *
+   * @param sheet the sheet.
+   */
+  public void apply(final Sheet sheet) {
+    for (int column = 0; column < this.widths.length; column++) {
+      if (this.widths[column] > 0) {
+        sheet.setColumnWidth(column, Math.min(MAX_CHARS, this.widths[column] + PADDING) * 256);
+      }
+    }
+    // end apply
+  }
+
+}
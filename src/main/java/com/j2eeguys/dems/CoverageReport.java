@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Staffing counts: how many workers are available per day, per precinct and per role, and how many of
+ * those are bilingual or experienced. Computed from one grouped query over the availability data.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class CoverageReport {
+
+  /**
+   * Key used for workers without a precinct.
+   */
+  public static final int NO_PRECINCT = -1;
+
+  /**
+   * Key used for workers without a role.
+   */
+  public static final String NO_ROLE = "";
+
+  /**
+   * Worker counts for one grouping.
+   */
+  public static class Counts {
+
+    /**
+     * Workers available.
+     */
+    protected int available;
+
+    /**
+     * Available workers that speak another language.
+     */
+    protected int bilingual;
+
+    /**
+     * Available workers with experience.
+     */
+    protected int experienced;
+
+    /**
+     * Add counts to these.
+     *
+     * @param available   Workers available.
+     * @param bilingual   Available workers that speak another language.
+     * @param experienced Available workers with experience.
+     */
+    protected void add(final int available, final int bilingual, final int experienced) {
+      this.available += available;
+      this.bilingual += bilingual;
+      this.experienced += experienced;
+    }
+
+    /**
+     * @return the number of workers available.
+     */
+    public int getAvailable() {
+      return this.available;
+    }
+
+    /**
+     * @return the number of available workers that speak another language.
+     */
+    public int getBilingual() {
+      return this.bilingual;
+    }
+
+    /**
+     * @return the number of available workers with experience.
+     */
+    public int getExperienced() {
+      return this.experienced;
+    }
+
+  }
+
+  /**
+   * Connection to the Database.
+   */
+  protected final Connection c;
+
+  /**
+   * Days and precincts with fewer available workers than this are flagged.
+   */
+  protected final int minimum;
+
+  /**
+   * Counts per day.
+   */
+  protected final Map<Date, Counts> byDay = new TreeMap<>();
+
+  /**
+   * Counts per day, then precinct.
+   */
+  protected final Map<Date, Map<Integer, Counts>> byDayPrecinct = new TreeMap<>();
+
+  /**
+   * Counts per day, then precinct, then role.
+   */
+  protected final Map<Date, Map<Integer, Map<String, Counts>>> byDayPrecinctRole = new TreeMap<>();
+
+  /**
+   * Constructor for CoverageReport.
+   *
+   * @param c       Connection to the Database.
+   * @param minimum Days and precincts with fewer available workers than this are flagged.
+   */
+  public CoverageReport(final Connection c, final int minimum) {
+    this.c = c;
+    this.minimum = minimum;
+    // end <init>
+  }
+
+  /**
+   * Compute the counts. Precincts with workers but no availability on a day are counted as zero, so they
+   * can be flagged.
+   *
+   * @return this report.
+   * @throws SQLException thrown if the Database can not be read.
+   */
+  public CoverageReport load() throws SQLException {
+    final List<Integer> precincts = new ArrayList<>();
+    try (final PreparedStatement coverage = this.c.prepareStatement(
+        "SELECT A.DAY, W.PRECINCT, W.ROLE, COUNT(A.DAY), "
+            + "SUM(CASE WHEN A.DAY IS NOT NULL AND W.LANGUAGES IS NOT NULL AND W.LANGUAGES <> '' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN A.DAY IS NOT NULL AND W.EXPERIENCED = '1' THEN 1 ELSE 0 END) "
+            + "FROM WORKER W LEFT JOIN AVAILABILITY A ON A.ID = W.ID GROUP BY A.DAY, W.PRECINCT, W.ROLE");
+        final ResultSet rs = coverage.executeQuery()) {
+      while (rs.next()) {
+        final int precinctValue = rs.getInt(2);
+        final Integer precinct = Integer.valueOf(rs.wasNull() ? NO_PRECINCT : precinctValue);
+        if (!precincts.contains(precinct)) {
+          precincts.add(precinct);
+        }
+        final Date day = rs.getDate(1);
+        if (day == null) {
+          // Workers without availability, only needed for the precinct list.
+          continue;
+        } // else
+        final String role = rs.getString(3) == null ? NO_ROLE : rs.getString(3).trim();
+        final int available = rs.getInt(4);
+        final int bilingual = rs.getInt(5);
+        final int experienced = rs.getInt(6);
+        counts(this.byDay, day).add(available, bilingual, experienced);
+        counts(nested(this.byDayPrecinct, day), precinct).add(available, bilingual, experienced);
+        counts(nested(nested(this.byDayPrecinctRole, day), precinct), role).add(available, bilingual, experienced);
+      }
+    }
+    for (final Map<Integer, Counts> dayPrecincts : this.byDayPrecinct.values()) {
+      for (final Integer precinct : precincts) {
+        counts(dayPrecincts, precinct);
+      }
+    }
+    return this;
+    // end load
+  }
+
+  /**
+   * @return the Days and precincts with fewer available workers than this are flagged.
+   */
+  public int getMinimum() {
+    return this.minimum;
+  }
+
+  /**
+   * @return the counts per day, in day order.
+   */
+  public Map<Date, Counts> getByDay() {
+    return Collections.unmodifiableMap(this.byDay);
+  }
+
+  /**
+   * @return the counts per day, then precinct ({@link #NO_PRECINCT} for workers without one).
+   */
+  public Map<Date, Map<Integer, Counts>> getByDayPrecinct() {
+    return Collections.unmodifiableMap(this.byDayPrecinct);
+  }
+
+  /**
+   * @return the counts per day, then precinct, then role ({@link #NO_ROLE} for workers without one).
+   */
+  public Map<Date, Map<Integer, Map<String, Counts>>> getByDayPrecinctRole() {
+    return Collections.unmodifiableMap(this.byDayPrecinctRole);
+  }
+
+  /**
+   * @param counts the counts to check.
+   * @return true if fewer workers than the minimum are available.
+   */
+  public boolean isBelowMinimum(final Counts counts) {
+    return counts.getAvailable() < this.minimum;
+  }
+
+  /**
+   * @return the days with fewer available workers than the minimum.
+   */
+  public List<Date> getDaysBelowMinimum() {
+    final List<Date> days = new ArrayList<>();
+    for (final Map.Entry<Date, Counts> entry : this.byDay.entrySet()) {
+      if (isBelowMinimum(entry.getValue())) {
+        days.add(entry.getKey());
+      }
+    }
+    return days;
+    // end getDaysBelowMinimum
+  }
+
+  /**
+   * Get the counts for a key, adding them if missing.
+   *
+   * @param <K> the type of the key.
+   * @param map the map holding the counts.
+   * @param key the key.
+   * @return the counts for the key.
+   */
+  private static <K> Counts counts(final Map<K, Counts> map, final K key) {
+    Counts counts = map.get(key);
+    if (counts == null) {
+      counts = new Counts();
+      map.put(key, counts);
+    }
+    return counts;
+  }
+
+  /**
+   * Get the nested map for a key, adding it if missing.
+   *
+   * @param <K> the type of the key.
+   * @param <N> the type of the nested map's keys.
+   * @param <V> the type of the nested map's values.
+   * @param map the map holding the nested maps.
+   * @param key the key.
+   * @return the nested map for the key.
+   */
+  private static <K, N, V> Map<N, V> nested(final Map<K, Map<N, V>> map, final K key) {
+    Map<N, V> nested = map.get(key);
+    if (nested == null) {
+      nested = new TreeMap<>();
+      map.put(key, nested);
+    }
+    return nested;
+  }
+
+}
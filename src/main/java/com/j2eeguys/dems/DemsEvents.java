@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JDK Flight Recorder events for the hot paths: parsing the sheets, resolving the workers, inserting the
+ * availability and building the output sheets.  The events are disabled unless a recording enables them,
+ * see the <code>dems.jfc</code> settings profile; a disabled event costs next to nothing.
+ * <p>
+ * Flight Recorder is optional: the events here only hold the values, and hand them on to the
+ * <code>jdk.jfr</code> events of {@link JfrEvents}, which is loaded only when <code>jdk.jfr</code> is
+ * present (Java 8u262 or later).  Without it every event is a no-op.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public final class DemsEvents {
+
+  /**
+   * Logger for this class.
+   */
+  private final static Logger LOGGER = LoggerFactory.getLogger(DemsEvents.class);
+
+  /**
+   * Path taken to resolve a worker: found by VR #.
+   */
+  public static final String PATH_VR = "VR";
+
+  /**
+   * Path taken to resolve a worker: found by name, VR # updated.
+   */
+  public static final String PATH_NAME = "Name";
+
+  /**
+   * Path taken to resolve a worker: inserted.
+   */
+  public static final String PATH_INSERT = "Insert";
+
+  /**
+   * Path taken to resolve a worker: not found and not inserted.
+   */
+  public static final String PATH_MISSING = "Missing";
+
+  /**
+   * Creates the Flight Recorder events, null if <code>jdk.jfr</code> is not present.
+   */
+  private static final Recorders RECORDERS = recorders();
+
+  /**
+   * A Flight Recorder event, see {@link JfrEvents}.
+   */
+  interface Recorder {
+
+    /**
+     * Start timing the event.
+     */
+    void begin();
+
+    /**
+     * Stop timing the event.
+     */
+    void end();
+
+    /**
+     * @return true if the event is enabled and over its threshold.
+     */
+    boolean shouldCommit();
+
+    /**
+     * Copy the values of the event and commit it.
+     * @param values the event values.
+     */
+    void record(Event values);
+
+  }
+
+  /**
+   * Creates the Flight Recorder events and recordings, see {@link JfrEvents}.
+   */
+  interface Recorders {
+
+    /**
+     * @return a new {@link SheetParsed} event.
+     */
+    Recorder sheetParsed();
+
+    /**
+     * @return a new {@link WorkerResolved} event.
+     */
+    Recorder workerResolved();
+
+    /**
+     * @return a new {@link AvailabilityInsert} event.
+     */
+    Recorder availabilityInsert();
+
+    /**
+     * @return a new {@link SheetBuilt} event.
+     */
+    Recorder sheetBuilt();
+
+    /**
+     * Start a recording with the <code>dems.jfc</code> settings profile.
+     * @param destination the file to write the recording to.
+     * @return the started recording, which is stopped and written to the destination when closed.
+     * @throws IOException thrown if the settings profile can not be read.
+     * @throws ParseException thrown if the settings profile is invalid.
+     */
+    Closeable startRecording(File destination) throws IOException, ParseException;
+
+  }
+
+  /**
+   * @return the Flight Recorder events, null if <code>jdk.jfr</code> is not present.
+   */
+  private static Recorders recorders() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return (Recorders) Class.forName("com.j2eeguys.dems.JfrEvents").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOGGER.debug("No Flight Recorder, events are off", e);
+      return null;
+    }
+    // end recorders
+  }
+
+  /**
+   * @return true if Flight Recorder is present, so the events can be recorded.
+   */
+  public static boolean isAvailable() {
+    return RECORDERS != null;
+  }
+
+  /**
+   * Start a recording with the <code>dems.jfc</code> settings profile, which enables the events.
+   * @param destination the file to write the recording to.
+   * @return the started recording, which is stopped and written to the destination when closed.
+   * @throws IOException thrown if the settings profile can not be read.
+   * @throws ParseException thrown if the settings profile is invalid.
+   * @throws IllegalStateException thrown if Flight Recorder is not present.
+   */
+  public static Closeable startRecording(final File destination) throws IOException, ParseException {
+    if (RECORDERS == null) {
+      throw new IllegalStateException("Recording needs Flight Recorder, Java 8u262 or later, running "
+          + System.getProperty("java.version"));
+    } // else
+    return RECORDERS.startRecording(destination);
+  }
+
+  /**
+   * The values of an event, handed on to its Flight Recorder event when committed.
+   */
+  public abstract static class Event {
+
+    /**
+     * The Flight Recorder event, null if not present.
+     */
+    private final Recorder recorder;
+
+    /**
+     * @param recorder the Flight Recorder event, null if not present.
+     */
+    Event(final Recorder recorder) {
+      this.recorder = recorder;
+      // end <init>
+    }
+
+    /**
+     * Start timing the event.
+     */
+    public void begin() {
+      if (this.recorder != null) {
+        this.recorder.begin();
+      }
+    }
+
+    /**
+     * Stop timing the event.
+     */
+    public void end() {
+      if (this.recorder != null) {
+        this.recorder.end();
+      }
+    }
+
+    /**
+     * @return true if the event is enabled and over its threshold, so the values are worth filling in.
+     */
+    public boolean shouldCommit() {
+      return this.recorder != null && this.recorder.shouldCommit();
+    }
+
+    /**
+     * Record the event, if enabled.
+     */
+    public void commit() {
+      if (this.recorder != null) {
+        this.recorder.record(this);
+      }
+    }
+
+  }
+
+  /**
+   * A sheet of an input spreadsheet was parsed into the Database.
+   */
+  public static class SheetParsed extends Event {
+
+    /**
+     * The spreadsheet file.
+     */
+    String file;
+
+    /**
+     * The sheet.
+     */
+    String sheet;
+
+    /**
+     * Rows read from the sheet.
+     */
+    int rows;
+
+    /**
+     * Workers found on the sheet, 0 when the workers are resolved by a later stage of a pipelined load.
+     */
+    int workers;
+
+    /**
+     * Create the event.
+     */
+    public SheetParsed() {
+      super(RECORDERS == null ? null : RECORDERS.sheetParsed());
+    }
+
+  }
+
+  /**
+   * A worker from a survey was matched with (or added to) the Database.
+   */
+  public static class WorkerResolved extends Event {
+
+    /**
+     * Path taken, one of the <code>PATH_</code> constants.
+     */
+    String path;
+
+    /**
+     * Database ID of the worker, -1 if not found.
+     */
+    int id;
+
+    /**
+     * Create the event.
+     */
+    public WorkerResolved() {
+      super(RECORDERS == null ? null : RECORDERS.workerResolved());
+    }
+
+  }
+
+  /**
+   * Availability was inserted into the Database.
+   */
+  public static class AvailabilityInsert extends Event {
+
+    /**
+     * Rows inserted.
+     */
+    int rows;
+
+    /**
+     * Rows that failed, such as duplicates.
+     */
+    int failed;
+
+    /**
+     * Create the event.
+     */
+    public AvailabilityInsert() {
+      super(RECORDERS == null ? null : RECORDERS.availabilityInsert());
+    }
+
+  }
+
+  /**
+   * An output sheet was built.
+   */
+  public static class SheetBuilt extends Event {
+
+    /**
+     * The sheet.
+     */
+    String sheet;
+
+    /**
+     * Rows on the sheet.
+     */
+    int rows;
+
+    /**
+     * If the sheet was restored from the sheet cache.
+     */
+    boolean cached;
+
+    /**
+     * Create the event.
+     */
+    public SheetBuilt() {
+      super(RECORDERS == null ? null : RECORDERS.sheetBuilt());
+    }
+
+  }
+
+  /**
+   * Not instantiated.
+   */
+  private DemsEvents() {
+    // end <init>
+  }
+
+}
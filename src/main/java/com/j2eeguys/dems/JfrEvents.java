@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+/**
+ * The <code>jdk.jfr</code> events behind {@link DemsEvents}.  Only loaded, by name, when <code>jdk.jfr</code>
+ * is present; nothing else refers to <code>jdk.jfr</code>.
+ *
+ * @author gorky@j2eeguys.com
+ */
+final class JfrEvents implements DemsEvents.Recorders {
+
+  /**
+   * A sheet of an input spreadsheet was parsed into the Database.
+   */
+  @Name("com.j2eeguys.dems.SheetParsed")
+  @Label("Sheet Parsed")
+  @Category({"DEMS", "Ingest"})
+  @Description("An input sheet was parsed into the Database")
+  @StackTrace(false)
+  static class SheetParsed extends Event implements DemsEvents.Recorder {
+
+    /**
+     * The spreadsheet file.
+     */
+    @Label("File")
+    String file;
+
+    /**
+     * The sheet.
+     */
+    @Label("Sheet")
+    String sheet;
+
+    /**
+     * Rows read from the sheet.
+     */
+    @Label("Rows")
+    int rows;
+
+    /**
+     * Workers found on the sheet, 0 when the workers are resolved by a later stage of a pipelined load.
+     */
+    @Label("Workers")
+    int workers;
+
+    /* (non-Javadoc)
+     * @see com.j2eeguys.dems.DemsEvents.Recorder#record(com.j2eeguys.dems.DemsEvents.Event)
+     */
+    @Override
+    public void record(final DemsEvents.Event values) {
+      final DemsEvents.SheetParsed event = (DemsEvents.SheetParsed) values;
+      this.file = event.file;
+      this.sheet = event.sheet;
+      this.rows = event.rows;
+      this.workers = event.workers;
+      commit();
+    }
+
+  }
+
+  /**
+   * A worker from a survey was matched with (or added to) the Database.
+   */
+  @Name("com.j2eeguys.dems.WorkerResolved")
+  @Label("Worker Resolved")
+  @Category({"DEMS", "Ingest"})
+  @Description("A survey worker was matched with, or added to, the Database")
+  @StackTrace(false)
+  static class WorkerResolved extends Event implements DemsEvents.Recorder {
+
+    /**
+     * Path taken, one of the <code>PATH_</code> constants of {@link DemsEvents}.
+     */
+    @Label("Path")
+    String path;
+
+    /**
+     * Database ID of the worker, -1 if not found.
+     */
+    @Label("Worker ID")
+    int id;
+
+    /* (non-Javadoc)
+     * @see com.j2eeguys.dems.DemsEvents.Recorder#record(com.j2eeguys.dems.DemsEvents.Event)
+     */
+    @Override
+    public void record(final DemsEvents.Event values) {
+      final DemsEvents.WorkerResolved event = (DemsEvents.WorkerResolved) values;
+      this.path = event.path;
+      this.id = event.id;
+      commit();
+    }
+
+  }
+
+  /**
+   * Availability was inserted into the Database.
+   */
+  @Name("com.j2eeguys.dems.AvailabilityInsert")
+  @Label("Availability Insert")
+  @Category({"DEMS", "Ingest"})
+  @Description("Availability rows were inserted into the Database")
+  @StackTrace(false)
+  static class AvailabilityInsert extends Event implements DemsEvents.Recorder {
+
+    /**
+     * Rows inserted.
+     */
+    @Label("Rows")
+    int rows;
+
+    /**
+     * Rows that failed, such as duplicates.
+     */
+    @Label("Failed")
+    int failed;
+
+    /* (non-Javadoc)
+     * @see com.j2eeguys.dems.DemsEvents.Recorder#record(com.j2eeguys.dems.DemsEvents.Event)
+     */
+    @Override
+    public void record(final DemsEvents.Event values) {
+      final DemsEvents.AvailabilityInsert event = (DemsEvents.AvailabilityInsert) values;
+      this.rows = event.rows;
+      this.failed = event.failed;
+      commit();
+    }
+
+  }
+
+  /**
+   * An output sheet was built.
+   */
+  @Name("com.j2eeguys.dems.SheetBuilt")
+  @Label("Sheet Built")
+  @Category({"DEMS", "Output"})
+  @Description("An output sheet was built, or restored from the sheet cache")
+  @StackTrace(false)
+  static class SheetBuilt extends Event implements DemsEvents.Recorder {
+
+    /**
+     * The sheet.
+     */
+    @Label("Sheet")
+    String sheet;
+
+    /**
+     * Rows on the sheet.
+     */
+    @Label("Rows")
+    int rows;
+
+    /**
+     * If the sheet was restored from the sheet cache.
+     */
+    @Label("Cached")
+    boolean cached;
+
+    /* (non-Javadoc)
+     * @see com.j2eeguys.dems.DemsEvents.Recorder#record(com.j2eeguys.dems.DemsEvents.Event)
+     */
+    @Override
+    public void record(final DemsEvents.Event values) {
+      final DemsEvents.SheetBuilt event = (DemsEvents.SheetBuilt) values;
+      this.sheet = event.sheet;
+      this.rows = event.rows;
+      this.cached = event.cached;
+      commit();
+    }
+
+  }
+
+  /* (non-Javadoc)
+   * @see com.j2eeguys.dems.DemsEvents.Recorders#sheetParsed()
+   */
+  @Override
+  public DemsEvents.Recorder sheetParsed() {
+    return new SheetParsed();
+  }
+
+  /* (non-Javadoc)
+   * @see com.j2eeguys.dems.DemsEvents.Recorders#workerResolved()
+   */
+  @Override
+  public DemsEvents.Recorder workerResolved() {
+    return new WorkerResolved();
+  }
+
+  /* (non-Javadoc)
+   * @see com.j2eeguys.dems.DemsEvents.Recorders#availabilityInsert()
+   */
+  @Override
+  public DemsEvents.Recorder availabilityInsert() {
+    return new AvailabilityInsert();
+  }
+
+  /* (non-Javadoc)
+   * @see com.j2eeguys.dems.DemsEvents.Recorders#sheetBuilt()
+   */
+  @Override
+  public DemsEvents.Recorder sheetBuilt() {
+    return new SheetBuilt();
+  }
+
+  /* (non-Javadoc)
+   * @see com.j2eeguys.dems.DemsEvents.Recorders#startRecording(java.io.File)
+   */
+  @Override
+  public Closeable startRecording(final File destination) throws IOException, ParseException {
+    final Recording recording;
+    try (final Reader settings = new InputStreamReader(
+        getClass().getResourceAsStream("/com/j2eeguys/dems/jfr/dems.jfc"), StandardCharsets.UTF_8)) {
+      recording = new Recording(Configuration.create(settings));
+    }
+    recording.setDestination(destination.toPath());
+    recording.start();
+    return () -> {
+      // Stopping writes the recording to its destination.
+      recording.stop();
+      recording.close();
+    };
+    // end startRecording
+  }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Commits a load into a persistent Database in units, recording in <code>LOAD_PROGRESS</code> the next
+ * sheet and row of the spreadsheet with each commit.  A load that fails, or a JVM that dies, loses at most
+ * the rows since the last commit; loading the same spreadsheet into the same Database again continues from
+ * there, and a completed spreadsheet is not loaded again.
+ * <p>
+ * Auto-commit is turned off while the checkpoint is open.  Closing it rolls back anything not yet
+ * committed and restores auto-commit.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class LoadCheckpoint implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoadCheckpoint.class);
+
+  /**
+   * Connection to the Database.
+   */
+  protected final Connection c;
+
+  /**
+   * The spreadsheet being loaded, by absolute path, and the part of it if only part is loaded.
+   */
+  protected final String source;
+
+  /**
+   * When the spreadsheet was last modified, to tell if it changed since it was partly loaded.
+   */
+  protected final long modified;
+
+  /**
+   * Rows loaded between commits.
+   */
+  protected final int interval;
+
+  /**
+   * Auto-commit of the connection before the checkpoint was opened.
+   */
+  private final boolean autoCommit;
+
+  /**
+   * Index of the sheet to continue from.
+   */
+  private int sheet;
+
+  /**
+   * Index of the row of {@link #sheet} to continue from.
+   */
+  private int row;
+
+  /**
+   * Set once the whole spreadsheet is loaded.
+   */
+  private boolean complete;
+
+  /**
+   * Rows loaded since the last commit.
+   */
+  private int uncommitted;
+
+  /**
+   * Constructor for LoadCheckpoint.  Reads the progress of an earlier load of the spreadsheet, if any.
+   *
+   * @param c          Connection to the Database.
+   * @param sourceFile the spreadsheet being loaded.
+   * @param interval   Rows loaded between commits.
+   * @throws SQLException thrown if the progress can not be read.
+   * @throws IllegalStateException thrown if the spreadsheet changed since it was partly loaded.
+   */
+  public LoadCheckpoint(final Connection c, final File sourceFile, final int interval) throws SQLException {
+    this(c, sourceFile, sourceFile.getAbsolutePath(), interval);
+    // end <init>
+  }
+
+  /**
+   * Constructor for LoadCheckpoint, for a load of part of the spreadsheet.  Reads the progress of an earlier
+   * load of the same part, if any.
+   *
+   * @param c          Connection to the Database.
+   * @param sourceFile the spreadsheet being loaded.
+   * @param source     names the spreadsheet, and the part of it, in <code>LOAD_PROGRESS</code>.
+   * @param interval   Rows loaded between commits.
+   * @throws SQLException thrown if the progress can not be read.
+   * @throws IllegalStateException thrown if the spreadsheet changed since it was partly loaded.
+   */
+  public LoadCheckpoint(final Connection c, final File sourceFile, final String source, final int interval)
+      throws SQLException {
+    if (interval < 1) {
+      throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+    } // else
+    this.c = c;
+    this.source = source;
+    this.modified = sourceFile.lastModified();
+    this.interval = interval;
+    try (final PreparedStatement ps = c.prepareStatement(
+        "SELECT MODIFIED, NEXT_SHEET, NEXT_ROW, COMPLETE FROM LOAD_PROGRESS WHERE SOURCE = ?")) {
+      ps.setString(1, this.source);
+      try (final ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          if (rs.getLong(1) != this.modified) {
+            throw new IllegalStateException(this.source
+                + " changed since it was partly loaded, load it into a new Database");
+          } // else
+          this.sheet = rs.getInt(2);
+          this.row = rs.getInt(3);
+          this.complete = rs.getBoolean(4);
+          LOGGER.info(this.complete ? "Already loaded {}" : "Resuming {} from sheet {}, row {}", this.source,
+              Integer.valueOf(this.sheet), Integer.valueOf(this.row));
+        }
+      }
+    }
+    this.autoCommit = c.getAutoCommit();
+    c.setAutoCommit(false);
+    // end <init>
+  }
+
+  /**
+   * @return true if the whole spreadsheet was already loaded.
+   */
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  /**
+   * @param sheetIndex index of a sheet.
+   * @param rowCount   number of rows of the sheet to load.
+   * @return the first row of the sheet not yet loaded, <code>rowCount</code> if the sheet was loaded.
+   */
+  public int firstRow(final int sheetIndex, final int rowCount) {
+    if (this.complete || sheetIndex < this.sheet) {
+      return rowCount;
+    } // else
+    return sheetIndex == this.sheet ? Math.min(this.row, rowCount) : 0;
+  }
+
+  /**
+   * Record that a row was loaded, committing every {@link #interval} rows.
+   *
+   * @param sheetIndex index of the sheet.
+   * @param rowIndex   index of the row.
+   * @throws SQLException thrown if the progress can not be committed.
+   */
+  public void rowLoaded(final int sheetIndex, final int rowIndex) throws SQLException {
+    if (++this.uncommitted >= this.interval) {
+      save(sheetIndex, rowIndex + 1, false);
+    }
+  }
+
+  /**
+   * Record that a sheet was loaded, and commit.
+   *
+   * @param sheetIndex index of the sheet.
+   * @throws SQLException thrown if the progress can not be committed.
+   */
+  public void sheetLoaded(final int sheetIndex) throws SQLException {
+    save(sheetIndex + 1, 0, false);
+  }
+
+  /**
+   * Record that the whole spreadsheet was loaded, and commit.
+   *
+   * @throws SQLException thrown if the progress can not be committed.
+   */
+  public void loaded() throws SQLException {
+    save(this.sheet, this.row, true);
+  }
+
+  /**
+   * Record the progress and commit it with the rows loaded since the last commit.
+   *
+   * @param nextSheet index of the sheet to continue from.
+   * @param nextRow   index of the row to continue from.
+   * @param done      true if the whole spreadsheet is loaded.
+   * @throws SQLException thrown if the progress can not be committed.
+   */
+  protected void save(final int nextSheet, final int nextRow, final boolean done) throws SQLException {
+    try (final PreparedStatement update = this.c.prepareStatement(
+        "UPDATE LOAD_PROGRESS SET MODIFIED = ?, NEXT_SHEET = ?, NEXT_ROW = ?, COMPLETE = ? WHERE SOURCE = ?")) {
+      update.setLong(1, this.modified);
+      update.setInt(2, nextSheet);
+      update.setInt(3, nextRow);
+      update.setBoolean(4, done);
+      update.setString(5, this.source);
+      if (update.executeUpdate() == 0) {
+        try (final PreparedStatement insert = this.c.prepareStatement(
+            "INSERT INTO LOAD_PROGRESS (MODIFIED, NEXT_SHEET, NEXT_ROW, COMPLETE, SOURCE) VALUES (?,?,?,?,?)")) {
+          insert.setLong(1, this.modified);
+          insert.setInt(2, nextSheet);
+          insert.setInt(3, nextRow);
+          insert.setBoolean(4, done);
+          insert.setString(5, this.source);
+          insert.executeUpdate();
+        }
+      }
+    }
+    this.c.commit();
+    this.sheet = nextSheet;
+    this.row = nextRow;
+    this.complete = done;
+    this.uncommitted = 0;
+    LOGGER.debug("Checkpoint {} at sheet {}, row {}", this.source, Integer.valueOf(nextSheet),
+        Integer.valueOf(nextRow));
+    // end save
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.AutoCloseable#close()
+   */
+  @Override
+  public void close() throws SQLException {
+    try {
+      if (this.uncommitted > 0) {
+        LOGGER.warn("Rolling back {} rows of {}, continuing from sheet {}, row {} next time",
+            Integer.valueOf(this.uncommitted), this.source, Integer.valueOf(this.sheet), Integer.valueOf(this.row));
+      }
+      this.c.rollback();
+    } finally {
+      this.c.setAutoCommit(this.autoCommit);
+    }
+    // end close
+  }
+
+}
@@ -4,18 +4,29 @@
 package com.j2eeguys.dems;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
  * Parses the Availability XLSX. Loads the data into the Database.
@@ -24,6 +35,11 @@ import org.apache.poi.ss.usermodel.Workbook;
  */
 public class ParseAvailablityXLSX extends AbstractParserXLSX {
 
+  /**
+   * Headers of the first columns of a day sheet, in order.
+   */
+  protected static final String[] DAY_HEADERS = { "Last Name", "First Name", "VR #", "Precinct", "Role", "Yes",
+      "No" };
 
   /**
    * Calendar to use for date operations.
@@ -35,6 +51,26 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
    */
   protected final boolean insertMissing;
 
+  /**
+   * Shifts of each day, read from the columns after 'No' named for them; null to only read whole days.
+   */
+  protected Shifts shifts;
+
+  /**
+   * Column of each shift on the current day sheet, -1 if the sheet has no column for the shift.
+   */
+  protected int[] shiftColumns = new int[0];
+
+  /**
+   * First day to load, null for no limit.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected Date from;
+
+  /**
+   * Last day to load, null for no limit.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected Date to;
+
   /**
    * Constructor for ParseResultXLSX.
    * @param sourceFile the file being parsed.
@@ -57,6 +93,275 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
     // end <init>
   }
   
+  /**
+   * @param shifts Shifts of each day, read from the columns after 'No' named for them; null to only read
+   *                 whole days.  Must be set before processing.
+   */
+  public void setShifts(final Shifts shifts) {
+    this.shifts = shifts;
+  }
+
+  /**
+   * Only load the day sheets from one day to another.  The day of each sheet is read from its name, so the
+   * other sheets are never parsed (see {@link SelectedSheetsWorkbook}); sheets not named for a day are kept.
+   * Must be set before processing.
+   * @param from First day to load, null for no limit.
+   * @param to Last day to load, null for no limit.
+   */
+  public void setDateRange(final Date from, final Date to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * @param sheetName Name of a sheet.
+   * @return true if the sheet is in the date range, or not a day sheet.
+   */
+  protected boolean isSelected(final String sheetName) {
+    if (this.from == null && this.to == null) {
+      return true;
+    } // else
+    final LocalDate day;
+    try {
+      day = sheetDate(sheetName).toLocalDate();
+    } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+      // Not named MM-DD.
+      return true;
+    }
+    return isInRange(day);
+  }
+
+  /**
+   * @param day a day.
+   * @return true if the day is in the date range.
+   */
+  protected boolean isInRange(final LocalDate day) {
+    return (this.from == null || !day.isBefore(this.from.toLocalDate()))
+        && (this.to == null || !day.isAfter(this.to.toLocalDate()));
+  }
+
+  /**
+   * Open the survey, parsing only the sheets in the date range.
+   * @return the workbook.
+   * @throws IOException thrown if the file can not be read.
+   */
+  @Override
+  protected XSSFWorkbook openWorkbook() throws IOException {
+    if (this.from == null && this.to == null) {
+      return super.openWorkbook();
+    } // else
+    return SelectedSheetsWorkbook.open(this.sourceFile, this::isSelected);
+  }
+
+  /**
+   * @return the checkpoint of loading the file, kept apart for each date range; null if not checkpointing.
+   * @throws SQLException thrown if the progress can not be read.
+   */
+  @Override
+  protected LoadCheckpoint checkpoint() throws SQLException {
+    if (this.checkpointRows <= 0 || (this.from == null && this.to == null)) {
+      return super.checkpoint();
+    } // else
+    return new LoadCheckpoint(this.c, this.sourceFile,
+        this.sourceFile.getAbsolutePath() + '#' + this.from + ".." + this.to, this.checkpointRows);
+  }
+
+  /**
+   * Decode a row of a day sheet.
+   * @param row the Row with the details for the worker.
+   * @param sheetDate Date of the sheet being handled.
+   * @param sheetName Name of the sheet being handled (for logging purposes).
+   * @return the worker's answer for the day.
+   */
+  protected AvailabilityRecord decode(final Row row, final Date sheetDate, final String sheetName) {
+    final Cell precinctCell = row.getCell(3);
+    final String precinct = precinctCell == null ? ""
+        : precinctCell.getCellType() == CellType.NUMERIC ? Long.toString((long) precinctCell.getNumericCellValue())
+            : precinctCell.getStringCellValue().trim();
+    int shiftMask = Shifts.WHOLE_DAY;
+    for (int shift = 0; shift < this.shiftColumns.length; shift++) {
+      if (this.shiftColumns[shift] >= 0 && isChecked(row.getCell(this.shiftColumns[shift]))) {
+        shiftMask |= 1 << shift;
+      }
+    }
+    // Checking a shift implies 'Yes'.
+    return new AvailabilityRecord(row.getCell(0).getStringCellValue().trim(),
+        row.getCell(1).getStringCellValue().trim(), row.getCell(2).getStringCellValue().trim(), precinct,
+        row.getCell(4).getStringCellValue(), sheetDate, isChecked(row.getCell(5)) || shiftMask != Shifts.WHOLE_DAY,
+        isChecked(row.getCell(6)), sheetName, shiftMask);
+    // end decode
+  }
+
+  /**
+   * @param cell a 'Yes' or 'No' Cell.
+   * @return true if the Cell is 'Checked'.
+   */
+  protected static boolean isChecked(final Cell cell) {
+    if (cell == null) {
+      return false;
+    } // else
+    final String value = cell.getStringCellValue();
+    return value != null && value.trim().equals("Checked");
+  }
+
+  /**
+   * Work out the date of a day sheet from the sheet name, formatted MM-DD.
+   * @param sheetName Name of the sheet.
+   * @return the Date for the sheet.
+   */
+  protected Date sheetDate(final String sheetName) {
+    // Set Month
+    this.calendar.set(Calendar.MONTH, Integer.parseInt(sheetName.substring(0, 2)) - 1);
+    // SetDate
+    this.calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(sheetName.substring(3, 5)));
+    return new Date(this.calendar.getTimeInMillis());
+    // end sheetDate
+  }
+
+  /**
+   * Sanity check the Header Row of a day sheet.  If good, the header style is updated from the row.
+   * @param row the first row of the sheet.
+   * @return true if the row is the expected Header Row, false if the headers are missing or out of order.
+   */
+  protected boolean checkHeader(final Row row) {
+    if (!(row.getCell(0).getStringCellValue().equals("Last Name")
+        && row.getCell(1).getStringCellValue().equals("First Name")
+        && row.getCell(2).getStringCellValue().equals("VR #")
+        && row.getCell(3).getStringCellValue().equals("Precinct")
+        && row.getCell(4).getStringCellValue().equals("Role")
+        && row.getCell(5).getStringCellValue().equals("Yes")
+        && row.getCell(6).getStringCellValue().equals("No"))) {
+      this.LOGGER.warn("Incorrect Header Order/Missing Headers:\n{}", rowText(row));
+      this.shiftColumns = new int[0];
+      return false;
+    } // else, we're good to go.  Update header information.
+    this.headerStyle = row.isFormatted() ? row.getRowStyle() : row.getCell(0).getCellStyle();
+    if (this.shifts != null) {
+      this.shiftColumns = new int[this.shifts.size()];
+      Arrays.fill(this.shiftColumns, -1);
+      for (int col = 7; col < row.getLastCellNum(); col++) {
+        final Cell cell = row.getCell(col);
+        final int shift = cell == null || cell.getCellType() != CellType.STRING ? -1
+            : this.shifts.indexOf(cell.getStringCellValue());
+        if (shift >= 0) {
+          this.shiftColumns[shift] = col;
+        }
+      }
+    }
+    return true;
+    // end checkHeader
+  }
+
+  /**
+   * Check the layout of the selected day sheets without loading them, reading only the header row and the
+   * first rows of each sheet.  See {@link PreflightCheck}.
+   * @param sampleRows Rows checked after the header row of each sheet.
+   * @param executor checks the sheets in parallel.
+   * @return the problems found, empty if the survey looks loadable.
+   * @throws IOException thrown if the file can not be read.
+   */
+  public List<PreflightCheck.Problem> preflight(final int sampleRows, final ExecutorService executor)
+      throws IOException {
+    return new PreflightCheck(this.sourceFile, sampleRows).check((index, sheetName) -> isSelected(sheetName),
+        this::preflight, executor);
+  }
+
+  /**
+   * Check a sampled day sheet: the sheet is named MM-DD, has the expected headers, and the rows have the cells
+   * {@link #decode(Row, Date, String)} reads, of the types it reads.
+   * @param sheet the header row and first rows of the sheet.
+   */
+  protected void preflight(final PreflightCheck.SampleSheet sheet) {
+    final String sheetName = sheet.getName();
+    if (!sheetName.matches("(0[1-9]|1[0-2])-(0[1-9]|[12]\\d|3[01]).*")) {
+      sheet.problem(-1, -1, "Sheet name is not a day, MM-DD");
+    }
+    final Map<Integer, PreflightCheck.SampleCell> header = sheet.getRow(0);
+    if (header == null) {
+      sheet.problem(0, -1, "Missing Header Row");
+      return;
+    } // else
+    for (int m = 0; m < DAY_HEADERS.length; m++) {
+      final PreflightCheck.SampleCell cell = header.get(Integer.valueOf(m));
+      if (cell == null || !cell.isText() || !cell.getValue().equals(DAY_HEADERS[m])) {
+        sheet.problem(0, m,
+            "Expected header '" + DAY_HEADERS[m] + "', found '" + (cell == null ? "" : cell.getValue()) + '\'');
+      }
+    }
+    for (int j = 1; j < sheet.getEndRow(); j++) {
+      final Map<Integer, PreflightCheck.SampleCell> row = sheet.getRow(j);
+      if (row == null) {
+        sheet.problem(j, -1, "Missing row");
+        continue;
+      } // else
+      for (final int m : new int[] { 0, 1, 2, 4 }) {
+        final PreflightCheck.SampleCell cell = row.get(Integer.valueOf(m));
+        if (cell == null) {
+          sheet.problem(j, m, "Missing " + DAY_HEADERS[m]);
+        } else if (!cell.isText()) {
+          sheet.problem(j, m, DAY_HEADERS[m] + " is " + cell.getTypeName() + ", expected text");
+        }
+      }
+      final PreflightCheck.SampleCell precinct = row.get(Integer.valueOf(3));
+      if (precinct != null && !precinct.isNumeric() && !precinct.isText()) {
+        sheet.problem(j, 3, "Precinct is " + precinct.getTypeName() + ", expected a number");
+      }
+      // 'Yes', 'No' and the shifts.
+      for (final Map.Entry<Integer, PreflightCheck.SampleCell> entry : row.entrySet()) {
+        final int m = entry.getKey().intValue();
+        final PreflightCheck.SampleCell title = header.get(entry.getKey());
+        if ((m == 5 || m == 6 || m > 6 && this.shifts != null && title != null
+            && this.shifts.indexOf(title.getValue()) >= 0) && !entry.getValue().isText()) {
+          sheet.problem(j, m, "Answer is " + entry.getValue().getTypeName() + ", expected text");
+        }
+      }
+    }
+    // end preflight
+  }
+
+  /**
+   * @param row a row of a day sheet.
+   * @return the first seven cells of the row, comma separated (for logging purposes).
+   */
+  protected static String rowText(final Row row) {
+    final StringBuilder sb = new StringBuilder(255);
+    for(int m = 0; m<=6;m++) {
+      sb.append(row.getCell(m).getStringCellValue());
+      sb.append(',');
+    }
+    sb.deleteCharAt(sb.length() - 1);
+    return sb.toString();
+  }
+
+  /**
+   * @return the SQL inserting a worker's availability for a day, with the shifts if {@link #shifts} are set.
+   */
+  protected String insertAvailabilitySql() {
+    return this.shifts == null ? "INSERT INTO AVAILABILITY (id, DAY) VALUES (?,?)"
+        : "INSERT INTO AVAILABILITY (id, DAY, SHIFTS) VALUES (?,?,?)";
+  }
+
+  /**
+   * Set the parameters of {@link #insertAvailabilitySql()}.
+   * @param insertAvailable {@link PreparedStatement} for inserting the worker's availability info.
+   * @param id Database ID for the Worker.
+   * @param record the worker's answer for the day.
+   * @throws SQLException thrown if the parameters can not be set.
+   */
+  protected void setAvailability(final PreparedStatement insertAvailable, final int id,
+      final AvailabilityRecord record) throws SQLException {
+    insertAvailable.setInt(1, id);
+    insertAvailable.setDate(2, record.getDay());
+    if (this.shifts != null) {
+      if (record.getShifts() == Shifts.WHOLE_DAY) {
+        insertAvailable.setNull(3, Types.SMALLINT);
+      } else {
+        insertAvailable.setShort(3, (short) record.getShifts());
+      }
+    }
+    // end setAvailability
+  }
+
   /**
    * Insert that a worker is available for a given date.
    * @param insertAvailable {@link PreparedStatement} for inserting the worker's availability info.
@@ -68,23 +373,38 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
    */
   protected void insertAvailability(final PreparedStatement insertAvailable, final String sheetName,
       final Date sheetDate, final Row row, int id) throws SQLException {
-    final String yesValue = row.getCell(5).getStringCellValue();
-    if (yesValue != null && yesValue.trim().equals("Checked")) {
-      final String noValue = row.getCell(6).getStringCellValue();
-      if (noValue != null && noValue.trim().equals("Checked")) {
-        this.LOGGER.warn("Worker {} has both 'Yes' & 'No' checked for {}",
-            row.getCell(2).getStringCellValue(), sheetName);
+    insertAvailability(insertAvailable, decode(row, sheetDate, sheetName), id);
+  }
+
+  /**
+   * Insert that a worker is available for a given date.
+   * @param insertAvailable {@link PreparedStatement} for inserting the worker's availability info.
+   * @param record the worker's answer for the day.
+   * @param id Database ID for the Worker.
+   * @throws SQLException thrown if the availability information can not be added to the Database.
+   */
+  protected void insertAvailability(final PreparedStatement insertAvailable, final AvailabilityRecord record,
+      int id) throws SQLException {
+    if (record.isYes()) {
+      if (record.isNo()) {
+        this.LOGGER.warn("Worker {} has both 'Yes' & 'No' checked for {}", record.getVrId(), record.getSource());
       } else {
-        final String vrNum = row.getCell(2).getStringCellValue();
-        insertAvailable.setInt(1, id);
-        insertAvailable.setDate(2, sheetDate);
+        final String vrNum = record.getVrId();
+        final Date sheetDate = record.getDay();
+        setAvailability(insertAvailable, id, record);
+        final DemsEvents.AvailabilityInsert event = new DemsEvents.AvailabilityInsert();
+        event.begin();
         try {
           if (insertAvailable.executeUpdate() != 1) {
             throw new IllegalStateException("Unable to insert VR " + vrNum + " for Date " + sheetDate);
           } // end insert
-          this.LOGGER.debug("Inserted Availability VR# {}/{} for {}:{}", vrNum, Integer.valueOf(id), sheetDate, yesValue);
+          event.rows = 1;
+          this.LOGGER.debug("Inserted Availability VR# {}/{} for {}", vrNum, Integer.valueOf(id), sheetDate);
         } catch (SQLException e) {
-          this.LOGGER.warn("Exception processing VR# {}/{} for {}={}:{}", vrNum, Integer.valueOf(id), sheetDate, yesValue,e.getMessage());
+          event.failed = 1;
+          this.LOGGER.warn("Exception processing VR# {}/{} for {}:{}", vrNum, Integer.valueOf(id), sheetDate, e.getMessage());
+        } finally {
+          event.commit();
         }
       }
     } // end Yes Checked
@@ -104,19 +424,29 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
    */
   protected int setWorkerInfo(final PreparedStatement psIdentity, final PreparedStatement search,
       final PreparedStatement nameSearch, final PreparedStatement insertWorker, final PreparedStatement updateWorker, final Row row) throws SQLException {
-    final String vrId = row.getCell(2).getStringCellValue().trim();
-    search.setString(1, vrId);
-    final String lastName = row.getCell(0).getStringCellValue().trim();
-    final String firstName = row.getCell(1).getStringCellValue().trim();
-    if (vrId.trim().length() == 0 || !Character.isDigit(vrId.charAt(0))) {
-      //Empty or non-numeric
-      search.setString(2, lastName);
-      search.setString(3, firstName);
-    } else {
-      //VR # was numeric, and that's unique per person.
-      search.setString(2, "%");
-      search.setString(3, "%");
-    }
+    return setWorkerInfo(psIdentity, search, nameSearch, insertWorker, updateWorker, decode(row, null, null));
+  }
+
+  /**
+   * Sets the Worker VR ID.  Also, if not filtering (see {@link #insertMissing}), adds the pollworker info.
+   * @param psIdentity {@link PreparedStatement} to get the DB Id for the worker.  Used for logging/debugging.
+   * @param search The {@link PreparedStatement} to use to see if the Worker is already in the DB.
+   * @param nameSearch The {@link PreparedStatement} to use with just First and Last names to see if the Worker is already in the DB.
+   * @param insertWorker The {@link PreparedStatement} to use to insert the Worker into the DB.
+   * @param updateWorker The {@link PreparedStatement} to use to insert the Worker's VR ID in the DB.
+   * @param record The worker data from the Survey.
+   * @return the database ID of the worker. -1 if not found and not inserting.
+   * @throws SQLException Thrown if the search or insert fail.
+   */
+  protected int setWorkerInfo(final PreparedStatement psIdentity, final PreparedStatement search,
+      final PreparedStatement nameSearch, final PreparedStatement insertWorker, final PreparedStatement updateWorker,
+      final AvailabilityRecord record) throws SQLException {
+    final String vrId = record.getVrId();
+    final String lastName = record.getLastName();
+    final String firstName = record.getFirstName();
+    final DemsEvents.WorkerResolved event = new DemsEvents.WorkerResolved();
+    event.begin();
+    setSearch(search, record);
     try (final ResultSet searchResult = search.executeQuery()) {
       if (!searchResult.next()) {
         //VR_ID not set?
@@ -126,29 +456,56 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
           if (!nameSearchRS.next()) {
             //Name not found.
             if (this.insertMissing) {
-              return insertWorkerInfo(psIdentity, search, insertWorker, row);
+              event.path = DemsEvents.PATH_INSERT;
+              event.id = insertWorkerInfo(psIdentity, search, insertWorker, record);
+              return event.id;
             }//else, filtering instead of inserting
             this.LOGGER.debug("{} {} Not found in DB", firstName, lastName);
+            event.path = DemsEvents.PATH_MISSING;
+            event.id = -1;
             return -1;
           }//else
           updateWorker.setString(1, vrId);
           //Precinct
-          final Cell precinctCell = row.getCell(3);
-          updateWorker.setString(2, precinctCell.getCellType() == CellType.STRING ? precinctCell.getStringCellValue()
-              : Long.toString((long)precinctCell.getNumericCellValue())
-                  );
-          updateWorker.setString(3, row.getCell(4).getStringCellValue());
+          updateWorker.setString(2, record.getPrecinct().isEmpty() ? null : record.getPrecinct());
+          updateWorker.setString(3, record.getRole());
           updateWorker.setInt(4, nameSearchRS.getInt(1));
           int updated = updateWorker.executeUpdate();
           this.LOGGER.debug("Update VR# {}/Record Count: {}", vrId, Integer.valueOf(updated));
-          return nameSearchRS.getInt(1);
+          event.path = DemsEvents.PATH_NAME;
+          event.id = nameSearchRS.getInt(1);
+          return event.id;
         }//end try nameSearch
       } // else
-      return searchResult.getInt(1);
+      event.path = DemsEvents.PATH_VR;
+      event.id = searchResult.getInt(1);
+      return event.id;
+    } finally {
+      event.commit();
     }
     //end setWorkerInfo
   }
-  
+
+  /**
+   * Set the parameters of the worker search.
+   * @param search The {@link PreparedStatement} to use to see if the Worker is already in the DB.
+   * @param record The worker data from the Survey.
+   * @throws SQLException Thrown if the parameters can not be set.
+   */
+  protected void setSearch(final PreparedStatement search, final AvailabilityRecord record) throws SQLException {
+    search.setString(1, record.getVrId());
+    if (!record.hasVrId()) {
+      //Empty or non-numeric
+      search.setString(2, record.getLastName());
+      search.setString(3, record.getFirstName());
+    } else {
+      //VR # was numeric, and that's unique per person.
+      search.setString(2, "%");
+      search.setString(3, "%");
+    }
+    //end setSearch
+  }
+
   /**
    * Inserts the PollWorker Info into the Database.
    * @param psIdentity {@link PreparedStatement} to get the DB Id for the worker.  Used for logging/debugging.
@@ -160,36 +517,34 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
    */
   protected int insertWorkerInfo(final PreparedStatement psIdentity, final PreparedStatement search,
       final PreparedStatement insertWorker, final Row row) throws SQLException {
-    final String vrId = row.getCell(2).getStringCellValue().trim();
-    search.setString(1, vrId);
-    final String lastName = row.getCell(0).getStringCellValue().trim();
-    final String firstName = row.getCell(1).getStringCellValue().trim();
-    if (vrId.trim().length() == 0 || !Character.isDigit(vrId.charAt(0))) {
-      //Empty or non-numeric
-      search.setString(2, lastName);
-      search.setString(3, firstName);
-    } else {
-      //VR # was numeric, and that's unique per person.
-      search.setString(2, "%");
-      search.setString(3, "%");
-    }
+    return insertWorkerInfo(psIdentity, search, insertWorker, decode(row, null, null));
+  }
+
+  /**
+   * Inserts the PollWorker Info into the Database.
+   * @param psIdentity {@link PreparedStatement} to get the DB Id for the worker.  Used for logging/debugging.
+   * @param search The {@link PreparedStatement} to use to see if the Worker is already in the DB.
+   * @param insertWorker The {@link PreparedStatement} to use to insert the Worker into the DB.
+   * @param record The worker data from the Survey.
+   * @return the database ID of the worker.
+   * @throws SQLException Thrown if the search or insert fail.
+   */
+  protected int insertWorkerInfo(final PreparedStatement psIdentity, final PreparedStatement search,
+      final PreparedStatement insertWorker, final AvailabilityRecord record) throws SQLException {
+    final String vrId = record.getVrId();
+    setSearch(search, record);
     try (final ResultSet searchResult = search.executeQuery()) {
       if (!searchResult.next()) {
         insertWorker.setObject(1, vrId);
-        insertWorker.setString(2, lastName);
-        insertWorker.setString(3, firstName);
-        final Cell precint = row.getCell(3);
-        if (precint.getCellType() == CellType.NUMERIC) {
-          insertWorker.setInt(4, (int) precint.getNumericCellValue());
+        insertWorker.setString(2, record.getLastName());
+        insertWorker.setString(3, record.getFirstName());
+        final String precinct = record.getPrecinct();
+        if (precinct.length() > 0 ) {
+          insertWorker.setInt(4, Integer.parseInt(precinct));
         } else {
-          final String value = precint.getStringCellValue().trim();
-          if (value.length() > 0 ) {
-            insertWorker.setInt(4, Integer.parseInt(value));
-          } else {
-            insertWorker.setObject(4, null);
-          }
+          insertWorker.setObject(4, null);
         }
-        insertWorker.setString(5, row.getCell(4).getStringCellValue());
+        insertWorker.setString(5, record.getRole());
         if (insertWorker.executeUpdate() != 1) {
           throw new IllegalStateException("Unable to insert VR " + vrId);
         }//else
@@ -205,6 +560,80 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
     // end insertWorkerInfo
   }
 
+  /**
+   * Read the answers of every day sheet without touching the Database.
+   * @return the answers, in sheet and row order.
+   * @throws IOException thrown if the file can not be read.
+   */
+  public List<AvailabilityRecord> read() throws IOException {
+    try (final XSSFWorkbook workbook = openWorkbook();){
+      return read(workbook);
+    }
+    //end read
+  }
+
+  /**
+   * Read the answers of every day sheet without touching the Database.
+   * @param workbook The workbook supplying the worker availability data.
+   * @return the answers, in sheet and row order.
+   */
+  protected List<AvailabilityRecord> read(final Workbook workbook) {
+    final List<AvailabilityRecord> records = new ArrayList<>();
+    records(workbook).forEachRemaining(records::add);
+    return records;
+    //end read
+  }
+
+  /**
+   * Decode the answers of every day sheet as they are reached, without touching the Database.
+   * @param workbook The workbook supplying the worker availability data.
+   * @return the answers, in sheet and row order.
+   */
+  protected Iterator<AvailabilityRecord> records(final Workbook workbook) {
+    return new RowIterator<AvailabilityRecord>(workbook, 0, workbook.getNumberOfSheets()) {
+
+      /**
+       * Date of the current sheet.
+       */
+      private Date sheetDate;
+
+      /**
+       * Set if the current sheet is in the date range.
+       */
+      private boolean selected;
+
+      @Override
+      protected void startSheet(final Sheet currentSheet) {
+        this.selected = isSelected(currentSheet.getSheetName());
+        if (this.selected) {
+          ParseAvailablityXLSX.this.LOGGER.info("Reading day {}", currentSheet.getSheetName());
+          this.sheetDate = sheetDate(currentSheet.getSheetName());
+        }
+      }
+
+      @Override
+      protected AvailabilityRecord decode(final Sheet currentSheet, final Row row, final int j) {
+        if (!this.selected || j == 0 && checkHeader(row)) {
+          return null;
+        } // else
+        return ParseAvailablityXLSX.this.decode(row, this.sheetDate,
+            ParseAvailablityXLSX.this.sourceFile.getName() + '!' + currentSheet.getSheetName());
+      }
+
+    };
+    //end records
+  }
+
+  /**
+   * Publish the answers of every day sheet, decoded as the subscriber requests them.  Subscribe a
+   * {@link Loader} to load them into the Database.
+   * @param executor Runs the delivery of answers; null to deliver on the requesting thread.
+   * @return the publisher; each subscriber reads the file again.
+   */
+  public RecordFlow.Publisher<AvailabilityRecord> publisher(final Executor executor) {
+    return new WorkbookPublisher<>(this.sourceFile, this::records, executor);
+  }
+
   /**
    * Load the Survey data from a spreadsheet into the Database.
    * @param workbook The workbook supplying the worker availability data.
@@ -213,74 +642,159 @@ public class ParseAvailablityXLSX extends AbstractParserXLSX {
   @Override
   protected void load(final Workbook workbook) throws SQLException {
     final int sheetCount = workbook.getNumberOfSheets();
-    try (final PreparedStatement search = this.c.prepareStatement(
-            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID = ? AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
-        final PreparedStatement nameSearch = this.c.prepareStatement(
-            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID IS NULL AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
-        final PreparedStatement insertWorker = this.c.prepareStatement(
-            "INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) VALUES (?,?,?,?,?)");
-        final PreparedStatement updateWorker =
-            this.c.prepareStatement("UPDATE WORKER SET VR_ID = ?, PRECINCT = ?, ROLE = ? WHERE ID = ?");
-        final PreparedStatement insertAvailable =
-            this.c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (?,?)");
-        final PreparedStatement psIdentity = this.c.prepareStatement("CALL IDENTITY()");
-        ) {
+    try (final LoadCheckpoint checkpoint = checkpoint(); final Loader loader = new Loader()) {
+      loader.open();
       for (int i = 0; i < sheetCount; i++) {
         final Sheet currentSheet = workbook.getSheetAt(i);
         final String sheetName = currentSheet.getSheetName();
+        if (!isSelected(sheetName)) {
+          continue;
+        } // else
         this.LOGGER.info("Working day {}", sheetName);
-        // Set Month
-        this.calendar.set(Calendar.MONTH, Integer.parseInt(sheetName.substring(0, 2)) - 1);
-        // SetDate
-        this.calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(sheetName.substring(3, 5)));
-        final Date sheetDate = new Date(this.calendar.getTimeInMillis());
+        final DemsEvents.SheetParsed event = new DemsEvents.SheetParsed();
+        event.begin();
+        final Date sheetDate = sheetDate(sheetName);
         final int rowCount = currentSheet.getLastRowNum();
-        for (int j = 0; j < rowCount; j++) {
+        final int firstRow = checkpoint == null ? 0 : checkpoint.firstRow(i, rowCount);
+        if (firstRow > 0) {
+          // Loaded before the checkpoint, only the header is needed.
+          checkHeader(currentSheet.getRow(0));
+        }
+        for (int j = firstRow; j < rowCount; j++) {
           final Row row = currentSheet.getRow(j);
-          if (j == 0) {
-            // Header Row, let's do Sanity check
-            if (!(row.getCell(0).getStringCellValue().equals("Last Name")
-                && row.getCell(1).getStringCellValue().equals("First Name")
-                && row.getCell(2).getStringCellValue().equals("VR #")
-                && row.getCell(3).getStringCellValue().equals("Precinct")
-                && row.getCell(4).getStringCellValue().equals("Role")
-                && row.getCell(5).getStringCellValue().equals("Yes")
-                && row.getCell(6).getStringCellValue().equals("No"))) {
-              StringBuilder sb = new StringBuilder(255);
-              for(int m = 0; m<=6;m++) {
-                sb.append(row.getCell(m).getStringCellValue());
-                sb.append(',');
-              }
-              sb.deleteCharAt(sb.length() - 1);
-              this.LOGGER.warn("Incorrect Header Order/Missing Headers:\n{}", sb);
-              //Skip to inserts.
-            } else { //we're good to go.  Update header information and start next row.
-              this.headerStyle = row.isFormatted() ? row.getRowStyle() : row.getCell(0).getCellStyle();
-              continue;
-            }
-          }// else
+          event.rows++;
+          if (j == 0 && checkHeader(row)) {
+            // Header Row, start next row.
+            continue;
+          }// else, Header Row was bad so skip to inserts.
           try {
-            final int id = setWorkerInfo(psIdentity, search, nameSearch, insertWorker, updateWorker, row);
-            if (id >= 0) {
-              insertAvailability(insertAvailable, sheetName, sheetDate, row, id);
-            } else {
-              this.LOGGER.info("Skipping {} {}", row.getCell(1).getStringCellValue(),
-                  row.getCell(0).getStringCellValue());
+            if (loader.store(decode(row, sheetDate, sheetName))) {
+              event.workers++;
             }
           } catch (IllegalStateException e) {
-            final StringBuilder sb = new StringBuilder(255);
-            for(int m = 0; m<=6;m++) {
-              sb.append(row.getCell(m).getStringCellValue());
-              sb.append(',');
-            }
-            sb.deleteCharAt(sb.length() - 1);
-            this.LOGGER.warn("Unable to insert data for: {}", sb);
+            this.LOGGER.warn("Unable to insert data for: {}", rowText(row));
             throw e;
           }
+          if (checkpoint != null) {
+            checkpoint.rowLoaded(i, j);
+          }
         } // end for j
+        if (checkpoint != null && firstRow < rowCount) {
+          checkpoint.sheetLoaded(i);
+        }
+        event.file = this.sourceFile.getName();
+        event.sheet = sheetName;
+        event.commit();
       } // end for i
+      if (checkpoint != null && !checkpoint.isComplete()) {
+        checkpoint.loaded();
+      }
     }
   }
 
+  /**
+   * Loads answers into the Database: looks up, or inserts, each worker and inserts the days they are
+   * available.
+   */
+  public class Loader extends DatabaseSubscriber<AvailabilityRecord> {
+
+    /**
+     * Searches for the worker by VR #.
+     */
+    private PreparedStatement search;
+
+    /**
+     * Searches for the worker by name.
+     */
+    private PreparedStatement nameSearch;
+
+    /**
+     * Inserts the worker.
+     */
+    private PreparedStatement insertWorker;
+
+    /**
+     * Sets the worker's VR #.
+     */
+    private PreparedStatement updateWorker;
+
+    /**
+     * Inserts the worker's availability.
+     */
+    private PreparedStatement insertAvailable;
+
+    /**
+     * Gets the inserted worker's Database ID.
+     */
+    private PreparedStatement psIdentity;
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.AbstractParserXLSX.DatabaseSubscriber#open()
+     */
+    @Override
+    public void open() throws SQLException {
+      final Connection c = ParseAvailablityXLSX.this.c;
+      this.search = c.prepareStatement(
+          "SELECT ID, VR_ID FROM WORKER WHERE VR_ID = ? AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+      this.nameSearch = c.prepareStatement(
+          "SELECT ID, VR_ID FROM WORKER WHERE VR_ID IS NULL AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+      this.insertWorker = c.prepareStatement(
+          "INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) VALUES (?,?,?,?,?)");
+      this.updateWorker = c.prepareStatement("UPDATE WORKER SET VR_ID = ?, PRECINCT = ?, ROLE = ? WHERE ID = ?");
+      this.insertAvailable = c.prepareStatement(insertAvailabilitySql());
+      this.psIdentity = c.prepareStatement("CALL IDENTITY()");
+      // end open
+    }
+
+    /**
+     * Look up, or insert, the worker and insert the day if they are available.
+     * @param record the worker's answer for the day.
+     * @return true if the worker was found or inserted, false if skipped.
+     * @throws SQLException thrown if the data can't be inserted into the Database.
+     */
+    @Override
+    public boolean store(final AvailabilityRecord record) throws SQLException {
+      final int id = setWorkerInfo(this.psIdentity, this.search, this.nameSearch, this.insertWorker,
+          this.updateWorker, record);
+      if (id < 0) {
+        ParseAvailablityXLSX.this.LOGGER.info("Skipping {} {}", record.getFirstName(), record.getLastName());
+        return false;
+      } // else
+      insertAvailability(this.insertAvailable, record, id);
+      return true;
+      // end store
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.AbstractParserXLSX.DatabaseSubscriber#close()
+     */
+    @Override
+    public void close() throws SQLException {
+      SQLException failure = null;
+      for (final PreparedStatement ps : new PreparedStatement[] {this.search, this.nameSearch, this.insertWorker,
+          this.updateWorker, this.insertAvailable, this.psIdentity}) {
+        try {
+          if (ps != null) {
+            ps.close();
+          }
+        } catch (SQLException e) {
+          failure = e;
+        }
+      }
+      this.search = null;
+      this.nameSearch = null;
+      this.insertWorker = null;
+      this.updateWorker = null;
+      this.insertAvailable = null;
+      this.psIdentity = null;
+      if (failure != null) {
+        throw failure;
+      }
+      // end close
+    }
+
+  }
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Parses the raw Google Forms response sheet: one row per response, rather than the pre-split workbook
+ * with a sheet per day read by {@link ParseAvailablityXLSX}.
+ * <p>
+ * The columns are found by their headers, in any order: "Last Name", "First Name", "VR #", "Precinct"
+ * and "Role" (all but the names optional).  The days come from either or both of:
+ * </p>
+ * <ul>
+ * <li>per-day columns, with a date in the header such as "Available [10/13]", answered Yes, Checked,
+ * Available or X;</li>
+ * <li>multi-select columns, with "day" or "avail" in the header, listing the days chosen, such as
+ * "10/13, 10/14" or "Tuesday, October 13, Wednesday, October 14".</li>
+ * </ul>
+ * <p>
+ * A respondent who answered more than once is taken from their last response.  Each worker is resolved
+ * once, and all of their days inserted together, instead of once per day sheet.  Only the days in the
+ * date range, if set with {@link #setDateRange(java.sql.Date, java.sql.Date)}, are loaded.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class ParseFormsXLSX extends ParseAvailablityXLSX {
+
+  /**
+   * A month and day, such as 10/13, 10-13 or 10/13/2020.  A year can't be followed by another /dd, so a
+   * range such as 10/13-10/30 is two dates, not 10/13/2010.
+   */
+  protected static final Pattern NUMERIC_DATE =
+      Pattern.compile("\\b(\\d{1,2})[/-](\\d{1,2})(?:[/-](\\d{2,4})(?![/-]\\d))?\\b");
+
+  /**
+   * A month name and day, such as October 13 or Oct. 13.
+   */
+  protected static final Pattern NAMED_DATE = Pattern.compile(
+      "\\b(jan|feb|mar|apr|may|jun|jul|aug|sep|oct|nov|dec)[a-z]*\\.?\\s+(\\d{1,2})\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Month abbreviations, in calendar order.
+   */
+  private static final String MONTHS = "janfebmaraprmayjunjulaugsepoctnovdec";
+
+  /**
+   * One respondent's last response.
+   */
+  protected static class Response {
+
+    /**
+     * The worker, as an answer with no day.
+     */
+    protected final AvailabilityRecord worker;
+
+    /**
+     * The days the worker is available, in order.
+     */
+    protected final Collection<Date> days;
+
+    /**
+     * @param worker The worker, as an answer with no day.
+     * @param days   The days the worker is available, in order.
+     */
+    Response(final AvailabilityRecord worker, final Collection<Date> days) {
+      this.worker = worker;
+      this.days = days;
+      // end <init>
+    }
+
+  }
+
+  /**
+   * Constructor for ParseFormsXLSX.
+   * @param sourceFile the file being parsed.
+   * @param c The Connection to the Database.
+   * @param insertMissing Insert a PollWorker's info if not found in the Database.
+   */
+  public ParseFormsXLSX(final File sourceFile, final Connection c, final boolean insertMissing) {
+    super(sourceFile, c, insertMissing);
+    // end <init>
+  }
+
+  /**
+   * Read the last response of each respondent from the first sheet.
+   * @param workbook The workbook with the Forms responses.
+   * @return the responses, in the order the respondents first answered.
+   */
+  protected Collection<Response> readResponses(final Workbook workbook) {
+    final Sheet sheet = workbook.getSheetAt(0);
+    final String source = this.sourceFile.getName() + '!' + sheet.getSheetName();
+    final Row header = sheet.getRow(sheet.getFirstRowNum());
+    int lastName = -1;
+    int firstName = -1;
+    int vrId = -1;
+    int precinct = -1;
+    int role = -1;
+    final Map<Integer, Date> dayColumns = new LinkedHashMap<>();
+    final List<Integer> multiSelect = new ArrayList<>();
+    for (final Cell cell : header) {
+      final String title = text(cell).toLowerCase(Locale.ROOT);
+      final int column = cell.getColumnIndex();
+      final List<Date> dates = dates(title);
+      if (title.equals("last name")) {
+        lastName = column;
+      } else if (title.equals("first name")) {
+        firstName = column;
+      } else if (title.startsWith("vr")) {
+        vrId = column;
+      } else if (title.equals("precinct")) {
+        precinct = column;
+      } else if (title.equals("role")) {
+        role = column;
+      } else if (dates.size() == 1) {
+        dayColumns.put(Integer.valueOf(column), dates.get(0));
+      } else if (title.contains("day") || title.contains("avail")) {
+        multiSelect.add(Integer.valueOf(column));
+      }
+    }
+    if (lastName < 0 || firstName < 0) {
+      throw new IllegalStateException("No Last Name and First Name columns in " + source);
+    } // else
+    this.headerStyle = header.getCell(lastName).getCellStyle();
+    this.LOGGER.info("Reading {}: {} day columns, {} multi-select columns", source,
+        Integer.valueOf(dayColumns.size()), Integer.valueOf(multiSelect.size()));
+    final Map<String, Response> responses = new LinkedHashMap<>();
+    for (int j = sheet.getFirstRowNum() + 1; j <= sheet.getLastRowNum(); j++) {
+      final Row row = sheet.getRow(j);
+      if (row == null || text(row.getCell(lastName)).isEmpty()) {
+        continue;
+      } // else
+      final AvailabilityRecord worker = new AvailabilityRecord(text(row.getCell(lastName)),
+          text(row.getCell(firstName)), vrId < 0 ? "" : text(row.getCell(vrId)),
+          precinct < 0 ? "" : text(row.getCell(precinct)), role < 0 ? null : text(row.getCell(role)), null, false,
+          false, source + " row " + (j + 1));
+      final TreeSet<Date> days = new TreeSet<>();
+      for (final Map.Entry<Integer, Date> day : dayColumns.entrySet()) {
+        if (isAvailable(row.getCell(day.getKey().intValue()))) {
+          days.add(day.getValue());
+        }
+      }
+      for (final Integer column : multiSelect) {
+        days.addAll(dates(text(row.getCell(column.intValue()))));
+      }
+      // The days are read from the answers, not the sheet names.
+      days.removeIf(day -> !isInRange(day.toLocalDate()));
+      // A later response replaces an earlier one.
+      responses.put(worker.hasVrId() ? worker.getVrId()
+          : (worker.getLastName() + '|' + worker.getFirstName()).toLowerCase(Locale.ROOT),
+          new Response(worker, days));
+    }
+    return responses.values();
+    // end readResponses
+  }
+
+  /**
+   * Read the answers of the last response of each respondent, one per available day, without touching
+   * the Database.  The whole sheet is read first, as a later response may replace an earlier one.
+   * @param workbook The workbook with the Forms responses.
+   * @return the answers, in respondent and day order.
+   */
+  @Override
+  protected Iterator<AvailabilityRecord> records(final Workbook workbook) {
+    final List<AvailabilityRecord> records = new ArrayList<>();
+    for (final Response response : readResponses(workbook)) {
+      for (final Date day : response.days) {
+        records.add(answer(response.worker, day));
+      }
+    }
+    return records.iterator();
+    //end records
+  }
+
+  /**
+   * Load the last response of each respondent into the Database, resolving each worker once.
+   * @param workbook The workbook with the Forms responses.
+   * @throws SQLException thrown if the data can't be inserted into the Database.
+   */
+  @Override
+  protected void load(final Workbook workbook) throws SQLException {
+    final DemsEvents.SheetParsed event = new DemsEvents.SheetParsed();
+    event.begin();
+    final Collection<Response> responses = readResponses(workbook);
+    try (final PreparedStatement search = this.c.prepareStatement(
+            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID = ? AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+        final PreparedStatement nameSearch = this.c.prepareStatement(
+            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID IS NULL AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+        final PreparedStatement insertWorker = this.c.prepareStatement(
+            "INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) VALUES (?,?,?,?,?)");
+        final PreparedStatement updateWorker =
+            this.c.prepareStatement("UPDATE WORKER SET VR_ID = ?, PRECINCT = ?, ROLE = ? WHERE ID = ?");
+        final PreparedStatement insertAvailable =
+            this.c.prepareStatement(insertAvailabilitySql());
+        final PreparedStatement psIdentity = this.c.prepareStatement("CALL IDENTITY()");
+        final LoadCheckpoint checkpoint = checkpoint();
+        ) {
+      // The responses are in the same order each time, so each is a row of the checkpoint's only sheet.
+      int index = -1;
+      final int firstResponse = checkpoint == null ? 0 : checkpoint.firstRow(0, responses.size());
+      for (final Response response : responses) {
+        if (++index < firstResponse) {
+          continue;
+        } // else
+        event.rows++;
+        final AvailabilityRecord worker = response.worker;
+        final int id = setWorkerInfo(psIdentity, search, nameSearch, insertWorker, updateWorker, worker);
+        if (id < 0) {
+          this.LOGGER.info("Skipping {} {}", worker.getFirstName(), worker.getLastName());
+          continue;
+        } // else
+        event.workers++;
+        for (final Date day : response.days) {
+          insertAvailability(insertAvailable, answer(worker, day), id);
+        }
+        if (checkpoint != null) {
+          checkpoint.rowLoaded(0, index);
+        }
+      }
+      if (checkpoint != null && !checkpoint.isComplete()) {
+        checkpoint.loaded();
+      }
+    }
+    event.file = this.sourceFile.getName();
+    event.sheet = workbook.getSheetName(0);
+    event.commit();
+    // end load
+  }
+
+  /**
+   * @param worker the worker.
+   * @param day    a day the worker is available.
+   * @return the worker's 'Yes' answer for the day.
+   */
+  protected static AvailabilityRecord answer(final AvailabilityRecord worker, final Date day) {
+    return new AvailabilityRecord(worker.getLastName(), worker.getFirstName(), worker.getVrId(),
+        worker.getPrecinct(), worker.getRole(), day, true, false, worker.getSource());
+  }
+
+  /**
+   * @param cell an answer to a per-day question.
+   * @return true if the answer means available.
+   */
+  protected static boolean isAvailable(final Cell cell) {
+    final String value = text(cell).toLowerCase(Locale.ROOT);
+    return value.equals("yes") || value.equals("checked") || value.equals("x") || value.startsWith("available");
+  }
+
+  /**
+   * Find the dates in a header or multi-select answer.  Dates without a year are in the current year;
+   * impossible dates are skipped.
+   * @param text the text.
+   * @return the dates, in the order found.
+   */
+  protected static List<Date> dates(final String text) {
+    final List<Date> dates = new ArrayList<>();
+    final Matcher numeric = NUMERIC_DATE.matcher(text);
+    while (numeric.find()) {
+      final int year = numeric.group(3) == null ? -1 : Integer.parseInt(numeric.group(3));
+      addDate(dates, Integer.parseInt(numeric.group(1)), Integer.parseInt(numeric.group(2)),
+          year >= 0 && year < 100 ? 2000 + year : year);
+    }
+    final Matcher named = NAMED_DATE.matcher(text);
+    while (named.find()) {
+      addDate(dates, MONTHS.indexOf(named.group(1).toLowerCase(Locale.ROOT)) / 3 + 1,
+          Integer.parseInt(named.group(2)), -1);
+    }
+    return dates;
+    // end dates
+  }
+
+  /**
+   * @param dates the dates to add to.
+   * @param month month of the year, from 1.
+   * @param day   day of the month.
+   * @param year  the year, -1 for the current year.
+   */
+  private static void addDate(final List<Date> dates, final int month, final int day, final int year) {
+    try {
+      dates.add(Date.valueOf(LocalDate.of(year < 0 ? LocalDate.now().getYear() : year, month, day)));
+    } catch (DateTimeException e) {
+      // Not a date, such as part of a phone number.
+    }
+  }
+
+  /**
+   * @param cell a cell, may be null.
+   * @return the trimmed text of the cell, whole numbers without a decimal point; empty if blank.
+   */
+  protected static String text(final Cell cell) {
+    if (cell == null) {
+      return "";
+    } else if (cell.getCellType() == CellType.NUMERIC) {
+      return Long.toString((long) cell.getNumericCellValue());
+    } else if (cell.getCellType() == CellType.STRING) {
+      return cell.getStringCellValue().trim();
+    } // else
+    return "";
+  }
+
+}
@@ -4,10 +4,16 @@
 package com.j2eeguys.dems;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -23,13 +29,19 @@ import org.apache.poi.ss.usermodel.Workbook;
  */
 public class ParseWorkerXLSX extends AbstractParserXLSX {
 
+  /**
+   * Headers of a worker sheet from the second column to the language, in order.
+   */
+  protected static final String[] WORKER_HEADERS = { "First Name", "Last Name", "City", "Phone #", "Email",
+      "Poll Worker Exp.", "Proficient in another language?" };
+
   /**
    * Constructor for ParserWorkerXLSX.
    * 
    * @param sourceFile The file with the Worker information.
-   * @param c          Connection to the Database.
+   * @param c          Connection to the Database, may be null if only publishing the workers.
    */
-  protected ParseWorkerXLSX(final File sourceFile, final Connection c) {
+  public ParseWorkerXLSX(final File sourceFile, final Connection c) {
     super(sourceFile, c);
     // end <init>
   }
@@ -41,20 +53,15 @@ public class ParseWorkerXLSX extends AbstractParserXLSX {
    */
   @Override
   protected void load(Workbook workbook) throws SQLException {
-    try (
-        final PreparedStatement search = this.c
-            .prepareStatement("SELECT ID, NOTES, Email FROM WORKER WHERE LAST_NAME = ? AND FIRST_NAME = ?");
-        final PreparedStatement insertWorker = this.c.prepareStatement(
-            "INSERT INTO WORKER (LAST_NAME, FIRST_NAME, CITY, PHONE, EMAIL, EXPERIENCED, LANGUAGES, LOCATION, NOTES) "
-                + "VALUES (?,?,?,?,?,?,?,?,?)");
-        final PreparedStatement updateWorker =
-            this.c.prepareStatement("UPDATE WORKER SET NOTES = ?, EMAIL = ? " + "WHERE ID = ?");
-
-    ) {
+    try (final LoadCheckpoint checkpoint = checkpoint(); final Loader loader = new Loader()) {
+      loader.open();
       for (int i = 1; i <= 2; i++) {
         final Sheet currentSheet = workbook.getSheetAt(i);
-        loadWorkerInfo(search, insertWorker, updateWorker, currentSheet);
+        loadWorkerInfo(loader, currentSheet, checkpoint, i);
       } // end for
+      if (checkpoint != null && !checkpoint.isComplete()) {
+        checkpoint.loaded();
+      }
     } // end try
       // end load
   }
@@ -62,67 +69,276 @@ public class ParseWorkerXLSX extends AbstractParserXLSX {
   /**
    * Load the workerInfo from the currentSheet.
    * 
-   * @param search       {@link PreparedStatement} for searching for an existing
-   *                       record.
-   * @param insertWorker {@link PreparedStatement} for inserting a new record.
-   * @param updateWorker {@link PreparedStatement} for updating a worker record.
+   * @param loader       Loads each worker into the Database.
+   * @param currentSheet The sheet currently being parsed.
+   * @throws SQLException if any failures occur talking to the database.
+   */
+  protected void loadWorkerInfo(final Loader loader, final Sheet currentSheet) throws SQLException {
+    loadWorkerInfo(loader, currentSheet, null, 0);
+  }
+
+  /**
+   * Load the workerInfo from the currentSheet, continuing from the checkpoint.
+   * 
+   * @param loader       Loads each worker into the Database.
    * @param currentSheet The sheet currently being parsed.
+   * @param checkpoint   The checkpoint of the load, null if not checkpointing.
+   * @param sheetIndex   Index of the sheet in the workbook.
    * @throws SQLException if any failures occur talking to the database.
    */
-  protected void loadWorkerInfo(final PreparedStatement search, final PreparedStatement insertWorker,
-      final PreparedStatement updateWorker, final Sheet currentSheet) throws SQLException {
+  protected void loadWorkerInfo(final Loader loader, final Sheet currentSheet, final LoadCheckpoint checkpoint,
+      final int sheetIndex) throws SQLException {
     final String sheetName = currentSheet.getSheetName();
     this.LOGGER.info("Working Sheet {}", sheetName);
+    final DemsEvents.SheetParsed event = new DemsEvents.SheetParsed();
+    event.begin();
     final int rowCount = currentSheet.getLastRowNum();
-    for (int j = 0; j < rowCount; j++) {
+    final int firstRow = checkpoint == null ? 0 : checkpoint.firstRow(sheetIndex, rowCount);
+    if (firstRow > 0) {
+      // Loaded before the checkpoint, only the header is needed.
+      checkHeader(currentSheet.getRow(0));
+    }
+    for (int j = firstRow; j < rowCount; j++) {
       final Row row = currentSheet.getRow(j);
-      final Cell firstNameCell = row.getCell(1);
-      if (j == 0) {
-        // Header Row, let's do Sanity check
-        if (!(firstNameCell.getStringCellValue().equals("First Name")
-            && row.getCell(2).getStringCellValue().equals("Last Name")
-            && row.getCell(3).getStringCellValue().equals("City")
-            && row.getCell(4).getStringCellValue().equals("Phone #")
-            && row.getCell(5).getStringCellValue().equals("Email")
-            && row.getCell(6).getStringCellValue().equals("Poll Worker Exp.")
-            && row.getCell(7).getStringCellValue().equals("Proficient in another language?"))) {
-          StringBuilder sb = new StringBuilder(255);
-          for (int m = 1; m <= 7; m++) {
-            sb.append(row.getCell(m).getStringCellValue());
-            sb.append(',');
-          }
-          sb.deleteCharAt(sb.length() - 1);
-          this.LOGGER.warn("Incorrect Header Order/Missing Headers:\n{}", sb);
-          // Skip to inserts.
-        } else { // we're good to go. Update header information and start next row.
-          this.headerStyle = row.isFormatted() ? row.getRowStyle() : firstNameCell.getCellStyle();
-          continue;
-        }
-      } // else
-      if (firstNameCell == null) {
+      event.rows++;
+      if (j == 0 && checkHeader(row)) {
+        // Header Row, start next row.
+        continue;
+      } // else, Header Row was bad so skip to inserts.
+      if (isEmpty(row)) {
         // Empty Row
         continue;
       }
       try {
-        final String fName = firstNameCell.getStringCellValue();
-        if (fName != null && !fName.isEmpty()) {
-          insertWorkerInfo(search, insertWorker, updateWorker, row);
-        } // else, empty row so skip.
+        loader.store(decode(row, sheetName));
+        event.workers++;
       } catch (IllegalStateException e) {
-        StringBuilder sb = new StringBuilder(255);
-        for (int m = 0; m <= 6; m++) {
-          sb.append(row.getCell(m).getStringCellValue());
-          sb.append(',');
-        }
-        sb.deleteCharAt(sb.length() - 1);
-        this.LOGGER.warn("Unable to insert data for: {}", sb);
+        this.LOGGER.warn("Unable to insert data for: {}", rowText(row, 0));
         throw e;
       }
-
+      if (checkpoint != null) {
+        checkpoint.rowLoaded(sheetIndex, j);
+      }
     } // end for j
+    if (checkpoint != null && firstRow < rowCount) {
+      checkpoint.sheetLoaded(sheetIndex);
+    }
+    event.file = this.sourceFile.getName();
+    event.sheet = sheetName;
+    event.commit();
       // end loadWorkerInfo
   }
 
+  /**
+   * Sanity check the Header Row of a worker sheet.  If good, the header style is updated from the row.
+   * @param row the first row of the sheet.
+   * @return true if the row is the expected Header Row, false if the headers are missing or out of order.
+   */
+  protected boolean checkHeader(final Row row) {
+    final Cell firstNameCell = row.getCell(1);
+    if (!(firstNameCell.getStringCellValue().equals("First Name")
+        && row.getCell(2).getStringCellValue().equals("Last Name")
+        && row.getCell(3).getStringCellValue().equals("City")
+        && row.getCell(4).getStringCellValue().equals("Phone #")
+        && row.getCell(5).getStringCellValue().equals("Email")
+        && row.getCell(6).getStringCellValue().equals("Poll Worker Exp.")
+        && row.getCell(7).getStringCellValue().equals("Proficient in another language?"))) {
+      this.LOGGER.warn("Incorrect Header Order/Missing Headers:\n{}", rowText(row, 1));
+      return false;
+    } // else, we're good to go. Update header information.
+    this.headerStyle = row.isFormatted() ? row.getRowStyle() : firstNameCell.getCellStyle();
+    return true;
+    // end checkHeader
+  }
+
+  /**
+   * Check the layout of the worker sheets without loading them, reading only the header row and the first
+   * rows of each sheet.  See {@link PreflightCheck}.
+   * @param sampleRows Rows checked after the header row of each sheet.
+   * @param executor checks the sheets in parallel.
+   * @return the problems found, empty if the workers look loadable.
+   * @throws IOException thrown if the file can not be read.
+   */
+  public List<PreflightCheck.Problem> preflight(final int sampleRows, final ExecutorService executor)
+      throws IOException {
+    final PreflightCheck check = new PreflightCheck(this.sourceFile, sampleRows);
+    final List<PreflightCheck.Problem> problems = check.check((index, sheetName) -> index.intValue() == 1
+        || index.intValue() == 2, this::preflight, executor);
+    if (check.getSheetCount() < 3) {
+      problems.add(new PreflightCheck.Problem(this.sourceFile.getName(), null, null,
+          "Expected the workers on the second and third sheets, found " + check.getSheetCount() + " sheets"));
+    }
+    return problems;
+    // end preflight
+  }
+
+  /**
+   * Check a sampled worker sheet: it has the expected headers, and the rows have the cells
+   * {@link #decode(Row, String)} reads, of the types it reads.
+   * @param sheet the header row and first rows of the sheet.
+   */
+  protected void preflight(final PreflightCheck.SampleSheet sheet) {
+    final Map<Integer, PreflightCheck.SampleCell> header = sheet.getRow(0);
+    if (header == null) {
+      sheet.problem(0, -1, "Missing Header Row");
+      return;
+    } // else
+    for (int m = 1; m <= WORKER_HEADERS.length; m++) {
+      final PreflightCheck.SampleCell cell = header.get(Integer.valueOf(m));
+      if (cell == null || !cell.isText() || !cell.getValue().equals(WORKER_HEADERS[m - 1])) {
+        sheet.problem(0, m, "Expected header '" + WORKER_HEADERS[m - 1] + "', found '"
+            + (cell == null ? "" : cell.getValue()) + '\'');
+      }
+    }
+    for (int j = 1; j < sheet.getEndRow(); j++) {
+      final Map<Integer, PreflightCheck.SampleCell> row = sheet.getRow(j);
+      if (row == null) {
+        sheet.problem(j, -1, "Missing row");
+        continue;
+      } // else
+      final PreflightCheck.SampleCell firstName = row.get(Integer.valueOf(1));
+      if (firstName == null || firstName.isText() && firstName.getValue().isEmpty()) {
+        // Skipped by the loader.
+        continue;
+      } // else
+      if (row.get(Integer.valueOf(2)) == null) {
+        sheet.problem(j, 2, "Missing Last Name");
+      }
+      // Notes, then the columns up to the language.
+      for (int m = 0; m <= WORKER_HEADERS.length; m++) {
+        final PreflightCheck.SampleCell cell = row.get(Integer.valueOf(m));
+        if (cell != null && !cell.isText()) {
+          sheet.problem(j, m, (m == 0 ? "Notes" : WORKER_HEADERS[m - 1]) + " is " + cell.getTypeName()
+              + ", expected text");
+        }
+      }
+      final PreflightCheck.SampleCell location = row.get(Integer.valueOf(8));
+      if (location != null && !location.isText() && !location.isNumeric()) {
+        sheet.problem(j, 8, "Location is " + location.getTypeName() + ", expected text or a number");
+      }
+    }
+    // end preflight
+  }
+
+  /**
+   * @param row a row of a worker sheet.
+   * @return true if the row has no First Name.
+   */
+  protected static boolean isEmpty(final Row row) {
+    final Cell firstNameCell = row.getCell(1);
+    if (firstNameCell == null) {
+      return true;
+    } // else
+    final String fName = firstNameCell.getStringCellValue();
+    return fName == null || fName.isEmpty();
+  }
+
+  /**
+   * @param row a row of a worker sheet.
+   * @param first the first cell to include.
+   * @return the cells of the row up to the language, comma separated (for logging purposes).
+   */
+  protected static String rowText(final Row row, final int first) {
+    final StringBuilder sb = new StringBuilder(255);
+    for (int m = first; m <= first + 6; m++) {
+      sb.append(row.getCell(m).getStringCellValue());
+      sb.append(',');
+    }
+    sb.deleteCharAt(sb.length() - 1);
+    return sb.toString();
+  }
+
+  /**
+   * Decode a row of a worker sheet.
+   * @param row the Row with the details for the worker.
+   * @param source Where the row came from (for logging purposes).
+   * @return the worker's details.
+   */
+  protected WorkerRecord decode(final Row row, final String source) {
+    final String firstName = row.getCell(1).getStringCellValue().trim();
+    final String lastName = row.getCell(2).getStringCellValue().trim();
+    // City
+    final Cell city = row.getCell(3);
+    // Phone #
+    final Cell phone = row.getCell(4);
+    // Email
+    final Cell emailCell = row.getCell(5);
+    final String email = emailCell != null && emailCell.getStringCellValue().contains("@")
+        ? emailCell.getStringCellValue().trim() : null;
+    // Experienced
+    final Cell experienced = row.getCell(6);
+    final boolean isExperienced;
+    if (experienced == null) {
+      isExperienced = false;
+    } else {
+      final String strExp = experienced.getStringCellValue().trim();
+      isExperienced = !strExp.isEmpty() && "Yes".equalsIgnoreCase(strExp);
+    }
+    // Language
+    final Cell language = row.getCell(7);
+    String languages = null;
+    if (language != null) {
+      final String strLang = language.getStringCellValue().trim();
+      if (!strLang.isEmpty() && strLang.startsWith("Yes")) {
+        int start = strLang.indexOf('(') + 1;
+        int end = strLang.indexOf(')');
+        if (start <= 0) {
+          // Language not supplied
+          languages = strLang;
+        } else {
+          languages = strLang.substring(start, end).trim();
+        }
+      } // else, Language is not "YES"
+    } // else, Language is null
+    // Location
+    final Cell locationCell = row.getCell(8);
+    final String location = locationCell == null ? null
+        : locationCell.getCellType() == CellType.STRING ? locationCell.getStringCellValue()
+            : Long.toString((long) locationCell.getNumericCellValue());
+    // Notes
+    final String notes = row.getCell(0) == null ? null : row.getCell(0).getStringCellValue();
+    return new WorkerRecord(lastName, firstName, city == null ? null : city.getStringCellValue().trim(),
+        phone == null ? null : phone.getStringCellValue().trim(), email, isExperienced, languages, location, notes,
+        source);
+    // end decode
+  }
+
+  /**
+   * Decode the workers of both worker sheets as they are reached, without touching the Database.
+   * @param workbook The workbook supplying the worker data.
+   * @return the workers, in sheet and row order.
+   */
+  protected Iterator<WorkerRecord> records(final Workbook workbook) {
+    return new RowIterator<WorkerRecord>(workbook, 1, 3) {
+
+      @Override
+      protected void startSheet(final Sheet currentSheet) {
+        ParseWorkerXLSX.this.LOGGER.info("Reading Sheet {}", currentSheet.getSheetName());
+      }
+
+      @Override
+      protected WorkerRecord decode(final Sheet currentSheet, final Row row, final int j) {
+        if (j == 0 && checkHeader(row) || isEmpty(row)) {
+          return null;
+        } // else
+        return ParseWorkerXLSX.this.decode(row,
+            ParseWorkerXLSX.this.sourceFile.getName() + '!' + currentSheet.getSheetName());
+      }
+
+    };
+    //end records
+  }
+
+  /**
+   * Publish the workers of both worker sheets, decoded as the subscriber requests them.  Subscribe a
+   * {@link Loader} to load them into the Database.
+   * @param executor Runs the delivery of workers; null to deliver on the requesting thread.
+   * @return the publisher; each subscriber reads the file again.
+   */
+  public RecordFlow.Publisher<WorkerRecord> publisher(final Executor executor) {
+    return new WorkbookPublisher<>(this.sourceFile, this::records, executor);
+  }
+
   /**
    * Inserts the PollWorker Info into the Database.
    * 
@@ -136,8 +352,24 @@ public class ParseWorkerXLSX extends AbstractParserXLSX {
    */
   protected void insertWorkerInfo(final PreparedStatement search, final PreparedStatement insertWorker,
       final PreparedStatement updateWorker, final Row row) throws SQLException {
-    final String firstName = row.getCell(1).getStringCellValue().trim();
-    final String lastName = row.getCell(2).getStringCellValue().trim();
+    insertWorkerInfo(search, insertWorker, updateWorker, decode(row, null));
+  }
+
+  /**
+   * Inserts the PollWorker Info into the Database.
+   * 
+   * @param search       The {@link PreparedStatement} to use to see if the Worker
+   *                       is already in the DB.
+   * @param insertWorker The {@link PreparedStatement} to use to insert the Worker
+   *                       into the DB.
+   * @param updateWorker {@link PreparedStatement} for updating a worker record.
+   * @param record       The worker's details.
+   * @throws SQLException Thrown if the search or insert fail.
+   */
+  protected void insertWorkerInfo(final PreparedStatement search, final PreparedStatement insertWorker,
+      final PreparedStatement updateWorker, final WorkerRecord record) throws SQLException {
+    final String firstName = record.getFirstName();
+    final String lastName = record.getLastName();
     search.setString(1, lastName);
     search.setString(2, firstName);
 
@@ -145,54 +377,13 @@ public class ParseWorkerXLSX extends AbstractParserXLSX {
       if (!searchResult.next()) {
         insertWorker.setString(1, lastName);
         insertWorker.setString(2, firstName);
-        // City
-        insertWorker.setString(3, row.getCell(3).getStringCellValue().trim());
-        // Phone #
-        insertWorker.setString(4, row.getCell(4).getStringCellValue().trim());
-        // Email
-        final Cell email = row.getCell(5);
-        if (email != null && email.getStringCellValue().contains("@")) {
-          insertWorker.setString(5, email.getStringCellValue().trim());
-        } else {
-          insertWorker.setString(5, null);
-        }
-        // Experienced
-        final Cell experienced = row.getCell(6);
-        if (experienced == null) {
-          insertWorker.setBoolean(6, false);
-        } else {
-          final String strExp = experienced.getStringCellValue().trim();
-          insertWorker.setBoolean(6, !strExp.isEmpty() && "Yes".equalsIgnoreCase(strExp));
-        }
-        // Language
-        final Cell language = row.getCell(7);
-        if (language != null) {
-          final String strLang = language.getStringCellValue().trim();
-          if (!strLang.isEmpty() && strLang.startsWith("Yes")) {
-            int start = strLang.indexOf('(') + 1;
-            int end = strLang.indexOf(')');
-            if (start <= 0) {
-              // Language not supplied
-              insertWorker.setString(7, strLang);
-            } else {
-              insertWorker.setString(7, strLang.substring(start, end).trim());
-            }
-          } else {
-            // Language is not "YES"
-            insertWorker.setString(7, null);
-          }
-        } else {
-          // Language is null
-          insertWorker.setString(7, null);
-        }
-        // Location
-        final Cell locationCell = row.getCell(8);
-        final String location = locationCell == null ? null
-            : locationCell.getCellType() == CellType.STRING ? locationCell.getStringCellValue()
-                : Long.toString((long) locationCell.getNumericCellValue());
-        insertWorker.setString(8, locationCell == null ? null : location);
-        // Notes
-        insertWorker.setString(9, row.getCell(0) == null ? null : row.getCell(0).getStringCellValue());
+        insertWorker.setString(3, record.getCity());
+        insertWorker.setString(4, record.getPhone());
+        insertWorker.setString(5, record.getEmail());
+        insertWorker.setBoolean(6, record.isExperienced());
+        insertWorker.setString(7, record.getLanguages());
+        insertWorker.setString(8, record.getLocation());
+        insertWorker.setString(9, record.getNotes());
 
         try {
           if (insertWorker.executeUpdate() != 1) {
@@ -204,15 +395,9 @@ public class ParseWorkerXLSX extends AbstractParserXLSX {
         }
       } else {
         // Notes
-        updateWorker.setString(1,
-            row.getCell(0) == null ? searchResult.getString(2) : row.getCell(0).getStringCellValue());
+        updateWorker.setString(1, record.getNotes() == null ? searchResult.getString(2) : record.getNotes());
         // Email
-        final Cell email = row.getCell(5);
-        if (email != null && email.getStringCellValue().contains("@")) {
-          updateWorker.setString(2, email.getStringCellValue().trim());
-        } else {
-          updateWorker.setString(2, searchResult.getString(3));
-        }
+        updateWorker.setString(2, record.getEmail() != null ? record.getEmail() : searchResult.getString(3));
         // Set ID
         updateWorker.setInt(3, searchResult.getInt(1));
         if (updateWorker.executeUpdate() != 1) {
@@ -223,4 +408,76 @@ public class ParseWorkerXLSX extends AbstractParserXLSX {
     }
     // end insertWorkerInfo
   }
+
+  /**
+   * Loads workers into the Database: inserts new workers, and updates the Notes and Email of known ones.
+   */
+  public class Loader extends DatabaseSubscriber<WorkerRecord> {
+
+    /**
+     * Searches for the worker by name.
+     */
+    private PreparedStatement search;
+
+    /**
+     * Inserts the worker.
+     */
+    private PreparedStatement insertWorker;
+
+    /**
+     * Updates the worker's Notes and Email.
+     */
+    private PreparedStatement updateWorker;
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.AbstractParserXLSX.DatabaseSubscriber#open()
+     */
+    @Override
+    public void open() throws SQLException {
+      final Connection c = ParseWorkerXLSX.this.c;
+      this.search = c.prepareStatement("SELECT ID, NOTES, Email FROM WORKER WHERE LAST_NAME = ? AND FIRST_NAME = ?");
+      this.insertWorker = c.prepareStatement(
+          "INSERT INTO WORKER (LAST_NAME, FIRST_NAME, CITY, PHONE, EMAIL, EXPERIENCED, LANGUAGES, LOCATION, NOTES) "
+              + "VALUES (?,?,?,?,?,?,?,?,?)");
+      this.updateWorker = c.prepareStatement("UPDATE WORKER SET NOTES = ?, EMAIL = ? " + "WHERE ID = ?");
+      // end open
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.AbstractParserXLSX.DatabaseSubscriber#store(java.lang.Object)
+     */
+    @Override
+    public boolean store(final WorkerRecord record) throws SQLException {
+      insertWorkerInfo(this.search, this.insertWorker, this.updateWorker, record);
+      return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.AbstractParserXLSX.DatabaseSubscriber#close()
+     */
+    @Override
+    public void close() throws SQLException {
+      SQLException failure = null;
+      for (final PreparedStatement ps : new PreparedStatement[] {this.search, this.insertWorker, this.updateWorker}) {
+        try {
+          if (ps != null) {
+            ps.close();
+          }
+        } catch (SQLException e) {
+          failure = e;
+        }
+      }
+      this.search = null;
+      this.insertWorker = null;
+      this.updateWorker = null;
+      if (failure != null) {
+        throw failure;
+      }
+      // end close
+    }
+
+  }
 }// end ParseWorkerXLSX
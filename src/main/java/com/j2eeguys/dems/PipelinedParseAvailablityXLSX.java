@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Loads the Availability XLSX as a pipeline of stages, so parsing and Database writes overlap:
+ * <ol>
+ * <li>read the rows of each day sheet,</li>
+ * <li>decode and validate each row,</li>
+ * <li>resolve the worker's identity (search, update or insert),</li>
+ * <li>write the availability in batches.</li>
+ * </ol>
+ * The stages are connected by bounded queues, so a fast stage blocks instead of running ahead of a slow
+ * one. Each stage runs as a task on the {@link Executor}, which must be able to run all four at once.
+ * Throughput for each stage is logged at the end and available from {@link #getStats()}.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class PipelinedParseAvailablityXLSX extends ParseAvailablityXLSX {
+
+  /**
+   * Throughput of a stage of the pipeline.
+   */
+  public static class StageStats {
+
+    /**
+     * Name of the stage.
+     */
+    protected final String name;
+
+    /**
+     * Items handled by the stage.
+     */
+    protected long items;
+
+    /**
+     * Time spent by the stage, including blocked time, in nanoseconds.
+     */
+    protected long elapsedNanos;
+
+    /**
+     * Time spent blocked waiting on the queues, in nanoseconds.
+     */
+    protected long blockedNanos;
+
+    /**
+     * Constructor for StageStats.
+     *
+     * @param name Name of the stage.
+     */
+    StageStats(final String name) {
+      this.name = name;
+    }
+
+    /**
+     * @return the name of the stage.
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * @return the items handled by the stage.
+     */
+    public long getItems() {
+      return this.items;
+    }
+
+    /**
+     * @return the time spent by the stage, in milliseconds.
+     */
+    public long getElapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos);
+    }
+
+    /**
+     * @return the time spent blocked waiting on the queues, in milliseconds.
+     */
+    public long getBlockedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(this.blockedNanos);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      final long busyNanos = Math.max(1, this.elapsedNanos - this.blockedNanos);
+      return this.name + ": " + this.items + " items in " + getElapsedMillis() + "ms, blocked "
+          + getBlockedMillis() + "ms, " + (this.items * 1_000_000_000L / busyNanos) + " items/s busy";
+    }
+
+  }
+
+  /**
+   * A row read from a day sheet.
+   */
+  private static class RowItem {
+    final Row row;
+    final int rowNum;
+    final Date sheetDate;
+    final String sheetName;
+
+    RowItem(final Row row, final int rowNum, final Date sheetDate, final String sheetName) {
+      this.row = row;
+      this.rowNum = rowNum;
+      this.sheetDate = sheetDate;
+      this.sheetName = sheetName;
+    }
+  }
+
+  /**
+   * An answer with the Database ID of the worker.
+   */
+  private static class Resolved {
+    final AvailabilityRecord record;
+    final int id;
+
+    Resolved(final AvailabilityRecord record, final int id) {
+      this.record = record;
+      this.id = id;
+    }
+  }
+
+  /**
+   * End of stream markers.
+   */
+  private static final RowItem END_ROWS = new RowItem(null, -1, null, null);
+  private static final AvailabilityRecord END_RECORDS =
+      new AvailabilityRecord(null, null, null, null, null, null, false, false, null);
+  private static final Resolved END_RESOLVED = new Resolved(null, -1);
+
+  /**
+   * Executor running the stages, null to use a pool owned by the parser.
+   */
+  protected final Executor executor;
+
+  /**
+   * Capacity of the queues between the stages.
+   */
+  protected final int queueCapacity;
+
+  /**
+   * Number of availability inserts per batch.
+   */
+  protected final int batchSize;
+
+  /**
+   * Throughput of each stage of the last load.
+   */
+  protected final List<StageStats> stats = new ArrayList<>(4);
+
+  /**
+   * Set when a stage fails, so the others stop.
+   */
+  private volatile boolean failed;
+
+  /**
+   * Constructor for PipelinedParseAvailablityXLSX.
+   *
+   * @param sourceFile    the file being parsed.
+   * @param c             The Connection to the Database.
+   * @param insertMissing Insert a PollWorker's info if not found in the Database.
+   * @param executor      Executor running the stages, able to run four tasks at once. Null to use a
+   *                        pool owned by the parser.
+   * @param queueCapacity Capacity of the queues between the stages.
+   * @param batchSize     Number of availability inserts per batch.
+   */
+  public PipelinedParseAvailablityXLSX(final File sourceFile, final Connection c, final boolean insertMissing,
+      final Executor executor, final int queueCapacity, final int batchSize) {
+    super(sourceFile, c, insertMissing);
+    this.executor = executor;
+    this.queueCapacity = queueCapacity;
+    this.batchSize = batchSize;
+    // end <init>
+  }
+
+  /**
+   * Load the Survey data from a spreadsheet into the Database through the pipeline.
+   * @param workbook The workbook supplying the worker availability data.
+   * @throws SQLException thrown if the data can't be inserted into the Database.
+   */
+  @Override
+  protected void load(final Workbook workbook) throws SQLException {
+    this.failed = false;
+    this.stats.clear();
+    final StageStats readStats = new StageStats("read");
+    final StageStats decodeStats = new StageStats("decode");
+    final StageStats resolveStats = new StageStats("resolve");
+    final StageStats writeStats = new StageStats("write");
+    this.stats.addAll(Arrays.asList(readStats, decodeStats, resolveStats, writeStats));
+    final BlockingQueue<RowItem> rows = new ArrayBlockingQueue<>(this.queueCapacity);
+    final BlockingQueue<AvailabilityRecord> records = new ArrayBlockingQueue<>(this.queueCapacity);
+    final BlockingQueue<Resolved> resolved = new ArrayBlockingQueue<>(this.queueCapacity);
+    final List<FutureTask<Void>> stages = Arrays.asList(
+        stage(readStats, () -> read(workbook, rows, readStats)),
+        stage(decodeStats, () -> decode(rows, records, decodeStats)),
+        stage(resolveStats, () -> resolve(records, resolved, resolveStats)),
+        stage(writeStats, () -> write(resolved, writeStats)));
+    final ExecutorService owned = this.executor == null ? Executors.newFixedThreadPool(stages.size()) : null;
+    try {
+      for (final FutureTask<Void> stage : stages) {
+        (owned == null ? this.executor : owned).execute(stage);
+      }
+      Throwable failure = null;
+      for (final FutureTask<Void> stage : stages) {
+        try {
+          stage.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        } catch (InterruptedException e) {
+          this.failed = true;
+          Thread.currentThread().interrupt();
+          throw new SQLException("Interrupted loading " + this.sourceFile.getAbsolutePath(), e);
+        }
+      }
+      for (final StageStats stage : this.stats) {
+        this.LOGGER.info("Stage {}", stage);
+      }
+      if (failure instanceof SQLException) {
+        throw (SQLException) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure != null) {
+        throw new IllegalStateException("Exception loading " + this.sourceFile.getAbsolutePath(), failure);
+      }
+    } finally {
+      if (owned != null) {
+        owned.shutdown();
+      }
+    }
+    // end load
+  }
+
+  /**
+   * Wrap a stage as a task, timing it and stopping the other stages if it fails.
+   *
+   * @param stats statistics for the stage.
+   * @param body  the stage.
+   * @return the task running the stage.
+   */
+  private FutureTask<Void> stage(final StageStats stats, final Callable<Void> body) {
+    return new FutureTask<>(() -> {
+      final long start = System.nanoTime();
+      try {
+        return body.call();
+      } catch (Exception | Error e) {
+        this.failed = true;
+        throw e;
+      } finally {
+        stats.elapsedNanos = System.nanoTime() - start;
+      }
+    });
+  }
+
+  /**
+   * Read stage: the rows of each day sheet.
+   */
+  private Void read(final Workbook workbook, final BlockingQueue<RowItem> out, final StageStats stats)
+      throws InterruptedException {
+    for (int i = 0; i < workbook.getNumberOfSheets() && !this.failed; i++) {
+      final Sheet currentSheet = workbook.getSheetAt(i);
+      final String sheetName = currentSheet.getSheetName();
+      this.LOGGER.info("Working day {}", sheetName);
+      final DemsEvents.SheetParsed event = new DemsEvents.SheetParsed();
+      event.begin();
+      final Date sheetDate = sheetDate(sheetName);
+      final int rowCount = currentSheet.getLastRowNum();
+      for (int j = 0; j < rowCount; j++) {
+        put(out, new RowItem(currentSheet.getRow(j), j, sheetDate, sheetName), stats);
+        stats.items++;
+      }
+      event.file = this.sourceFile.getName();
+      event.sheet = sheetName;
+      event.rows = rowCount;
+      event.commit();
+    }
+    put(out, END_ROWS, stats);
+    return null;
+  }
+
+  /**
+   * Decode stage: check the headers and decode the rows.
+   */
+  private Void decode(final BlockingQueue<RowItem> in, final BlockingQueue<AvailabilityRecord> out,
+      final StageStats stats) throws InterruptedException {
+    for (RowItem item = take(in, stats); item != END_ROWS; item = take(in, stats)) {
+      stats.items++;
+      if (item.rowNum == 0 && checkHeader(item.row)) {
+        // Header Row, start next row.
+        continue;
+      } // else, Header Row was bad so skip to inserts.
+      try {
+        put(out, decode(item.row, item.sheetDate, item.sheetName), stats);
+      } catch (IllegalStateException e) {
+        this.LOGGER.warn("Unable to insert data for: {}", rowText(item.row));
+        throw e;
+      }
+    }
+    put(out, END_RECORDS, stats);
+    return null;
+  }
+
+  /**
+   * Resolve stage: find, update or insert each worker.
+   */
+  private Void resolve(final BlockingQueue<AvailabilityRecord> in, final BlockingQueue<Resolved> out,
+      final StageStats stats) throws InterruptedException, SQLException {
+    try (final PreparedStatement search = this.c.prepareStatement(
+            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID = ? AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+        final PreparedStatement nameSearch = this.c.prepareStatement(
+            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID IS NULL AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+        final PreparedStatement insertWorker = this.c.prepareStatement(
+            "INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) VALUES (?,?,?,?,?)");
+        final PreparedStatement updateWorker =
+            this.c.prepareStatement("UPDATE WORKER SET VR_ID = ?, PRECINCT = ?, ROLE = ? WHERE ID = ?");
+        final PreparedStatement psIdentity = this.c.prepareStatement("CALL IDENTITY()");
+        ) {
+      for (AvailabilityRecord record = take(in, stats); record != END_RECORDS; record = take(in, stats)) {
+        stats.items++;
+        try {
+          final int id = setWorkerInfo(psIdentity, search, nameSearch, insertWorker, updateWorker, record);
+          if (id >= 0) {
+            put(out, new Resolved(record, id), stats);
+          } else {
+            this.LOGGER.info("Skipping {} {}", record.getFirstName(), record.getLastName());
+          }
+        } catch (IllegalStateException e) {
+          this.LOGGER.warn("Unable to insert data for: {}", record);
+          throw e;
+        }
+      }
+    }
+    put(out, END_RESOLVED, stats);
+    return null;
+  }
+
+  /**
+   * Write stage: insert the availability in batches.
+   */
+  private Void write(final BlockingQueue<Resolved> in, final StageStats stats)
+      throws InterruptedException, SQLException {
+    final List<Resolved> pending = new ArrayList<>(this.batchSize);
+    try (final PreparedStatement insertAvailable =
+        this.c.prepareStatement(insertAvailabilitySql())) {
+      for (Resolved item = take(in, stats); item != END_RESOLVED; item = take(in, stats)) {
+        stats.items++;
+        final AvailabilityRecord record = item.record;
+        if (record.isConflicted()) {
+          this.LOGGER.warn("Worker {} has both 'Yes' & 'No' checked for {}", record.getVrId(), record.getSource());
+        } else if (record.isAvailable()) {
+          pending.add(item);
+          if (pending.size() >= this.batchSize) {
+            flush(insertAvailable, pending);
+          }
+        }
+      }
+      flush(insertAvailable, pending);
+    }
+    return null;
+  }
+
+  /**
+   * Insert the pending availability as a batch.  An insert that fails (such as a duplicate day) is
+   * logged and skipped, as when inserting one at a time.
+   *
+   * @param insertAvailable {@link PreparedStatement} for inserting the worker's availability info.
+   * @param pending the availability to insert, cleared once inserted.
+   * @throws SQLException thrown if the batch can not be prepared.
+   */
+  protected void flush(final PreparedStatement insertAvailable, final List<Resolved> pending) throws SQLException {
+    final DemsEvents.AvailabilityInsert event = new DemsEvents.AvailabilityInsert();
+    event.begin();
+    int start = 0;
+    while (start < pending.size()) {
+      insertAvailable.clearBatch();
+      for (int i = start; i < pending.size(); i++) {
+        setAvailability(insertAvailable, pending.get(i).id, pending.get(i).record);
+        insertAvailable.addBatch();
+      }
+      try {
+        insertAvailable.executeBatch();
+        start = pending.size();
+      } catch (BatchUpdateException e) {
+        final int[] counts = e.getUpdateCounts();
+        if (counts.length < pending.size() - start) {
+          // Driver stopped at the failure, carry on after it.
+          warnInsert(pending.get(start + counts.length), e);
+          event.failed++;
+          start += counts.length + 1;
+        } else {
+          // Driver carried on, report each failure.
+          for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.EXECUTE_FAILED) {
+              warnInsert(pending.get(start + i), e);
+              event.failed++;
+            }
+          }
+          start = pending.size();
+        }
+      }
+    }
+    event.rows = pending.size() - event.failed;
+    event.commit();
+    pending.clear();
+    // end flush
+  }
+
+  /**
+   * Log an availability insert that failed.
+   */
+  private void warnInsert(final Resolved item, final SQLException e) {
+    this.LOGGER.warn("Exception processing VR# {}/{} for {}:{}", item.record.getVrId(), Integer.valueOf(item.id),
+        item.record.getDay(), e.getMessage());
+  }
+
+  /**
+   * Put an item on a queue, blocking while the queue is full unless another stage has failed.
+   */
+  private <T> void put(final BlockingQueue<T> queue, final T item, final StageStats stats)
+      throws InterruptedException {
+    final long start = System.nanoTime();
+    while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+      if (this.failed) {
+        throw new InterruptedException("Another stage failed");
+      }
+    }
+    stats.blockedNanos += System.nanoTime() - start;
+  }
+
+  /**
+   * Take an item from a queue, blocking while the queue is empty unless another stage has failed.
+   */
+  private <T> T take(final BlockingQueue<T> queue, final StageStats stats) throws InterruptedException {
+    final long start = System.nanoTime();
+    T item;
+    while ((item = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+      if (this.failed) {
+        throw new InterruptedException("Another stage failed");
+      }
+    }
+    stats.blockedNanos += System.nanoTime() - start;
+    return item;
+  }
+
+  /**
+   * @return the throughput of each stage of the last load.
+   */
+  public List<StageStats> getStats() {
+    return this.stats;
+  }
+
+}
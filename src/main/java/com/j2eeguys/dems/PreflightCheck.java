@@ -0,0 +1,519 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Checks the layout of a spreadsheet before it is loaded.  Only the header row and the first few rows of each
+ * sheet are read, streamed from the file rather than opening the workbook, and the sheets are checked in
+ * parallel, so a bad header or cell is reported in milliseconds, before any Database work.  What is checked
+ * is up to the parser loading the spreadsheet, see {@link ParseAvailablityXLSX#preflight(int, ExecutorService)}
+ * and {@link ParseWorkerXLSX#preflight(int, ExecutorService)}.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class PreflightCheck {
+
+  /**
+   * The spreadsheet.
+   */
+  protected final File sourceFile;
+
+  /**
+   * Rows read after the header row of each sheet.
+   */
+  protected final int sampleRows;
+
+  /**
+   * Number of sheets in the spreadsheet, set by {@link #check(BiPredicate, Consumer, ExecutorService)}.
+   */
+  private int sheetCount;
+
+  /**
+   * Constructor for PreflightCheck.
+   *
+   * @param sourceFile The spreadsheet.
+   * @param sampleRows Rows read after the header row of each sheet.
+   */
+  public PreflightCheck(final File sourceFile, final int sampleRows) {
+    this.sourceFile = sourceFile;
+    this.sampleRows = sampleRows;
+    // end <init>
+  }
+
+  /**
+   * Sample the selected sheets and check each, in parallel.
+   *
+   * @param selected selects the sheets to check, by index and name.
+   * @param checker  checks a sampled sheet, reporting with {@link SampleSheet#problem(int, int, String)}.
+   *                   Called on the executor's threads.
+   * @param executor reads and checks the sheets.
+   * @return the problems found, in sheet order.
+   * @throws IOException thrown if the spreadsheet can not be read.
+   */
+  public List<Problem> check(final BiPredicate<Integer, String> selected, final Consumer<SampleSheet> checker,
+      final ExecutorService executor) throws IOException {
+    final List<Future<SampleSheet>> samples = new ArrayList<>();
+    try (final OPCPackage pkg = OPCPackage.open(this.sourceFile, PackageAccess.READ)) {
+      final XSSFReader reader = new XSSFReader(pkg);
+      final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+      final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+      int index = 0;
+      try {
+        while (sheets.hasNext()) {
+          final InputStream in = sheets.next();
+          final SampleSheet sheet = new SampleSheet(this.sourceFile.getName(), sheets.getSheetName(), index);
+          if (!selected.test(Integer.valueOf(index++), sheet.getName())) {
+            in.close();
+            continue;
+          } // else
+          samples.add(executor.submit(() -> {
+            try (final InputStream sheetIn = in) {
+              sample(sheet, sheetIn, strings);
+            }
+            checker.accept(sheet);
+            return sheet;
+          }));
+        }
+      } finally {
+        this.sheetCount = index;
+      }
+      final List<Problem> problems = new ArrayList<>();
+      for (final Future<SampleSheet> sample : samples) {
+        problems.addAll(sample.get().problems);
+      }
+      return problems;
+    } catch (OpenXML4JException | SAXException e) {
+      throw new IOException("Unable to read " + this.sourceFile.getAbsolutePath(), e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+          : new IOException("Unable to check " + this.sourceFile.getAbsolutePath(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted checking " + this.sourceFile.getAbsolutePath(), e);
+    } finally {
+      for (final Future<SampleSheet> sample : samples) {
+        sample.cancel(true);
+      }
+    }
+    // end check
+  }
+
+  /**
+   * @return the number of sheets in the spreadsheet, once checked.
+   */
+  public int getSheetCount() {
+    return this.sheetCount;
+  }
+
+  /**
+   * Read the header row and sample rows of a sheet.
+   *
+   * @param sheet   the sheet to fill.
+   * @param in      the sheet XML.
+   * @param strings the shared strings of the workbook.
+   * @throws IOException thrown if the sheet can not be read.
+   */
+  protected void sample(final SampleSheet sheet, final InputStream in, final ReadOnlySharedStringsTable strings)
+      throws IOException {
+    try {
+      final XMLReader reader = XMLHelper.newXMLReader();
+      reader.setContentHandler(new SampleHandler(sheet, strings, this.sampleRows));
+      reader.parse(new InputSource(in));
+      sheet.endRow = Math.max(sheet.lastRow, 0);
+    } catch (SampleFull e) {
+      // Read enough.
+      sheet.endRow = this.sampleRows + 1;
+    } catch (SAXException | ParserConfigurationException e) {
+      throw new IOException("Unable to read sheet " + sheet.getName() + " of " + this.sourceFile.getName(), e);
+    }
+    // end sample
+  }
+
+  /**
+   * A problem found with the spreadsheet.
+   */
+  public static class Problem {
+
+    /**
+     * Name of the spreadsheet file.
+     */
+    protected final String file;
+
+    /**
+     * Name of the sheet, null for the whole spreadsheet.
+     */
+    protected final String sheet;
+
+    /**
+     * The cell, such as "B2"; the row, such as "2"; or null for the whole sheet.
+     */
+    protected final String cell;
+
+    /**
+     * What is wrong.
+     */
+    protected final String message;
+
+    /**
+     * @param file    Name of the spreadsheet file.
+     * @param sheet   Name of the sheet, null for the whole spreadsheet.
+     * @param cell    The cell, such as "B2"; the row, such as "2"; or null for the whole sheet.
+     * @param message What is wrong.
+     */
+    public Problem(final String file, final String sheet, final String cell, final String message) {
+      this.file = file;
+      this.sheet = sheet;
+      this.cell = cell;
+      this.message = message;
+    }
+
+    /**
+     * @return the name of the sheet, null for the whole spreadsheet.
+     */
+    public String getSheet() {
+      return this.sheet;
+    }
+
+    /**
+     * @return the cell, such as "B2"; the row, such as "2"; or null for the whole sheet.
+     */
+    public String getCell() {
+      return this.cell;
+    }
+
+    /**
+     * @return what is wrong.
+     */
+    public String getMessage() {
+      return this.message;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      return this.file + (this.sheet == null ? "" : '!' + this.sheet) + (this.cell == null ? "" : ' ' + this.cell)
+          + ": " + this.message;
+    }
+
+  }
+
+  /**
+   * A cell read from a sheet.
+   */
+  public static class SampleCell {
+
+    /**
+     * The value, as written in the file.
+     */
+    protected final String value;
+
+    /**
+     * Type of the cell: 's' text, 'n' number (or date), 'b' boolean, 'e' error.
+     */
+    protected final char type;
+
+    /**
+     * @param value The value, as written in the file.
+     * @param type  Type of the cell: 's' text, 'n' number (or date), 'b' boolean, 'e' error.
+     */
+    public SampleCell(final String value, final char type) {
+      this.value = value;
+      this.type = type;
+    }
+
+    /**
+     * @return the value, as written in the file.
+     */
+    public String getValue() {
+      return this.value;
+    }
+
+    /**
+     * @return true if the cell holds text.
+     */
+    public boolean isText() {
+      return this.type == 's';
+    }
+
+    /**
+     * @return true if the cell holds a number or date.
+     */
+    public boolean isNumeric() {
+      return this.type == 'n';
+    }
+
+    /**
+     * @return the type of the cell, for reporting.
+     */
+    public String getTypeName() {
+      switch (this.type) {
+        case 's':
+          return "text";
+        case 'n':
+          return "a number";
+        case 'b':
+          return "TRUE/FALSE";
+        default:
+          return "an error";
+      }
+    }
+
+  }
+
+  /**
+   * The header row and sample rows of a sheet, and the problems found with them.
+   */
+  public static class SampleSheet {
+
+    /**
+     * Name of the spreadsheet file.
+     */
+    protected final String file;
+
+    /**
+     * Name of the sheet.
+     */
+    protected final String name;
+
+    /**
+     * Index of the sheet in the spreadsheet.
+     */
+    protected final int index;
+
+    /**
+     * The rows read, by index; each row's cells by column.
+     */
+    protected final Map<Integer, Map<Integer, SampleCell>> rows = new HashMap<>();
+
+    /**
+     * Index of the last row read, -1 if none.
+     */
+    protected int lastRow = -1;
+
+    /**
+     * Index after the last row to check.
+     */
+    protected int endRow;
+
+    /**
+     * The problems found.
+     */
+    protected final List<Problem> problems = new ArrayList<>();
+
+    /**
+     * @param file  Name of the spreadsheet file.
+     * @param name  Name of the sheet.
+     * @param index Index of the sheet in the spreadsheet.
+     */
+    public SampleSheet(final String file, final String name, final int index) {
+      this.file = file;
+      this.name = name;
+      this.index = index;
+    }
+
+    /**
+     * @return the name of the sheet.
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * @return the index of the sheet in the spreadsheet.
+     */
+    public int getIndex() {
+      return this.index;
+    }
+
+    /**
+     * @param row index of the row.
+     * @return the cells of the row by column, null if the row is missing or was not read.
+     */
+    public Map<Integer, SampleCell> getRow(final int row) {
+      final Map<Integer, SampleCell> cells = this.rows.get(Integer.valueOf(row));
+      return cells == null ? null : Collections.unmodifiableMap(cells);
+    }
+
+    /**
+     * @return the index after the last row to check.  As the loaders don't read the last row of a sheet, it
+     *         is left out if the whole sheet was read.
+     */
+    public int getEndRow() {
+      return this.endRow;
+    }
+
+    /**
+     * Report a problem.
+     *
+     * @param row     index of the row, -1 for the whole sheet.
+     * @param column  index of the column, -1 for the whole row.
+     * @param message What is wrong.
+     */
+    public void problem(final int row, final int column, final String message) {
+      this.problems.add(new Problem(this.file, this.name,
+          row < 0 ? null : column < 0 ? Integer.toString(row + 1) : new CellReference(row, column).formatAsString(),
+          message));
+    }
+
+  }
+
+  /**
+   * Thrown to stop reading a sheet once the sample is read.
+   */
+  private static final class SampleFull extends SAXException {
+
+    private static final long serialVersionUID = 1L;
+
+  }
+
+  /**
+   * Reads the rows of a sheet's XML into a {@link SampleSheet}.
+   */
+  private static final class SampleHandler extends DefaultHandler {
+
+    /**
+     * The sheet being read.
+     */
+    private final SampleSheet sheet;
+
+    /**
+     * The shared strings of the workbook.
+     */
+    private final ReadOnlySharedStringsTable strings;
+
+    /**
+     * Rows read after the header row.
+     */
+    private final int sampleRows;
+
+    /**
+     * The value of the current cell.
+     */
+    private final StringBuilder value = new StringBuilder();
+
+    /**
+     * The cells of the current row.
+     */
+    private Map<Integer, SampleCell> row;
+
+    /**
+     * Index of the current row.
+     */
+    private int rowIndex = -1;
+
+    /**
+     * Index of the current column.
+     */
+    private int column;
+
+    /**
+     * The 't' attribute of the current cell, null for a number.
+     */
+    private String cellType;
+
+    /**
+     * Set while reading a value.
+     */
+    private boolean inValue;
+
+    /**
+     * @param sheet      The sheet being read.
+     * @param strings    The shared strings of the workbook.
+     * @param sampleRows Rows read after the header row.
+     */
+    SampleHandler(final SampleSheet sheet, final ReadOnlySharedStringsTable strings, final int sampleRows) {
+      this.sheet = sheet;
+      this.strings = strings;
+      this.sampleRows = sampleRows;
+    }
+
+    @Override
+    public void startElement(final String uri, final String localName, final String qName,
+        final Attributes attributes) throws SAXException {
+      if ("row".equals(localName)) {
+        final String r = attributes.getValue("r");
+        this.rowIndex = r == null ? this.rowIndex + 1 : Integer.parseInt(r) - 1;
+        if (this.rowIndex > this.sampleRows) {
+          throw new SampleFull();
+        } // else
+        this.row = new HashMap<>();
+        this.sheet.rows.put(Integer.valueOf(this.rowIndex), this.row);
+        this.sheet.lastRow = this.rowIndex;
+        this.column = -1;
+      } else if ("c".equals(localName)) {
+        final String r = attributes.getValue("r");
+        this.column = r == null ? this.column + 1 : new CellReference(r).getCol();
+        this.cellType = attributes.getValue("t");
+        this.value.setLength(0);
+      } else if ("v".equals(localName) || "t".equals(localName)) {
+        // 't' holds the text of an inline string.
+        this.inValue = true;
+      }
+    }
+
+    @Override
+    public void endElement(final String uri, final String localName, final String qName) {
+      if ("v".equals(localName) || "t".equals(localName)) {
+        this.inValue = false;
+      } else if ("c".equals(localName)) {
+        final String text = this.value.toString();
+        final SampleCell cell;
+        if (this.cellType == null || "n".equals(this.cellType)) {
+          cell = text.isEmpty() ? null : new SampleCell(text, 'n');
+        } else if ("s".equals(this.cellType)) {
+          cell = new SampleCell(this.strings.getItemAt(Integer.parseInt(text)).getString(), 's');
+        } else if ("inlineStr".equals(this.cellType) || "str".equals(this.cellType)) {
+          cell = new SampleCell(text, 's');
+        } else {
+          cell = new SampleCell(text, "b".equals(this.cellType) ? 'b' : 'e');
+        }
+        if (cell != null) {
+          // A cell with only a style is blank.
+          this.row.put(Integer.valueOf(this.column), cell);
+        }
+      }
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      if (this.inValue) {
+        this.value.append(ch, start, length);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+/**
+ * Interfaces for streaming parsed records with demand-driven backpressure.  They have the same methods and
+ * contract as <code>java.util.concurrent.Flow</code> (Reactive Streams), which is not available on Java 8; on
+ * Java 9 or later a wrapper that delegates each method adapts one to the other.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public final class RecordFlow {
+
+  /**
+   * Not instantiated.
+   */
+  private RecordFlow() {
+    // end <init>
+  }
+
+  /**
+   * A source of records, sent to each subscriber as it requests them.
+   *
+   * @param <T> the record type.
+   */
+  @FunctionalInterface
+  public interface Publisher<T> {
+
+    /**
+     * Add a subscriber.  {@link Subscriber#onSubscribe(Subscription)} is called first; no records are sent
+     * until they are requested.
+     *
+     * @param subscriber the subscriber.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+
+  }
+
+  /**
+   * A receiver of records.  The methods are called in order, never concurrently, for one subscription.
+   *
+   * @param <T> the record type.
+   */
+  public interface Subscriber<T> {
+
+    /**
+     * Called before any other method.
+     *
+     * @param subscription the subscription, used to request records or cancel.
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Called with each record, no more often than requested.
+     *
+     * @param item the record.
+     */
+    void onNext(T item);
+
+    /**
+     * Called once if the records can not be produced; nothing follows.
+     *
+     * @param throwable the failure.
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called once after the last record; nothing follows.
+     */
+    void onComplete();
+
+  }
+
+  /**
+   * The link between a publisher and one subscriber.
+   */
+  public interface Subscription {
+
+    /**
+     * Ask for more records.
+     *
+     * @param n the number of records, added to any outstanding demand; must be positive.
+     */
+    void request(long n);
+
+    /**
+     * Stop sending records, releasing the source.
+     */
+    void cancel();
+
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The assignment of workers to precincts and days produced by the {@link ScheduleEngine}.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class Schedule {
+
+  /**
+   * A single staffing slot and the worker assigned to it.
+   */
+  public static class Assignment {
+
+    /**
+     * The requirement the slot belongs to.
+     */
+    protected final StaffingRequirement requirement;
+
+    /**
+     * Database ID of the worker, -1 if the slot could not be filled.
+     */
+    protected final int workerId;
+
+    /**
+     * Last Name of the worker, null if unfilled.
+     */
+    protected final String lastName;
+
+    /**
+     * First Name of the worker, null if unfilled.
+     */
+    protected final String firstName;
+
+    /**
+     * VR # of the worker, null if unfilled or unknown.
+     */
+    protected final String vrId;
+
+    /**
+     * Phone # of the worker, null if unfilled or unknown.
+     */
+    protected final String phone;
+
+    /**
+     * Constructor for Assignment.
+     *
+     * @param requirement The requirement the slot belongs to.
+     * @param workerId    Database ID of the worker, -1 if the slot could not be filled.
+     * @param lastName    Last Name of the worker.
+     * @param firstName   First Name of the worker.
+     * @param vrId        VR # of the worker.
+     * @param phone       Phone # of the worker.
+     */
+    public Assignment(final StaffingRequirement requirement, final int workerId, final String lastName,
+        final String firstName, final String vrId, final String phone) {
+      this.requirement = requirement;
+      this.workerId = workerId;
+      this.lastName = lastName;
+      this.firstName = firstName;
+      this.vrId = vrId;
+      this.phone = phone;
+      // end <init>
+    }
+
+    /**
+     * @return the requirement
+     */
+    public StaffingRequirement getRequirement() {
+      return this.requirement;
+    }
+
+    /**
+     * @return the worker's Database ID, -1 if unfilled.
+     */
+    public int getWorkerId() {
+      return this.workerId;
+    }
+
+    /**
+     * @return true if a worker was assigned to the slot.
+     */
+    public boolean isFilled() {
+      return this.workerId >= 0;
+    }
+
+    /**
+     * @return the lastName
+     */
+    public String getLastName() {
+      return this.lastName;
+    }
+
+    /**
+     * @return the firstName
+     */
+    public String getFirstName() {
+      return this.firstName;
+    }
+
+    /**
+     * @return the VR #
+     */
+    public String getVrId() {
+      return this.vrId;
+    }
+
+    /**
+     * @return the phone
+     */
+    public String getPhone() {
+      return this.phone;
+    }
+
+  }
+
+  /**
+   * The slots, ordered by day, precinct and role.
+   */
+  protected final List<Assignment> assignments;
+
+  /**
+   * Score of the schedule, higher is better.
+   */
+  protected final long score;
+
+  /**
+   * Constructor for Schedule.
+   *
+   * @param assignments The slots, ordered by day, precinct and role.
+   * @param score       Score of the schedule, higher is better.
+   */
+  public Schedule(final List<Assignment> assignments, final long score) {
+    this.assignments = Collections.unmodifiableList(assignments);
+    this.score = score;
+    // end <init>
+  }
+
+  /**
+   * @return the assignments
+   */
+  public List<Assignment> getAssignments() {
+    return this.assignments;
+  }
+
+  /**
+   * @return the score
+   */
+  public long getScore() {
+    return this.score;
+  }
+
+  /**
+   * @return the number of slots that could not be filled.
+   */
+  public int getUnfilled() {
+    int unfilled = 0;
+    for (final Assignment assignment : this.assignments) {
+      if (!assignment.isFilled()) {
+        unfilled++;
+      }
+    }
+    return unfilled;
+    // end getUnfilled
+  }
+
+}
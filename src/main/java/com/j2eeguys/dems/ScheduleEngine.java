@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assigns workers to precincts and days to meet a set of {@link StaffingRequirement}s.
+ * <p>
+ * Availability is loaded from the Database into one {@link BitSet} of workers per day. A greedy pass fills
+ * the scarcest requirements first, then several randomized local searches run in parallel on a
+ * {@link ForkJoinPool} until they stop improving or the time limit is reached, and the best result wins.
+ * </p>
+ * Workers must be available on the day, hold the required role and speak the required language.
+ * Among those, workers from the same precinct or location, experienced workers, and spreading
+ * the load across workers are preferred.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class ScheduleEngine {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleEngine.class);
+
+  /**
+   * Score lost for each slot left unfilled.
+   */
+  protected static final int UNFILLED_PENALTY = 1000;
+
+  /**
+   * Score for assigning a worker to their own precinct.
+   */
+  protected static final int PRECINCT_BONUS = 10;
+
+  /**
+   * Score for assigning a worker to their preferred location.
+   */
+  protected static final int LOCATION_BONUS = 5;
+
+  /**
+   * Score for assigning an experienced worker.
+   */
+  protected static final int EXPERIENCE_BONUS = 3;
+
+  /**
+   * Weight of the squared number of assignments per worker, spreading shifts across workers.
+   */
+  protected static final int FAIRNESS_WEIGHT = 2;
+
+  /**
+   * Connection to the Database.
+   */
+  protected final Connection c;
+
+  /**
+   * Pool running the local searches.
+   */
+  protected final ForkJoinPool pool;
+
+  /**
+   * Maximum time in milliseconds to spend solving.
+   */
+  protected long timeLimit = 5000;
+
+  /**
+   * Constructor for ScheduleEngine. Uses the common {@link ForkJoinPool}.
+   *
+   * @param c Connection to the Database.
+   */
+  public ScheduleEngine(final Connection c) {
+    this(c, ForkJoinPool.commonPool());
+    // end <init>
+  }
+
+  /**
+   * Constructor for ScheduleEngine.
+   *
+   * @param c    Connection to the Database.
+   * @param pool Pool to run the local searches on.
+   */
+  public ScheduleEngine(final Connection c, final ForkJoinPool pool) {
+    this.c = c;
+    this.pool = pool;
+    // end <init>
+  }
+
+  /**
+   * @param timeLimit the maximum time in milliseconds to spend solving.
+   */
+  public void setTimeLimit(final long timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  /**
+   * Build a schedule meeting the requirements as closely as possible.
+   *
+   * @param requirements the staffing requirements.
+   * @return the best schedule found within the time limit.
+   * @throws SQLException thrown if the workers can not be read from the Database.
+   */
+  public Schedule solve(final List<StaffingRequirement> requirements) throws SQLException {
+    final long deadline = System.currentTimeMillis() + this.timeLimit;
+    final Problem problem = new Problem(requirements);
+    problem.load(this.c);
+    final int[] greedy = problem.greedy();
+    int[] best = greedy;
+    long bestScore = problem.score(greedy);
+    LOGGER.info("Greedy schedule score {}", Long.valueOf(bestScore));
+    final List<Callable<int[]>> searches = new ArrayList<>();
+    for (int i = 0; i < this.pool.getParallelism(); i++) {
+      final long seed = i;
+      searches.add(() -> problem.improve(greedy.clone(), new Random(seed), deadline));
+    }
+    try {
+      for (final Future<int[]> search : this.pool.invokeAll(searches)) {
+        final int[] candidate = search.get();
+        final long score = problem.score(candidate);
+        if (score > bestScore) {
+          best = candidate;
+          bestScore = score;
+        }
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Local search failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted, keeping best schedule found so far");
+    }
+    LOGGER.info("Final schedule score {}", Long.valueOf(bestScore));
+    return problem.toSchedule(best, bestScore);
+    // end solve
+  }
+
+  /**
+   * The workers, their availability, and the slots to fill.
+   */
+  static class Problem {
+
+    /**
+     * The requirements being met.
+     */
+    final List<StaffingRequirement> requirements;
+
+    /**
+     * Index into the availability BitSets for each day.
+     */
+    final Map<LocalDate, Integer> dayIndex = new HashMap<>();
+
+    /**
+     * Day index of each requirement.
+     */
+    final int[] reqDay;
+
+    /**
+     * Requirement of each slot.
+     */
+    final int[] slotReq;
+
+    /**
+     * Slots of each day, used for swaps.
+     */
+    final int[][] slotsByDay;
+
+    /**
+     * Workers eligible for each requirement.
+     */
+    BitSet[] eligible;
+
+    // Worker details, indexed by position in the WORKER scan.
+    int[] ids;
+    String[] lastNames;
+    String[] firstNames;
+    String[] vrIds;
+    String[] phones;
+    int[] precincts;
+    String[] locations;
+    boolean[] experienced;
+
+    /**
+     * Constructor for Problem.
+     *
+     * @param requirements the requirements being met.
+     */
+    Problem(final List<StaffingRequirement> requirements) {
+      this.requirements = requirements;
+      this.reqDay = new int[requirements.size()];
+      int slots = 0;
+      for (int r = 0; r < requirements.size(); r++) {
+        final LocalDate day = requirements.get(r).getDay().toLocalDate();
+        Integer index = this.dayIndex.get(day);
+        if (index == null) {
+          index = Integer.valueOf(this.dayIndex.size());
+          this.dayIndex.put(day, index);
+        }
+        this.reqDay[r] = index.intValue();
+        slots += requirements.get(r).getCount();
+      }
+      this.slotReq = new int[slots];
+      final int[] perDay = new int[this.dayIndex.size()];
+      for (int r = 0, s = 0; r < requirements.size(); r++) {
+        for (int n = 0; n < requirements.get(r).getCount(); n++) {
+          this.slotReq[s++] = r;
+          perDay[this.reqDay[r]]++;
+        }
+      }
+      this.slotsByDay = new int[perDay.length][];
+      for (int d = 0; d < perDay.length; d++) {
+        this.slotsByDay[d] = new int[perDay[d]];
+        perDay[d] = 0;
+      }
+      for (int s = 0; s < slots; s++) {
+        final int d = this.reqDay[this.slotReq[s]];
+        this.slotsByDay[d][perDay[d]++] = s;
+      }
+      // end <init>
+    }
+
+    /**
+     * Load the workers and their availability, and work out who is eligible for each requirement.
+     *
+     * @param c Connection to the Database.
+     * @throws SQLException thrown if the Database can not be read.
+     */
+    void load(final Connection c) throws SQLException {
+      final int count;
+      try (final PreparedStatement countWorker = c.prepareStatement("SELECT COUNT(*) FROM WORKER");
+          final ResultSet rs = countWorker.executeQuery()) {
+        rs.next();
+        count = rs.getInt(1);
+      }
+      this.ids = new int[count];
+      this.lastNames = new String[count];
+      this.firstNames = new String[count];
+      this.vrIds = new String[count];
+      this.phones = new String[count];
+      this.precincts = new int[count];
+      this.locations = new String[count];
+      this.experienced = new boolean[count];
+      final String[] roles = new String[count];
+      final String[] languages = new String[count];
+      final Map<Integer, Integer> workerIndex = new HashMap<>();
+      try (final PreparedStatement listWorker = c.prepareStatement(
+          "SELECT ID, LAST_NAME, FIRST_NAME, VR_ID, PHONE, PRECINCT, LOCATION, EXPERIENCED, ROLE, LANGUAGES "
+              + "FROM WORKER ORDER BY ID");
+          final ResultSet rs = listWorker.executeQuery()) {
+        for (int w = 0; w < count && rs.next(); w++) {
+          this.ids[w] = rs.getInt(1);
+          workerIndex.put(Integer.valueOf(this.ids[w]), Integer.valueOf(w));
+          this.lastNames[w] = rs.getString(2);
+          this.firstNames[w] = rs.getString(3);
+          this.vrIds[w] = rs.getString(4);
+          this.phones[w] = rs.getString(5);
+          final int precinct = rs.getInt(6);
+          this.precincts[w] = rs.wasNull() ? -1 : precinct;
+          final String location = rs.getString(7);
+          this.locations[w] = location == null ? null : location.trim();
+          this.experienced[w] = rs.getByte(8) > 0;
+          roles[w] = rs.getString(9);
+          languages[w] = rs.getString(10);
+        }
+      }
+      // Availability, one BitSet of workers per day.
+      final BitSet[] available = new BitSet[this.dayIndex.size()];
+      for (int d = 0; d < available.length; d++) {
+        available[d] = new BitSet(count);
+      }
+      if (!this.dayIndex.isEmpty()) {
+        final LocalDate first = Collections.min(this.dayIndex.keySet());
+        final LocalDate last = Collections.max(this.dayIndex.keySet());
+        try (final PreparedStatement searchAvailability =
+            c.prepareStatement("SELECT ID, DAY FROM AVAILABILITY WHERE DAY >= ? AND DAY <= ?")) {
+          searchAvailability.setDate(1, Date.valueOf(first));
+          searchAvailability.setDate(2, Date.valueOf(last));
+          try (final ResultSet rs = searchAvailability.executeQuery()) {
+            while (rs.next()) {
+              final Integer d = this.dayIndex.get(rs.getDate(2).toLocalDate());
+              final Integer w = workerIndex.get(Integer.valueOf(rs.getInt(1)));
+              if (d != null && w != null) {
+                available[d.intValue()].set(w.intValue());
+              }
+            }
+          }
+        }
+      }
+      this.eligible = new BitSet[this.requirements.size()];
+      for (int r = 0; r < this.eligible.length; r++) {
+        final StaffingRequirement req = this.requirements.get(r);
+        final BitSet bits = (BitSet) available[this.reqDay[r]].clone();
+        for (int w = bits.nextSetBit(0); w >= 0; w = bits.nextSetBit(w + 1)) {
+          final String role = roles[w];
+          final String language = languages[w];
+          if ((req.getRole() != null && (role == null || !role.trim().equalsIgnoreCase(req.getRole())))
+              || (req.getLanguage() != null && (language == null
+                  || !language.toLowerCase().contains(req.getLanguage().toLowerCase())))) {
+            bits.clear(w);
+          }
+        }
+        this.eligible[r] = bits;
+      }
+      // end load
+    }
+
+    /**
+     * Score for assigning a worker to a requirement, ignoring fairness.
+     *
+     * @param w worker index.
+     * @param r requirement index.
+     * @return the score.
+     */
+    int affinity(final int w, final int r) {
+      final int precinct = this.requirements.get(r).getPrecinct();
+      int score = 0;
+      if (this.precincts[w] == precinct) {
+        score += PRECINCT_BONUS;
+      }
+      if (this.locations[w] != null && this.locations[w].equals(Integer.toString(precinct))) {
+        score += LOCATION_BONUS;
+      }
+      if (this.experienced[w]) {
+        score += EXPERIENCE_BONUS;
+      }
+      return score;
+      // end affinity
+    }
+
+    /**
+     * Score a schedule.
+     *
+     * @param assign worker index for each slot, -1 if unfilled.
+     * @return the score, higher is better.
+     */
+    long score(final int[] assign) {
+      long score = 0;
+      final int[] counts = new int[this.ids.length];
+      for (int s = 0; s < assign.length; s++) {
+        if (assign[s] < 0) {
+          score -= UNFILLED_PENALTY;
+        } else {
+          score += affinity(assign[s], this.slotReq[s]);
+          counts[assign[s]]++;
+        }
+      }
+      for (final int count : counts) {
+        score -= (long) FAIRNESS_WEIGHT * count * count;
+      }
+      return score;
+      // end score
+    }
+
+    /**
+     * Greedy schedule, filling the requirements with the fewest eligible workers first.
+     *
+     * @return worker index for each slot, -1 if unfilled.
+     */
+    int[] greedy() {
+      final int[] assign = new int[this.slotReq.length];
+      final int[] counts = new int[this.ids.length];
+      final BitSet[] busy = newBusy();
+      final List<Integer> order = new ArrayList<>();
+      for (int s = 0; s < assign.length; s++) {
+        order.add(Integer.valueOf(s));
+      }
+      order.sort(Comparator.comparingInt(s -> this.eligible[this.slotReq[s.intValue()]].cardinality()));
+      for (final Integer slot : order) {
+        final int s = slot.intValue();
+        final int r = this.slotReq[s];
+        final BitSet dayBusy = busy[this.reqDay[r]];
+        int bestWorker = -1;
+        int bestGain = Integer.MIN_VALUE;
+        for (int w = this.eligible[r].nextSetBit(0); w >= 0; w = this.eligible[r].nextSetBit(w + 1)) {
+          if (!dayBusy.get(w)) {
+            final int gain = affinity(w, r) - FAIRNESS_WEIGHT * (2 * counts[w] + 1);
+            if (gain > bestGain) {
+              bestGain = gain;
+              bestWorker = w;
+            }
+          }
+        }
+        assign[s] = bestWorker;
+        if (bestWorker >= 0) {
+          dayBusy.set(bestWorker);
+          counts[bestWorker]++;
+        }
+      }
+      return assign;
+      // end greedy
+    }
+
+    /**
+     * Improve a schedule with random reassignments and same day swaps, accepting only improvements.
+     * Stops at the deadline, or once no improvement has been found for a while.
+     *
+     * @param assign   the schedule to improve, modified in place.
+     * @param random   source of randomness for the search.
+     * @param deadline time to stop searching by.
+     * @return the improved schedule.
+     */
+    int[] improve(final int[] assign, final Random random, final long deadline) {
+      if (assign.length == 0 || this.ids.length == 0) {
+        return assign;
+      } // else
+      final int[] counts = new int[this.ids.length];
+      final BitSet[] busy = newBusy();
+      for (int s = 0; s < assign.length; s++) {
+        if (assign[s] >= 0) {
+          counts[assign[s]]++;
+          busy[this.reqDay[this.slotReq[s]]].set(assign[s]);
+        }
+      }
+      final int patience = Math.max(1000, assign.length * 50);
+      int sinceImproved = 0;
+      for (long i = 0; sinceImproved < patience; i++) {
+        if ((i & 0xff) == 0 && System.currentTimeMillis() >= deadline) {
+          break;
+        }
+        final int s = random.nextInt(assign.length);
+        final int r = this.slotReq[s];
+        final int d = this.reqDay[r];
+        final boolean improved;
+        if (random.nextBoolean()) {
+          improved = reassign(assign, counts, busy[d], s, r, random);
+        } else {
+          improved = swap(assign, s, this.slotsByDay[d][random.nextInt(this.slotsByDay[d].length)]);
+        }
+        sinceImproved = improved ? 0 : sinceImproved + 1;
+      }
+      return assign;
+      // end improve
+    }
+
+    /**
+     * Try replacing the worker in a slot with a random free eligible worker.
+     *
+     * @param assign  the schedule.
+     * @param counts  number of slots per worker.
+     * @param dayBusy the workers already assigned on the day of the slot.
+     * @param s       the slot.
+     * @param r       the requirement of the slot.
+     * @param random  source of randomness.
+     * @return true if the schedule was improved.
+     */
+    private boolean reassign(final int[] assign, final int[] counts, final BitSet dayBusy, final int s,
+        final int r, final Random random) {
+      final BitSet candidates = this.eligible[r];
+      int w = candidates.nextSetBit(random.nextInt(this.ids.length));
+      while (w >= 0 && dayBusy.get(w)) {
+        w = candidates.nextSetBit(w + 1);
+      }
+      if (w < 0) {
+        // wrap around
+        w = candidates.nextSetBit(0);
+        while (w >= 0 && dayBusy.get(w)) {
+          w = candidates.nextSetBit(w + 1);
+        }
+      }
+      if (w < 0) {
+        return false;
+      } // else
+      final int old = assign[s];
+      int delta = affinity(w, r) - FAIRNESS_WEIGHT * (2 * counts[w] + 1);
+      if (old < 0) {
+        delta += UNFILLED_PENALTY;
+      } else {
+        delta -= affinity(old, r) - FAIRNESS_WEIGHT * (2 * counts[old] - 1);
+      }
+      if (delta <= 0) {
+        return false;
+      } // else
+      if (old >= 0) {
+        counts[old]--;
+        dayBusy.clear(old);
+      }
+      assign[s] = w;
+      counts[w]++;
+      dayBusy.set(w);
+      return true;
+      // end reassign
+    }
+
+    /**
+     * Try swapping the workers of two slots on the same day.
+     *
+     * @param assign the schedule.
+     * @param s1     first slot.
+     * @param s2     second slot.
+     * @return true if the schedule was improved.
+     */
+    private boolean swap(final int[] assign, final int s1, final int s2) {
+      final int w1 = assign[s1];
+      final int w2 = assign[s2];
+      final int r1 = this.slotReq[s1];
+      final int r2 = this.slotReq[s2];
+      if (w1 < 0 || w2 < 0 || r1 == r2 || !this.eligible[r2].get(w1) || !this.eligible[r1].get(w2)) {
+        return false;
+      } // else
+      if (affinity(w1, r2) + affinity(w2, r1) <= affinity(w1, r1) + affinity(w2, r2)) {
+        return false;
+      } // else
+      assign[s1] = w2;
+      assign[s2] = w1;
+      return true;
+      // end swap
+    }
+
+    /**
+     * @return an empty set of assigned workers for each day.
+     */
+    private BitSet[] newBusy() {
+      final BitSet[] busy = new BitSet[this.dayIndex.size()];
+      for (int d = 0; d < busy.length; d++) {
+        busy[d] = new BitSet(this.ids.length);
+      }
+      return busy;
+    }
+
+    /**
+     * Convert a solution into a {@link Schedule}.
+     *
+     * @param assign worker index for each slot, -1 if unfilled.
+     * @param score  the score of the solution.
+     * @return the Schedule, ordered by day, precinct and role.
+     */
+    Schedule toSchedule(final int[] assign, final long score) {
+      final List<Schedule.Assignment> assignments = new ArrayList<>(assign.length);
+      for (int s = 0; s < assign.length; s++) {
+        final StaffingRequirement req = this.requirements.get(this.slotReq[s]);
+        final int w = assign[s];
+        assignments.add(w < 0 ? new Schedule.Assignment(req, -1, null, null, null, null)
+            : new Schedule.Assignment(req, this.ids[w], this.lastNames[w], this.firstNames[w], this.vrIds[w],
+                this.phones[w]));
+      }
+      assignments.sort(Comparator.comparing((Schedule.Assignment a) -> a.getRequirement().getDay())
+          .thenComparingInt(a -> a.getRequirement().getPrecinct())
+          .thenComparing(a -> a.getRequirement().getRole(), Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+          .thenComparing(a -> a.getLastName(), Comparator.nullsLast(Comparator.<String>naturalOrder())));
+      return new Schedule(assignments, score);
+      // end toSchedule
+    }
+
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only workbook holding only the sheets selected by name.  {@link XSSFWorkbook} parses the XML of
+ * every sheet as it is opened, which is most of the cost of opening a survey; the sheets not selected are
+ * never parsed, so opening costs in proportion to the sheets selected.  Sheet indexes count only the
+ * selected sheets.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class SelectedSheetsWorkbook extends XSSFWorkbook {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SelectedSheetsWorkbook.class);
+
+  /**
+   * Selects the sheets of the workbook being opened on this thread.  The sheets are parsed by the
+   * {@link XSSFWorkbook} constructor, before any field of this class is set.
+   */
+  private static final ThreadLocal<Predicate<String>> OPENING = new ThreadLocal<>();
+
+  /**
+   * Constructor for SelectedSheetsWorkbook.  See {@link #open(File, Predicate)}.
+   *
+   * @param pkg the package of the workbook.
+   * @throws IOException thrown if the workbook can not be read.
+   */
+  private SelectedSheetsWorkbook(final OPCPackage pkg) throws IOException {
+    super(pkg);
+    // end <init>
+  }
+
+  /**
+   * Open a workbook read-only, parsing only the selected sheets.
+   *
+   * @param file     the workbook.
+   * @param selected selects the sheets to read by name.
+   * @return the workbook, holding only the selected sheets.
+   * @throws IOException thrown if the workbook can not be read.
+   */
+  public static XSSFWorkbook open(final File file, final Predicate<String> selected) throws IOException {
+    final OPCPackage pkg;
+    try {
+      pkg = OPCPackage.open(file, PackageAccess.READ);
+    } catch (InvalidFormatException e) {
+      throw new IOException("Unable to open " + file.getAbsolutePath(), e);
+    }
+    OPENING.set(selected);
+    try {
+      return new SelectedSheetsWorkbook(pkg);
+    } catch (IOException | RuntimeException e) {
+      pkg.revert();
+      throw e;
+    } finally {
+      OPENING.remove();
+    }
+    // end open
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.poi.xssf.usermodel.XSSFWorkbook#parseSheet(java.util.Map,
+   * org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet)
+   */
+  @Override
+  public void parseSheet(final Map<String, XSSFSheet> shIdMap, final CTSheet ctSheet) {
+    final Predicate<String> selected = OPENING.get();
+    if (selected == null || selected.test(ctSheet.getName())) {
+      super.parseSheet(shIdMap, ctSheet);
+    } else {
+      LOGGER.debug("Skipping sheet {}", ctSheet.getName());
+    }
+    // end parseSheet
+  }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the generated output sheets between runs, so sheets whose data hasn't changed are restored
+ * instead of being regenerated from the Database.
+ * <p>
+ * Each sheet is stored in its own file with a digest of the data it depends on: the worker set, plus the
+ * availability within the sheet's date range. Computing the digest is one scan of each table, much cheaper
+ * than the per-worker queries needed to build a sheet.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class SheetCache {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SheetCache.class);
+
+  /**
+   * Version of the cache files and the sheet layouts. Bump when the layout of a generated sheet changes.
+   */
+  protected static final int VERSION = 2;
+
+  /**
+   * Cell styles that can be restored.
+   */
+  protected static final byte STYLE_NONE = 0, STYLE_CENTER = 1, STYLE_HEADER = 2;
+
+  /**
+   * Cell values that can be restored.
+   */
+  protected static final byte VALUE_BLANK = 0, VALUE_STRING = 1, VALUE_NUMERIC = 2;
+
+  /**
+   * Directory holding the cached sheets.
+   */
+  protected final File directory;
+
+  /**
+   * Constructor for SheetCache.
+   *
+   * @param directory Directory holding the cached sheets, created if missing.
+   */
+  public SheetCache(final File directory) {
+    this.directory = directory;
+    // end <init>
+  }
+
+  /**
+   * Digest the worker set. Computed once per output and shared by all the sheets.
+   *
+   * @param c Connection to the Database.
+   * @return the digest of every worker column.
+   * @throws SQLException thrown if the Database can not be read.
+   */
+  public byte[] workerDigest(final Connection c) throws SQLException {
+    final MessageDigest md = newDigest();
+    try (final PreparedStatement listWorker = c.prepareStatement(
+        "SELECT ID, NOTES, LAST_NAME, FIRST_NAME, VR_ID, CITY, PHONE, EMAIL, EXPERIENCED, LANGUAGES, LOCATION, "
+            + "PRECINCT, ROLE FROM WORKER ORDER BY ID");
+        final ResultSet rs = listWorker.executeQuery()) {
+      final int colCount = rs.getMetaData().getColumnCount();
+      while (rs.next()) {
+        for (int i = 1; i <= colCount; i++) {
+          update(md, rs.getString(i));
+        }
+      }
+    }
+    return md.digest();
+    // end workerDigest
+  }
+
+  /**
+   * Digest the data a sheet depends on.
+   *
+   * @param c            Connection to the Database.
+   * @param workerDigest the digest of the worker set, see {@link #workerDigest(Connection)}.
+   * @param sheetName    the name of the sheet.
+   * @param from         first day of availability shown on the sheet, null for no limit.
+   * @param to           day after the last day of availability shown on the sheet, null for no limit.
+   * @return the digest for the sheet.
+   * @throws SQLException thrown if the Database can not be read.
+   */
+  public byte[] digest(final Connection c, final byte[] workerDigest, final String sheetName, final Date from,
+      final Date to) throws SQLException {
+    return digest(c, workerDigest, sheetName, from, to, null);
+  }
+
+  /**
+   * Digest the data a sheet depends on, including the shifts of each day.
+   *
+   * @param c            Connection to the Database.
+   * @param workerDigest the digest of the worker set, see {@link #workerDigest(Connection)}.
+   * @param sheetName    the name of the sheet.
+   * @param from         first day of availability shown on the sheet, null for no limit.
+   * @param to           day after the last day of availability shown on the sheet, null for no limit.
+   * @param shifts       the shifts shown on the sheet, null if only whole days are shown.
+   * @return the digest for the sheet.
+   * @throws SQLException thrown if the Database can not be read.
+   */
+  public byte[] digest(final Connection c, final byte[] workerDigest, final String sheetName, final Date from,
+      final Date to, final Shifts shifts) throws SQLException {
+    final MessageDigest md = newDigest();
+    update(md, sheetName);
+    md.update(workerDigest);
+    if (shifts != null) {
+      update(md, shifts.toString());
+    }
+    try (final PreparedStatement searchAvailability = c.prepareStatement("SELECT ID, DAY"
+        + (shifts == null ? "" : ", SHIFTS") + " FROM AVAILABILITY WHERE DAY >= ? AND DAY < ? ORDER BY ID, DAY")) {
+      searchAvailability.setDate(1, from == null ? Date.valueOf("0001-01-01") : from);
+      searchAvailability.setDate(2, to == null ? Date.valueOf("9999-12-31") : to);
+      try (final ResultSet rs = searchAvailability.executeQuery()) {
+        while (rs.next()) {
+          update(md, rs.getString(1));
+          update(md, rs.getString(2));
+          if (shifts != null) {
+            update(md, rs.getString(3));
+          }
+        }
+      }
+    }
+    return md.digest();
+    // end digest
+  }
+
+  /**
+   * Restore a sheet if it is cached with the same digest.
+   *
+   * @param sheet       the empty sheet to fill.
+   * @param digest      the digest of the data the sheet depends on.
+   * @param centerStyle the style used for centered cells.
+   * @param headerStyle the style used for header cells.
+   * @return true if the sheet was restored, false if it must be generated.
+   */
+  public boolean restore(final Sheet sheet, final byte[] digest, final CellStyle centerStyle,
+      final CellStyle headerStyle) {
+    final File file = file(sheet);
+    if (!file.isFile()) {
+      return false;
+    } // else
+    try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != VERSION) {
+        return false;
+      } // else
+      final byte[] cached = new byte[in.readUnsignedShort()];
+      in.readFully(cached);
+      if (!Arrays.equals(cached, digest)) {
+        return false;
+      } // else
+      final int rowCount = in.readInt();
+      for (int r = 0; r < rowCount; r++) {
+        final Row row = sheet.createRow(in.readInt());
+        final int cellCount = in.readUnsignedShort();
+        for (int k = 0; k < cellCount; k++) {
+          final Cell cell = row.createCell(in.readUnsignedShort());
+          final byte style = in.readByte();
+          if (style == STYLE_CENTER) {
+            cell.setCellStyle(centerStyle);
+          } else if (style == STYLE_HEADER) {
+            cell.setCellStyle(headerStyle);
+          }
+          final byte value = in.readByte();
+          if (value == VALUE_NUMERIC) {
+            cell.setCellValue(in.readDouble());
+          } else if (value == VALUE_STRING) {
+            cell.setCellValue(in.readUTF());
+          }
+        }
+      }
+      final int columnCount = in.readUnsignedShort();
+      for (int column = 0; column < columnCount; column++) {
+        sheet.setColumnWidth(column, in.readInt());
+      }
+      LOGGER.info("Restored unchanged sheet {}", sheet.getSheetName());
+      return true;
+    } catch (IOException e) {
+      LOGGER.warn("Unable to restore cached sheet {}, regenerating: {}", sheet.getSheetName(), e.getMessage());
+      // Anything restored so far is replaced when the sheet is regenerated.
+      while (sheet.getPhysicalNumberOfRows() > 0) {
+        sheet.removeRow(sheet.getRow(sheet.getFirstRowNum()));
+      }
+      return false;
+    }
+    // end restore
+  }
+
+  /**
+   * Store a generated sheet. Failures are logged, not thrown, as the cache is only an optimization.
+   *
+   * @param sheet       the generated sheet.
+   * @param digest      the digest of the data the sheet depends on.
+   * @param centerStyle the style used for centered cells.
+   * @param headerStyle the style used for header cells.
+   */
+  public void store(final Sheet sheet, final byte[] digest, final CellStyle centerStyle,
+      final CellStyle headerStyle) {
+    final File file = file(sheet);
+    if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+      LOGGER.warn("Unable to create sheet cache {}", this.directory.getAbsolutePath());
+      return;
+    } // else
+    try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(VERSION);
+      out.writeShort(digest.length);
+      out.write(digest);
+      out.writeInt(sheet.getPhysicalNumberOfRows());
+      int columnCount = 0;
+      for (final Row row : sheet) {
+        columnCount = Math.max(columnCount, row.getLastCellNum());
+        out.writeInt(row.getRowNum());
+        out.writeShort(row.getPhysicalNumberOfCells());
+        for (final Cell cell : row) {
+          out.writeShort(cell.getColumnIndex());
+          final short styleIndex = cell.getCellStyle().getIndex();
+          out.writeByte(styleIndex == centerStyle.getIndex() ? STYLE_CENTER
+              : headerStyle != null && styleIndex == headerStyle.getIndex() ? STYLE_HEADER : STYLE_NONE);
+          if (cell.getCellType() == CellType.NUMERIC) {
+            out.writeByte(VALUE_NUMERIC);
+            out.writeDouble(cell.getNumericCellValue());
+          } else if (cell.getCellType() == CellType.BLANK) {
+            out.writeByte(VALUE_BLANK);
+          } else {
+            out.writeByte(VALUE_STRING);
+            out.writeUTF(cell.getStringCellValue());
+          }
+        }
+      }
+      // Column widths
+      out.writeShort(columnCount);
+      for (int column = 0; column < columnCount; column++) {
+        out.writeInt(sheet.getColumnWidth(column));
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to cache sheet {}: {}", sheet.getSheetName(), e.getMessage());
+      file.delete();
+    }
+    // end store
+  }
+
+  /**
+   * @param sheet the sheet.
+   * @return the file caching the sheet.
+   */
+  protected File file(final Sheet sheet) {
+    return new File(this.directory, sheet.getSheetName().replaceAll("[^A-Za-z0-9-]", "_") + ".sheet");
+  }
+
+  /**
+   * @return a new SHA-256 digest.
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is a required algorithm", e);
+    }
+  }
+
+  /**
+   * Add a value to a digest, keeping null and empty values distinct.
+   *
+   * @param md    the digest.
+   * @param value the value, may be null.
+   */
+  private static void update(final MessageDigest md, final String value) {
+    if (value == null) {
+      md.update((byte) 0);
+    } else {
+      md.update((byte) 1);
+      md.update(value.getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0);
+    }
+  }
+
+}
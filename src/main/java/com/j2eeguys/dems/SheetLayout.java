@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of the Workers and weekly views, shared by {@link WriteXLSX}, {@link WriteCSV} and
+ * {@link WritePartitionedXLSX} so the workbook, the flat files and the partitioned workbooks agree: the
+ * worker columns, the day columns and the weeks, all of the one month shown.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public final class SheetLayout {
+
+  /**
+   * Worker columns of the Workers and NotScheduled views.
+   */
+  public static final String[] WORKER_HEADERS = {"Note", "Last Name", "First Name", "VR #", "City", "Phone",
+      "Email", "Experienced", "Languages", "Location", "Precinct", "Role"};
+
+  /**
+   * Worker columns of the weekly views.
+   */
+  public static final String[] WEEK_HEADERS = {"Last Name", "First Name", "VR #", "Precinct", "Role"};
+
+  /**
+   * First day of the month with a column on the Workers view.
+   */
+  public static final int FIRST_DAY = 13;
+
+  /**
+   * Last day of the month with a column on any view.
+   */
+  public static final int LAST_DAY = 30;
+
+  /**
+   * First day of the first week.
+   */
+  private static final int FIRST_WEEK = 12;
+
+  /**
+   * A week of the month, with a weekly view.
+   */
+  public static final class Week {
+
+    /**
+     * First day of the week.
+     */
+    private final int start;
+
+    /**
+     * Last day of the week shown.
+     */
+    private final int last;
+
+    /**
+     * The first day of the week, in the month shown.
+     */
+    private final Date from;
+
+    /**
+     * The day after the last day of the week shown, in the month shown.
+     */
+    private final Date to;
+
+    /**
+     * @param month the month shown.
+     * @param start first day of the week.
+     */
+    Week(final YearMonth month, final int start) {
+      this.start = start;
+      this.last = Math.min(start + 6, LAST_DAY);
+      this.from = Date.valueOf(month.atDay(start));
+      final LocalDate after = month.atDay(start).plusDays(this.last - start + 1);
+      // The last week of a short month ends with the month.
+      this.to = Date.valueOf(after.isAfter(month.atEndOfMonth()) ? month.plusMonths(1).atDay(1) : after);
+      // end <init>
+    }
+
+    /**
+     * @return the name of the view, such as "Oct 12-19".
+     */
+    public String getName() {
+      return "Oct " + this.start + '-' + Math.min(this.start + 7, LAST_DAY);
+    }
+
+    /**
+     * @return the first day of the week.
+     */
+    public int getStart() {
+      return this.start;
+    }
+
+    /**
+     * @return the last day of the week shown.
+     */
+    public int getLast() {
+      return this.last;
+    }
+
+    /**
+     * @return the first day of the week, for queries.
+     */
+    public Date getFrom() {
+      return this.from;
+    }
+
+    /**
+     * @return the day after the last day shown, for queries.
+     */
+    public Date getTo() {
+      return this.to;
+    }
+
+  }
+
+  /**
+   * The views show the days of one month: the month of the latest day any worker is available.
+   * @param c the Connection to the Database.
+   * @return the month shown, this month if no worker is available.
+   * @throws SQLException thrown if the availability can not be read.
+   */
+  public static YearMonth shownMonth(final Connection c) throws SQLException {
+    try (final Statement s = c.createStatement();
+        final ResultSet rs = s.executeQuery("SELECT MAX(DAY) FROM AVAILABILITY")) {
+      final Date latest = rs.next() ? rs.getDate(1) : null;
+      return latest == null ? YearMonth.now() : YearMonth.from(latest.toLocalDate());
+    }
+    // end shownMonth
+  }
+
+  /**
+   * @param month the month shown.
+   * @param day   an available day.
+   * @return true if the day is in the month shown.
+   */
+  public static boolean isShown(final YearMonth month, final Date day) {
+    return YearMonth.from(day.toLocalDate()).equals(month);
+  }
+
+  /**
+   * @param month the month shown.
+   * @return the weeks with a weekly view.
+   */
+  public static List<Week> weeks(final YearMonth month) {
+    final List<Week> weeks = new ArrayList<>();
+    for (int i = FIRST_WEEK; i < LAST_DAY; i += 7) {
+      weeks.add(new Week(month, i));
+    }
+    return weeks;
+  }
+
+  /**
+   * @param start the first day with a column.
+   * @param days  the number of day columns wanted.
+   * @return the number of day columns, ending no later than the {@link #LAST_DAY}.
+   */
+  public static int dayCount(final int start, final int days) {
+    return Math.max(0, Math.min(days, LAST_DAY - start + 1));
+  }
+
+  /**
+   * Not instantiated.
+   */
+  private SheetLayout() {
+    // end <init>
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The shifts of each election day, such as "AM,PM".  A worker's availability for a day is stored as a
+ * bitmask in <code>AVAILABILITY.SHIFTS</code>: bit n set if available for shift n; NULL (read as 0) if the
+ * survey gave no shifts, meaning the whole day.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class Shifts {
+
+  /**
+   * Most shifts per day, the bits of a SMALLINT.
+   */
+  public static final int MAX_SHIFTS = 15;
+
+  /**
+   * Mask of a day without shifts, available for the whole day.
+   */
+  public static final int WHOLE_DAY = 0;
+
+  /**
+   * Names of the shifts, in order.
+   */
+  protected final List<String> names;
+
+  /**
+   * Constructor for Shifts.
+   *
+   * @param names Names of the shifts, in order.
+   */
+  public Shifts(final List<String> names) {
+    if (names.isEmpty() || names.size() > MAX_SHIFTS) {
+      throw new IllegalArgumentException("Between 1 and " + MAX_SHIFTS + " shifts required: " + names);
+    } // else
+    for (int i = 0; i < names.size(); i++) {
+      if (indexOf(names.subList(0, i), names.get(i)) >= 0) {
+        throw new IllegalArgumentException("Duplicate shift " + names.get(i));
+      }
+    }
+    this.names = Collections.unmodifiableList(new ArrayList<>(names));
+    // end <init>
+  }
+
+  /**
+   * @param list the shifts, comma separated, such as "AM,PM"; may be null.
+   * @return the shifts, null if none are listed.
+   */
+  public static Shifts parse(final String list) {
+    if (list == null || list.trim().isEmpty()) {
+      return null;
+    } // else
+    final List<String> names = new ArrayList<>();
+    for (final String name : list.split(",")) {
+      if (!name.trim().isEmpty()) {
+        names.add(name.trim());
+      }
+    }
+    return new Shifts(names);
+  }
+
+  /**
+   * @return the number of shifts.
+   */
+  public int size() {
+    return this.names.size();
+  }
+
+  /**
+   * @param shift index of the shift.
+   * @return the name of the shift.
+   */
+  public String getName(final int shift) {
+    return this.names.get(shift);
+  }
+
+  /**
+   * @param name a column header, such as "am".
+   * @return the index of the shift named, ignoring case; -1 if not a shift.
+   */
+  public int indexOf(final String name) {
+    return indexOf(this.names, name);
+  }
+
+  /**
+   * @param mask  the shifts of a day, {@link #WHOLE_DAY} for all of them.
+   * @param shift index of the shift.
+   * @return true if the mask includes the shift.
+   */
+  public static boolean includes(final int mask, final int shift) {
+    return mask == WHOLE_DAY || (mask & (1 << shift)) != 0;
+  }
+
+  /**
+   * @param names the names to search.
+   * @param name  the name to find.
+   * @return the index of the name, ignoring case and surrounding whitespace; -1 if not found.
+   */
+  private static int indexOf(final List<String> names, final String name) {
+    if (name == null) {
+      return -1;
+    } // else
+    final String key = name.trim().toLowerCase(Locale.ROOT);
+    for (int i = 0; i < names.size(); i++) {
+      if (names.get(i).toLowerCase(Locale.ROOT).equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return String.join(",", this.names);
+  }
+
+}
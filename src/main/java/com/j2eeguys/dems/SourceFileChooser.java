@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+
+import javax.swing.JFileChooser;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.filechooser.FileSystemView;
+
+/**
+ * Swing dialog for selecting the spreadsheets.  Kept apart from {@link SurveyAvailability} so Swing and AWT
+ * are only loaded when the spreadsheets are not given on the command line.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public final class SourceFileChooser {
+
+  /**
+   * Not instantiated.
+   */
+  private SourceFileChooser() {
+    // end <init>
+  }
+
+  /**
+   * Select a spreadsheet.
+   * @param directory Default Directory to list files in for selection, null for the home directory.
+   * @param title The title to display for the File Chooser Window.
+   * @return Handle to the selected file, null if none was selected.
+   */
+  public static File select(final File directory, final String title) {
+    final JFileChooser jfc = new JFileChooser(directory == null
+        ? FileSystemView.getFileSystemView().getHomeDirectory() : directory);
+    final FileNameExtensionFilter filter = new FileNameExtensionFilter("XLSX Files", "xlsx", "XLSX");
+    jfc.setAcceptAllFileFilterUsed(false);
+    jfc.addChoosableFileFilter(filter);
+    jfc.setDialogTitle(title);
+
+    final int returnValue = jfc.showOpenDialog(null);
+
+    if (returnValue == JFileChooser.APPROVE_OPTION) {
+      return jfc.getSelectedFile();
+    } // else, nothing selected
+    return null;
+    //end select
+  }
+
+}
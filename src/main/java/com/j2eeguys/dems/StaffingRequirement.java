@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * The number of workers needed for a role at a precinct on a given day.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class StaffingRequirement {
+
+  /**
+   * Precinct to be staffed.
+   */
+  protected final int precinct;
+
+  /**
+   * Day to be staffed.
+   */
+  protected final Date day;
+
+  /**
+   * Role needed, null if any role will do.
+   */
+  protected final String role;
+
+  /**
+   * Number of workers needed.
+   */
+  protected final int count;
+
+  /**
+   * Language the workers must speak, null if none required.
+   */
+  protected final String language;
+
+  /**
+   * Constructor for StaffingRequirement.
+   *
+   * @param precinct Precinct to be staffed.
+   * @param day      Day to be staffed.
+   * @param role     Role needed, null if any role will do.
+   * @param count    Number of workers needed.
+   * @param language Language the workers must speak, null if none required.
+   */
+  public StaffingRequirement(final int precinct, final Date day, final String role, final int count,
+      final String language) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative count for precinct " + precinct + " on " + day);
+    }
+    this.precinct = precinct;
+    this.day = day;
+    this.role = role;
+    this.count = count;
+    this.language = language;
+    // end <init>
+  }
+
+  /**
+   * Load the requirements from a CSV file with the headers
+   * <code>Precinct,Day,Role,Count</code> and an optional <code>Language</code> column.
+   * Days are formatted as yyyy-mm-dd.
+   *
+   * @param csvFile the file to read.
+   * @return the requirements in the file.
+   * @throws IOException thrown if the file can not be read or is malformed.
+   */
+  public static List<StaffingRequirement> load(final File csvFile) throws IOException {
+    final List<StaffingRequirement> requirements = new ArrayList<>();
+    try (final Reader in = Files.newBufferedReader(csvFile.toPath(), StandardCharsets.UTF_8)) {
+      for (final CSVRecord record : CSVFormat.DEFAULT.withFirstRecordAsHeader().withTrim().parse(in)) {
+        try {
+          final String role = record.get("Role");
+          final String language = record.isMapped("Language") ? record.get("Language") : null;
+          requirements.add(new StaffingRequirement(Integer.parseInt(record.get("Precinct")),
+              Date.valueOf(record.get("Day")), role.isEmpty() ? null : role,
+              Integer.parseInt(record.get("Count")), language == null || language.isEmpty() ? null : language));
+        } catch (IllegalArgumentException e) {
+          throw new IOException("Invalid requirement on line " + record.getRecordNumber() + " of "
+              + csvFile.getAbsolutePath(), e);
+        }
+      }
+    }
+    return requirements;
+    // end load
+  }
+
+  /**
+   * @return the precinct
+   */
+  public int getPrecinct() {
+    return this.precinct;
+  }
+
+  /**
+   * @return the day
+   */
+  public Date getDay() {
+    return this.day;
+  }
+
+  /**
+   * @return the role, null if any role will do.
+   */
+  public String getRole() {
+    return this.role;
+  }
+
+  /**
+   * @return the count
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * @return the language, null if none required.
+   */
+  public String getLanguage() {
+    return this.language;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return "Precinct " + this.precinct + ' ' + this.day + ' ' + (this.role == null ? "Any" : this.role) + " x"
+        + this.count + (this.language == null ? "" : " (" + this.language + ')');
+  }
+
+}
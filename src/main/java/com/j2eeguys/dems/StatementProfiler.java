@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Profiles the statements run through a JDBC {@link Connection}: for each SQL text, how often it was
+ * executed, the rows it returned or changed, and a histogram of its execution latency.  The Connection,
+ * its Statements and their ResultSets are wrapped in dynamic proxies, so it works with any driver and URL.
+ * <p>
+ * Latency is the time spent in the <code>execute</code> methods; rows are those read through
+ * {@link ResultSet#next()} for queries, and the update counts for updates and batches.  Latencies are
+ * counted in power of two buckets of microseconds, so recording costs a few atomic increments.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class StatementProfiler {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatementProfiler.class);
+
+  /**
+   * Number of latency buckets; bucket n counts latencies under 2<sup>n</sup> microseconds, the last
+   * bucket everything longer.
+   */
+  public static final int BUCKETS = 32;
+
+  /**
+   * Key for statements batched by SQL text through {@link Statement#addBatch(String)}.
+   */
+  public static final String BATCH = "<batch>";
+
+  /**
+   * Profile of each SQL text.
+   */
+  protected final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+  /**
+   * The profile of one SQL text.
+   */
+  public static class Stats {
+
+    /**
+     * The SQL text.
+     */
+    protected final String sql;
+
+    /**
+     * Executions.
+     */
+    protected final LongAdder count = new LongAdder();
+
+    /**
+     * Rows returned or changed.
+     */
+    protected final LongAdder rows = new LongAdder();
+
+    /**
+     * Total execution time.
+     */
+    protected final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Executions per latency bucket.
+     */
+    protected final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @param sql The SQL text.
+     */
+    Stats(final String sql) {
+      this.sql = sql;
+      // end <init>
+    }
+
+    /**
+     * Record an execution.
+     *
+     * @param nanos the execution time.
+     */
+    void record(final long nanos) {
+      this.count.increment();
+      this.totalNanos.add(nanos);
+      final long micros = nanos / 1000;
+      this.histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    /**
+     * @return the SQL text.
+     */
+    public String getSql() {
+      return this.sql;
+    }
+
+    /**
+     * @return the number of executions.
+     */
+    public long getCount() {
+      return this.count.sum();
+    }
+
+    /**
+     * @return the rows returned or changed.
+     */
+    public long getRows() {
+      return this.rows.sum();
+    }
+
+    /**
+     * @return the total execution time in nanoseconds.
+     */
+    public long getTotalNanos() {
+      return this.totalNanos.sum();
+    }
+
+    /**
+     * @param bucket the bucket.
+     * @return the executions that took under 2<sup>bucket</sup> microseconds (and at least half that).
+     */
+    public long getBucket(final int bucket) {
+      return this.histogram.get(bucket);
+    }
+
+    /**
+     * @param percentile the percentile, from 0 to 100.
+     * @return the upper bound in microseconds of the bucket holding the percentile, 0 if never executed.
+     */
+    public long getPercentileMicros(final double percentile) {
+      final long count = getCount();
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += this.histogram.get(i);
+        if (seen > 0 && seen >= count * percentile / 100) {
+          return 1L << i;
+        }
+      }
+      return 0;
+      // end getPercentileMicros
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      final long count = getCount();
+      return String.format(Locale.ROOT, "%8.1fms %8d executions %9d rows  mean %7dus  p50 <%7dus  p99 <%7dus  %s",
+          Double.valueOf(getTotalNanos() / 1e6), Long.valueOf(count), Long.valueOf(getRows()),
+          Long.valueOf(count == 0 ? 0 : getTotalNanos() / count / 1000), Long.valueOf(getPercentileMicros(50)),
+          Long.valueOf(getPercentileMicros(99)), this.sql);
+    }
+
+  }
+
+  /**
+   * Wrap a Connection so the statements run through it are profiled.
+   *
+   * @param c the Connection.
+   * @return the profiled Connection.
+   */
+  public Connection wrap(final Connection c) {
+    return proxy(Connection.class, c, null);
+  }
+
+  /**
+   * @return the profile of each SQL text, the most total time first.
+   */
+  public List<Stats> getStats() {
+    final List<Stats> ranked = new ArrayList<>(this.stats.values());
+    Collections.sort(ranked, (a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+    return ranked;
+  }
+
+  /**
+   * Log the profile of each SQL text, the most total time first.
+   */
+  public void log() {
+    LOGGER.info("Statement profile, by total time:");
+    for (final Stats stat : getStats()) {
+      LOGGER.info("{}", stat);
+    }
+    // end log
+  }
+
+  /**
+   * @param sql the SQL text.
+   * @return the profile of the SQL text, with whitespace collapsed.
+   */
+  protected Stats stats(final String sql) {
+    return this.stats.computeIfAbsent(sql.replaceAll("\\s+", " ").trim(), Stats::new);
+  }
+
+  /**
+   * Wrap a JDBC object in a profiling proxy.
+   *
+   * @param <T>   the JDBC interface.
+   * @param type  the JDBC interface.
+   * @param value the object to wrap, may be null.
+   * @param sql   the profile of the SQL the object runs, null for a Connection or plain Statement.
+   * @return the proxy, null if the value is null.
+   */
+  @SuppressWarnings("unchecked")
+  protected <T> T proxy(final Class<T> type, final T value, final Stats sql) {
+    if (value == null) {
+      return null;
+    } // else
+    return (T) Proxy.newProxyInstance(StatementProfiler.class.getClassLoader(), new Class<?>[] {type},
+        new Handler(value, sql));
+  }
+
+  /**
+   * Profiles the calls to one JDBC object.
+   */
+  private class Handler implements InvocationHandler {
+
+    /**
+     * The wrapped object.
+     */
+    private final Object target;
+
+    /**
+     * The profile of the SQL a prepared statement or result set runs, or the last SQL a plain statement
+     * ran.
+     */
+    private Stats sql;
+
+    /**
+     * @param target The wrapped object.
+     * @param sql    The profile of the SQL the object runs, null for a Connection or plain Statement.
+     */
+    Handler(final Object target, final Stats sql) {
+      this.target = target;
+      this.sql = sql;
+      // end <init>
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method,
+     * java.lang.Object[])
+     */
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+      final String name = method.getName();
+      final boolean execute = this.target instanceof Statement && name.startsWith("execute");
+      if (execute && args != null && args.length > 0 && args[0] instanceof String) {
+        // Plain statement, the SQL is an argument.
+        this.sql = stats((String) args[0]);
+      } else if (execute && this.sql == null) {
+        this.sql = stats(BATCH);
+      }
+      final long start = execute ? System.nanoTime() : 0;
+      final Object result;
+      try {
+        result = method.invoke(this.target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      } finally {
+        if (execute) {
+          this.sql.record(System.nanoTime() - start);
+        }
+      }
+      if (execute) {
+        addRows(result);
+      } else if (this.target instanceof ResultSet && "next".equals(name) && Boolean.TRUE.equals(result)) {
+        this.sql.rows.increment();
+      } else if (this.target instanceof Connection && (name.startsWith("prepare"))) {
+        return wrap(method, result, stats((String) args[0]));
+      } else if (this.target instanceof Connection && "createStatement".equals(name)) {
+        return wrap(method, result, null);
+      } else if (this.target instanceof Statement && !(this.target instanceof PreparedStatement)
+          && "addBatch".equals(name) && args != null && args.length == 1) {
+        // A prepared statement keeps its SQL text.
+        this.sql = stats(BATCH);
+      }
+      if (result instanceof ResultSet && this.sql != null) {
+        return proxy(ResultSet.class, (ResultSet) result, this.sql);
+      } // else
+      return result;
+      // end invoke
+    }
+
+    /**
+     * Count the rows changed by an update or batch.
+     *
+     * @param result the result of the execute method.
+     */
+    private void addRows(final Object result) {
+      if (result instanceof Integer) {
+        this.sql.rows.add(Math.max(0, ((Integer) result).intValue()));
+      } else if (result instanceof Long) {
+        this.sql.rows.add(Math.max(0, ((Long) result).longValue()));
+      } else if (result instanceof int[]) {
+        for (final int rows : (int[]) result) {
+          this.sql.rows.add(Math.max(0, rows));
+        }
+      } else if (result instanceof long[]) {
+        for (final long rows : (long[]) result) {
+          this.sql.rows.add(Math.max(0, rows));
+        }
+      }
+      // end addRows
+    }
+
+    /**
+     * Wrap a statement created by the Connection, as the interface the method returns.
+     *
+     * @param method the method that created the statement.
+     * @param result the statement.
+     * @param stats  the profile of the statement's SQL, null for a plain statement.
+     * @return the wrapped statement.
+     */
+    @SuppressWarnings("unchecked")
+    private Object wrap(final Method method, final Object result, final Stats stats) {
+      return proxy((Class<Object>) method.getReturnType(), result, stats);
+    }
+
+  }
+
+}
@@ -7,17 +7,28 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.swing.JFileChooser;
-import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.swing.filechooser.FileSystemView;
-
+import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.io.IOUtils;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.slf4j.Logger;
@@ -33,6 +44,16 @@ public class SurveyAvailability implements Runnable, Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SurveyAvailability.class);
   
+  /**
+   * Schema scripts already read, by resource.  See {@link #schema(String)}.
+   */
+  private static final Map<String, List<String>> SCHEMAS = new HashMap<>();
+
+  /**
+   * Number of baseline Databases created, used to name them.  See {@link #loadBaseline()}.
+   */
+  private static final AtomicInteger BASELINE_COUNT = new AtomicInteger();
+
   /**
    * Spreadsheet with the worker availability.
    */
@@ -42,6 +63,27 @@ public class SurveyAvailability implements Runnable, Closeable {
    * Spreadsheet with the worker files.
    */
   protected File workerFile;
+
+  /**
+   * Later Availability Surveys to merge with {@link #availabilityFile}, oldest first.  Empty if not merging.
+   */
+  protected List<File> mergeFiles = Collections.emptyList();
+
+  /**
+   * How disagreeing answers are resolved when merging surveys.
+   */
+  protected SurveyMerge.Policy mergePolicy = SurveyMerge.Policy.LATEST;
+
+  /**
+   * CSV with the staffing requirements to build a Schedule for, null to skip scheduling.
+   */
+  protected File requirementsFile;
+
+  /**
+   * Earlier survey, or snapshot of one, to compare the survey with, null to skip comparing.  See
+   * {@link SurveyDiff}.
+   */
+  protected File baselineFile;
   
   /**
    * Connection URL to the Database.
@@ -53,6 +95,53 @@ public class SurveyAvailability implements Runnable, Closeable {
    */
   protected Connection conn;
 
+  /**
+   * Optional HTTP Server for availability lookups.  Null unless started via {@link #startServer(int)}.
+   */
+  protected AvailabilityServer server;
+
+  /**
+   * Optional Flight Recording of the run.  Null unless started via {@link #startRecording(File)}.
+   */
+  protected Closeable recording;
+
+  /**
+   * First day of the season when storing availability as one bitmask per worker, null to store one
+   * AVAILABILITY row per worker and day.  See {@link #setBitmapStorage(Date)}.
+   */
+  protected Date seasonStart;
+
+  /**
+   * Shifts of each day, read from the survey and shown per shift; null for whole days only.
+   */
+  protected Shifts shifts;
+
+  /**
+   * Rows loaded between commits when checkpointing the load, 0 to load without checkpoints.  See
+   * {@link #setCheckpointRows(int)}.
+   */
+  protected int checkpointRows;
+
+  /**
+   * Rows of each sheet checked before loading, 0 to load without checking.  See {@link #setPreflightRows(int)}.
+   */
+  protected int preflightRows;
+
+  /**
+   * First day to load and show, null for no limit.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected Date from;
+
+  /**
+   * Last day to load and show, null for no limit.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected Date to;
+
+  /**
+   * Profile of the statements run through {@link #conn}, null if not profiling.
+   */
+  protected StatementProfiler profiler;
+
   /**
    * Constructor for SurveyAvailability.  Uses in-memory HSQLDB.
    */
@@ -71,8 +160,75 @@ public class SurveyAvailability implements Runnable, Closeable {
   }
 
   /**
-   * Create the connection to the Database.
+   * Store availability as one bitmask per worker for a 64 day season, instead of one row per worker and
+   * day.  AVAILABILITY becomes a view over the masks, so queries and inserts are unchanged; a day outside
+   * the season fails to insert.  Must be set before {@link #setupDB(boolean)}.
+   * @param seasonStart first day of the season, null for one row per worker and day.
+   */
+  public void setBitmapStorage(final Date seasonStart) {
+    this.seasonStart = seasonStart;
+  }
+
+  /**
+   * Read availability per shift: the day sheets have a column per shift, after 'No', named for the shift and
+   * 'Checked' if available.  Stored as a bitmask per worker and day, so not with bitmap storage.
+   * @param shifts Shifts of each day, null for whole days only.
+   */
+  public void setShifts(final Shifts shifts) {
+    this.shifts = shifts;
+  }
+
+  /**
+   * Commit the load of each spreadsheet every so many rows, recording the progress in the Database (see
+   * {@link LoadCheckpoint}).  With a persistent Database, a run that fails or dies part way continues from the
+   * last checkpoint when run again, and spreadsheets already loaded are not loaded again.  No snapshot is used
+   * or written.  The pipelined parser and survey merges do not record their progress, so loading with either
+   * fails rather than silently starting over on the next run.
+   * @param checkpointRows Rows loaded between commits, 0 to load without checkpoints.
+   */
+  public void setCheckpointRows(final int checkpointRows) {
+    this.checkpointRows = checkpointRows;
+  }
+
+  /**
+   * Check the headers and first rows of every sheet of the spreadsheets before anything is loaded, failing
+   * with a report of every problem found (see {@link PreflightCheck}).  The sheets are streamed rather than
+   * opened, and checked in parallel.  Not used for the Google Forms responses.
+   * @param preflightRows Rows of each sheet checked after the header row, 0 to load without checking.
+   */
+  public void setPreflightRows(final int preflightRows) {
+    this.preflightRows = preflightRows;
+  }
+
+  /**
+   * Only load and show the days from one day to another.  Sheets for other days are never parsed (see
+   * {@link ParseAvailablityXLSX#setDateRange(Date, Date)}), so a short range costs in proportion to its
+   * days.  No snapshot is used or written for a range.
+   * @param from First day, null for no limit.
+   * @param to Last day, null for no limit.
+   * @throws IllegalArgumentException thrown if the range ends before it starts, or spans months; see
+   *           {@link WriteXLSX#checkDateRange(Date, Date)}.
+   */
+  public void setDateRange(final Date from, final Date to) {
+    WriteXLSX.checkDateRange(from, to);
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * @return the profile of the statements run, null unless the <code>dems.jdbc.profile</code> System
+   * Property was set when the Database was set up.
+   */
+  public StatementProfiler getProfiler() {
+    return this.profiler;
+  }
+
+  /**
+   * Create the connection to the Database.  Set the <code>dems.jdbc.profile</code> System Property to
+   * profile the statements run through it (see {@link StatementProfiler}).
    * @param createTables if the Database Tables should be created.  Set to true if running in standalone mode.
+   *                       The Tables of a persistent Database that already has them are kept, so a
+   *                       checkpointed load can continue.
    * 
    * @return Connection to the Database
    * @throws SQLException thrown if the Tables can not be created.
@@ -80,48 +236,186 @@ public class SurveyAvailability implements Runnable, Closeable {
    *                        loaded/read.
    */
   protected Connection setupDB(final boolean createTables) throws SQLException, IOException {
-    final Connection c = DriverManager.getConnection(this.url, "SA", "");
-    String sql = "";
-    try (final Statement s = c.createStatement();
-        final InputStream initSql = getClass().getResourceAsStream("/com/j2eeguys/dems/hsqldb/InitDB.sql");) {
-      final Collection<String> lines = IOUtils.readLines(
-          initSql, Charset.defaultCharset());
-      for (final String line : lines) {
-        if (line.trim().length() == 0) {
-          // empty line, skip
-          continue;
-        } // else
-        sql += line + '\n';
-        if (line.endsWith(";")) {
-          LOGGER.info("Executing SQL --> {}", sql);
-          s.execute(sql);
-          sql = "";
-          LOGGER.info("Executed");
-        } // end if
+    if (this.seasonStart != null && this.shifts != null) {
+      throw new IllegalStateException("Shifts are not supported with bitmap storage");
+    } // else
+    Connection c = DriverManager.getConnection(this.url, "SA", "");
+    if (Boolean.getBoolean("dems.jdbc.profile")) {
+      this.profiler = new StatementProfiler();
+      c = this.profiler.wrap(c);
+    }
+    if (!createTables || hasTable(c, "WORKER")) {
+      LOGGER.info("Using the existing Tables of {}", this.url);
+      return c;
+    } // else
+    try (final Statement s = c.createStatement();) {
+      for (final String sql : schema(this.seasonStart == null
+          ? "/com/j2eeguys/dems/hsqldb/InitDB.sql" : "/com/j2eeguys/dems/hsqldb/InitDB-bitmap.sql")) {
+        LOGGER.info("Executing SQL --> {}", sql);
+        s.execute(sql);
+        LOGGER.info("Executed");
       } // end for
     } // end try
+    if (this.seasonStart != null) {
+      try (final PreparedStatement insertSeason = c.prepareStatement("INSERT INTO SEASON (START) VALUES (?)")) {
+        insertSeason.setDate(1, this.seasonStart);
+        insertSeason.executeUpdate();
+      }
+    }
 
     return c;
     // end prepTable
   }
 
   /**
+   * @param c Connection to the Database.
+   * @param table name of a Table.
+   * @return true if the Database has the Table.
+   * @throws SQLException thrown if the Tables can not be listed.
+   */
+  protected static boolean hasTable(final Connection c, final String table) throws SQLException {
+    try (final ResultSet rs = c.getMetaData().getTables(null, null, table, null)) {
+      return rs.next();
+    }
+  }
+
+  /**
+   * Read the statements of a schema script.  Scripts are read once and shared by every Database set up in
+   * the JVM.
+   * @param resource the schema script resource.
+   * @return the SQL statements of the script.
+   * @throws IOException thrown if the script can not be read.
+   */
+  protected static List<String> schema(final String resource) throws IOException {
+    synchronized (SCHEMAS) {
+      List<String> statements = SCHEMAS.get(resource);
+      if (statements == null) {
+        statements = new ArrayList<>();
+        try (final InputStream initSql = SurveyAvailability.class.getResourceAsStream(resource);) {
+          final Collection<String> lines = IOUtils.readLines(
+              initSql, Charset.defaultCharset());
+          String sql = "";
+          for (final String line : lines) {
+            if (line.trim().length() == 0) {
+              // empty line, skip
+              continue;
+            } // else
+            sql += line + '\n';
+            if (line.endsWith(";")) {
+              statements.add(sql);
+              sql = "";
+            } // end if
+          } // end for
+        } // end try
+        statements = Collections.unmodifiableList(statements);
+        SCHEMAS.put(resource, statements);
+      }
+      return statements;
+    }
+    // end schema
+  }
+
+  /**
+   * Start the HTTP Server answering availability lookups from the Database.  It listens on the loopback
+   * address unless the <code>dems.http.host</code> System Property names another address to listen on, such
+   * as <code>0.0.0.0</code> for all of them.
+   * @param port the port to listen on, 0 to pick a free port.
+   * @return the started server.
+   * @throws IOException thrown if the server can not be started.
+   */
+  public AvailabilityServer startServer(final int port) throws IOException {
+    if (this.server == null) {
+      final String host = System.getProperty("dems.http.host");
+      this.server = new AvailabilityServer(this.url, host == null ? null : InetAddress.getByName(host), port,
+          Integer.getInteger("dems.http.threads", 4).intValue());
+      this.server.start();
+    }
+    return this.server;
+    // end startServer
+  }
+
+  /**
+   * Start a Flight Recording with the <code>dems.jfc</code> settings profile, which enables the
+   * {@link DemsEvents}.  The recording is written to the destination when closed.
+   * @param destination the file to write the recording to.
+   * @return the started recording.
+   * @throws IOException thrown if the settings profile can not be read.
+   * @throws ParseException thrown if the settings profile is invalid.
+   * @throws IllegalStateException thrown if Flight Recorder is not present, before Java 8u262.
+   */
+  public Closeable startRecording(final File destination) throws IOException, ParseException {
+    if (this.recording == null) {
+      this.recording = DemsEvents.startRecording(destination);
+      LOGGER.info("Recording to {}", destination.getAbsolutePath());
+    }
+    return this.recording;
+    // end startRecording
+  }
+
+  /**
+   * Runs the program, configured by the <code>dems.*</code> System Properties listed in the README.
    * @param args Command line arguments for the program.
    * @throws Exception thrown if any failures occur during execution.
    */
   public static void main(String[] args) throws Exception {
-//    final File workerFile = selectSourceFile(FileSystemView.getFileSystemView().getHomeDirectory(), "Worker Spreadsheet");
-    final File workerFile = selectSourceFile(new File("/tmp"), "Worker Spreadsheet");
-    final File availabilityFile = selectSourceFile(workerFile == null ?
-        FileSystemView.getFileSystemView().getHomeDirectory() :
-          workerFile.getParentFile(),
-        "Availability Spreadsheet");
+    final File workerFile;
+    final File availabilityFile;
+    if (args.length > 0) {
+      // Spreadsheets given on the command line, Swing is never loaded.
+      availabilityFile = new File(args[0]);
+      workerFile = args.length > 1 ? new File(args[1]) : null;
+    } else {
+      workerFile = SourceFileChooser.select(new File("/tmp"), "Worker Spreadsheet");
+      availabilityFile = SourceFileChooser.select(workerFile == null ? null : workerFile.getParentFile(),
+          "Availability Spreadsheet");
+    }
     if (availabilityFile != null) {
-      try (final SurveyAvailability surveyAvailability = new SurveyAvailability();){
+      final String checkpoint = System.getProperty("dems.checkpoint");
+      try (final SurveyAvailability surveyAvailability = checkpoint == null ? new SurveyAvailability()
+          : new SurveyAvailability("jdbc:hsqldb:file:" + checkpoint + ";shutdown=true;hsqldb.write_delay=false");){
+        if (checkpoint != null) {
+          surveyAvailability.setCheckpointRows(Integer.getInteger("dems.checkpoint.rows", 1000).intValue());
+        }
+        surveyAvailability.setPreflightRows(Integer.getInteger("dems.preflight", 0).intValue());
         surveyAvailability.availabilityFile = availabilityFile;
         surveyAvailability.workerFile = workerFile;
+        final String jfr = System.getProperty("dems.jfr");
+        if (jfr != null) {
+          surveyAvailability.startRecording(new File(jfr));
+        }
+        final String merge = System.getProperty("dems.merge");
+        if (merge != null) {
+          surveyAvailability.mergeFiles = new ArrayList<>();
+          for (final String path : merge.split(File.pathSeparator)) {
+            surveyAvailability.mergeFiles.add(new File(path));
+          }
+          surveyAvailability.mergePolicy =
+              SurveyMerge.Policy.valueOf(System.getProperty("dems.merge.policy", "LATEST").toUpperCase());
+        }
+        if ("bitmap".equalsIgnoreCase(System.getProperty("dems.storage"))) {
+          final String seasonStart = System.getProperty("dems.season.start");
+          surveyAvailability.setBitmapStorage(seasonStart == null
+              ? Date.valueOf(LocalDate.now().withMonth(10).withDayOfMonth(1)) : Date.valueOf(seasonStart));
+        }
+        surveyAvailability.setShifts(Shifts.parse(System.getProperty("dems.shifts")));
+        final String from = System.getProperty("dems.from");
+        final String to = System.getProperty("dems.to");
+        surveyAvailability.setDateRange(from == null ? null : Date.valueOf(from), to == null ? null : Date.valueOf(to));
+        final String diff = System.getProperty("dems.diff");
+        if (diff != null) {
+          surveyAvailability.baselineFile = "snapshot".equalsIgnoreCase(diff)
+              ? surveyAvailability.snapshotFile() : new File(diff);
+        }
+        final String requirements = System.getProperty("dems.requirements");
+        surveyAvailability.requirementsFile = requirements == null ? null : new File(requirements);
         surveyAvailability.conn = surveyAvailability.setupDB(true);
         surveyAvailability.run();
+        final Integer httpPort = Integer.getInteger("dems.http.port");
+        if (httpPort != null) {
+          surveyAvailability.startServer(httpPort.intValue());
+          System.out.println("Serving on port " + surveyAvailability.server.getPort() + ", press Enter to stop.");
+          System.in.read();
+        }
       }
     }
     System.out.println("Finished.");
@@ -133,23 +427,175 @@ public class SurveyAvailability implements Runnable, Closeable {
    * @param directory Default Directory to list files in for selection.
    * @param title The title to display for the File Chooser Window.
    * @return Handle to the selected survey file.
+   * @see SourceFileChooser#select(File, String)
    */
   public static File selectSourceFile(final File directory, final String title) {
-    JFileChooser jfc = new JFileChooser(directory);
-    FileNameExtensionFilter filter = new FileNameExtensionFilter("XLSX Files", "xlsx", "XLSX");
-    jfc.setAcceptAllFileFilterUsed(false);
-    jfc.addChoosableFileFilter(filter);
-    jfc.setDialogTitle(title);
-
-    int returnValue = jfc.showOpenDialog(null);
-
-    if (returnValue == JFileChooser.APPROVE_OPTION) {
-      return jfc.getSelectedFile();
-    } // else, nothing selected
-    return null;
+    return SourceFileChooser.select(directory, title);
     //end selectSourceFile
   }
 
+  /**
+   * Parse the worker and availability spreadsheets into the Database, merging surveys if there are
+   * {@link #mergeFiles}.
+   * @param conflicts the merge conflicts found are added to this.
+   * @return the header style of the availability survey.
+   * @throws IOException thrown if a spreadsheet can not be read.
+   * @throws SQLException thrown if the data can't be inserted into the Database.
+   * @throws IllegalStateException thrown if checkpointing with the pipelined parser or a merge.
+   */
+  protected CellStyle parse(final List<SurveyMerge.Conflict> conflicts) throws IOException, SQLException {
+    if (this.checkpointRows > 0 && (Boolean.getBoolean("dems.pipeline") || !this.mergeFiles.isEmpty())) {
+      throw new IllegalStateException("dems.checkpoint can not be used with dems.pipeline or dems.merge, "
+          + "which load without checkpoints");
+    } // else
+    if (this.workerFile != null) {
+      final ParseWorkerXLSX parseWorkerXLSX = new ParseWorkerXLSX(this.workerFile, this.conn);
+      parseWorkerXLSX.setCheckpointRows(this.checkpointRows);
+      parseWorkerXLSX.process();
+    }
+    if (this.mergeFiles.isEmpty()) {
+      final ParseAvailablityXLSX parseResultXLSX = "forms".equalsIgnoreCase(System.getProperty("dems.survey"))
+          ? new ParseFormsXLSX(this.availabilityFile, this.conn, false)
+          : Boolean.getBoolean("dems.pipeline")
+          ? new PipelinedParseAvailablityXLSX(this.availabilityFile, this.conn, false, null,
+              Integer.getInteger("dems.pipeline.queue", 256).intValue(),
+              Integer.getInteger("dems.pipeline.batch", 100).intValue())
+          : new ParseAvailablityXLSX(this.availabilityFile, this.conn, false);
+      parseResultXLSX.setShifts(this.shifts);
+      parseResultXLSX.setCheckpointRows(this.checkpointRows);
+      parseResultXLSX.setDateRange(this.from, this.to);
+      parseResultXLSX.process();
+      return parseResultXLSX.getHeaderStyle();
+    } // else
+    final List<File> surveys = new ArrayList<>(this.mergeFiles.size() + 1);
+    surveys.add(this.availabilityFile);
+    surveys.addAll(this.mergeFiles);
+    final ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(surveys.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      final SurveyMerge merge = new SurveyMerge(this.conn, this.mergePolicy, false, executor);
+      merge.setShifts(this.shifts);
+      merge.setDateRange(this.from, this.to);
+      conflicts.addAll(merge.merge(surveys));
+      return merge.getHeaderStyle();
+    } finally {
+      executor.shutdown();
+    }
+    // end parse
+  }
+
+  /**
+   * Load the surveys into the Database, from the snapshot if <code>dems.snapshot</code> is set and the
+   * snapshot is current, otherwise by parsing them (and then writing the snapshot).  Snapshots hold whole days,
+   * so are not used with {@link #shifts}, hold every day, so are not used with a date range, and load into an
+   * empty Database, so are not used when checkpointing.
+   * @param conflicts the merge conflicts found are added to this.
+   * @return the header style of the availability survey.
+   * @throws IOException thrown if a spreadsheet can not be read.
+   * @throws SQLException thrown if the data can't be inserted into the Database.
+   */
+  protected CellStyle load(final List<SurveyMerge.Conflict> conflicts) throws IOException, SQLException {
+    if (!Boolean.getBoolean("dems.snapshot") || this.shifts != null || this.from != null || this.to != null
+        || this.checkpointRows > 0) {
+      return parse(conflicts);
+    } // else
+    final List<File> inputs = new ArrayList<>(this.mergeFiles.size() + 2);
+    inputs.add(this.workerFile);
+    inputs.add(this.availabilityFile);
+    inputs.addAll(this.mergeFiles);
+    final AvailabilitySnapshot snapshot = new AvailabilitySnapshot(snapshotFile(), inputs,
+        this.mergeFiles.isEmpty() ? "" : this.mergePolicy.name());
+    if (snapshot.load(this.conn)) {
+      conflicts.addAll(snapshot.getConflicts());
+      return snapshot.getHeaderStyle();
+    } // else
+    final CellStyle headerStyle = parse(conflicts);
+    snapshot.write(this.conn, headerStyle, conflicts);
+    return headerStyle;
+    // end load
+  }
+
+  /**
+   * @return the snapshot of the surveys, beside the availability survey.
+   */
+  protected File snapshotFile() {
+    return new File(this.availabilityFile.getParentFile(), ".availability.snapshot");
+  }
+
+  /**
+   * Check the spreadsheets to be loaded, reading only the headers and first {@link #preflightRows} rows of
+   * each sheet.
+   * @throws IOException thrown if a spreadsheet can not be read, or with a report of the problems found.
+   */
+  protected void preflight() throws IOException {
+    final long start = System.currentTimeMillis();
+    final List<PreflightCheck.Problem> problems = new ArrayList<>();
+    final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try {
+      if (this.workerFile != null) {
+        problems.addAll(new ParseWorkerXLSX(this.workerFile, null).preflight(this.preflightRows, executor));
+      }
+      if (!"forms".equalsIgnoreCase(System.getProperty("dems.survey"))) {
+        final List<File> surveys = new ArrayList<>(this.mergeFiles.size() + 2);
+        surveys.add(this.availabilityFile);
+        surveys.addAll(this.mergeFiles);
+        if (this.baselineFile != null && !this.baselineFile.getName().endsWith(".snapshot")) {
+          surveys.add(this.baselineFile);
+        }
+        for (final File survey : surveys) {
+          final ParseAvailablityXLSX parser = new ParseAvailablityXLSX(survey, null, false);
+          parser.setShifts(this.shifts);
+          parser.setDateRange(this.from, this.to);
+          problems.addAll(parser.preflight(this.preflightRows, executor));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    LOGGER.info("Pre-flight check found {} problems in {}ms", Integer.valueOf(problems.size()),
+        Long.valueOf(System.currentTimeMillis() - start));
+    if (!problems.isEmpty()) {
+      final StringBuilder report = new StringBuilder("Pre-flight check found ").append(problems.size())
+          .append(" problems, nothing loaded:");
+      for (final PreflightCheck.Problem problem : problems) {
+        report.append("\n  ").append(problem);
+      }
+      throw new IOException(report.toString());
+    } // else
+    // end preflight
+  }
+
+  /**
+   * Load the {@link #baselineFile} into a Database of its own, to compare with the current survey.
+   * @return the baseline, with its connection open; null if the baseline is a snapshot that can't be read.
+   * @throws IOException thrown if a spreadsheet can not be read.
+   * @throws SQLException thrown if the data can't be inserted into the Database.
+   */
+  protected SurveyAvailability loadBaseline() throws IOException, SQLException {
+    final SurveyAvailability baseline = new SurveyAvailability(
+        "jdbc:hsqldb:mem:baseline" + BASELINE_COUNT.incrementAndGet() + ";shutdown=true");
+    try {
+      baseline.conn = baseline.setupDB(true);
+      if (this.baselineFile.getName().endsWith(".snapshot")) {
+        if (!new AvailabilitySnapshot(this.baselineFile, null, null).load(baseline.conn)) {
+          LOGGER.warn("No baseline snapshot {}, not comparing", this.baselineFile.getAbsolutePath());
+          baseline.close();
+          return null;
+        }
+      } else {
+        baseline.availabilityFile = this.baselineFile;
+        baseline.workerFile = this.workerFile;
+        baseline.setDateRange(this.from, this.to);
+        baseline.parse(new ArrayList<>());
+      }
+      return baseline;
+    } catch (IOException | SQLException | RuntimeException e) {
+      baseline.close();
+      throw e;
+    }
+    // end loadBaseline
+  }
+
   /*
    * (non-Javadoc)
    * @see java.lang.Runnable#run()
@@ -157,16 +603,65 @@ public class SurveyAvailability implements Runnable, Closeable {
   @Override
   public void run() {
     try {
-      if (this.workerFile != null) {
-        new ParseWorkerXLSX(this.workerFile, this.conn).process();
+      final CellStyle headerStyle;
+      final List<SurveyMerge.Conflict> conflicts = new ArrayList<>();
+      final List<SurveyDiff.Change> changes;
+      if (this.preflightRows > 0) {
+        preflight();
+      }
+      // The baseline is loaded first, as it may be the snapshot the load replaces.
+      final SurveyAvailability baseline = this.baselineFile == null ? null : loadBaseline();
+      try {
+        headerStyle = load(conflicts);
+        changes = baseline == null ? null : new SurveyDiff(baseline.conn, this.conn).diff();
+      } finally {
+        if (baseline != null) {
+          baseline.close();
+        }
+      }
+      if (this.server != null) {
+        this.server.invalidate();
+      }
+      final WriteXLSX writeXLSX = new WriteXLSX(this.availabilityFile.getParentFile(), this.conn, headerStyle);
+      writeXLSX.setConflicts(conflicts);
+      writeXLSX.setShifts(this.shifts);
+      writeXLSX.setDateRange(this.from, this.to);
+      if (changes != null) {
+        writeXLSX.setChanges(changes);
+        SurveyDiff.write(changes, new File(this.availabilityFile.getParentFile(), "WorkerChanges.csv"));
+      }
+      if (Boolean.getBoolean("dems.sheetCache")) {
+        writeXLSX.setSheetCache(new SheetCache(new File(this.availabilityFile.getParentFile(), ".sheetCache")));
+      }
+      writeXLSX.setCoverageMinimum(Integer.getInteger("dems.coverage.minimum", 1).intValue());
+      if (this.requirementsFile != null) {
+        LOGGER.info("Scheduling.....");
+        final ScheduleEngine engine = new ScheduleEngine(this.conn);
+        engine.setTimeLimit(Long.getLong("dems.schedule.timeLimit", 5000).longValue());
+        writeXLSX.setSchedule(engine.solve(StaffingRequirement.load(this.requirementsFile)));
       }
-      final ParseAvailablityXLSX parseResultXLSX = new ParseAvailablityXLSX(this.availabilityFile, this.conn, false);
-      parseResultXLSX.process();
-      final CellStyle headerStyle = parseResultXLSX.getHeaderStyle();
       LOGGER.info("Writing.....");
-      new WriteXLSX(this.availabilityFile.getParentFile(), this.conn, headerStyle).write();
+      writeXLSX.write();
       LOGGER.info("XLSX Created.");
-    } catch (IOException e) {
+      final String partition = System.getProperty("dems.partition");
+      if (partition != null) {
+        new WritePartitionedXLSX(this.availabilityFile.getParentFile(), this.conn, headerStyle,
+            "role".equalsIgnoreCase(partition), null,
+            Integer.getInteger("dems.partition.pending", 2 * Runtime.getRuntime().availableProcessors()).intValue())
+            .write();
+        LOGGER.info("Partitioned XLSX Created.");
+      }
+      final String export = System.getProperty("dems.export");
+      if (export != null) {
+        final boolean tsv = "tsv".equalsIgnoreCase(export);
+        new WriteCSV(this.availabilityFile.getParentFile(), this.conn, tsv ? CSVFormat.TDF : CSVFormat.DEFAULT,
+            tsv ? ".tsv" : ".csv").write();
+        LOGGER.info("{} Created.", tsv ? "TSV" : "CSV");
+      }
+      if (this.profiler != null) {
+        this.profiler.log();
+      }
+    } catch (IOException | SQLException e) {
       throw new RuntimeException("Exception processing " + this.availabilityFile, e);
     }
     // end run
@@ -177,6 +672,15 @@ public class SurveyAvailability implements Runnable, Closeable {
    */
   @Override
   public void close() throws IOException {
+    if (this.recording != null) {
+      // Stopping writes the recording to its destination.
+      this.recording.close();
+      this.recording = null;
+    }
+    if (this.server != null) {
+      this.server.close();
+      this.server = null;
+    }
     try {
       if (this.conn != null && !this.conn.isClosed()) {
         this.conn.close();
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the availability in two Databases, such as the previous survey (or its snapshot) and the
+ * current one: workers who appeared or vanished, and days each worker newly became available or dropped.
+ * <p>
+ * Both Databases are read with one query ordered by worker name and day, and the two result sets are
+ * merged in a single pass, so the comparison is linear in the size of the rosters and holds only the
+ * current row of each in memory.  Workers are matched by name, which is unique in a Database.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class SurveyDiff {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SurveyDiff.class);
+
+  /**
+   * Query for the workers, with the availability of each worker on consecutive rows.
+   */
+  private static final String WORKER_SQL = "SELECT W.LAST_NAME, W.FIRST_NAME, W.VR_ID, A.DAY "
+      + "FROM WORKER W LEFT JOIN AVAILABILITY A ON W.ID = A.ID ORDER BY W.LAST_NAME, W.FIRST_NAME, A.DAY";
+
+  /**
+   * Titles of the columns of the change list.
+   */
+  public static final String[] HEADERS = {"Change", "Last Name", "First Name", "VR #", "Day"};
+
+  /**
+   * Kinds of change.
+   */
+  public enum Type {
+    /**
+     * The worker is only in the current survey; their days follow as {@link #DAY_ADDED}.
+     */
+    WORKER_ADDED,
+    /**
+     * The worker is only in the baseline survey; their days follow as {@link #DAY_DROPPED}.
+     */
+    WORKER_REMOVED,
+    /**
+     * The worker newly became available on the day.
+     */
+    DAY_ADDED,
+    /**
+     * The worker is no longer available on the day.
+     */
+    DAY_DROPPED
+  }
+
+  /**
+   * A change between the surveys.
+   */
+  public static class Change {
+
+    /**
+     * The kind of change.
+     */
+    protected final Type type;
+
+    /**
+     * Last name of the worker.
+     */
+    protected final String lastName;
+
+    /**
+     * First name of the worker.
+     */
+    protected final String firstName;
+
+    /**
+     * VR # of the worker, from the current survey if the worker is in it.
+     */
+    protected final String vrId;
+
+    /**
+     * The day, null for a worker change.
+     */
+    protected final Date day;
+
+    /**
+     * Constructor for Change.
+     *
+     * @param type      The kind of change.
+     * @param lastName  Last name of the worker.
+     * @param firstName First name of the worker.
+     * @param vrId      VR # of the worker.
+     * @param day       The day, null for a worker change.
+     */
+    public Change(final Type type, final String lastName, final String firstName, final String vrId,
+        final Date day) {
+      this.type = type;
+      this.lastName = lastName;
+      this.firstName = firstName;
+      this.vrId = vrId;
+      this.day = day;
+      // end <init>
+    }
+
+    /**
+     * @return the kind of change.
+     */
+    public Type getType() {
+      return this.type;
+    }
+
+    /**
+     * @return the last name of the worker.
+     */
+    public String getLastName() {
+      return this.lastName;
+    }
+
+    /**
+     * @return the first name of the worker.
+     */
+    public String getFirstName() {
+      return this.firstName;
+    }
+
+    /**
+     * @return the VR # of the worker.
+     */
+    public String getVrId() {
+      return this.vrId;
+    }
+
+    /**
+     * @return the day, null for a worker change.
+     */
+    public Date getDay() {
+      return this.day;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      return this.type + " " + this.lastName + ", " + this.firstName + (this.day == null ? "" : " " + this.day);
+    }
+
+  }
+
+  /**
+   * Connection to the Database of the earlier survey.
+   */
+  protected final Connection baseline;
+
+  /**
+   * Connection to the Database of the current survey.
+   */
+  protected final Connection current;
+
+  /**
+   * Constructor for SurveyDiff.
+   *
+   * @param baseline Connection to the Database of the earlier survey.
+   * @param current  Connection to the Database of the current survey.
+   */
+  public SurveyDiff(final Connection baseline, final Connection current) {
+    this.baseline = baseline;
+    this.current = current;
+    // end <init>
+  }
+
+  /**
+   * Compare the surveys.
+   *
+   * @return the changes, in worker name order, each worker change followed by the worker's days.
+   * @throws SQLException thrown if a Database can not be read.
+   */
+  public List<Change> diff() throws SQLException {
+    final long start = System.currentTimeMillis();
+    final List<Change> changes = new ArrayList<>();
+    try (final PreparedStatement listBaseline = this.baseline.prepareStatement(WORKER_SQL);
+        final PreparedStatement listCurrent = this.current.prepareStatement(WORKER_SQL);
+        final ResultSet rsBaseline = listBaseline.executeQuery();
+        final ResultSet rsCurrent = listCurrent.executeQuery()) {
+      final Cursor before = new Cursor(rsBaseline);
+      final Cursor after = new Cursor(rsCurrent);
+      before.next();
+      after.next();
+      while (before.valid || after.valid) {
+        final int compare = !before.valid ? 1 : !after.valid ? -1 : before.compareWorker(after);
+        if (compare < 0) {
+          addWorker(changes, before, Type.WORKER_REMOVED, Type.DAY_DROPPED);
+        } else if (compare > 0) {
+          addWorker(changes, after, Type.WORKER_ADDED, Type.DAY_ADDED);
+        } else {
+          compareDays(changes, before, after);
+        }
+      }
+    }
+    LOGGER.info("Found {} changes in {}ms", Integer.valueOf(changes.size()),
+        Long.valueOf(System.currentTimeMillis() - start));
+    return changes;
+    // end diff
+  }
+
+  /**
+   * Add a worker found in only one survey, with all of the worker's days, and move past the worker.
+   *
+   * @param changes    the changes to add to.
+   * @param cursor     the cursor on the worker's first row.
+   * @param workerType the kind of worker change.
+   * @param dayType    the kind of day change.
+   * @throws SQLException thrown if the Database can not be read.
+   */
+  private static void addWorker(final List<Change> changes, final Cursor cursor, final Type workerType,
+      final Type dayType) throws SQLException {
+    final String lastName = cursor.lastName;
+    final String firstName = cursor.firstName;
+    final String vrId = cursor.vrId;
+    changes.add(new Change(workerType, lastName, firstName, vrId, null));
+    while (cursor.isWorker(lastName, firstName)) {
+      if (cursor.day != null) {
+        changes.add(new Change(dayType, lastName, firstName, vrId, cursor.day));
+      }
+      cursor.next();
+    }
+    // end addWorker
+  }
+
+  /**
+   * Merge the days of a worker found in both surveys, and move past the worker.
+   *
+   * @param changes the changes to add to.
+   * @param before  the cursor on the worker's first row in the baseline.
+   * @param after   the cursor on the worker's first row in the current survey.
+   * @throws SQLException thrown if a Database can not be read.
+   */
+  private static void compareDays(final List<Change> changes, final Cursor before, final Cursor after)
+      throws SQLException {
+    final String lastName = after.lastName;
+    final String firstName = after.firstName;
+    final String vrId = after.vrId;
+    while (true) {
+      final boolean inBefore = before.isWorker(lastName, firstName);
+      final boolean inAfter = after.isWorker(lastName, firstName);
+      // A worker without availability has one row with no day.
+      if (inBefore && before.day == null) {
+        before.next();
+        continue;
+      } else if (inAfter && after.day == null) {
+        after.next();
+        continue;
+      } else if (!inBefore && !inAfter) {
+        break;
+      } // else
+      final int compare = !inBefore ? 1 : !inAfter ? -1 : before.day.compareTo(after.day);
+      if (compare < 0) {
+        changes.add(new Change(Type.DAY_DROPPED, lastName, firstName, vrId, before.day));
+        before.next();
+      } else if (compare > 0) {
+        changes.add(new Change(Type.DAY_ADDED, lastName, firstName, vrId, after.day));
+        after.next();
+      } else {
+        before.next();
+        after.next();
+      }
+    }
+    // end compareDays
+  }
+
+  /**
+   * Write the changes as a CSV file.
+   *
+   * @param changes the changes.
+   * @param file    the file to write.
+   * @throws IOException thrown if the file can not be written.
+   */
+  public static void write(final List<Change> changes, final File file) throws IOException {
+    try (final CSVPrinter printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(file), StandardCharsets.UTF_8)), CSVFormat.DEFAULT.withHeader(HEADERS))) {
+      for (final Change change : changes) {
+        printer.printRecord(change.getType(), change.getLastName(), change.getFirstName(), change.getVrId(),
+            change.getDay());
+      }
+    }
+    // end write
+  }
+
+  /**
+   * Reads the rows of a worker query, checking they are in the order the merge relies on.
+   */
+  private static class Cursor {
+
+    /**
+     * The query results.
+     */
+    private final ResultSet rs;
+
+    /**
+     * If the cursor is on a row.
+     */
+    boolean valid;
+
+    /**
+     * Last name of the worker of the row.
+     */
+    String lastName;
+
+    /**
+     * First name of the worker of the row.
+     */
+    String firstName;
+
+    /**
+     * VR # of the worker of the row.
+     */
+    String vrId;
+
+    /**
+     * Day of the row, null if the worker has no availability.
+     */
+    Date day;
+
+    /**
+     * @param rs the query results.
+     */
+    Cursor(final ResultSet rs) {
+      this.rs = rs;
+      // end <init>
+    }
+
+    /**
+     * Move to the next row.
+     *
+     * @throws SQLException thrown if the Database can not be read.
+     */
+    void next() throws SQLException {
+      final String previousLast = this.lastName;
+      final String previousFirst = this.firstName;
+      this.valid = this.rs.next();
+      if (!this.valid) {
+        return;
+      } // else
+      this.lastName = this.rs.getString(1);
+      this.firstName = this.rs.getString(2);
+      this.vrId = this.rs.getString(3);
+      this.day = this.rs.getDate(4);
+      if (previousLast != null && compareWorker(previousLast, previousFirst) < 0) {
+        // The merge needs the Database to order names as Java does.
+        throw new IllegalStateException("Workers out of order: " + previousLast + ", " + previousFirst
+            + " before " + this.lastName + ", " + this.firstName);
+      }
+      // end next
+    }
+
+    /**
+     * @param other another cursor on a row.
+     * @return the order of this cursor's worker against the other's.
+     */
+    int compareWorker(final Cursor other) {
+      return compareWorker(other.lastName, other.firstName);
+    }
+
+    /**
+     * @param otherLast  last name of another worker.
+     * @param otherFirst first name of another worker.
+     * @return the order of this cursor's worker against the other.
+     */
+    private int compareWorker(final String otherLast, final String otherFirst) {
+      final int compare = this.lastName.compareTo(otherLast);
+      return compare != 0 ? compare : this.firstName.compareTo(otherFirst);
+    }
+
+    /**
+     * @param otherLast  last name of a worker.
+     * @param otherFirst first name of a worker.
+     * @return if the cursor is on a row of the worker.
+     */
+    boolean isWorker(final String otherLast, final String otherFirst) {
+      return this.valid && this.lastName.equals(otherLast) && this.firstName.equals(otherFirst);
+    }
+
+  }
+
+}
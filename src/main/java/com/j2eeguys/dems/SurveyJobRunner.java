@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Runs several surveys (such as one per county) concurrently in one JVM.
+ * <p>
+ * Each job gets its own uniquely named Database, in memory or in a file under
+ * {@link #setDatabaseDirectory(File)}, so jobs can't see each other's data. Jobs share a bounded pool of
+ * threads, the schema scripts and the classes warmed up by {@link #warmUp()}. A job's memory is
+ * estimated from the size of its spreadsheets; a job only starts once its estimate fits in the memory
+ * budget, and a job estimated over {@link #setJobMemoryLimit(long)} is failed without running.
+ * </p>
+ * <p>
+ * A job writes its output (and any snapshot or sheet cache) beside its availability spreadsheet, so each job
+ * needs a directory of its own: a job whose spreadsheet is in the directory of another job's is failed
+ * without running.
+ * </p>
+ * <p>
+ * The job name is set as the <code>job</code> logging MDC value while the job runs.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class SurveyJobRunner implements Closeable {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SurveyJobRunner.class);
+
+  /**
+   * Estimated heap needed per byte of XLSX input.  XLSX is zip compressed XML, and POI holds the whole
+   * XML tree of a workbook in memory, so the heap used is many times the file size.
+   */
+  protected static final int MEMORY_PER_INPUT_BYTE = 50;
+
+  /**
+   * Estimated heap needed by any job, in bytes.
+   */
+  protected static final long JOB_BASE_MEMORY = 16L * 1024 * 1024;
+
+  /**
+   * Number of jobs started, used to name the job Databases.
+   */
+  private static final AtomicInteger JOB_COUNT = new AtomicInteger();
+
+  /**
+   * A survey to run.
+   */
+  public static class Job {
+
+    /**
+     * Name of the job, such as the county.
+     */
+    protected final String name;
+
+    /**
+     * Spreadsheet with the worker availability.  The output is written beside it.
+     */
+    protected final File availabilityFile;
+
+    /**
+     * Spreadsheet with the worker details, null if none.
+     */
+    protected final File workerFile;
+
+    /**
+     * Constructor for Job.
+     *
+     * @param name             Name of the job, such as the county.
+     * @param availabilityFile Spreadsheet with the worker availability.  The output is written beside it.
+     * @param workerFile       Spreadsheet with the worker details, null if none.
+     */
+    public Job(final String name, final File availabilityFile, final File workerFile) {
+      this.name = name;
+      this.availabilityFile = availabilityFile;
+      this.workerFile = workerFile;
+      // end <init>
+    }
+
+    /**
+     * @return the name of the job.
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * @return the spreadsheet with the worker availability.
+     */
+    public File getAvailabilityFile() {
+      return this.availabilityFile;
+    }
+
+    /**
+     * @return the spreadsheet with the worker details, null if none.
+     */
+    public File getWorkerFile() {
+      return this.workerFile;
+    }
+
+  }
+
+  /**
+   * The outcome of a job.
+   */
+  public static class JobResult {
+
+    /**
+     * The job.
+     */
+    protected final Job job;
+
+    /**
+     * URL of the job's Database.
+     */
+    protected final String url;
+
+    /**
+     * Time taken by the job, excluding waiting to start.
+     */
+    protected final long elapsedMillis;
+
+    /**
+     * Why the job failed, null if successful.
+     */
+    protected final Throwable failure;
+
+    /**
+     * Constructor for JobResult.
+     *
+     * @param job           The job.
+     * @param url           URL of the job's Database.
+     * @param elapsedMillis Time taken by the job, excluding waiting to start.
+     * @param failure       Why the job failed, null if successful.
+     */
+    JobResult(final Job job, final String url, final long elapsedMillis, final Throwable failure) {
+      this.job = job;
+      this.url = url;
+      this.elapsedMillis = elapsedMillis;
+      this.failure = failure;
+      // end <init>
+    }
+
+    /**
+     * @return the job.
+     */
+    public Job getJob() {
+      return this.job;
+    }
+
+    /**
+     * @return the URL of the job's Database.
+     */
+    public String getUrl() {
+      return this.url;
+    }
+
+    /**
+     * @return the time taken by the job, excluding waiting to start.
+     */
+    public long getElapsedMillis() {
+      return this.elapsedMillis;
+    }
+
+    /**
+     * @return why the job failed, null if successful.
+     */
+    public Throwable getFailure() {
+      return this.failure;
+    }
+
+    /**
+     * @return true if the job succeeded.
+     */
+    public boolean isSuccessful() {
+      return this.failure == null;
+    }
+
+  }
+
+  /**
+   * Threads running the jobs.
+   */
+  protected final ThreadPoolExecutor executor;
+
+  /**
+   * Memory budget shared by the running jobs, one permit per MB.
+   */
+  protected final Semaphore memory;
+
+  /**
+   * The memory budget, in MB.
+   */
+  protected final int memoryBudgetMb;
+
+  /**
+   * Largest memory estimate a job may have, in MB.
+   */
+  protected long jobMemoryLimitMb = Long.MAX_VALUE;
+
+  /**
+   * Directory for file Databases, null for in-memory Databases.
+   */
+  protected File databaseDirectory;
+
+  /**
+   * Name of the job writing to each output directory, while the job runs.
+   */
+  protected final ConcurrentMap<Path, String> outputDirectories = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor for SurveyJobRunner.
+   *
+   * @param threads        Number of jobs run at once.
+   * @param memoryBudgetMb Memory the running jobs may use together, in MB.
+   */
+  public SurveyJobRunner(final int threads, final int memoryBudgetMb) {
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads * 16), new ThreadPoolExecutor.CallerRunsPolicy());
+    this.memoryBudgetMb = memoryBudgetMb;
+    this.memory = new Semaphore(memoryBudgetMb, true);
+    // end <init>
+  }
+
+  /**
+   * Runs surveys concurrently from the command line.  Each argument is a job:
+   * <code>name=availability.xlsx[,workers.xlsx]</code>.  The System Properties <code>dems.jobs.threads</code>
+   * (default the number of processors), <code>dems.jobs.memory</code> (MB, default three quarters of the
+   * maximum heap), <code>dems.jobs.jobMemory</code> (MB) and <code>dems.jobs.databases</code> (directory for
+   * file Databases) configure the runner.
+   * @param args the jobs.
+   * @throws Exception thrown if any failures occur during execution.
+   */
+  public static void main(final String[] args) throws Exception {
+    final List<Job> jobs = new ArrayList<>(args.length);
+    for (final String arg : args) {
+      final int equals = arg.indexOf('=');
+      final String[] files = arg.substring(equals + 1).split(",");
+      jobs.add(new Job(equals > 0 ? arg.substring(0, equals) : new File(files[0]).getParentFile().getName(),
+          new File(files[0]), files.length > 1 ? new File(files[1]) : null));
+    }
+    final int defaultMemory = (int) (Runtime.getRuntime().maxMemory() * 3 / 4 / (1024 * 1024));
+    try (final SurveyJobRunner runner = new SurveyJobRunner(
+        Integer.getInteger("dems.jobs.threads", Runtime.getRuntime().availableProcessors()).intValue(),
+        Integer.getInteger("dems.jobs.memory", defaultMemory).intValue())) {
+      runner.setJobMemoryLimit(Long.getLong("dems.jobs.jobMemory", Long.MAX_VALUE).longValue());
+      final String databases = System.getProperty("dems.jobs.databases");
+      runner.setDatabaseDirectory(databases == null ? null : new File(databases));
+      runner.warmUp();
+      for (final JobResult result : runner.runAll(jobs)) {
+        System.out.println(result.getJob().getName() + ": " + (result.isSuccessful()
+            ? "finished in " + result.getElapsedMillis() + "ms" : "failed, " + result.getFailure()));
+      }
+    }
+    // end main
+  }
+
+  /**
+   * @param jobMemoryLimitMb Largest memory estimate a job may have, in MB.  Larger jobs fail.
+   */
+  public void setJobMemoryLimit(final long jobMemoryLimitMb) {
+    this.jobMemoryLimitMb = jobMemoryLimitMb;
+  }
+
+  /**
+   * @param databaseDirectory Directory for file Databases, null for in-memory Databases.
+   */
+  public void setDatabaseDirectory(final File databaseDirectory) {
+    this.databaseDirectory = databaseDirectory;
+  }
+
+  /**
+   * Load the schema and the spreadsheet and Database classes before the first job, so the jobs don't
+   * all pay for it at once.
+   *
+   * @throws IOException  thrown if the schema can not be read.
+   * @throws SQLException thrown if the warm up Database can not be set up.
+   */
+  public void warmUp() throws IOException, SQLException {
+    final long start = System.currentTimeMillis();
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:warmUp;shutdown=true");
+        final XSSFWorkbook workbook = new XSSFWorkbook()) {
+      // Closed with sa.
+      sa.conn = sa.setupDB(true);
+      workbook.createSheet().createRow(0).createCell(0).setCellValue("");
+    }
+    LOGGER.info("Warmed up in {}ms", Long.valueOf(System.currentTimeMillis() - start));
+    // end warmUp
+  }
+
+  /**
+   * Queue a job.  If the queue is full, the job runs on the calling thread.
+   *
+   * @param job the job.
+   * @return the outcome of the job, once run.
+   */
+  public Future<JobResult> submit(final Job job) {
+    return this.executor.submit(() -> run(job));
+  }
+
+  /**
+   * Run the jobs and wait for all of them.
+   *
+   * @param jobs the jobs.
+   * @return the outcome of each job, in order.
+   * @throws InterruptedException thrown if interrupted while waiting.
+   */
+  public List<JobResult> runAll(final List<Job> jobs) throws InterruptedException {
+    final List<Future<JobResult>> futures = new ArrayList<>(jobs.size());
+    for (final Job job : jobs) {
+      futures.add(submit(job));
+    }
+    final List<JobResult> results = new ArrayList<>(jobs.size());
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+      } catch (ExecutionException e) {
+        // run() catches the job's failures, so this is unexpected.
+        results.add(new JobResult(jobs.get(i), null, 0, e.getCause()));
+      }
+    }
+    return results;
+    // end runAll
+  }
+
+  /**
+   * Run a job, unless it is over the job memory limit or writes where a running job does.
+   *
+   * @param job the job.
+   * @return the outcome of the job.
+   * @throws InterruptedException thrown if interrupted while waiting for memory.
+   */
+  protected JobResult run(final Job job) throws InterruptedException {
+    final String name = job.getName().replaceAll("[^A-Za-z0-9_]", "_") + '_' + JOB_COUNT.incrementAndGet();
+    final String url = this.databaseDirectory == null ? "jdbc:hsqldb:mem:" + name + ";shutdown=true"
+        : "jdbc:hsqldb:file:" + new File(new File(this.databaseDirectory, name), "dems").getPath() + ";shutdown=true";
+    final long estimateMb = estimateMemory(job) / (1024 * 1024) + 1;
+    if (estimateMb > this.jobMemoryLimitMb) {
+      LOGGER.warn("Job {} needs about {}MB, over the {}MB limit", job.getName(), Long.valueOf(estimateMb),
+          Long.valueOf(this.jobMemoryLimitMb));
+      return new JobResult(job, url, 0, new IllegalStateException(
+          "Job " + job.getName() + " needs about " + estimateMb + "MB, over the " + this.jobMemoryLimitMb + "MB limit"));
+    } // else
+    final Path outputDirectory = job.getAvailabilityFile().getAbsoluteFile().getParentFile().toPath().normalize();
+    final String other = this.outputDirectories.putIfAbsent(outputDirectory, job.getName());
+    if (other != null && !other.equals(job.getName())) {
+      LOGGER.warn("Job {} writes to {}, as job {} does", job.getName(), outputDirectory, other);
+      return new JobResult(job, url, 0, new IllegalStateException(
+          "Job " + job.getName() + " writes to " + outputDirectory + ", as job " + other + " does"));
+    } // else
+    try {
+      return run(job, url, estimateMb);
+    } finally {
+      if (other == null) {
+        // Done writing, a later job may write there.
+        this.outputDirectories.remove(outputDirectory);
+      }
+    }
+    // end run
+  }
+
+  /**
+   * Run a job, once its memory estimate fits in the budget.
+   *
+   * @param job        the job.
+   * @param url        the JDBC URL of the job's Database.
+   * @param estimateMb the heap the job needs, in MB.
+   * @return the outcome of the job.
+   * @throws InterruptedException thrown if interrupted while waiting for memory.
+   */
+  protected JobResult run(final Job job, final String url, final long estimateMb) throws InterruptedException {
+    // A job bigger than the whole budget runs alone.
+    final int permits = (int) Math.min(estimateMb, this.memoryBudgetMb);
+    this.memory.acquire(permits);
+    MDC.put("job", job.getName());
+    final long start = System.currentTimeMillis();
+    try (final SurveyAvailability sa = new SurveyAvailability(url)) {
+      LOGGER.info("Running job {} on {}", job.getName(), url);
+      sa.availabilityFile = job.getAvailabilityFile();
+      sa.workerFile = job.getWorkerFile();
+      sa.conn = sa.setupDB(true);
+      sa.run();
+      final long elapsed = System.currentTimeMillis() - start;
+      LOGGER.info("Finished job {} in {}ms", job.getName(), Long.valueOf(elapsed));
+      return new JobResult(job, url, elapsed, null);
+    } catch (IOException | SQLException | RuntimeException e) {
+      LOGGER.warn("Job {} failed", job.getName(), e);
+      return new JobResult(job, url, System.currentTimeMillis() - start, e);
+    } finally {
+      MDC.remove("job");
+      this.memory.release(permits);
+    }
+    // end run
+  }
+
+  /**
+   * Estimate the heap a job needs.
+   *
+   * @param job the job.
+   * @return the estimate, in bytes.
+   */
+  protected long estimateMemory(final Job job) {
+    long inputBytes = job.getAvailabilityFile().length();
+    if (job.getWorkerFile() != null) {
+      inputBytes += job.getWorkerFile().length();
+    }
+    return JOB_BASE_MEMORY + inputBytes * MEMORY_PER_INPUT_BYTE;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    this.executor.shutdown();
+    try {
+      if (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        this.executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      this.executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    // end close
+  }
+
+}
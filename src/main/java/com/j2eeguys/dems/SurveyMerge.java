@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges several Availability Surveys (early voting, election day, re-surveys...) into one Database.
+ * <p>
+ * The survey files are read concurrently, then the answers for each worker and day are resolved with a
+ * {@link Policy} and loaded through a single Connection, so each worker is looked up once.
+ * Files are given oldest first; a later file is a later response.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class SurveyMerge {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SurveyMerge.class);
+
+  /**
+   * How disagreeing answers for the same worker and day are resolved.
+   */
+  public enum Policy {
+    /**
+     * The answer from the latest survey wins.
+     */
+    LATEST,
+    /**
+     * Available if any survey says available, for the shifts of every survey saying so.
+     */
+    UNION,
+    /**
+     * Disagreements are reported as conflicts and the worker is left unavailable for the day.
+     */
+    FLAG
+  }
+
+  /**
+   * A worker and day with conflicting answers.
+   */
+  public static class Conflict {
+
+    /**
+     * The last answer involved in the conflict.
+     */
+    protected final AvailabilityRecord record;
+
+    /**
+     * What the conflict was.
+     */
+    protected final String description;
+
+    /**
+     * Constructor for Conflict.
+     *
+     * @param record      The last answer involved in the conflict.
+     * @param description What the conflict was.
+     */
+    public Conflict(final AvailabilityRecord record, final String description) {
+      this.record = record;
+      this.description = description;
+      // end <init>
+    }
+
+    /**
+     * @return the last answer involved in the conflict.
+     */
+    public AvailabilityRecord getRecord() {
+      return this.record;
+    }
+
+    /**
+     * @return what the conflict was.
+     */
+    public String getDescription() {
+      return this.description;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      return this.record.getWorkerKey() + ' ' + this.record.getDay() + ": " + this.description;
+    }
+
+  }
+
+  /**
+   * Connection to the Database.
+   */
+  protected final Connection c;
+
+  /**
+   * How disagreeing answers are resolved.
+   */
+  protected final Policy policy;
+
+  /**
+   * Insert a PollWorker's info if not found in the Database.
+   */
+  protected final boolean insertMissing;
+
+  /**
+   * Executor reading the survey files.
+   */
+  protected final ExecutorService executor;
+
+  /**
+   * Header style to be used. Loaded from the first survey file.
+   */
+  protected CellStyle headerStyle;
+
+  /**
+   * Shifts of each day, null to only read whole days.
+   */
+  protected Shifts shifts;
+
+  /**
+   * First day to read, null for no limit.
+   */
+  protected Date from;
+
+  /**
+   * Last day to read, null for no limit.
+   */
+  protected Date to;
+
+  /**
+   * Constructor for SurveyMerge.
+   *
+   * @param c             Connection to the Database.
+   * @param policy        How disagreeing answers are resolved.
+   * @param insertMissing Insert a PollWorker's info if not found in the Database.
+   * @param executor      Executor reading the survey files.
+   */
+  public SurveyMerge(final Connection c, final Policy policy, final boolean insertMissing,
+      final ExecutorService executor) {
+    this.c = c;
+    this.policy = policy;
+    this.insertMissing = insertMissing;
+    this.executor = executor;
+    // end <init>
+  }
+
+  /**
+   * @param shifts Shifts of each day, null to only read whole days (see
+   *                 {@link ParseAvailablityXLSX#setShifts(Shifts)}).
+   */
+  public void setShifts(final Shifts shifts) {
+    this.shifts = shifts;
+  }
+
+  /**
+   * @param from First day to read, null for no limit.
+   * @param to Last day to read, null for no limit (see {@link ParseAvailablityXLSX#setDateRange(Date, Date)}).
+   */
+  public void setDateRange(final Date from, final Date to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Read the survey files concurrently and load the merged availability into the Database.
+   *
+   * @param files the survey files, oldest first.
+   * @return the conflicts found: both 'Yes' and 'No' checked, and, for {@link Policy#FLAG}, surveys
+   *         disagreeing.
+   * @throws IOException thrown if a file can not be read or the Database can not be loaded.
+   */
+  public List<Conflict> merge(final List<File> files) throws IOException {
+    final List<ParseAvailablityXLSX> parsers = new ArrayList<>(files.size());
+    final List<Future<List<AvailabilityRecord>>> reads = new ArrayList<>(files.size());
+    for (final File file : files) {
+      final ParseAvailablityXLSX parser = new ParseAvailablityXLSX(file, this.c, this.insertMissing);
+      parser.setShifts(this.shifts);
+      parser.setDateRange(this.from, this.to);
+      parsers.add(parser);
+      reads.add(this.executor.submit((Callable<List<AvailabilityRecord>>) parser::read));
+    }
+    // worker key -> day -> answers, oldest first
+    final Map<String, Map<LocalDate, List<AvailabilityRecord>>> answers = new LinkedHashMap<>();
+    // worker key -> an answer from the latest survey with the worker, whatever the day
+    final Map<String, AvailabilityRecord> latest = new HashMap<>();
+    for (int i = 0; i < reads.size(); i++) {
+      try {
+        for (final AvailabilityRecord record : reads.get(i).get()) {
+          latest.put(record.getWorkerKey(), record);
+          Map<LocalDate, List<AvailabilityRecord>> days = answers.get(record.getWorkerKey());
+          if (days == null) {
+            days = new TreeMap<>();
+            answers.put(record.getWorkerKey(), days);
+          }
+          final LocalDate day = record.getDay().toLocalDate();
+          List<AvailabilityRecord> dayAnswers = days.get(day);
+          if (dayAnswers == null) {
+            dayAnswers = new ArrayList<>(files.size());
+            days.put(day, dayAnswers);
+          }
+          dayAnswers.add(record);
+        }
+      } catch (ExecutionException e) {
+        throw new IOException("Exception reading " + files.get(i).getAbsolutePath(), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted reading " + files.get(i).getAbsolutePath(), e);
+      }
+      if (this.headerStyle == null) {
+        this.headerStyle = parsers.get(i).getHeaderStyle();
+      }
+    }
+    LOGGER.info("Merging {} workers from {} surveys", Integer.valueOf(answers.size()), Integer.valueOf(files.size()));
+    try {
+      return load(parsers.get(0), answers, latest);
+    } catch (SQLException e) {
+      throw new IOException("Exception merging " + files, e);
+    }
+    // end merge
+  }
+
+  /**
+   * Resolve the answers and load them into the Database.
+   *
+   * @param parser  Parser used to look up and insert the workers.
+   * @param answers worker key, then day, then the answers oldest first.
+   * @param latest  worker key, then an answer from the latest survey with the worker, for the worker details.
+   * @return the conflicts found.
+   * @throws SQLException thrown if the Database can not be loaded.
+   */
+  protected List<Conflict> load(final ParseAvailablityXLSX parser,
+      final Map<String, Map<LocalDate, List<AvailabilityRecord>>> answers,
+      final Map<String, AvailabilityRecord> latest) throws SQLException {
+    final List<Conflict> conflicts = new ArrayList<>();
+    try (final PreparedStatement search = this.c.prepareStatement(
+            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID = ? AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+        final PreparedStatement nameSearch = this.c.prepareStatement(
+            "SELECT ID, VR_ID FROM WORKER WHERE VR_ID IS NULL AND LAST_NAME LIKE ? AND FIRST_NAME LIKE ?");
+        final PreparedStatement insertWorker = this.c.prepareStatement(
+            "INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) VALUES (?,?,?,?,?)");
+        final PreparedStatement updateWorker =
+            this.c.prepareStatement("UPDATE WORKER SET VR_ID = ?, PRECINCT = ?, ROLE = ? WHERE ID = ?");
+        final PreparedStatement insertAvailable =
+            this.c.prepareStatement(parser.insertAvailabilitySql());
+        final PreparedStatement psIdentity = this.c.prepareStatement("CALL IDENTITY()");
+        ) {
+      for (final Map.Entry<String, Map<LocalDate, List<AvailabilityRecord>>> days : answers.entrySet()) {
+        final List<AvailabilityRecord> available = new ArrayList<>(days.getValue().size());
+        for (final List<AvailabilityRecord> dayAnswers : days.getValue().values()) {
+          final AvailabilityRecord resolved = resolve(dayAnswers, conflicts);
+          if (resolved != null) {
+            available.add(resolved);
+          }
+        }
+        if (available.isEmpty()) {
+          continue;
+        } // else, the latest survey has the most current worker details, whichever days it covers.
+        final AvailabilityRecord worker = latest.get(days.getKey());
+        final int id = parser.setWorkerInfo(psIdentity, search, nameSearch, insertWorker, updateWorker, worker);
+        if (id < 0) {
+          LOGGER.info("Skipping {} {}", worker.getFirstName(), worker.getLastName());
+          continue;
+        } // else
+        for (final AvailabilityRecord record : available) {
+          parser.insertAvailability(insertAvailable, record, id);
+        }
+      }
+    }
+    LOGGER.info("Merged with {} conflicts", Integer.valueOf(conflicts.size()));
+    return conflicts;
+    // end load
+  }
+
+  /**
+   * Resolve the answers of one worker for one day.
+   *
+   * @param dayAnswers the answers, oldest first.
+   * @param conflicts  conflicts found are added to this.
+   * @return an answer making the worker available, or null if not available.
+   */
+  protected AvailabilityRecord resolve(final List<AvailabilityRecord> dayAnswers, final List<Conflict> conflicts) {
+    AvailabilityRecord yes = null;
+    AvailabilityRecord no = null;
+    AvailabilityRecord last = null;
+    // Shifts of every 'Yes', a whole day taking in every shift.
+    int allShifts = -1;
+    for (final AvailabilityRecord record : dayAnswers) {
+      if (record.isConflicted()) {
+        conflicts.add(new Conflict(record, "Both 'Yes' & 'No' checked in " + record.getSource()));
+      } else if (record.isYes()) {
+        yes = record;
+        last = record;
+        allShifts = allShifts == Shifts.WHOLE_DAY || record.getShifts() == Shifts.WHOLE_DAY ? Shifts.WHOLE_DAY
+            : allShifts < 0 ? record.getShifts() : allShifts | record.getShifts();
+      } else if (record.isNo()) {
+        no = record;
+        last = record;
+      }
+    }
+    if (yes == null) {
+      return null;
+    } // else
+    switch (this.policy) {
+      case UNION:
+        return allShifts == yes.getShifts() ? yes
+            : new AvailabilityRecord(yes.getLastName(), yes.getFirstName(), yes.getVrId(), yes.getPrecinct(),
+                yes.getRole(), yes.getDay(), true, false, yes.getSource(), allShifts);
+      case FLAG:
+        if (no != null) {
+          conflicts.add(new Conflict(last, "Surveys disagree: 'Yes' in " + yes.getSource() + ", 'No' in "
+              + no.getSource()));
+          return null;
+        } // else
+        return yes;
+      case LATEST:
+      default:
+        return last == yes ? yes : null;
+    }
+    // end resolve
+  }
+
+  /**
+   * @return the header style, loaded from the first survey file.
+   */
+  public CellStyle getHeaderStyle() {
+    return this.headerStyle;
+  }
+
+}
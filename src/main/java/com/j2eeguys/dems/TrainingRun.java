@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Training run for the class-data-sharing archive of the fast-start distribution.  Writes a small
+ * synthetic survey and worker spreadsheet to a temporary directory and processes them the way a normal
+ * run does, so the classes a normal run loads are the ones archived.  Run by <code>bin/dems-train</code>
+ * with <code>-XX:ArchiveClassesAtExit</code>; the spreadsheets are deleted afterwards.  The tests write
+ * their spreadsheets with the same helpers.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public final class TrainingRun {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrainingRun.class);
+
+  /**
+   * Workers in the synthetic survey.
+   */
+  private static final int WORKERS = 50;
+
+  /**
+   * Columns of a day sheet of a survey.
+   */
+  static final String[] SURVEY_HEADERS = {"Last Name", "First Name", "VR #", "Precinct", "Role", "Yes", "No"};
+
+  /**
+   * Columns of a day sheet of a survey with AM and PM shifts.
+   */
+  static final String[] SHIFT_SURVEY_HEADERS =
+      {"Last Name", "First Name", "VR #", "Precinct", "Role", "Yes", "No", "AM", "PM"};
+
+  /**
+   * Not instantiated.
+   */
+  private TrainingRun() {
+    // end <init>
+  }
+
+  /**
+   * Run the training.
+   * @param args unused.
+   * @throws Exception thrown if the training run fails.
+   */
+  public static void main(final String[] args) throws Exception {
+    final File dir = Files.createTempDirectory("dems-training").toFile();
+    try {
+      final File availabilityFile = writeSurvey(new File(dir, "Availability.xlsx"));
+      final File workerFile = writeWorkers(new File(dir, "Workers.xlsx"));
+      final long start = System.currentTimeMillis();
+      SurveyAvailability.main(new String[] {availabilityFile.getAbsolutePath(), workerFile.getAbsolutePath()});
+      LOGGER.info("Training run took {}ms", Long.valueOf(System.currentTimeMillis() - start));
+    } finally {
+      FileUtils.deleteQuietly(dir);
+    }
+    // end main
+  }
+
+  /**
+   * Write a survey with a sheet per day, every other worker available.
+   * @param file the survey file.
+   * @return the survey file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  static File writeSurvey(final File file) throws IOException {
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      for (int day = 13; day <= 30; day++) {
+        final String[][] workers = new String[WORKERS][];
+        for (int w = 1; w <= WORKERS; w++) {
+          final boolean available = (w + day) % 2 == 0;
+          workers[w - 1] = new String[] {"Worker" + w, "Pat", String.valueOf(1000 + w), String.valueOf(w % 10 + 1),
+              w % 3 == 0 ? "Judge" : "Clerk", available ? "Checked" : "", available ? "" : "Checked"};
+        }
+        addDay(workbook, "10-" + day, SURVEY_HEADERS, workers);
+      }
+      workbook.write(out);
+    }
+    return file;
+    // end writeSurvey
+  }
+
+  /**
+   * Add a day sheet to a survey: the header, the worker rows, then the blank row ending the sheet.
+   * @param workbook the survey.
+   * @param name the sheet name, such as "10-13".
+   * @param header the header row, such as {@link #SURVEY_HEADERS}.
+   * @param workers the worker rows.
+   * @return the day sheet.
+   */
+  static Sheet addDay(final Workbook workbook, final String name, final String[] header,
+      final String[][] workers) {
+    final Sheet sheet = workbook.createSheet(name);
+    addRow(sheet, 0, header);
+    for (int w = 0; w < workers.length; w++) {
+      addRow(sheet, w + 1, workers[w]);
+    }
+    // The last row is not read.
+    addRow(sheet, workers.length + 1, "");
+    return sheet;
+    // end addDay
+  }
+
+  /**
+   * Add a row of text cells to a sheet.
+   * @param sheet the sheet.
+   * @param r the row number.
+   * @param values the cell values, from the first column.
+   * @return the row.
+   */
+  static Row addRow(final Sheet sheet, final int r, final String... values) {
+    final Row row = sheet.createRow(r);
+    for (int col = 0; col < values.length; col++) {
+      row.createCell(col).setCellValue(values[col]);
+    }
+    return row;
+  }
+
+  /**
+   * Write a worker spreadsheet for the workers of the survey.
+   * @param file the worker file.
+   * @return the worker file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  static File writeWorkers(final File file) throws IOException {
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      workbook.createSheet("Summary");
+      final String[] header = {"Notes", "First Name", "Last Name", "City", "Phone #", "Email", "Poll Worker Exp.",
+          "Proficient in another language?", "Location"};
+      // The worker spreadsheet has two sheets of workers after the summary.
+      for (int s = 1; s <= 2; s++) {
+        final Sheet sheet = workbook.createSheet("Workers" + s);
+        Row row = sheet.createRow(0);
+        for (int col = 0; col < header.length; col++) {
+          row.createCell(col).setCellValue(header[col]);
+        }
+        for (int w = s; w <= WORKERS; w += 2) {
+          row = sheet.createRow(sheet.getLastRowNum() + 1);
+          final String[] values = {"", "Pat", "Worker" + w, "Austin", "555-0100", "worker" + w + "@example.com",
+              w % 4 == 0 ? "Yes" : "No", w % 5 == 0 ? "Yes (Spanish)" : "No", "School"};
+          for (int col = 0; col < values.length; col++) {
+            row.createCell(col).setCellValue(values[col]);
+          }
+        }
+        sheet.createRow(sheet.getLastRowNum() + 1).createCell(1).setCellValue("");
+      }
+      workbook.write(out);
+    }
+    return file;
+    // end writeWorkers
+  }
+
+}
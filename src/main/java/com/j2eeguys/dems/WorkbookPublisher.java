@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the records decoded from a spreadsheet.  Each subscriber gets every record: the workbook is opened
+ * when the first records are requested and closed after the last, on cancel, or on failure.  Rows are decoded
+ * only as they are requested, so a slow subscriber holds back the parsing rather than buffering records.
+ *
+ * @param <T> the record type.
+ * @author gorky@j2eeguys.com
+ */
+public class WorkbookPublisher<T> implements RecordFlow.Publisher<T> {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkbookPublisher.class);
+
+  /**
+   * The spreadsheet.
+   */
+  protected final File sourceFile;
+
+  /**
+   * Decodes the records of an open workbook, lazily.
+   */
+  protected final Function<Workbook, Iterator<T>> records;
+
+  /**
+   * Runs the delivery of records.
+   */
+  protected final Executor executor;
+
+  /**
+   * Constructor for WorkbookPublisher.
+   *
+   * @param sourceFile The spreadsheet.
+   * @param records    Decodes the records of an open workbook, lazily.
+   * @param executor   Runs the delivery of records; null to deliver on the thread calling
+   *                     {@link RecordFlow.Subscription#request(long)}.
+   */
+  public WorkbookPublisher(final File sourceFile, final Function<Workbook, Iterator<T>> records,
+      final Executor executor) {
+    this.sourceFile = sourceFile;
+    this.records = records;
+    this.executor = executor == null ? Runnable::run : executor;
+    // end <init>
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see com.j2eeguys.dems.RecordFlow.Publisher#subscribe(com.j2eeguys.dems.RecordFlow.Subscriber)
+   */
+  @Override
+  public void subscribe(final RecordFlow.Subscriber<? super T> subscriber) {
+    subscriber.onSubscribe(new WorkbookSubscription(subscriber));
+  }
+
+  /**
+   * Delivers the records to one subscriber.  Delivery runs in one task at a time: a request made while
+   * records are being delivered, including from {@link RecordFlow.Subscriber#onNext(Object)}, is picked up by
+   * the running task.
+   */
+  private class WorkbookSubscription implements RecordFlow.Subscription, Runnable {
+
+    /**
+     * The subscriber.
+     */
+    private final RecordFlow.Subscriber<? super T> subscriber;
+
+    /**
+     * Records requested and not yet delivered.
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * Signals not yet handled by the delivery task; non-zero while it runs.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Set on cancel.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * An invalid request, to be reported to the subscriber.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Set once the subscriber has been completed or failed.
+     */
+    private boolean done;
+
+    /**
+     * The open workbook, only used by the delivery task.
+     */
+    private Workbook workbook;
+
+    /**
+     * The records of the workbook, only used by the delivery task.
+     */
+    private Iterator<T> iterator;
+
+    /**
+     * @param subscriber The subscriber.
+     */
+    WorkbookSubscription(final RecordFlow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+      // end <init>
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.RecordFlow.Subscription#request(long)
+     */
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        this.failure = new IllegalArgumentException("Non-positive request: " + n);
+      } else {
+        this.requested.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+      }
+      signal();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.j2eeguys.dems.RecordFlow.Subscription#cancel()
+     */
+    @Override
+    public void cancel() {
+      this.cancelled = true;
+      signal();
+    }
+
+    /**
+     * Start the delivery task, unless it is already running.
+     */
+    private void signal() {
+      if (this.pending.getAndIncrement() == 0) {
+        WorkbookPublisher.this.executor.execute(this);
+      }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        deliver();
+        missed = this.pending.addAndGet(-missed);
+      } while (missed != 0);
+      // end run
+    }
+
+    /**
+     * Deliver the requested records, then complete the subscriber if there are no more.
+     */
+    private void deliver() {
+      if (this.done) {
+        return;
+      } else if (this.cancelled) {
+        finish(null, false);
+        return;
+      } else if (this.failure != null) {
+        finish(this.failure, true);
+        return;
+      } // else
+      try {
+        if (this.iterator == null) {
+          this.workbook = XSSFWorkbookFactory.createWorkbook(WorkbookPublisher.this.sourceFile, true);
+          this.iterator = WorkbookPublisher.this.records.apply(this.workbook);
+        }
+        long delivered = 0;
+        long limit = this.requested.get();
+        while (!this.cancelled && this.failure == null && this.iterator.hasNext()) {
+          if (delivered == limit) {
+            // Pick up any requests made during delivery.
+            limit = this.requested.addAndGet(-delivered);
+            delivered = 0;
+            if (limit == 0) {
+              return;
+            }
+          }
+          this.subscriber.onNext(this.iterator.next());
+          delivered++;
+        }
+        this.requested.addAndGet(-delivered);
+        if (this.cancelled || this.failure != null) {
+          // Handled on the next pass.
+          return;
+        } // else, no more records.
+        finish(null, true);
+      } catch (IOException | RuntimeException e) {
+        finish(e, true);
+      }
+      // end deliver
+    }
+
+    /**
+     * Close the workbook and, if asked, tell the subscriber the records are done.
+     *
+     * @param error  the failure, null if the records completed.
+     * @param notify true to call the subscriber.
+     */
+    private void finish(final Throwable error, final boolean notify) {
+      this.done = true;
+      if (this.workbook != null) {
+        try {
+          this.workbook.close();
+        } catch (IOException e) {
+          LOGGER.warn("Unable to close {}: {}", WorkbookPublisher.this.sourceFile, e.getMessage());
+        }
+        this.workbook = null;
+      }
+      if (!notify) {
+        return;
+      } else if (error == null) {
+        this.subscriber.onComplete();
+      } else {
+        this.subscriber.onError(error);
+      }
+      // end finish
+    }
+
+  }
+
+}
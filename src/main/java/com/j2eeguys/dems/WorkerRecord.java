@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+/**
+ * One worker's details, decoded from a row of the Poll Worker spreadsheet.
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class WorkerRecord {
+
+  /**
+   * Last Name of the worker.
+   */
+  protected final String lastName;
+
+  /**
+   * First Name of the worker.
+   */
+  protected final String firstName;
+
+  /**
+   * City of the worker.
+   */
+  protected final String city;
+
+  /**
+   * Phone # of the worker.
+   */
+  protected final String phone;
+
+  /**
+   * Email of the worker, null if not a valid address.
+   */
+  protected final String email;
+
+  /**
+   * If the worker has Poll Worker experience.
+   */
+  protected final boolean experienced;
+
+  /**
+   * Other languages spoken, null if none.
+   */
+  protected final String languages;
+
+  /**
+   * Location of the worker, null if not supplied.
+   */
+  protected final String location;
+
+  /**
+   * Notes on the worker, null if no Notes cell.
+   */
+  protected final String notes;
+
+  /**
+   * Where the worker came from, such as the sheet name (for logging purposes).
+   */
+  protected final String source;
+
+  /**
+   * Constructor for WorkerRecord.
+   *
+   * @param lastName    Last Name of the worker.
+   * @param firstName   First Name of the worker.
+   * @param city        City of the worker.
+   * @param phone       Phone # of the worker.
+   * @param email       Email of the worker, null if not a valid address.
+   * @param experienced If the worker has Poll Worker experience.
+   * @param languages   Other languages spoken, null if none.
+   * @param location    Location of the worker, null if not supplied.
+   * @param notes       Notes on the worker, null if no Notes cell.
+   * @param source      Where the worker came from (for logging purposes).
+   */
+  public WorkerRecord(final String lastName, final String firstName, final String city, final String phone,
+      final String email, final boolean experienced, final String languages, final String location,
+      final String notes, final String source) {
+    this.lastName = lastName;
+    this.firstName = firstName;
+    this.city = city;
+    this.phone = phone;
+    this.email = email;
+    this.experienced = experienced;
+    this.languages = languages;
+    this.location = location;
+    this.notes = notes;
+    this.source = source;
+    // end <init>
+  }
+
+  /**
+   * @return the lastName
+   */
+  public String getLastName() {
+    return this.lastName;
+  }
+
+  /**
+   * @return the firstName
+   */
+  public String getFirstName() {
+    return this.firstName;
+  }
+
+  /**
+   * @return the city
+   */
+  public String getCity() {
+    return this.city;
+  }
+
+  /**
+   * @return the phone #
+   */
+  public String getPhone() {
+    return this.phone;
+  }
+
+  /**
+   * @return the email, null if not a valid address.
+   */
+  public String getEmail() {
+    return this.email;
+  }
+
+  /**
+   * @return if the worker has Poll Worker experience.
+   */
+  public boolean isExperienced() {
+    return this.experienced;
+  }
+
+  /**
+   * @return the other languages spoken, null if none.
+   */
+  public String getLanguages() {
+    return this.languages;
+  }
+
+  /**
+   * @return the location, null if not supplied.
+   */
+  public String getLocation() {
+    return this.location;
+  }
+
+  /**
+   * @return the notes, null if no Notes cell.
+   */
+  public String getNotes() {
+    return this.notes;
+  }
+
+  /**
+   * @return where the worker came from.
+   */
+  public String getSource() {
+    return this.source;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return this.firstName + ' ' + this.lastName;
+  }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports the Workers, weekly and NotScheduled views as flat files (CSV or TSV) for mail merges, SMS
+ * blasts and CRM imports.  The columns match the sheets of WorkerAvailability.xlsx, see {@link SheetLayout}.
+ * <p>
+ * Each view is one query joining the workers to their availability, ordered by worker, so rows are
+ * written as the result set is read and only the current worker is held in memory.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class WriteCSV {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(WriteCSV.class);
+
+  /**
+   * Query for the Workers and NotScheduled views, with the availability of each worker on consecutive
+   * rows.
+   */
+  private static final String WORKER_SQL = "SELECT W.NOTES, W.LAST_NAME, W.FIRST_NAME, W.VR_ID, W.CITY, W.PHONE, "
+      + "W.EMAIL, W.EXPERIENCED, W.LANGUAGES, W.LOCATION, W.PRECINCT, W.ROLE, W.ID, A.DAY "
+      + "FROM WORKER W LEFT JOIN AVAILABILITY A ON W.ID = A.ID ";
+
+  /**
+   * The month shown, as in the workbook, set by {@link #write()}.  See {@link SheetLayout#shownMonth(Connection)}.
+   */
+  protected YearMonth month;
+
+  /**
+   * Connection to the Database.
+   */
+  protected final Connection c;
+
+  /**
+   * Directory the files are written to.
+   */
+  protected final File destinationDir;
+
+  /**
+   * Format of the files, such as {@link CSVFormat#DEFAULT} or {@link CSVFormat#TDF}.
+   */
+  protected final CSVFormat format;
+
+  /**
+   * Extension of the files, including the dot.
+   */
+  protected final String extension;
+
+  /**
+   * Constructor for WriteCSV.
+   *
+   * @param destinationDir Directory the files are written to.
+   * @param c              Connection to the Database.
+   * @param format         Format of the files, such as {@link CSVFormat#DEFAULT} or {@link CSVFormat#TDF}.
+   * @param extension      Extension of the files, including the dot.
+   */
+  public WriteCSV(final File destinationDir, final Connection c, final CSVFormat format, final String extension) {
+    this.destinationDir = destinationDir;
+    this.c = c;
+    this.format = format;
+    this.extension = extension;
+    // end <init>
+  }
+
+  /**
+   * Write the Workers, weekly and NotScheduled files.
+   *
+   * @throws IOException thrown if a file can not be written or the Database can not be read.
+   */
+  public void write() throws IOException {
+    try {
+      this.month = SheetLayout.shownMonth(this.c);
+      writeWorkers("Workers", "ORDER BY W.LAST_NAME, W.FIRST_NAME, W.ID, A.DAY", SheetLayout.FIRST_DAY,
+          SheetLayout.LAST_DAY - SheetLayout.FIRST_DAY + 1);
+      for (final SheetLayout.Week week : SheetLayout.weeks(this.month)) {
+        writeWeek(week);
+      }
+      writeWorkers("NotScheduled", "WHERE W.VR_ID IS NULL OR W.ID NOT IN (SELECT DISTINCT A.ID FROM AVAILABILITY A) "
+          + "ORDER BY W.LAST_NAME, W.FIRST_NAME, W.ID, A.DAY", 0, 0);
+    } catch (SQLException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    // end write
+  }
+
+  /**
+   * Write a view listing the worker details and their availability.
+   *
+   * @param name  name of the view, as in the workbook.
+   * @param where the filter and ordering of the workers.
+   * @param start first day of the month with a column.
+   * @param days  number of day columns, ending no later than the 30th.
+   * @throws SQLException thrown if the Database can not be read.
+   * @throws IOException  thrown if the file can not be written.
+   */
+  protected void writeWorkers(final String name, final String where, final int start, final int days)
+      throws SQLException, IOException {
+    try (final PreparedStatement listWorker = this.c.prepareStatement(WORKER_SQL + where)) {
+      write(name, listWorker, SheetLayout.WORKER_HEADERS, 13, start, days);
+    }
+    // end writeWorkers
+  }
+
+  /**
+   * Write a weekly view listing the workers and their availability for the week.
+   *
+   * @param week the week.
+   * @throws SQLException thrown if the Database can not be read.
+   * @throws IOException  thrown if the file can not be written.
+   */
+  protected void writeWeek(final SheetLayout.Week week) throws SQLException, IOException {
+    try (final PreparedStatement listWorker = this.c.prepareStatement(
+        "SELECT W.LAST_NAME, W.FIRST_NAME, W.VR_ID, W.PRECINCT, W.ROLE, W.ID, A.DAY "
+            + "FROM WORKER W LEFT JOIN AVAILABILITY A ON W.ID = A.ID AND A.DAY >= ? AND A.DAY < ? "
+            + "ORDER BY W.LAST_NAME, W.FIRST_NAME, W.ID, A.DAY")) {
+      listWorker.setDate(1, week.getFrom());
+      listWorker.setDate(2, week.getTo());
+      write(week.getName(), listWorker, SheetLayout.WEEK_HEADERS, 6, week.getStart(), 7);
+    }
+    // end writeWeek
+  }
+
+  /**
+   * Stream a query to a file, one record per worker.
+   *
+   * @param name      name of the view, used for the file name.
+   * @param query     the query: the worker columns, then the worker ID, then the available day (null if
+   *                    none), ordered by worker.
+   * @param headers   titles of the worker columns.
+   * @param idColumn  the column of the worker ID, the worker columns come before it.
+   * @param start     first day of the month with a column.
+   * @param days      number of day columns, ending no later than the 30th.
+   * @throws SQLException thrown if the Database can not be read.
+   * @throws IOException  thrown if the file can not be written.
+   */
+  protected void write(final String name, final PreparedStatement query, final String[] headers, final int idColumn,
+      final int start, final int days) throws SQLException, IOException {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
+    final int dayCount = SheetLayout.dayCount(start, days);
+    final String[] titles = Arrays.copyOf(headers, headers.length + dayCount);
+    for (int i = 0; i < dayCount; i++) {
+      titles[headers.length + i] = Integer.toString(start + i);
+    }
+    final File file = new File(this.destinationDir,
+        "WorkerAvailability-" + name.replaceAll("[^A-Za-z0-9-]", "_") + this.extension);
+    LOGGER.info("Writing {}", file.getName());
+    int rows = 0;
+    try (final CSVPrinter printer = new CSVPrinter(new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)), this.format.withHeader(titles));
+        final ResultSet rs = query.executeQuery()) {
+      final String[] record = new String[titles.length];
+      int currentId = -1;
+      while (rs.next()) {
+        final int id = rs.getInt(idColumn);
+        if (id != currentId) {
+          if (currentId >= 0) {
+            printer.printRecord((Object[]) record);
+            rows++;
+          }
+          currentId = id;
+          Arrays.fill(record, null);
+          for (int l = 1; l < idColumn; l++) {
+            record[l - 1] = value(rs, l, headers[l - 1]);
+          }
+        }
+        final Date day = rs.getDate(idColumn + 1);
+        if (day != null && SheetLayout.isShown(this.month, day)) {
+          final int column = day.toLocalDate().getDayOfMonth() - start;
+          if (column >= 0 && column < dayCount) {
+            record[headers.length + column] = "X";
+          }
+        }
+      }
+      if (currentId >= 0) {
+        printer.printRecord((Object[]) record);
+        rows++;
+      }
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.sheet = file.getName();
+      event.rows = rows;
+      event.commit();
+    }
+    // end write
+  }
+
+  /**
+   * Format a worker column the way the workbook shows it.
+   *
+   * @param rs     the query results.
+   * @param column the column.
+   * @param header the title of the column.
+   * @return the value to write.
+   * @throws SQLException thrown if the value can not be read.
+   */
+  protected static String value(final ResultSet rs, final int column, final String header) throws SQLException {
+    if ("Experienced".equals(header)) {
+      return rs.getByte(column) > 0 ? "Yes" : null;
+    } else if ("Precinct".equals(header)) {
+      return rs.getInt(column) > 0 ? Integer.toString(rs.getInt(column)) : null;
+    } // else
+    return rs.getString(column);
+  }
+
+}
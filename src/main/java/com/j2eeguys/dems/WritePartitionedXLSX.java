@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2020 This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes one workbook per precinct (or per precinct and role) so each precinct lead gets only their own
+ * workers.  Each workbook has the Workers and weekly sheets of WorkerAvailability.xlsx, named
+ * <code>WorkerAvailability-Precinct_12.xlsx</code> (or <code>WorkerAvailability-Precinct_12-Clerk.xlsx</code>).
+ * <p>
+ * The workers are read in one query ordered by partition, so the Database is scanned once however many
+ * precincts there are.  As each partition is read it is handed to the {@link Executor}, which builds and
+ * writes its workbook while the scan continues.  The header style of each workbook is cloned from the one
+ * template style.
+ * </p>
+ *
+ * @author gorky@j2eeguys.com
+ */
+public class WritePartitionedXLSX {
+
+  /**
+   * Logger for the class.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(WritePartitionedXLSX.class);
+
+  /**
+   * Worker columns of the weekly sheets, {@link SheetLayout#WEEK_HEADERS}, as indexes of
+   * {@link SheetLayout#WORKER_HEADERS}.
+   */
+  private static final int[] WEEK_COLUMNS = {1, 2, 3, 10, 11};
+
+  /**
+   * Index of the Experienced column in {@link SheetLayout#WORKER_HEADERS}.
+   */
+  private static final int EXPERIENCED = 7;
+
+  /**
+   * Index of the Precinct column in {@link SheetLayout#WORKER_HEADERS}.
+   */
+  private static final int PRECINCT = 10;
+
+  /**
+   * Query for the workers, with the availability of each worker on consecutive rows.  The partition
+   * ordering is added in front of the name ordering.
+   */
+  private static final String WORKER_SQL = "SELECT W.NOTES, W.LAST_NAME, W.FIRST_NAME, W.VR_ID, W.CITY, W.PHONE, "
+      + "W.EMAIL, W.EXPERIENCED, W.LANGUAGES, W.LOCATION, W.PRECINCT, W.ROLE, W.ID, A.DAY "
+      + "FROM WORKER W LEFT JOIN AVAILABILITY A ON W.ID = A.ID ORDER BY W.PRECINCT, ";
+
+  /**
+   * Connection to the Database.
+   */
+  protected final Connection c;
+
+  /**
+   * Directory the workbooks are written to.
+   */
+  protected final File destinationDir;
+
+  /**
+   * Header style to be cloned into each workbook.
+   */
+  protected final CellStyle headerStyle;
+
+  /**
+   * If the workers are partitioned by role as well as precinct.
+   */
+  protected final boolean byRole;
+
+  /**
+   * Executor building the workbooks, null to use a pool owned by the writer.
+   */
+  protected final Executor executor;
+
+  /**
+   * Most partitions read but not yet written, which bounds the memory used when the scan is faster
+   * than the workbooks are written.
+   */
+  protected final int maxPending;
+
+  /**
+   * The month shown, set by the scan before any partition is handed on.
+   */
+  protected YearMonth month;
+
+  /**
+   * Workbooks written by the last {@link #write()}.
+   */
+  protected final List<File> written = new ArrayList<>();
+
+  /**
+   * Constructor for WritePartitionedXLSX.
+   *
+   * @param destinationDir Directory the workbooks are written to.
+   * @param c              Connection to the Database.
+   * @param headerStyle    Header style to be cloned into each workbook.
+   * @param byRole         If the workers are partitioned by role as well as precinct.
+   * @param executor       Executor building the workbooks. Null to use a pool with a thread per
+   *                         processor.
+   * @param maxPending     Most partitions read but not yet written.
+   */
+  public WritePartitionedXLSX(final File destinationDir, final Connection c, final CellStyle headerStyle,
+      final boolean byRole, final Executor executor, final int maxPending) {
+    this.destinationDir = destinationDir;
+    this.c = c;
+    this.headerStyle = headerStyle;
+    this.byRole = byRole;
+    this.executor = executor;
+    this.maxPending = maxPending;
+    // end <init>
+  }
+
+  /**
+   * @return the workbooks written by the last {@link #write()}, in partition order.
+   */
+  public List<File> getWritten() {
+    return this.written;
+  }
+
+  /**
+   * Write a workbook for each partition.
+   *
+   * @throws IOException thrown if a workbook can not be written or the Database can not be read.
+   */
+  public void write() throws IOException {
+    this.written.clear();
+    final ExecutorService owned = this.executor == null
+        ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : null;
+    final Semaphore pending = new Semaphore(this.maxPending);
+    final List<FutureTask<File>> tasks = new ArrayList<>();
+    try {
+      scan(partition -> {
+        pending.acquire();
+        final FutureTask<File> task = new FutureTask<>(() -> {
+          try {
+            return partition.write();
+          } finally {
+            pending.release();
+          }
+        });
+        tasks.add(task);
+        (owned == null ? this.executor : owned).execute(task);
+      });
+      for (final FutureTask<File> task : tasks) {
+        this.written.add(task.get());
+      }
+    } catch (SQLException e) {
+      throw new IOException(e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted writing partitioned workbooks", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } // else
+      throw new IOException(e.getCause().getMessage(), e.getCause());
+    } finally {
+      for (final FutureTask<File> task : tasks) {
+        task.cancel(false);
+      }
+      if (owned != null) {
+        owned.shutdown();
+      }
+    }
+    LOGGER.info("Wrote {} partitioned workbooks", Integer.valueOf(this.written.size()));
+    // end write
+  }
+
+  /**
+   * Scan the workers in partition order, handing each partition on as soon as it is complete.
+   *
+   * @param consumer receives each partition.
+   * @throws SQLException         thrown if the Database can not be read.
+   * @throws InterruptedException thrown if interrupted waiting to hand on a partition.
+   */
+  protected void scan(final PartitionConsumer consumer) throws SQLException, InterruptedException {
+    // Keyed by day of month, so only the month shown.
+    this.month = SheetLayout.shownMonth(this.c);
+    try (final PreparedStatement listWorker = this.c.prepareStatement(
+        WORKER_SQL + (this.byRole ? "W.ROLE, " : "") + "W.LAST_NAME, W.FIRST_NAME, W.ID, A.DAY");
+        final ResultSet rs = listWorker.executeQuery()) {
+      Partition partition = null;
+      Worker worker = null;
+      while (rs.next()) {
+        final int id = rs.getInt(13);
+        if (worker == null || worker.id != id) {
+          final int precinct = rs.getInt(11);
+          final String role = this.byRole ? rs.getString(12) : null;
+          if (partition == null || partition.precinct != precinct || !Objects.equals(partition.role, role)) {
+            if (partition != null) {
+              consumer.accept(partition);
+            }
+            partition = new Partition(precinct, role);
+          }
+          worker = new Worker(id, precinct);
+          for (int i = 0; i < SheetLayout.WORKER_HEADERS.length; i++) {
+            worker.values[i] = rs.getString(i + 1);
+          }
+          worker.experienced = rs.getByte(EXPERIENCED + 1) > 0;
+          partition.workers.add(worker);
+        }
+        final Date day = rs.getDate(14);
+        if (day != null && SheetLayout.isShown(this.month, day)) {
+          worker.days |= 1 << day.toLocalDate().getDayOfMonth();
+        }
+      }
+      if (partition != null) {
+        consumer.accept(partition);
+      }
+    }
+    // end scan
+  }
+
+  /**
+   * Receives the partitions from {@link WritePartitionedXLSX#scan(PartitionConsumer)}.
+   */
+  @FunctionalInterface
+  protected interface PartitionConsumer {
+
+    /**
+     * @param partition a complete partition.
+     * @throws InterruptedException thrown if interrupted waiting to accept the partition.
+     */
+    void accept(Partition partition) throws InterruptedException;
+
+  }
+
+  /**
+   * A worker read by the scan.
+   */
+  protected static class Worker {
+
+    /**
+     * Database ID of the worker.
+     */
+    final int id;
+
+    /**
+     * Precinct of the worker, 0 if none.
+     */
+    final int precinct;
+
+    /**
+     * Values of the {@link SheetLayout#WORKER_HEADERS} columns.
+     */
+    final String[] values = new String[SheetLayout.WORKER_HEADERS.length];
+
+    /**
+     * If the worker is experienced.
+     */
+    boolean experienced;
+
+    /**
+     * Days of the month the worker is available, bit n set for day n.
+     */
+    int days;
+
+    /**
+     * @param id       Database ID of the worker.
+     * @param precinct Precinct of the worker, 0 if none.
+     */
+    Worker(final int id, final int precinct) {
+      this.id = id;
+      this.precinct = precinct;
+      // end <init>
+    }
+
+    /**
+     * @param day day of the month.
+     * @return if the worker is available on the day.
+     */
+    boolean isAvailable(final int day) {
+      return (this.days & (1 << day)) != 0;
+    }
+
+  }
+
+  /**
+   * The workers of one precinct (and role), in name order.
+   */
+  protected class Partition {
+
+    /**
+     * The precinct, 0 if none.
+     */
+    final int precinct;
+
+    /**
+     * The role, null if not partitioning by role or the workers have no role.
+     */
+    final String role;
+
+    /**
+     * The workers.
+     */
+    final List<Worker> workers = new ArrayList<>();
+
+    /**
+     * @param precinct The precinct, 0 if none.
+     * @param role     The role, null if not partitioning by role or the workers have no role.
+     */
+    Partition(final int precinct, final String role) {
+      this.precinct = precinct;
+      this.role = role;
+      // end <init>
+    }
+
+    /**
+     * @return the name of the partition, used for the file name.
+     */
+    String getName() {
+      final String name = "Precinct " + (this.precinct > 0 ? Integer.toString(this.precinct) : "None");
+      if (!WritePartitionedXLSX.this.byRole) {
+        return name;
+      } // else
+      return name + '-' + (this.role == null || this.role.isEmpty() ? "None" : this.role);
+    }
+
+    /**
+     * Build and write the workbook of the partition.
+     *
+     * @return the workbook file.
+     * @throws IOException thrown if the workbook can not be written.
+     */
+    File write() throws IOException {
+      final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+      event.begin();
+      final File file = new File(WritePartitionedXLSX.this.destinationDir,
+          "WorkerAvailability-" + getName().replaceAll("[^A-Za-z0-9-]", "_") + ".xlsx");
+      LOGGER.info("Writing {}", file.getName());
+      try (final Workbook workbook = WorkbookFactory.create(true);
+          final OutputStream out = new FileOutputStream(file)) {
+        final CellStyle header = workbook.createCellStyle();
+        header.cloneStyleFrom(WritePartitionedXLSX.this.headerStyle);
+        final CellStyle center = workbook.createCellStyle();
+        center.setAlignment(HorizontalAlignment.CENTER);
+        buildWorkers(workbook.createSheet("Workers"), header, center);
+        for (final SheetLayout.Week week : SheetLayout.weeks(WritePartitionedXLSX.this.month)) {
+          buildWeek(workbook.createSheet(week.getName()), header, center, week);
+        }
+        workbook.write(out);
+        out.flush();
+      }
+      event.end();
+      if (event.shouldCommit()) {
+        event.sheet = file.getName();
+        event.rows = this.workers.size();
+        event.commit();
+      }
+      return file;
+      // end write
+    }
+
+    /**
+     * Build the sheet with the worker details and all available days.
+     *
+     * @param sheet  the sheet.
+     * @param header the header style.
+     * @param center the style for centering.
+     */
+    private void buildWorkers(final Sheet sheet, final CellStyle header, final CellStyle center) {
+      final ColumnWidths widths = addHeaderRow(sheet, header, SheetLayout.WORKER_HEADERS, SheetLayout.FIRST_DAY,
+          SheetLayout.LAST_DAY - SheetLayout.FIRST_DAY + 1);
+      int rowNum = 1;
+      for (final Worker worker : this.workers) {
+        final Row row = sheet.createRow(rowNum++);
+        for (int k = 0; k < SheetLayout.WORKER_HEADERS.length; k++) {
+          final Cell cell = row.createCell(k);
+          if (k == EXPERIENCED) {
+            if (worker.experienced) {
+              cell.setCellValue("Yes");
+              cell.setCellStyle(center);
+            }
+          } else if (k == PRECINCT) {
+            if (worker.precinct > 0) {
+              cell.setCellValue(Integer.toString(worker.precinct));
+            }
+          } else {
+            cell.setCellValue(worker.values[k]);
+            widths.track(k, worker.values[k]);
+          }
+        }
+        addDays(row, center, worker, SheetLayout.WORKER_HEADERS.length, SheetLayout.FIRST_DAY,
+            SheetLayout.LAST_DAY + 1);
+      }
+      widths.apply(sheet);
+      // end buildWorkers
+    }
+
+    /**
+     * Build a weekly sheet listing the workers and their availability for the week.
+     *
+     * @param sheet  the sheet.
+     * @param header the header style.
+     * @param center the style for centering.
+     * @param week   the week.
+     */
+    private void buildWeek(final Sheet sheet, final CellStyle header, final CellStyle center,
+        final SheetLayout.Week week) {
+      final ColumnWidths widths = addHeaderRow(sheet, header, SheetLayout.WEEK_HEADERS, week.getStart(), 7);
+      int rowNum = 1;
+      for (final Worker worker : this.workers) {
+        final Row row = sheet.createRow(rowNum++);
+        for (int k = 0; k < WEEK_COLUMNS.length; k++) {
+          widths.createCell(row, k, worker.values[WEEK_COLUMNS[k]]);
+        }
+        addDays(row, center, worker, WEEK_COLUMNS.length, week.getStart(), week.getLast() + 1);
+      }
+      widths.apply(sheet);
+      // end buildWeek
+    }
+
+  }
+
+  /**
+   * Mark the days a worker is available.
+   *
+   * @param row    the worker's row.
+   * @param center the style for centering.
+   * @param worker the worker.
+   * @param column the column of the first day.
+   * @param from   first day shown.
+   * @param to     day after the last day shown.
+   */
+  static void addDays(final Row row, final CellStyle center, final Worker worker, final int column,
+      final int from, final int to) {
+    for (int day = from; day < to; day++) {
+      if (worker.isAvailable(day)) {
+        final Cell cell = row.createCell(column + day - from);
+        cell.setCellValue("X");
+        cell.setCellStyle(center);
+      }
+    }
+    // end addDays
+  }
+
+  /**
+   * Add a header row to a sheet.
+   *
+   * @param sheet  the sheet.
+   * @param style  the header style.
+   * @param titles the titles of the worker columns.
+   * @param start  the first day of the sheet.
+   * @param cols   the number of day columns, ending no later than the 30th.
+   * @return the column widths of the sheet, tracking the titles.
+   */
+  static ColumnWidths addHeaderRow(final Sheet sheet, final CellStyle style, final String[] titles, final int start,
+      final int cols) {
+    final ColumnWidths widths = new ColumnWidths();
+    final Row headerRow = sheet.createRow(0);
+    int cellNum = 0;
+    for (final String title : titles) {
+      widths.createCell(headerRow, cellNum++, title).setCellStyle(style);
+    }
+    for (int i = 0; i < SheetLayout.dayCount(start, cols); i++) {
+      widths.createCell(headerRow, cellNum++, Integer.toString(start + i)).setCellStyle(style);
+    }
+    return widths;
+    // end addHeaderRow
+  }
+
+}
@@ -14,7 +14,11 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -39,9 +43,9 @@ public class WriteXLSX {
   private final static Logger LOGGER = LoggerFactory.getLogger(WriteXLSX.class);
 
   /**
-   * Calendar to use for date operations.
+   * The month shown, set by {@link #buildOutput()}.  See {@link SheetLayout#shownMonth(Connection)}.
    */
-  protected final Calendar calendar = Calendar.getInstance();
+  protected YearMonth month;
 
   /**
    * Connection to the Database.
@@ -58,6 +62,72 @@ public class WriteXLSX {
    */
   protected CellStyle headerStyle;
 
+  /**
+   * Schedule to add as a "Schedule" sheet, null if not scheduling.
+   */
+  protected Schedule schedule;
+
+  /**
+   * Cache of the sheets generated by earlier runs, null if not caching.
+   */
+  protected SheetCache sheetCache;
+
+  /**
+   * Digest of the worker set for the {@link #sheetCache}, computed once per output.
+   */
+  private byte[] workerDigest;
+
+  /**
+   * Conflicting survey answers to list on a "Conflicts" sheet.
+   */
+  protected List<SurveyMerge.Conflict> conflicts = Collections.emptyList();
+
+  /**
+   * Changes since an earlier survey to list on a "Changes" sheet, null if not comparing.
+   */
+  protected List<SurveyDiff.Change> changes;
+
+  /**
+   * Days and precincts with fewer available workers than this are flagged on the "Coverage" sheet.
+   */
+  protected int coverageMinimum = 1;
+
+  /**
+   * Coverage computed for the "Coverage" sheet, null until built.
+   */
+  protected CoverageReport coverage;
+
+  /**
+   * Widths of the columns of the sheet being built, started by
+   * {@link #addHeaderRow(Sheet, int, int, String...)}.
+   */
+  protected ColumnWidths columnWidths;
+
+  /**
+   * Shifts of each day, shown as a column per day and shift; null for a column per day.
+   */
+  protected Shifts shifts;
+
+  /**
+   * First day of the month shown.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected int firstDay = 1;
+
+  /**
+   * Last day of the month shown.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected int lastDay = 31;
+
+  /**
+   * First day shown, null for no limit.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected Date from;
+
+  /**
+   * Last day shown, null for no limit.  See {@link #setDateRange(Date, Date)}.
+   */
+  protected Date to;
+
   /**
    * Constructor for WriteXLSX.
    * 
@@ -72,6 +142,91 @@ public class WriteXLSX {
     // end <init>
   }
 
+  /**
+   * @param schedule the Schedule to add to the output, null for none.
+   */
+  public void setSchedule(final Schedule schedule) {
+    this.schedule = schedule;
+  }
+
+  /**
+   * @param sheetCache Cache of the sheets generated by earlier runs, null to always regenerate.
+   */
+  public void setSheetCache(final SheetCache sheetCache) {
+    this.sheetCache = sheetCache;
+  }
+
+  /**
+   * @param conflicts the conflicting survey answers to list on a "Conflicts" sheet, omitted if empty.
+   */
+  public void setConflicts(final List<SurveyMerge.Conflict> conflicts) {
+    this.conflicts = conflicts;
+  }
+
+  /**
+   * @param changes the changes since an earlier survey to list on a "Changes" sheet, null for none.
+   */
+  public void setChanges(final List<SurveyDiff.Change> changes) {
+    this.changes = changes;
+  }
+
+  /**
+   * @param shifts Shifts of each day, shown as a column per day and shift; null for a column per day.
+   */
+  public void setShifts(final Shifts shifts) {
+    this.shifts = shifts;
+  }
+
+  /**
+   * Only show the days from one day to another, within the month shown: the Workers sheet has a column for
+   * just those days, and the weekly sheets without any of them are left out.
+   * @param from First day shown, null for no limit.
+   * @param to Last day shown, null for no limit.
+   * @throws IllegalArgumentException thrown if the range ends before it starts, or spans months.
+   */
+  public void setDateRange(final Date from, final Date to) {
+    checkDateRange(from, to);
+    this.from = from;
+    this.to = to;
+    this.firstDay = from == null ? 1 : from.toLocalDate().getDayOfMonth();
+    this.lastDay = to == null ? 31 : to.toLocalDate().getDayOfMonth();
+  }
+
+  /**
+   * Check a range of days can be shown.  The sheets have a column per day of one month, so a range must be
+   * within a month.
+   * @param from First day shown, null for no limit.
+   * @param to Last day shown, null for no limit.
+   * @throws IllegalArgumentException thrown if the range ends before it starts, or spans months.
+   */
+  public static void checkDateRange(final Date from, final Date to) {
+    if (from == null || to == null) {
+      return;
+    } // else
+    final LocalDate first = from.toLocalDate();
+    final LocalDate last = to.toLocalDate();
+    if (last.isBefore(first)) {
+      throw new IllegalArgumentException("Date range ends before it starts: " + from + ".." + to);
+    } else if (first.getYear() != last.getYear() || first.getMonth() != last.getMonth()) {
+      throw new IllegalArgumentException("Date range must be within a month: " + from + ".." + to);
+    }
+    // end checkDateRange
+  }
+
+  /**
+   * @param coverageMinimum Days and precincts with fewer available workers than this are flagged.
+   */
+  public void setCoverageMinimum(final int coverageMinimum) {
+    this.coverageMinimum = coverageMinimum;
+  }
+
+  /**
+   * @return the coverage computed for the "Coverage" sheet, null if the output has not been built.
+   */
+  public CoverageReport getCoverage() {
+    return this.coverage;
+  }
+
   /**
    * Processes the survey result file.
    * 
@@ -103,9 +258,21 @@ public class WriteXLSX {
     this.headerStyle = cellStyle;
     final CellStyle centerStyle = workbook.createCellStyle();
     centerStyle.setAlignment(HorizontalAlignment.CENTER);
+    this.workerDigest = this.sheetCache == null ? null : this.sheetCache.workerDigest(this.c);
+    this.month = SheetLayout.shownMonth(this.c);
     buildMainSheet(workbook, centerStyle);
     buildDetailSheets(workbook, centerStyle);
     buildNotScheduled(workbook, centerStyle);
+    buildCoverageSheet(workbook, centerStyle);
+    if (this.schedule != null) {
+      buildScheduleSheet(workbook, centerStyle);
+    }
+    if (!this.conflicts.isEmpty()) {
+      buildConflictsSheet(workbook);
+    }
+    if (this.changes != null) {
+      buildChangesSheet(workbook, centerStyle);
+    }
     return workbook;
     // end buildOutput
   }
@@ -118,21 +285,189 @@ public class WriteXLSX {
    * @throws SQLException thrown if any faults occur accessing the Database.
    */
   protected void buildNotScheduled(final Workbook workbook, final CellStyle centerStyle) throws SQLException {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
     final Sheet sheet = workbook.createSheet("NotScheduled");
     LOGGER.info("Working sheet {}", sheet.getSheetName());
+    final byte[] digest = sheetDigest(sheet, null, null);
+    if (digest != null && this.sheetCache.restore(sheet, digest, centerStyle, this.headerStyle)) {
+      sheetBuilt(event, sheet, true);
+      return;
+    } // else
     try (final PreparedStatement listWorker = this.c.prepareStatement(
         "SELECT NOTES, LAST_NAME, FIRST_NAME, VR_ID, CITY, PHONE, EMAIL, EXPERIENCED, LANGUAGES, LOCATION, "
             + "PRECINCT, ROLE, id FROM WORKER W WHERE W.VR_ID IS NULL OR W.ID NOT IN (SELECT DISTINCT A.ID FROM AVAILABILITY A) "
             + "ORDER BY LAST_NAME, FIRST_NAME");
         final PreparedStatement searchAvailability =
-            this.c.prepareStatement("SELECT DAY FROM AVAILABILITY WHERE ID = ? ORDER BY DAY");) {
-      addHeaderRow(sheet, 0, 0, "Note", "Last Name", "First Name", "VR #", "City", "Phone", "Email",
-          "Experienced", "Languages", "Location", "Precinct", "Role");
+            this.c.prepareStatement("SELECT " + availabilityColumns() + " FROM AVAILABILITY WHERE ID = ? "
+                + "ORDER BY DAY");) {
+      addHeaderRow(sheet, 0, 0, SheetLayout.WORKER_HEADERS);
       addRows(centerStyle, listWorker, searchAvailability, sheet);
     }
+    this.columnWidths.apply(sheet);
+    if (digest != null) {
+      this.sheetCache.store(sheet, digest, centerStyle, this.headerStyle);
+    }
+    sheetBuilt(event, sheet, false);
     // end buildMainSheet
   }
 
+  /**
+   * Build the tab with the number of available, bilingual and experienced workers per day, with the
+   * per precinct and per role breakdown beneath each day. Days and precincts below the
+   * {@link #coverageMinimum} are flagged.
+   * 
+   * @param workbook    the workbook showing workers availability and information.
+   * @param centerStyle Style to use for centering in the various Fields.
+   * @throws SQLException thrown if any faults occur accessing the Database.
+   */
+  protected void buildCoverageSheet(final Workbook workbook, final CellStyle centerStyle) throws SQLException {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
+    final Sheet sheet = workbook.createSheet("Coverage");
+    LOGGER.info("Working sheet {}", sheet.getSheetName());
+    this.coverage = new CoverageReport(this.c, this.coverageMinimum).load();
+    addHeaderRow(sheet, 0, 0, "Day", "Precinct", "Role", "Available", "Bilingual", "Experienced",
+        "Below " + this.coverageMinimum);
+    int rowNum = 1;
+    for (final Map.Entry<Date, CoverageReport.Counts> day : this.coverage.getByDay().entrySet()) {
+      addCoverageRow(sheet.createRow(rowNum++), centerStyle, day.getKey(), "All", "All", day.getValue(), true);
+      final Map<Integer, Map<String, CoverageReport.Counts>> roles =
+          this.coverage.getByDayPrecinctRole().get(day.getKey());
+      for (final Map.Entry<Integer, CoverageReport.Counts> precinct
+          : this.coverage.getByDayPrecinct().get(day.getKey()).entrySet()) {
+        final String precinctName = precinct.getKey().intValue() == CoverageReport.NO_PRECINCT ? "None"
+            : precinct.getKey().toString();
+        addCoverageRow(sheet.createRow(rowNum++), centerStyle, day.getKey(), precinctName, "All",
+            precinct.getValue(), true);
+        final Map<String, CoverageReport.Counts> precinctRoles = roles.get(precinct.getKey());
+        if (precinctRoles != null) {
+          for (final Map.Entry<String, CoverageReport.Counts> role : precinctRoles.entrySet()) {
+            addCoverageRow(sheet.createRow(rowNum++), centerStyle, day.getKey(), precinctName,
+                role.getKey().isEmpty() ? "None" : role.getKey(), role.getValue(), false);
+          }
+        }
+      }
+    }
+    this.columnWidths.apply(sheet);
+    sheetBuilt(event, sheet, false);
+    // end buildCoverageSheet
+  }
+
+  /**
+   * Add a row of coverage counts.
+   * 
+   * @param row         The row to fill.
+   * @param centerStyle Style to use for centering in the various Fields.
+   * @param day         the day counted.
+   * @param precinct    the precinct counted.
+   * @param role        the role counted.
+   * @param counts      the counts.
+   * @param flag        if the row should be flagged when below the minimum.
+   */
+  private void addCoverageRow(final Row row, final CellStyle centerStyle, final Date day, final String precinct,
+      final String role, final CoverageReport.Counts counts, final boolean flag) {
+    this.columnWidths.createCell(row, 0, day.toString());
+    this.columnWidths.createCell(row, 1, precinct);
+    this.columnWidths.createCell(row, 2, role);
+    row.createCell(3).setCellValue(counts.getAvailable());
+    row.createCell(4).setCellValue(counts.getBilingual());
+    row.createCell(5).setCellValue(counts.getExperienced());
+    if (flag && this.coverage.isBelowMinimum(counts)) {
+      final Cell cell = row.createCell(6);
+      cell.setCellValue("X");
+      cell.setCellStyle(centerStyle);
+    }
+    // end addCoverageRow
+  }
+
+  /**
+   * Build the tab listing the conflicting survey answers found while merging.
+   * 
+   * @param workbook the workbook showing workers availability and information.
+   */
+  protected void buildConflictsSheet(final Workbook workbook) {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
+    final Sheet sheet = workbook.createSheet("Conflicts");
+    LOGGER.info("Working sheet {}", sheet.getSheetName());
+    addHeaderRow(sheet, 0, 0, "Last Name", "First Name", "VR #", "Day", "Conflict");
+    int rowNum = 1;
+    for (final SurveyMerge.Conflict conflict : this.conflicts) {
+      final AvailabilityRecord record = conflict.getRecord();
+      final Row row = sheet.createRow(rowNum++);
+      this.columnWidths.createCell(row, 0, record.getLastName());
+      this.columnWidths.createCell(row, 1, record.getFirstName());
+      this.columnWidths.createCell(row, 2, record.getVrId());
+      this.columnWidths.createCell(row, 3, record.getDay().toString());
+      this.columnWidths.createCell(row, 4, conflict.getDescription());
+    }
+    this.columnWidths.apply(sheet);
+    sheetBuilt(event, sheet, false);
+    // end buildConflictsSheet
+  }
+
+  /**
+   * Build the tab listing the {@link #changes} since an earlier survey.
+   * 
+   * @param workbook    the workbook showing workers availability and information.
+   * @param centerStyle Style to use for centering in the various Fields.
+   */
+  protected void buildChangesSheet(final Workbook workbook, final CellStyle centerStyle) {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
+    final Sheet sheet = workbook.createSheet("Changes");
+    LOGGER.info("Working sheet {}", sheet.getSheetName());
+    addHeaderRow(sheet, 0, 0, SurveyDiff.HEADERS);
+    int rowNum = 1;
+    for (final SurveyDiff.Change change : this.changes) {
+      final Row row = sheet.createRow(rowNum++);
+      this.columnWidths.createCell(row, 0, change.getType().name());
+      this.columnWidths.createCell(row, 1, change.getLastName());
+      this.columnWidths.createCell(row, 2, change.getFirstName());
+      this.columnWidths.createCell(row, 3, change.getVrId());
+      if (change.getDay() != null) {
+        this.columnWidths.createCell(row, 4, change.getDay().toString()).setCellStyle(centerStyle);
+      }
+    }
+    this.columnWidths.apply(sheet);
+    sheetBuilt(event, sheet, false);
+    // end buildChangesSheet
+  }
+
+  /**
+   * Build the tab listing the worker assigned to each slot of the {@link #schedule}.
+   * 
+   * @param workbook    the workbook showing workers availability and information.
+   * @param centerStyle Style to use for centering in the various Fields.
+   */
+  protected void buildScheduleSheet(final Workbook workbook, final CellStyle centerStyle) {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
+    final Sheet sheet = workbook.createSheet("Schedule");
+    LOGGER.info("Working sheet {}", sheet.getSheetName());
+    addHeaderRow(sheet, 0, 0, "Day", "Precinct", "Role", "Last Name", "First Name", "VR #", "Phone");
+    int rowNum = 1;
+    for (final Schedule.Assignment assignment : this.schedule.getAssignments()) {
+      final StaffingRequirement requirement = assignment.getRequirement();
+      final Row row = sheet.createRow(rowNum++);
+      this.columnWidths.createCell(row, 0, requirement.getDay().toString());
+      this.columnWidths.createCell(row, 1, Integer.toString(requirement.getPrecinct())).setCellStyle(centerStyle);
+      this.columnWidths.createCell(row, 2, requirement.getRole() == null ? "Any" : requirement.getRole());
+      if (assignment.isFilled()) {
+        this.columnWidths.createCell(row, 3, assignment.getLastName());
+        this.columnWidths.createCell(row, 4, assignment.getFirstName());
+        this.columnWidths.createCell(row, 5, assignment.getVrId());
+        this.columnWidths.createCell(row, 6, assignment.getPhone());
+      } else {
+        this.columnWidths.createCell(row, 3, "UNFILLED");
+      }
+    }
+    this.columnWidths.apply(sheet);
+    sheetBuilt(event, sheet, false);
+    // end buildScheduleSheet
+  }
+
   /**
    * Builds the Main Sheet with Worker Details and all available days.
    * 
@@ -141,19 +476,32 @@ public class WriteXLSX {
    * @throws SQLException thrown if any faults occur accessing the Database.
    */
   protected void buildMainSheet(final Workbook workbook, final CellStyle centerStyle) throws SQLException {
+    final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+    event.begin();
     final Sheet sheet = workbook.createSheet("Workers");
     LOGGER.info("Working sheet {}", sheet.getSheetName());
+    final byte[] digest = sheetDigest(sheet, null, null);
+    if (digest != null && this.sheetCache.restore(sheet, digest, centerStyle, this.headerStyle)) {
+      sheetBuilt(event, sheet, true);
+      return;
+    } // else
     try (final PreparedStatement listWorker = this.c.prepareStatement(
         "SELECT NOTES, LAST_NAME, FIRST_NAME, VR_ID, CITY, PHONE, EMAIL, EXPERIENCED, LANGUAGES, LOCATION, "
             + "PRECINCT, ROLE, id " + "FROM WORKER ORDER BY LAST_NAME, FIRST_NAME");
         final PreparedStatement searchAvailability =
-            this.c.prepareStatement("SELECT DAY FROM AVAILABILITY WHERE ID = ? ORDER BY DAY");) {
-      addHeaderRow(sheet, 13, 30 - 12, "Note", "Last Name", "First Name", "VR #", "City", "Phone", "Email",
-          "Experienced", "Languages", "Location", "Precinct", "Role");
+            this.c.prepareStatement("SELECT " + availabilityColumns() + " FROM AVAILABILITY WHERE ID = ? "
+                + "ORDER BY DAY");) {
+      final int firstShown = Math.max(SheetLayout.FIRST_DAY, this.firstDay);
+      addHeaderRow(sheet, firstShown, Math.min(SheetLayout.LAST_DAY, this.lastDay) - firstShown + 1,
+          SheetLayout.WORKER_HEADERS);
       addRows(centerStyle, listWorker, searchAvailability, sheet);
       // end buildMainSheet
     }
-
+    this.columnWidths.apply(sheet);
+    if (digest != null) {
+      this.sheetCache.store(sheet, digest, centerStyle, this.headerStyle);
+    }
+    sheetBuilt(event, sheet, false);
     // end buildMainSheet
   }
 
@@ -172,7 +520,6 @@ public class WriteXLSX {
       final ResultSetMetaData listMetaData = listWorker.getMetaData();
       // NOTE: id column is the last in the list.
       final int colCount = listMetaData.getColumnCount();
-      final int offSet = 13 - colCount + 1;
       int rowNum = 1;
       while (rsWorker.next()) {
         // Load Names
@@ -180,37 +527,38 @@ public class WriteXLSX {
         for (int k = 0, l = 1; l < colCount; k++, l++) {
           final Cell cell = workerRow.createCell(k);
           LOGGER.debug("Cell Type: {}", listMetaData.getColumnTypeName(l));
+          final String value;
           if (listMetaData.getColumnType(l) == Types.BOOLEAN) {
-            if (rsWorker.getBoolean(l)) {
-              cell.setCellValue("X");
+            value = rsWorker.getBoolean(l) ? "X" : null;
+            if (value != null) {
+              cell.setCellValue(value);
               cell.setCellStyle(centerStyle);
             }
           } else if (listMetaData.getColumnType(l) == Types.CHAR) {
-            if (rsWorker.getByte(l) > 0) {
-              cell.setCellValue("Yes");
+            value = rsWorker.getByte(l) > 0 ? "Yes" : null;
+            if (value != null) {
+              cell.setCellValue(value);
               cell.setCellStyle(centerStyle);
             }
           } else if (listMetaData.getColumnType(l) == Types.SMALLINT) {
-            if (rsWorker.getInt(l) > 0) {
-              cell.setCellValue(Integer.toString(rsWorker.getInt(l)));
+            value = rsWorker.getInt(l) > 0 ? Integer.toString(rsWorker.getInt(l)) : null;
+            if (value != null) {
+              cell.setCellValue(value);
             }
           } else {
-            cell.setCellValue(rsWorker.getString(l));
+            value = rsWorker.getString(l);
+            cell.setCellValue(value);
           }
+          this.columnWidths.track(k, value);
         }
         // Load Availability
         LOGGER.debug("Loading {}/{}", rsWorker.getString(4), Integer.valueOf(rsWorker.getInt(colCount)));
         searchAvailability.setInt(1, rsWorker.getInt(colCount));
         try (final ResultSet rsAvailable = searchAvailability.executeQuery();) {
           while (rsAvailable.next()) {
-            final Date day = rsAvailable.getDate(1);
-            LOGGER.debug("Available: {}", day);
-            this.calendar.setTimeInMillis(day.getTime());
-            int dayInMonth = this.calendar.get(Calendar.DAY_OF_MONTH);
-            final Cell cell = workerRow.createCell(dayInMonth - offSet);
-            // cell.setCellValue(dayInMonth);
-            cell.setCellValue("X");
-            cell.setCellStyle(centerStyle);
+            // Days start after the worker columns, with the 13th or the first day shown.
+            markAvailable(workerRow, centerStyle, colCount - 1, Math.max(SheetLayout.FIRST_DAY, this.firstDay),
+                Math.min(SheetLayout.LAST_DAY, this.lastDay), rsAvailable);
           }
         }
       } // end rsWorker
@@ -218,6 +566,50 @@ public class WriteXLSX {
     // end addRow
   }
 
+  /**
+   * @return the columns of AVAILABILITY read for a worker: the day, and the shifts if {@link #shifts} are set.
+   */
+  protected String availabilityColumns() {
+    return this.shifts == null ? "DAY" : "DAY, SHIFTS";
+  }
+
+  /**
+   * Mark a day a worker is available, in the day's column or, if {@link #shifts} are set, in the column of
+   * each shift of the day they are available for.  Days without a column, outside the month shown or outside
+   * the date range, are not marked.
+   * 
+   * @param workerRow   the worker's row.
+   * @param centerStyle Style to use for centering in the various Fields.
+   * @param firstColumn the first day column.
+   * @param columnDay   the day of the month in the first day column.
+   * @param lastColumnDay the day of the month in the last day column.
+   * @param rsAvailable the worker's availability, positioned on the day; see {@link #availabilityColumns()}.
+   * @throws SQLException thrown if the availability can not be read.
+   */
+  protected void markAvailable(final Row workerRow, final CellStyle centerStyle, final int firstColumn,
+      final int columnDay, final int lastColumnDay, final ResultSet rsAvailable) throws SQLException {
+    final Date day = rsAvailable.getDate(1);
+    LOGGER.debug("Available: {}", day);
+    final int dayInMonth = day.toLocalDate().getDayOfMonth();
+    if (!SheetLayout.isShown(this.month, day)
+        || dayInMonth < Math.max(columnDay, this.firstDay) || dayInMonth > Math.min(lastColumnDay, this.lastDay)
+        || this.from != null && day.toLocalDate().isBefore(this.from.toLocalDate())
+        || this.to != null && day.toLocalDate().isAfter(this.to.toLocalDate())) {
+      return;
+    } // else
+    final int shiftCount = this.shifts == null ? 1 : this.shifts.size();
+    // NULL, read as 0, is the whole day.
+    final int mask = this.shifts == null ? Shifts.WHOLE_DAY : rsAvailable.getInt(2);
+    for (int shift = 0; shift < shiftCount; shift++) {
+      if (Shifts.includes(mask, shift)) {
+        final Cell cell = workerRow.createCell(firstColumn + (dayInMonth - columnDay) * shiftCount + shift);
+        cell.setCellValue("X");
+        cell.setCellStyle(centerStyle);
+      }
+    }
+    // end markAvailable
+  }
+
   /**
    * Builds the output sheet from the Data in the Database.
    * 
@@ -234,18 +626,28 @@ public class WriteXLSX {
     centerStyle.setAlignment(HorizontalAlignment.CENTER);
     try (
         final PreparedStatement searchAvailability = this.c.prepareStatement(
-            "SELECT DAY FROM AVAILABILITY WHERE ID = ? AND DAY >= ? AND DAY < ? ORDER BY DAY");
+            "SELECT " + availabilityColumns() + " FROM AVAILABILITY WHERE ID = ? AND DAY >= ? AND DAY < ? "
+                + "ORDER BY DAY");
         final PreparedStatement listWorker = this.c.prepareStatement(
             "SELECT LAST_NAME, FIRST_NAME, VR_ID, PRECINCT, ROLE, id FROM WORKER ORDER BY LAST_NAME, FIRST_NAME");) {
-      for (int i = 12; i < 30; i += 7) {
-        final Sheet sheet = workbook.createSheet("Oct " + i + '-' + (i >= 23 ? 30 : i + 7));
+      for (final SheetLayout.Week week : SheetLayout.weeks(this.month)) {
+        if (week.getLast() < this.firstDay || week.getStart() > this.lastDay) {
+          // No day of the week shown.
+          continue;
+        } // else
+        final DemsEvents.SheetBuilt event = new DemsEvents.SheetBuilt();
+        event.begin();
+        final Sheet sheet = workbook.createSheet(week.getName());
         LOGGER.info("Working sheet {}", sheet.getSheetName());
-        addHeaderRow(sheet, i, 7, "Last Name", "First Name", "VR #", "Precinct", "Role");
-        this.calendar.set(Calendar.DAY_OF_MONTH, i);
-        final Date queryStartDate = new Date(this.calendar.getTimeInMillis());
+        final Date queryStartDate = week.getFrom();
+        final Date queryEndDate = week.getTo();
+        final byte[] digest = sheetDigest(sheet, queryStartDate, queryEndDate);
+        if (digest != null && this.sheetCache.restore(sheet, digest, centerStyle, this.headerStyle)) {
+          sheetBuilt(event, sheet, true);
+          continue;
+        } // else
+        addHeaderRow(sheet, week.getStart(), 7, SheetLayout.WEEK_HEADERS);
         searchAvailability.setDate(2, queryStartDate);
-        this.calendar.set(Calendar.DAY_OF_MONTH, (i >= 23 ? 31 : i + 7));
-        final Date queryEndDate = new Date(this.calendar.getTimeInMillis());
         searchAvailability.setDate(3, queryEndDate);
         try (final ResultSet rsWorker = listWorker.executeQuery()) {
           int rowNum = 1;
@@ -253,45 +655,87 @@ public class WriteXLSX {
             // Load Names
             final Row workerRow = sheet.createRow(rowNum++);
             for (int k = 0, l = 1; k < 5; k++, l++) {
-              final Cell cell = workerRow.createCell(k);
-              cell.setCellValue(rsWorker.getString(l));
+              this.columnWidths.createCell(workerRow, k, rsWorker.getString(l));
             }
             // Load Availability
             LOGGER.debug("Loading {}/{}", rsWorker.getString(3), Integer.valueOf(rsWorker.getInt(6)));
             searchAvailability.setInt(1, rsWorker.getInt(6));
             try (final ResultSet rsAvailable = searchAvailability.executeQuery();) {
               while (rsAvailable.next()) {
-                final Date day = rsAvailable.getDate(1);
-                LOGGER.debug("Available: {}", day);
-                this.calendar.setTimeInMillis(day.getTime());
-                int dayInMonth = this.calendar.get(Calendar.DAY_OF_MONTH);
-                final Cell cell = workerRow.createCell(dayInMonth - i + 5);
-                // cell.setCellValue(dayInMonth);
-                cell.setCellValue("X");
-                cell.setCellStyle(centerStyle);
+                markAvailable(workerRow, centerStyle, 5, week.getStart(), week.getLast(), rsAvailable);
               }
             }
           } // end rsWorker
         }
+        this.columnWidths.apply(sheet);
+        if (digest != null) {
+          this.sheetCache.store(sheet, digest, centerStyle, this.headerStyle);
+        }
+        sheetBuilt(event, sheet, false);
       }
     }
     // end buildDetailSheets
   }
 
+  /**
+   * Commit the Flight Recorder event for a built sheet.
+   * 
+   * @param event  the event, begun before the sheet was built.
+   * @param sheet  the built sheet.
+   * @param cached if the sheet was restored from the {@link #sheetCache}.
+   */
+  private static void sheetBuilt(final DemsEvents.SheetBuilt event, final Sheet sheet, final boolean cached) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.sheet = sheet.getSheetName();
+      event.rows = sheet.getPhysicalNumberOfRows();
+      event.cached = cached;
+      event.commit();
+    }
+  }
+
+  /**
+   * Digest the data a sheet depends on for the {@link #sheetCache}.
+   * 
+   * @param sheet the sheet being built.
+   * @param from  first day of availability shown on the sheet, null for no limit.
+   * @param to    day after the last day of availability shown on the sheet, null for no limit.
+   * @return the digest, null if not caching.
+   * @throws SQLException thrown if any faults occur accessing the Database.
+   */
+  protected byte[] sheetDigest(final Sheet sheet, final Date from, final Date to) throws SQLException {
+    if (this.sheetCache == null) {
+      return null;
+    } // else
+    // The days shown change the layout of the sheet, not just its data.
+    final String key = this.from == null && this.to == null ? sheet.getSheetName()
+        : sheet.getSheetName() + ' ' + this.from + ".." + this.to;
+    return this.sheetCache.digest(this.c, this.workerDigest, key, from, to, this.shifts);
+    // end sheetDigest
+  }
+
   /**
    * Add a header row to the Spreadsheet.
    * 
    * @param sheet  The Sheet to add the Header row to.
    * @param start  the Starting Date for the Sheet.
-   * @param cols   The number of date columns on the Spreadsheet.
+   * @param cols   The number of date columns on the Spreadsheet, each split into a column per shift if
+   *                 {@link #shifts} are set.
    * @param titles The titles for the Header Row
    */
   protected void addHeaderRow(final Sheet sheet, final int start, final int cols, final String... titles) {
     final Row headerRow = sheet.createRow(0);
     this.cellNum = 0;
+    this.columnWidths = new ColumnWidths();
     for (final String title : titles) { createHeaderCell(headerRow, title); }
-    for (int i = 0; i < cols && (start + i) <= 30; i++) {
-      createHeaderCell(headerRow, Integer.toString(start + i));
+    for (int i = 0; i < SheetLayout.dayCount(start, cols); i++) {
+      if (this.shifts == null) {
+        createHeaderCell(headerRow, Integer.toString(start + i));
+      } else {
+        for (int shift = 0; shift < this.shifts.size(); shift++) {
+          createHeaderCell(headerRow, Integer.toString(start + i) + ' ' + this.shifts.getName(shift));
+        }
+      }
     }
     // end addHeaderRow
   }
@@ -305,9 +749,8 @@ public class WriteXLSX {
    * @param cellValue The title for the column.
    */
   protected void createHeaderCell(final Row headerRow, final String cellValue) {
-    Cell cell = headerRow.createCell(this.cellNum++);
+    Cell cell = this.columnWidths.createCell(headerRow, this.cellNum++, cellValue);
     cell.setCellStyle(this.headerStyle);
-    cell.setCellValue(cellValue);
     // end createHeaderCell
   }
 }
@@ -0,0 +1,63 @@
+CREATE TABLE WORKER (
+    id int identity primary key,
+    VR_ID varchar(25) DEFAULT NULL,
+    LAST_NAME varchar(64) NOT NULL,
+    FIRST_NAME varchar(64) NOT NULL,
+    PRECINCT SMALLINT DEFAULT NULL,
+    ROLE varchar(256) DEFAULT NULL,
+    CITY varchar(256) DEFAULT NULL,
+    PHONE varchar(18) DEFAULT NULL,
+    EMAIL varchar(256) DEFAULT NULL,
+    EXPERIENCED char(1) DEFAULT NULL,
+    LANGUAGES varchar(128) DEFAULT NULL,
+    LOCATION varchar(256) DEFAULT NULL,
+    NOTES varchar(512) DEFAULT NULL,
+    constraint WKR_NAME UNIQUE(LAST_NAME, FIRST_NAME)
+);
+CREATE INDEX WRK_VR_ID ON WORKER (VR_ID);
+
+-- First day of the season, bit 0 of the availability masks.  A single row, set when the Database is created.
+CREATE TABLE SEASON (
+    START date NOT NULL
+);
+
+-- The mask for each of the 64 days of the season.
+CREATE TABLE SEASON_DAY (
+    BIT SMALLINT PRIMARY KEY,
+    MASK BIGINT NOT NULL
+);
+INSERT INTO SEASON_DAY
+    WITH RECURSIVE B(N) AS (VALUES(0) UNION ALL SELECT N + 1 FROM B WHERE N < 62)
+    SELECT N, CAST(POWER(2, N) AS BIGINT) FROM B;
+INSERT INTO SEASON_DAY VALUES (63, -9223372036854775808);
+
+-- One row per worker, one bit per available day of the season.
+CREATE TABLE AVAILABILITY_MASK (
+    id int NOT NULL PRIMARY KEY,
+    DAYS BIGINT DEFAULT 0,
+    constraint DAY_IN_SEASON CHECK (DAYS IS NOT NULL),
+    foreign key (id) references WORKER(id)
+);
+
+-- Compatibility view, one (id, DAY) row per available day.
+CREATE VIEW AVAILABILITY (id, DAY) AS
+    SELECT M.id, CAST(S.START + D.BIT DAY AS DATE)
+    FROM AVAILABILITY_MASK M CROSS JOIN SEASON S JOIN SEASON_DAY D ON BITAND(M.DAYS, D.MASK) <> 0;
+
+-- Inserting into the view ORs the day into the worker's mask.  A day outside the season fails DAY_IN_SEASON.
+CREATE TRIGGER AVAILABILITY_INSERT INSTEAD OF INSERT ON AVAILABILITY
+    REFERENCING NEW ROW AS N FOR EACH ROW
+    MERGE INTO AVAILABILITY_MASK M
+    USING (SELECT N.id, D.MASK FROM SEASON S LEFT JOIN SEASON_DAY D ON D.BIT = DATEDIFF('day', S.START, N.DAY))
+        AS A (id, MASK) ON M.id = A.id
+    WHEN MATCHED THEN UPDATE SET M.DAYS = BITOR(M.DAYS, A.MASK)
+    WHEN NOT MATCHED THEN INSERT VALUES (A.id, A.MASK);
+
+-- Progress of checkpointed loads (see LoadCheckpoint): the sheet and row of each spreadsheet to continue from.
+CREATE TABLE LOAD_PROGRESS (
+    SOURCE varchar(1024) PRIMARY KEY,
+    MODIFIED BIGINT NOT NULL,
+    NEXT_SHEET int NOT NULL,
+    NEXT_ROW int NOT NULL,
+    COMPLETE boolean DEFAULT FALSE NOT NULL
+);
@@ -16,9 +16,20 @@ CREATE TABLE WORKER (
 );
 CREATE INDEX WRK_VR_ID ON WORKER (VR_ID);
 
+-- SHIFTS has bit n set if available for shift n of the day (see Shifts), NULL for the whole day.
 CREATE TABLE AVAILABILITY (
     id int NOT NULL,
     DAY date NOT NULL,
+    SHIFTS SMALLINT DEFAULT NULL,
     foreign key (id) references WORKER(id),
     constraint PK_AVAILABILITY PRIMARY KEY(id, DAY)
 );
+
+-- Progress of checkpointed loads (see LoadCheckpoint): the sheet and row of each spreadsheet to continue from.
+CREATE TABLE LOAD_PROGRESS (
+    SOURCE varchar(1024) PRIMARY KEY,
+    MODIFIED BIGINT NOT NULL,
+    NEXT_SHEET int NOT NULL,
+    NEXT_ROW int NOT NULL,
+    COMPLETE boolean DEFAULT FALSE NOT NULL
+);
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class AvailabilityServerTest {
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.AvailabilityServer#invalidate()}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testLookups() throws IOException, SQLException {
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:httpTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      s.execute("INSERT INTO WORKER (ID, VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) "
+          + "VALUES (1, '123', 'Doe', 'Jane', 12, 'Clerk')");
+      s.execute("INSERT INTO AVAILABILITY (ID, DAY) VALUES (1, '2020-10-12')");
+      final int port = sa.startServer(0).getPort();
+      assertTrue(sa.server.server.getAddress().getAddress().isLoopbackAddress(), "Loopback by default");
+      assertTrue(get(port, "day/2020-10-12").contains("\"lastName\":\"Doe\""));
+      assertEquals("{\"id\":1,\"lastName\":\"Doe\",\"firstName\":\"Jane\",\"vrId\":\"123\",\"precinct\":12,"
+          + "\"role\":\"Clerk\",\"days\":[\"2020-10-12\"]}", get(port, "worker/1"));
+      assertTrue(get(port, "precinct/12").contains("[\"2020-10-12\"]"));
+      s.execute("INSERT INTO AVAILABILITY (ID, DAY) VALUES (1, '2020-10-13')");
+      assertTrue(get(port, "precinct/12").contains("[\"2020-10-12\"]"), "Should be served from cache");
+      sa.server.invalidate();
+      assertTrue(get(port, "precinct/12").contains("[\"2020-10-12\",\"2020-10-13\"]"));
+      final HttpURLConnection missing = (HttpURLConnection) new URL(
+          "http://localhost:" + port + AvailabilityServer.CONTEXT + "worker/99").openConnection();
+      assertEquals(404, missing.getResponseCode());
+    }
+    //end testLookups
+  }
+
+  /**
+   * Fetch a lookup from the server.
+   * @param port the port the server is listening on.
+   * @param lookup the lookup path.
+   * @return the response body.
+   * @throws IOException thrown if the request fails.
+   */
+  private static String get(final int port, final String lookup) throws IOException {
+    final URL url = new URL("http://localhost:" + port + AvailabilityServer.CONTEXT + lookup);
+    try (final InputStream in = url.openStream()) {
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+  }
+
+}
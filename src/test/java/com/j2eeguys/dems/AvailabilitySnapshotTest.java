@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class AvailabilitySnapshotTest {
+
+  /**
+   * Directory for the snapshot and its input.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.AvailabilitySnapshot#load(java.sql.Connection)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the Database can not be read or loaded.
+   */
+  @Test
+  void testWriteLoad() throws IOException, SQLException {
+    final File input = new File(this.tempDir, "survey.xlsx");
+    writeInput(input, 1);
+    final List<File> inputs = Arrays.asList(null, input);
+    final AvailabilityRecord record =
+        new AvailabilityRecord("Doe", "Jane", "123", "12", "Clerk", Date.valueOf("2020-10-13"), true, true, "a");
+    final File file = new File(this.tempDir, "snapshot");
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:snapshotWriteTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE, EXPERIENCED) "
+          + "VALUES ('123', 'Doe', 'Jane', 12, 'Clerk', '1')");
+      s.execute("INSERT INTO WORKER (LAST_NAME, FIRST_NAME) VALUES ('Roe', 'Rick')");
+      s.execute("INSERT INTO AVAILABILITY (ID, DAY) SELECT ID, DATE '2020-10-12' FROM WORKER");
+      s.execute("INSERT INTO AVAILABILITY (ID, DAY) SELECT ID, DATE '2020-10-14' FROM WORKER WHERE VR_ID = '123'");
+      new AvailabilitySnapshot(file, inputs, "").write(c, null,
+          Collections.singletonList(new SurveyMerge.Conflict(record, "Both checked")));
+    }
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:snapshotLoadTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      final AvailabilitySnapshot snapshot = new AvailabilitySnapshot(file, inputs, "");
+      assertTrue(snapshot.load(c));
+      assertNull(snapshot.getHeaderStyle());
+      assertEquals("Both checked", snapshot.getConflicts().get(0).getDescription());
+      assertEquals(Date.valueOf("2020-10-13"), snapshot.getConflicts().get(0).getRecord().getDay());
+      try (final ResultSet rs = s.executeQuery(
+          "SELECT W.VR_ID, W.PRECINCT, W.EXPERIENCED, COUNT(*) FROM WORKER W JOIN AVAILABILITY A ON W.ID = A.ID "
+              + "GROUP BY W.VR_ID, W.PRECINCT, W.EXPERIENCED ORDER BY 4 DESC")) {
+        assertTrue(rs.next());
+        assertEquals("123", rs.getString(1));
+        assertEquals(12, rs.getInt(2));
+        assertEquals("1", rs.getString(3));
+        assertEquals(2, rs.getInt(4));
+        assertTrue(rs.next());
+        assertNull(rs.getString(1));
+        assertEquals(1, rs.getInt(4));
+      }
+      s.execute("INSERT INTO WORKER (LAST_NAME, FIRST_NAME) VALUES ('Poe', 'Pat')");
+    }
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:snapshotTwiceTest;shutdown=true");
+        final Connection c = sa.setupDB(true);) {
+      assertTrue(new AvailabilitySnapshot(file, inputs, "").load(c));
+      // The workers are already there, so the inserts fail and are rolled back.
+      assertFalse(new AvailabilitySnapshot(file, inputs, "").load(c), "Duplicate workers");
+      assertEquals(2, count(c, "SELECT COUNT(*) FROM WORKER"));
+      assertEquals(3, count(c, "SELECT COUNT(*) FROM AVAILABILITY"));
+    }
+    final File truncated = new File(this.tempDir, "truncated");
+    Files.write(truncated.toPath(), Arrays.copyOf(Files.readAllBytes(file.toPath()), (int) file.length() - 4));
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:snapshotTruncatedTest;shutdown=true");
+        final Connection c = sa.setupDB(true);) {
+      assertFalse(new AvailabilitySnapshot(truncated, inputs, "").load(c), "Conflicts cut off");
+      assertEquals(0, count(c, "SELECT COUNT(*) FROM WORKER"));
+    }
+    writeInput(input, 2);
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:snapshotStaleTest;shutdown=true");
+        final Connection c = sa.setupDB(true);) {
+      assertFalse(new AvailabilitySnapshot(file, inputs, "").load(c), "Input changed");
+    }
+    //end testWriteLoad
+  }
+
+  /**
+   * @param c Connection to the Database.
+   * @param sql query for a single number.
+   * @return the number.
+   * @throws SQLException thrown if the query fails.
+   */
+  private static int count(final Connection c, final String sql) throws SQLException {
+    try (final Statement s = c.createStatement(); final ResultSet rs = s.executeQuery(sql)) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  /**
+   * Write a stand in for an input spreadsheet.
+   * @param input the file.
+   * @param content the content.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private static void writeInput(final File input, final int content) throws IOException {
+    try (final OutputStream out = new FileOutputStream(input)) {
+      out.write(content);
+    }
+  }
+
+}
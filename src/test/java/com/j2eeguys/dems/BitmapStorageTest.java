@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link SurveyAvailability#setBitmapStorage(Date)}.
+ * @author gorky@j2eeguys.com
+ *
+ */
+class BitmapStorageTest {
+
+  /**
+   * Test the AVAILABILITY view and insert trigger over the bitmasks.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the Database can not be read or loaded.
+   */
+  @Test
+  void testAvailabilityView() throws IOException, SQLException {
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:bitmapTest;shutdown=true")) {
+      sa.setBitmapStorage(Date.valueOf("2020-10-01"));
+      try (final Connection c = sa.setupDB(true);
+          final Statement s = c.createStatement();
+          final PreparedStatement insertAvailable =
+              c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (?,?)")) {
+        s.execute("INSERT INTO WORKER (LAST_NAME, FIRST_NAME, PRECINCT) VALUES ('Doe', 'Jane', 12)");
+        s.execute("INSERT INTO WORKER (LAST_NAME, FIRST_NAME, PRECINCT) VALUES ('Roe', 'Rick', 12)");
+        for (final String day : new String[] {"2020-10-12", "2020-10-13", "2020-10-12", "2020-12-03"}) {
+          insertAvailable.setInt(1, 0);
+          insertAvailable.setDate(2, Date.valueOf(day));
+          insertAvailable.addBatch();
+        }
+        insertAvailable.setInt(1, 1);
+        insertAvailable.setDate(2, Date.valueOf("2020-10-13"));
+        insertAvailable.addBatch();
+        insertAvailable.executeBatch();
+        insertAvailable.setDate(2, Date.valueOf("2020-12-04"));
+        assertThrows(SQLException.class, insertAvailable::executeUpdate, "Outside the season");
+        try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM AVAILABILITY_MASK")) {
+          rs.next();
+          assertEquals(2, rs.getInt(1), "One row per worker");
+        }
+        try (final ResultSet rs = s.executeQuery("SELECT ID, DAY FROM AVAILABILITY ORDER BY ID, DAY")) {
+          final StringBuilder sb = new StringBuilder();
+          while (rs.next()) {
+            sb.append(rs.getInt(1)).append(' ').append(rs.getDate(2)).append(',');
+          }
+          assertEquals("0 2020-10-12,0 2020-10-13,0 2020-12-03,1 2020-10-13,", sb.toString());
+        }
+        final CoverageReport coverage = new CoverageReport(c, 1).load();
+        assertEquals(2, coverage.getByDay().get(Date.valueOf("2020-10-13")).getAvailable());
+      }
+    }
+    //end testAvailabilityView
+  }
+
+}
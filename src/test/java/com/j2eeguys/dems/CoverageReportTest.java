@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class CoverageReportTest {
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.CoverageReport#load()}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testLoad() throws IOException, SQLException {
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:coverageTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      s.execute("INSERT INTO WORKER (ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE, EXPERIENCED, LANGUAGES) VALUES "
+          + "(1, 'Able', 'Ann', 12, 'Clerk', '1', 'Spanish'), (2, 'Baker', 'Bob', 12, 'Judge', '0', NULL), "
+          + "(3, 'Cole', 'Cat', 14, 'Clerk', '0', NULL)");
+      s.execute("INSERT INTO AVAILABILITY (ID, DAY) VALUES (1, '2020-10-12'), (2, '2020-10-12'), "
+          + "(1, '2020-10-13')");
+      final CoverageReport report = new CoverageReport(c, 2).load();
+      final Date day1 = Date.valueOf("2020-10-12");
+      final Date day2 = Date.valueOf("2020-10-13");
+      assertEquals(2, report.getByDay().get(day1).getAvailable());
+      assertEquals(1, report.getByDay().get(day1).getBilingual());
+      assertEquals(1, report.getByDay().get(day1).getExperienced());
+      assertEquals(1, report.getByDayPrecinctRole().get(day1).get(Integer.valueOf(12)).get("Judge").getAvailable());
+      assertEquals(0, report.getByDayPrecinct().get(day2).get(Integer.valueOf(14)).getAvailable(),
+          "Precincts without availability should be counted");
+      assertTrue(report.isBelowMinimum(report.getByDayPrecinct().get(day1).get(Integer.valueOf(14))));
+      assertEquals(Collections.singletonList(day2), report.getDaysBelowMinimum());
+    }
+    //end testLoad
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class DemsEventsTest {
+
+  /**
+   * Directory for the test survey and recording.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test that loading a survey records the {@link DemsEvents}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the survey can not be loaded.
+   * @throws ParseException thrown if the settings profile is invalid.
+   */
+  @Test
+  void testRecording() throws IOException, SQLException, ParseException {
+    final File survey = new File(this.tempDir, "survey.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(survey)) {
+      TrainingRun.addDay(workbook, "10-12", TrainingRun.SURVEY_HEADERS, new String[][] {
+          {"Doe", "Jane", "123", "12", "Clerk", "Checked", ""},
+          {"Doe", "Jane", "123", "12", "Clerk", "Checked", ""}});
+      workbook.write(out);
+    }
+    assertTrue(DemsEvents.isAvailable());
+    final File recording = new File(this.tempDir, "test.jfr");
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:eventsTest;shutdown=true");
+        final Connection c = sa.setupDB(true);) {
+      sa.startRecording(recording);
+      new ParseAvailablityXLSX(survey, c, true).process();
+    }
+    final Map<String, Integer> counts = new HashMap<>();
+    for (final RecordedEvent event : RecordingFile.readAllEvents(recording.toPath())) {
+      final String name = event.getEventType().getName();
+      if (name.startsWith("com.j2eeguys.dems.")) {
+        counts.merge(name.substring(18), Integer.valueOf(1), (a, b) -> Integer.valueOf(a.intValue() + b.intValue()));
+        if (name.endsWith("SheetParsed")) {
+          assertEquals(3, event.getInt("rows"));
+          assertEquals(2, event.getInt("workers"));
+        }
+      }
+    }
+    assertEquals(Integer.valueOf(1), counts.get("SheetParsed"));
+    assertEquals(Integer.valueOf(2), counts.get("WorkerResolved"));
+    assertEquals(Integer.valueOf(2), counts.get("AvailabilityInsert"), "Including the failed duplicate");
+    //end testRecording
+  }
+
+}
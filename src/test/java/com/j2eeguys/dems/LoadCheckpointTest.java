@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class LoadCheckpointTest {
+
+  /**
+   * Directory for the survey and the Database.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Counts the rows decoded, failing on the given one.
+   */
+  private static class CountingParser extends ParseAvailablityXLSX {
+
+    /**
+     * Row to fail on, 0 for none.
+     */
+    private final int failOn;
+
+    /**
+     * Rows decoded.
+     */
+    int decoded;
+
+    /**
+     * @param sourceFile the survey.
+     * @param c The Connection to the Database.
+     * @param failOn Row to fail on, 0 for none.
+     */
+    CountingParser(final File sourceFile, final Connection c, final int failOn) {
+      super(sourceFile, c, true);
+      this.failOn = failOn;
+      setCheckpointRows(20);
+    }
+
+    @Override
+    protected AvailabilityRecord decode(final Row row, final Date sheetDate, final String sheetName) {
+      if (++this.decoded == this.failOn) {
+        throw new IllegalStateException("Bad row " + this.decoded);
+      } // else
+      return super.decode(row, sheetDate, sheetName);
+    }
+
+  }
+
+  /**
+   * Test that a failed load continues from the checkpoint, and a completed load is not repeated.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testResume() throws IOException, SQLException {
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    final String url = "jdbc:hsqldb:file:" + new File(this.tempDir, "dems").getPath() + ";shutdown=true";
+    try (final SurveyAvailability sa = new SurveyAvailability(url);
+        final Connection c = sa.setupDB(true)) {
+      final CountingParser failing = new CountingParser(survey, c, 300);
+      assertThrows(IllegalStateException.class, failing::process);
+      assertTrue(c.getAutoCommit());
+      // 50 rows a sheet, committed every 20 rows and at the end of each sheet.
+      assertEquals(5 * 25 + 20, count(c, "SELECT COUNT(*) FROM AVAILABILITY"));
+      assertEquals(5, count(c, "SELECT NEXT_SHEET FROM LOAD_PROGRESS"));
+      assertEquals(41, count(c, "SELECT NEXT_ROW FROM LOAD_PROGRESS"));
+    }
+    try (final SurveyAvailability sa = new SurveyAvailability(url);
+        final Connection c = sa.setupDB(true)) {
+      final CountingParser resumed = new CountingParser(survey, c, 0);
+      resumed.process();
+      assertEquals(18 * 50 - 290, resumed.decoded);
+      assertEquals(50, count(c, "SELECT COUNT(*) FROM WORKER"));
+      assertEquals(18 * 50 / 2, count(c, "SELECT COUNT(*) FROM AVAILABILITY"));
+
+      final CountingParser again = new CountingParser(survey, c, 0);
+      again.process();
+      assertEquals(0, again.decoded);
+      assertEquals(18 * 50 / 2, count(c, "SELECT COUNT(*) FROM AVAILABILITY"));
+
+      assertTrue(survey.setLastModified(survey.lastModified() + 2000));
+      assertThrows(IllegalStateException.class, () -> new LoadCheckpoint(c, survey, 20));
+    }
+    //end testResume
+  }
+
+  /**
+   * Test that checkpointing a merge, which does not record its progress, is refused before loading anything.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testMergeRejected() throws IOException, SQLException {
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:checkpointMergeTest;shutdown=true");
+        final Connection c = sa.setupDB(true)) {
+      sa.conn = c;
+      sa.availabilityFile = survey;
+      sa.mergeFiles = Collections.singletonList(survey);
+      sa.setCheckpointRows(20);
+      final IllegalStateException e = assertThrows(IllegalStateException.class, () -> sa.parse(new ArrayList<>()));
+      assertTrue(e.getMessage().startsWith("dems.checkpoint can not be used with"), e.getMessage());
+      assertEquals(0, count(c, "SELECT COUNT(*) FROM WORKER"));
+    }
+    //end testMergeRejected
+  }
+
+  /**
+   * @param c Connection to the Database.
+   * @param sql query for a single number.
+   * @return the number.
+   * @throws SQLException thrown if the query fails.
+   */
+  private static int count(final Connection c, final String sql) throws SQLException {
+    try (final Statement s = c.createStatement(); final ResultSet rs = s.executeQuery(sql)) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+}
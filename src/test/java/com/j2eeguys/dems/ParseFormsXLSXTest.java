@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class ParseFormsXLSXTest {
+
+  /**
+   * Directory for the responses.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.ParseFormsXLSX#process()}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the results can not be read.
+   */
+  @Test
+  void testProcess() throws IOException, SQLException {
+    final File file = new File(this.tempDir, "Responses.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      final Sheet sheet = workbook.createSheet("Form Responses 1");
+      addRow(sheet, "Timestamp", "Last Name", "First Name", "VR #", "Precinct", "Role",
+          "Which days are you available?", "Available [10/20]");
+      addRow(sheet, "10/1/2020 9:00:00", "Doe", "Jane", "123", null, "Clerk",
+          "Tuesday, October 13, Wednesday, October 14", "");
+      addRow(sheet, "10/1/2020 9:30:00", "Roe", "Rick", "", null, "Judge", "10/15", "Yes");
+      // Jane answers again, replacing her first response.
+      addRow(sheet, "10/2/2020 8:00:00", "Doe", "Jane", "123", null, "Clerk", "Friday, October 16", "No");
+      sheet.getRow(3).createCell(4).setCellValue(12);
+      workbook.write(out);
+    }
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:parseFormsTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement()) {
+      final ParseFormsXLSX parser = new ParseFormsXLSX(file, c, true);
+      parser.process();
+      assertNotNull(parser.getHeaderStyle());
+      final List<String> found = new ArrayList<>();
+      try (final ResultSet rs = s.executeQuery("SELECT W.LAST_NAME, W.PRECINCT, A.DAY FROM WORKER W "
+          + "JOIN AVAILABILITY A ON W.ID = A.ID ORDER BY W.LAST_NAME, A.DAY")) {
+        while (rs.next()) {
+          found.add(rs.getString(1) + ' ' + rs.getString(2) + ' ' + rs.getDate(3));
+        }
+      }
+      assertEquals(Arrays.asList("Doe 12 " + day(10, 16), "Roe null " + day(10, 15), "Roe null " + day(10, 20)),
+          found);
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM WORKER")) {
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+      }
+      assertEquals(3, parser.read().size());
+      // Roe's 10/15 is before the range.
+      parser.setDateRange(day(10, 16), day(10, 20));
+      assertEquals(2, parser.read().size());
+    }
+    //end testProcess
+  }
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.ParseFormsXLSX#dates(String)}.
+   */
+  @Test
+  void testDates() {
+    assertEquals(Arrays.asList(day(10, 13), Date.valueOf("2020-10-14")),
+        ParseFormsXLSX.dates("10-13, 10/14/2020"));
+    assertEquals(Arrays.asList(day(10, 13), day(11, 3)), ParseFormsXLSX.dates("Tuesday, October 13, Tue. Nov. 3"));
+    assertEquals(0, ParseFormsXLSX.dates("555-0100").size());
+    assertEquals(Arrays.asList(day(10, 13), day(10, 30)), ParseFormsXLSX.dates("which days? (10/13-10/30)"));
+    //end testDates
+  }
+
+  /**
+   * A multi-select question with a range of dates in its header is not taken for a per-day question.
+   * @throws IOException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testRangeHeader() throws IOException {
+    final File file = new File(this.tempDir, "Range.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      final Sheet sheet = workbook.createSheet("Form Responses 1");
+      addRow(sheet, "Timestamp", "Last Name", "First Name", "Which days? (10/13-10/30)");
+      addRow(sheet, "10/1/2020 9:00:00", "Doe", "Jane", "10/14, 10/20");
+      workbook.write(out);
+    }
+    final List<String> found = new ArrayList<>();
+    for (final AvailabilityRecord record : new ParseFormsXLSX(file, null, false).read()) {
+      found.add(record.getLastName() + ' ' + record.getDay());
+    }
+    assertEquals(Arrays.asList("Doe " + day(10, 14), "Doe " + day(10, 20)), found);
+    //end testRangeHeader
+  }
+
+  /**
+   * @param month month of the year.
+   * @param day day of the month.
+   * @return the day in the current year.
+   */
+  private static Date day(final int month, final int day) {
+    return Date.valueOf(LocalDate.now().withMonth(month).withDayOfMonth(day));
+  }
+
+  /**
+   * Add a row of text cells.
+   * @param sheet the sheet.
+   * @param values the cell values, null for no cell.
+   */
+  private static void addRow(final Sheet sheet, final String... values) {
+    final Row row = sheet.createRow(sheet.getPhysicalNumberOfRows());
+    for (int col = 0; col < values.length; col++) {
+      if (values[col] != null) {
+        row.createCell(col).setCellValue(values[col]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class PipelinedParseAvailablityXLSXTest {
+
+  /**
+   * Directory for the test survey.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.PipelinedParseAvailablityXLSX#load(org.apache.poi.ss.usermodel.Workbook)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the loaded data can not be read.
+   */
+  @Test
+  void testLoad() throws IOException, SQLException {
+    final File survey = new File(this.tempDir, "survey.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(survey)) {
+      // Enough workers for several batches, plus one conflicted answer.
+      final String[][] workers = new String[25][];
+      for (int w = 1; w <= workers.length; w++) {
+        workers[w - 1] = new String[] {"Doe" + w, "Jane", String.valueOf(w), "12", "Clerk", "Checked",
+            w == 7 ? "Checked" : ""};
+      }
+      for (int day = 12; day < 14; day++) {
+        TrainingRun.addDay(workbook, "10-" + day, TrainingRun.SURVEY_HEADERS, workers);
+      }
+      workbook.write(out);
+    }
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:pipelineTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      final PipelinedParseAvailablityXLSX parser = new PipelinedParseAvailablityXLSX(survey, c, true, null, 4, 10);
+      parser.process();
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM WORKER")) {
+        rs.next();
+        assertEquals(25, rs.getInt(1));
+      }
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM AVAILABILITY")) {
+        rs.next();
+        assertEquals(48, rs.getInt(1), "Conflicted answers are skipped");
+      }
+      assertEquals(4, parser.getStats().size());
+      assertEquals(52, parser.getStats().get(0).getItems(), "Header and worker rows read");
+    }
+    //end testLoad
+  }
+
+}
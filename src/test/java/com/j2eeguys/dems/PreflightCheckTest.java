@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class PreflightCheckTest {
+
+  /**
+   * Directory for the spreadsheets.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Checks the sheets.
+   */
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  /**
+   * Stop the executor.
+   */
+  @AfterEach
+  void tearDown() {
+    this.executor.shutdown();
+  }
+
+  /**
+   * The generated spreadsheets pass the check.
+   * @throws IOException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testGood() throws IOException {
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    final File workers = TrainingRun.writeWorkers(new File(this.tempDir, "Workers.xlsx"));
+    assertEquals(new ArrayList<>(), new ParseAvailablityXLSX(survey, null, false).preflight(10, this.executor));
+    assertEquals(new ArrayList<>(), new ParseWorkerXLSX(workers, null).preflight(10, this.executor));
+    //end testGood
+  }
+
+  /**
+   * Every problem in the sampled rows is reported, and rows after the sample are not read.
+   * @throws IOException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testProblems() throws IOException {
+    final File survey = writeBadSurvey(new File(this.tempDir, "Bad.xlsx"));
+    final List<PreflightCheck.Problem> problems =
+        new ParseAvailablityXLSX(survey, null, false).preflight(4, this.executor);
+    final List<String> found = new ArrayList<>();
+    for (final PreflightCheck.Problem problem : problems) {
+      found.add(problem.getSheet() + ' ' + problem.getCell());
+    }
+    assertEquals("[10-13 B1, 10-14 C2, 10-14 4, 10-14 D5, Notes null]", found.toString());
+    assertEquals("Expected header 'First Name', found 'Frist Name'", problems.get(0).getMessage());
+    assertEquals("VR # is a number, expected text", problems.get(1).getMessage());
+    assertEquals("Bad.xlsx!10-14 C2: VR # is a number, expected text", problems.get(1).toString());
+    assertEquals("Missing row", problems.get(2).getMessage());
+    assertEquals("Precinct is TRUE/FALSE, expected a number", problems.get(3).getMessage());
+    assertEquals("Sheet name is not a day, MM-DD", problems.get(4).getMessage());
+    //end testProblems
+  }
+
+  /**
+   * A run with problems fails before loading anything.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the Database can not be checked.
+   */
+  @Test
+  void testRun() throws IOException, SQLException {
+    final File workers = TrainingRun.writeWorkers(new File(this.tempDir, "Workers.xlsx"));
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:preflightTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement()) {
+      sa.conn = c;
+      sa.workerFile = workers;
+      sa.availabilityFile = writeBadSurvey(new File(this.tempDir, "Bad.xlsx"));
+      sa.setPreflightRows(4);
+      final RuntimeException e = assertThrows(RuntimeException.class, sa::run);
+      assertTrue(e.getCause().getMessage().startsWith("Pre-flight check found 5 problems, nothing loaded:\n"
+          + "  Bad.xlsx!10-13 B1: Expected header 'First Name'"), e.getCause().getMessage());
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM WORKER")) {
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+      }
+    }
+    //end testRun
+  }
+
+  /**
+   * Write a survey with a misspelt header, a numeric VR #, a missing row, a TRUE/FALSE Precinct and a sheet
+   * not named for a day.  A numeric VR # after the sampled rows is not found.
+   * @param file the file to write.
+   * @return the file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private static File writeBadSurvey(final File file) throws IOException {
+    try (final XSSFWorkbook workbook = new XSSFWorkbook(); final OutputStream out = new FileOutputStream(file)) {
+      for (final String name : new String[] { "10-13", "10-14", "Notes" }) {
+        final Sheet sheet = workbook.createSheet(name);
+        final Row header = TrainingRun.addRow(sheet, 0, TrainingRun.SURVEY_HEADERS);
+        if ("10-13".equals(name)) {
+          header.getCell(1).setCellValue("Frist Name");
+        }
+        for (int j = 1; j <= 6; j++) {
+          if ("10-14".equals(name) && j == 3) {
+            continue;
+          } // else
+          final Row row = sheet.createRow(j);
+          row.createCell(0).setCellValue("Last" + j);
+          row.createCell(1).setCellValue("First" + j);
+          row.createCell(3).setCellValue(100 + j);
+          row.createCell(4).setCellValue("Judge");
+          row.createCell(5).setCellValue("Checked");
+          if ("10-14".equals(name) && (j == 1 || j == 5)) {
+            row.createCell(2).setCellValue(12345 + j);
+          } else {
+            row.createCell(2).setCellValue("VR" + j);
+          }
+          if ("10-14".equals(name) && j == 4) {
+            row.getCell(3).setCellValue(true);
+          }
+        }
+      }
+      workbook.write(out);
+    }
+    return file;
+    //end writeBadSurvey
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class ScheduleEngineTest {
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.ScheduleEngine#solve(java.util.List)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testSolve() throws IOException, SQLException {
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:scheduleTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      s.execute("INSERT INTO WORKER (ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE, LANGUAGES) VALUES "
+          + "(1, 'Able', 'Ann', 12, 'Clerk', NULL), (2, 'Baker', 'Bob', 14, 'Clerk', 'Spanish'), "
+          + "(3, 'Cole', 'Cat', 12, 'Judge', NULL)");
+      s.execute("INSERT INTO AVAILABILITY (ID, DAY) VALUES (1, '2020-10-12'), (2, '2020-10-12'), "
+          + "(3, '2020-10-12'), (1, '2020-10-13')");
+      final Date day1 = Date.valueOf("2020-10-12");
+      final List<StaffingRequirement> requirements = Arrays.asList(
+          new StaffingRequirement(12, day1, "Clerk", 1, null),
+          new StaffingRequirement(14, day1, "Clerk", 1, "Spanish"),
+          new StaffingRequirement(12, day1, "Judge", 1, null),
+          new StaffingRequirement(12, Date.valueOf("2020-10-13"), "Judge", 1, null));
+      final ScheduleEngine engine = new ScheduleEngine(c);
+      engine.setTimeLimit(1000);
+      final Schedule schedule = engine.solve(requirements);
+      assertEquals(4, schedule.getAssignments().size());
+      assertEquals(1, schedule.getUnfilled(), "Nobody is a Judge on the 13th");
+      for (final Schedule.Assignment assignment : schedule.getAssignments()) {
+        final StaffingRequirement requirement = assignment.getRequirement();
+        if (requirement.getLanguage() != null) {
+          assertEquals(2, assignment.getWorkerId());
+        } else if ("Judge".equals(requirement.getRole()) && assignment.isFilled()) {
+          assertEquals(3, assignment.getWorkerId());
+        } else if (assignment.isFilled()) {
+          assertEquals(1, assignment.getWorkerId());
+        }
+      }
+    }
+    //end testSolve
+  }
+
+}
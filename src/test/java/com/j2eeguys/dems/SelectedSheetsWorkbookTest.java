@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class SelectedSheetsWorkbookTest {
+
+  /**
+   * Directory for the survey.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SelectedSheetsWorkbook#open(File, java.util.function.Predicate)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testOpen() throws IOException {
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    try (final XSSFWorkbook workbook = SelectedSheetsWorkbook.open(survey, name -> name.compareTo("10-28") >= 0)) {
+      assertEquals(3, workbook.getNumberOfSheets());
+      assertEquals("10-28", workbook.getSheetAt(0).getSheetName());
+      assertEquals(51, workbook.getSheetAt(2).getLastRowNum());
+    }
+    //end testOpen
+  }
+
+  /**
+   * Test loading and showing a date range.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the survey can not be loaded.
+   */
+  @Test
+  void testDateRange() throws IOException, SQLException {
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    // Day sheets are read as this year.
+    final Date from = Date.valueOf(LocalDate.now().withMonth(10).withDayOfMonth(20));
+    final Date to = Date.valueOf(LocalDate.now().withMonth(10).withDayOfMonth(26));
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:selectedSheetsTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement()) {
+      final ParseAvailablityXLSX parser = new ParseAvailablityXLSX(survey, c, true);
+      parser.setDateRange(from, to);
+      parser.process();
+      try (final ResultSet rs = s.executeQuery("SELECT MIN(DAY), MAX(DAY), COUNT(DISTINCT DAY) FROM AVAILABILITY")) {
+        rs.next();
+        assertEquals(from.toLocalDate(), rs.getDate(1).toLocalDate());
+        assertEquals(to.toLocalDate(), rs.getDate(2).toLocalDate());
+        assertEquals(7, rs.getInt(3));
+      }
+      assertEquals(7 * 50, parser.read().size());
+
+      final WriteXLSX writeXLSX = new WriteXLSX(this.tempDir, c, parser.getHeaderStyle());
+      writeXLSX.setDateRange(from, to);
+      try (final Workbook output = writeXLSX.buildOutput()) {
+        final Sheet workers = output.getSheet("Workers");
+        assertEquals("20", workers.getRow(0).getCell(12).getStringCellValue());
+        assertEquals(12 + 7, workers.getRow(0).getLastCellNum());
+        assertNull(output.getSheet("Oct 12-19"));
+        assertNotNull(output.getSheet("Oct 19-26"));
+        final Sheet lastWeek = output.getSheet("Oct 26-30");
+        assertEquals("27", lastWeek.getRow(0).getCell(6).getStringCellValue());
+        int marked = 0;
+        for (int row = 1; row <= lastWeek.getLastRowNum(); row++) {
+          assertNull(lastWeek.getRow(row).getCell(6), "27th is out of range");
+          marked += lastWeek.getRow(row).getCell(5) == null ? 0 : 1;
+        }
+        assertEquals(25, marked);
+      }
+    }
+    //end testDateRange
+  }
+
+  /**
+   * A range spanning months can't be shown on the sheets of one month, so is refused before anything is loaded.
+   */
+  @Test
+  void testMonthRange() {
+    final Date from = Date.valueOf("2020-09-28");
+    final Date to = Date.valueOf("2020-10-25");
+    assertThrows(IllegalArgumentException.class, () -> new SurveyAvailability().setDateRange(from, to));
+    assertThrows(IllegalArgumentException.class,
+        () -> new WriteXLSX(this.tempDir, null, null).setDateRange(to, from), "Ends before it starts");
+    new SurveyAvailability().setDateRange(from, null);
+    new SurveyAvailability().setDateRange(Date.valueOf("2020-10-01"), to);
+    //end testMonthRange
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class SheetCacheTest {
+
+  /**
+   * Directory for the cache.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SheetCache#restore(Sheet, byte[], CellStyle, CellStyle)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testStoreRestore() throws IOException {
+    final SheetCache cache = new SheetCache(new File(this.tempDir, "cache"));
+    final byte[] digest = {1, 2, 3};
+    try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+      final CellStyle centerStyle = workbook.createCellStyle();
+      final CellStyle headerStyle = workbook.createCellStyle();
+      final Sheet sheet = workbook.createSheet("Oct 12-19");
+      sheet.createRow(0).createCell(0).setCellStyle(headerStyle);
+      sheet.getRow(0).getCell(0).setCellValue("Last Name");
+      final Row row = sheet.createRow(3);
+      row.createCell(0).setCellValue("Doe");
+      row.createCell(6).setCellValue("X");
+      row.getCell(6).setCellStyle(centerStyle);
+      row.createCell(8).setCellValue(12);
+      sheet.setColumnWidth(0, 20 * 256);
+      cache.store(sheet, digest, centerStyle, headerStyle);
+    }
+    try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+      final CellStyle headerStyle = workbook.createCellStyle();
+      final CellStyle centerStyle = workbook.createCellStyle();
+      final Sheet restored = workbook.createSheet("Oct 12-19");
+      assertFalse(cache.restore(restored, new byte[] {1, 2, 4}, centerStyle, headerStyle), "Digest changed");
+      assertTrue(cache.restore(restored, digest, centerStyle, headerStyle));
+      assertEquals(headerStyle.getIndex(), restored.getRow(0).getCell(0).getCellStyle().getIndex());
+      assertEquals("Doe", restored.getRow(3).getCell(0).getStringCellValue());
+      assertEquals(centerStyle.getIndex(), restored.getRow(3).getCell(6).getCellStyle().getIndex());
+      assertEquals(12, restored.getRow(3).getCell(8).getNumericCellValue());
+      assertEquals(20 * 256, restored.getColumnWidth(0));
+    }
+    //end testStoreRestore
+  }
+
+}
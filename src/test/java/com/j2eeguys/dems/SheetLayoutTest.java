@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class SheetLayoutTest {
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SheetLayout#weeks(YearMonth)}.
+   */
+  @Test
+  void testWeeks() {
+    final List<String> found = new ArrayList<>();
+    for (final SheetLayout.Week week : SheetLayout.weeks(YearMonth.of(2020, 10))) {
+      found.add(week.getName() + ' ' + week.getStart() + ".." + week.getLast() + ' ' + week.getFrom() + ".."
+          + week.getTo());
+    }
+    assertEquals(Arrays.asList("Oct 12-19 12..18 2020-10-12..2020-10-19", "Oct 19-26 19..25 2020-10-19..2020-10-26",
+        "Oct 26-30 26..30 2020-10-26..2020-10-31"), found);
+    // The last week of a short month ends with the month.
+    final List<SheetLayout.Week> february = SheetLayout.weeks(YearMonth.of(2021, 2));
+    assertEquals(Date.valueOf("2021-03-01"), february.get(2).getTo());
+    //end testWeeks
+  }
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SheetLayout#dayCount(int, int)}.
+   */
+  @Test
+  void testDayCount() {
+    assertEquals(18, SheetLayout.dayCount(SheetLayout.FIRST_DAY, 30));
+    assertEquals(5, SheetLayout.dayCount(26, 7));
+    assertEquals(0, SheetLayout.dayCount(31, 7));
+    //end testDayCount
+  }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class ShiftsTest {
+
+  /**
+   * Directory for the survey.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.Shifts#parse(String)}.
+   */
+  @Test
+  void testParse() {
+    final Shifts shifts = Shifts.parse(" AM , PM ");
+    assertEquals(2, shifts.size());
+    assertEquals(1, shifts.indexOf("pm"));
+    assertEquals("AM,PM", shifts.toString());
+    assertNull(Shifts.parse(""));
+    assertThrows(IllegalArgumentException.class, () -> Shifts.parse("AM,am"));
+    //end testParse
+  }
+
+  /**
+   * Test reading, storing and showing availability per shift.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the survey can not be loaded.
+   */
+  @Test
+  void testShifts() throws IOException, SQLException {
+    final File survey = new File(this.tempDir, "Availability.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(survey)) {
+      TrainingRun.addDay(workbook, "10-13", TrainingRun.SHIFT_SURVEY_HEADERS, new String[][] {
+          {"Doe", "Jane", "101", "12", "Clerk", "Checked", "", "Checked", ""},
+          {"Roe", "Rick", "102", "12", "Judge", "Checked", "", "", ""},
+          {"Poe", "Pat", "103", "14", "Clerk", "", "", "", "Checked"}});
+      TrainingRun.addDay(workbook, "10-14", TrainingRun.SHIFT_SURVEY_HEADERS, new String[][] {
+          {"Doe", "Jane", "101", "12", "Clerk", "", "", "", "Checked"}});
+      workbook.write(out);
+    }
+    final Shifts shifts = Shifts.parse("AM,PM");
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:shiftsTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement()) {
+      final ParseAvailablityXLSX parser = new ParseAvailablityXLSX(survey, c, true);
+      parser.setShifts(shifts);
+      parser.process();
+      final List<String> found = new ArrayList<>();
+      try (final ResultSet rs = s.executeQuery("SELECT W.LAST_NAME, A.DAY, A.SHIFTS FROM WORKER W "
+          + "JOIN AVAILABILITY A ON W.ID = A.ID ORDER BY W.LAST_NAME, A.DAY")) {
+        while (rs.next()) {
+          found.add(rs.getString(1) + ' ' + rs.getDate(2).toLocalDate().getDayOfMonth() + ' ' + rs.getString(3));
+        }
+      }
+      assertEquals(Arrays.asList("Doe 13 1", "Doe 14 2", "Poe 13 2", "Roe 13 null"), found);
+
+      final WriteXLSX writeXLSX = new WriteXLSX(this.tempDir, c, parser.getHeaderStyle());
+      writeXLSX.setShifts(shifts);
+      try (final Workbook output = writeXLSX.buildOutput()) {
+        final Sheet workers = output.getSheet("Workers");
+        assertEquals("13 AM", workers.getRow(0).getCell(12).getStringCellValue());
+        assertEquals("14 PM", workers.getRow(0).getCell(15).getStringCellValue());
+        assertEquals(12 + 18 * 2, workers.getRow(0).getLastCellNum());
+        assertEquals("X  X", marks(workers.getRow(1), 12, 16), "Doe");
+        assertEquals(" X  ", marks(workers.getRow(2), 12, 16), "Poe");
+        assertEquals("XX  ", marks(workers.getRow(3), 12, 16), "Roe, whole day");
+        final Sheet week = output.getSheet("Oct 12-19");
+        assertEquals("13 AM", week.getRow(0).getCell(7).getStringCellValue());
+        assertEquals("X  X", marks(week.getRow(1), 7, 11), "Doe");
+      }
+    }
+    //end testShifts
+  }
+
+  /**
+   * Days before the first day column of a sheet are left off it, rather than written over the worker columns.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the survey can not be loaded.
+   */
+  @Test
+  void testEarlyDays() throws IOException, SQLException {
+    final File survey = new File(this.tempDir, "Availability.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(survey)) {
+      for (final String day : new String[] { "10-05", "10-12", "10-13" }) {
+        TrainingRun.addDay(workbook, day, TrainingRun.SHIFT_SURVEY_HEADERS, new String[][] {
+            {"Doe", "Jane", "101", "12", "Clerk", "Checked", "", "Checked", "Checked"}});
+      }
+      workbook.write(out);
+    }
+    final Shifts shifts = Shifts.parse("AM,PM");
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:shiftsEarlyTest;shutdown=true");
+        final Connection c = sa.setupDB(true)) {
+      final ParseAvailablityXLSX parser = new ParseAvailablityXLSX(survey, c, true);
+      parser.setShifts(shifts);
+      parser.process();
+      final WriteXLSX writeXLSX = new WriteXLSX(this.tempDir, c, parser.getHeaderStyle());
+      writeXLSX.setShifts(shifts);
+      try (final Workbook output = writeXLSX.buildOutput()) {
+        final Row doe = output.getSheet("Workers").getRow(1);
+        assertEquals("12", doe.getCell(10).getStringCellValue(), "Precinct");
+        assertEquals("Clerk", doe.getCell(11).getStringCellValue(), "Role");
+        assertEquals("XX  ", marks(doe, 12, 16));
+        assertEquals("XXXX  ", marks(output.getSheet("Oct 12-19").getRow(1), 5, 11));
+      }
+    }
+    //end testEarlyDays
+  }
+
+  /**
+   * @param row a worker row.
+   * @param from first column.
+   * @param to column after the last.
+   * @return the marks in the columns, a space if none.
+   */
+  private static String marks(final Row row, final int from, final int to) {
+    final StringBuilder sb = new StringBuilder();
+    for (int col = from; col < to; col++) {
+      final Cell cell = row.getCell(col);
+      sb.append(cell == null ? " " : cell.getStringCellValue());
+    }
+    return sb.toString();
+  }
+
+}
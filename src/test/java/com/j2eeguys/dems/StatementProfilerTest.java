@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class StatementProfilerTest {
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.StatementProfiler#wrap(java.sql.Connection)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test statements fail.
+   */
+  @Test
+  void testWrap() throws IOException, SQLException {
+    final StatementProfiler profiler = new StatementProfiler();
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:statementProfilerTest;shutdown=true");
+        final Connection c = profiler.wrap(sa.setupDB(true))) {
+      try (final PreparedStatement insertWorker =
+          c.prepareStatement("INSERT INTO WORKER (LAST_NAME, FIRST_NAME)\n    VALUES (?, ?)")) {
+        for (final String name : new String[] {"Doe", "Roe", "Poe"}) {
+          insertWorker.setString(1, name);
+          insertWorker.setString(2, "Pat");
+          insertWorker.executeUpdate();
+        }
+      }
+      try (final Statement s = c.createStatement()) {
+        s.addBatch("UPDATE WORKER SET CITY = 'Austin'");
+        s.addBatch("UPDATE WORKER SET PHONE = '555-0100' WHERE LAST_NAME = 'Doe'");
+        s.executeBatch();
+        try (final ResultSet rs = s.executeQuery("SELECT LAST_NAME FROM WORKER")) {
+          int rows = 0;
+          while (rs.next()) {
+            rows++;
+          }
+          assertEquals(3, rows);
+        }
+      }
+    }
+    final Map<String, StatementProfiler.Stats> stats = new HashMap<>();
+    for (final StatementProfiler.Stats stat : profiler.getStats()) {
+      stats.put(stat.getSql(), stat);
+    }
+    assertEquals(3, stats.size());
+    final StatementProfiler.Stats insert = stats.get("INSERT INTO WORKER (LAST_NAME, FIRST_NAME) VALUES (?, ?)");
+    assertEquals(3, insert.getCount());
+    assertEquals(3, insert.getRows());
+    long bucketed = 0;
+    for (int i = 0; i < StatementProfiler.BUCKETS; i++) {
+      bucketed += insert.getBucket(i);
+    }
+    assertEquals(3, bucketed);
+    assertTrue(insert.getPercentileMicros(50) > 0);
+    final StatementProfiler.Stats batch = stats.get(StatementProfiler.BATCH);
+    assertEquals(1, batch.getCount());
+    assertEquals(4, batch.getRows());
+    assertEquals(3, stats.get("SELECT LAST_NAME FROM WORKER").getRows());
+    //end testWrap
+  }
+
+  /**
+   * A batch of a prepared statement is profiled under its SQL text.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test statements fail.
+   */
+  @Test
+  void testPreparedBatch() throws IOException, SQLException {
+    final StatementProfiler profiler = new StatementProfiler();
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:preparedBatchTest;shutdown=true");
+        final Connection c = profiler.wrap(sa.setupDB(true));
+        final PreparedStatement insertWorker =
+            c.prepareStatement("INSERT INTO WORKER (LAST_NAME, FIRST_NAME) VALUES (?, ?)")) {
+      for (final String name : new String[] {"Doe", "Roe"}) {
+        insertWorker.setString(1, name);
+        insertWorker.setString(2, "Pat");
+        insertWorker.addBatch();
+      }
+      insertWorker.executeBatch();
+    }
+    assertEquals(1, profiler.getStats().size());
+    final StatementProfiler.Stats insert = profiler.getStats().get(0);
+    assertEquals("INSERT INTO WORKER (LAST_NAME, FIRST_NAME) VALUES (?, ?)", insert.getSql());
+    assertEquals(1, insert.getCount());
+    assertEquals(2, insert.getRows());
+    //end testPreparedBatch
+  }
+
+}
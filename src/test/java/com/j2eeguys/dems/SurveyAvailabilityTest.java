@@ -5,15 +5,20 @@
  */
 package com.j2eeguys.dems;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * @author gorky@j2eeguys.com
@@ -21,6 +26,12 @@ import org.junit.jupiter.api.Test;
  */
 class SurveyAvailabilityTest {
 
+  /**
+   * Directory for the spreadsheets.
+   */
+  @TempDir
+  File tempDir;
+
   /**
    * Test method for {@link com.j2eeguys.dems.SurveyAvailability#setupDB(boolean)}.
    * @throws IOException 
@@ -38,4 +49,21 @@ class SurveyAvailabilityTest {
     //end testSetupDB
   }
 
+  /**
+   * Test method for {@link com.j2eeguys.dems.SurveyAvailability#main(String[])} with the spreadsheets given
+   * on the command line, as the fast-start distribution and the training run use it.
+   * @throws Exception thrown if an exception occurs during testing.
+   */
+  @Test
+  void testMain() throws Exception {
+    final File availabilityFile = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    final File workerFile = TrainingRun.writeWorkers(new File(this.tempDir, "Workers.xlsx"));
+    SurveyAvailability.main(new String[] {availabilityFile.getPath(), workerFile.getPath()});
+    try (final Workbook workbook =
+        WorkbookFactory.create(new File(this.tempDir, "WorkerAvailability.xlsx"), null, true)) {
+      assertEquals(50, workbook.getSheet("Workers").getLastRowNum());
+    }
+    //end testMain
+  }
+
 }
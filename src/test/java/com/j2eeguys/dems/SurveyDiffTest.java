@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class SurveyDiffTest {
+
+  /**
+   * Directory for the change list.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SurveyDiff#diff()}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testDiff() throws IOException, SQLException {
+    final List<SurveyDiff.Change> changes;
+    try (final SurveyAvailability before = new SurveyAvailability("jdbc:hsqldb:mem:surveyDiffBeforeTest;shutdown=true");
+        final SurveyAvailability after = new SurveyAvailability("jdbc:hsqldb:mem:surveyDiffAfterTest;shutdown=true");
+        final Connection baseline = before.setupDB(true);
+        final Connection current = after.setupDB(true)) {
+      insert(baseline, "Doe", "Jane", "2020-10-13", "2020-10-14");
+      insert(baseline, "Gone", "Gary", "2020-10-13");
+      insert(baseline, "Same", "Sam", "2020-10-20");
+      insert(baseline, "Idle", "Ida");
+      insert(current, "Doe", "Jane", "2020-10-14", "2020-10-15");
+      insert(current, "New", "Nia", "2020-10-16");
+      insert(current, "Same", "Sam", "2020-10-20");
+      insert(current, "Idle", "Ida", "2020-10-21");
+      changes = new SurveyDiff(baseline, current).diff();
+    }
+    final List<String> found = new ArrayList<>();
+    for (final SurveyDiff.Change change : changes) {
+      found.add(change.toString());
+    }
+    assertEquals(Arrays.asList("DAY_DROPPED Doe, Jane 2020-10-13", "DAY_ADDED Doe, Jane 2020-10-15",
+        "WORKER_REMOVED Gone, Gary", "DAY_DROPPED Gone, Gary 2020-10-13", "DAY_ADDED Idle, Ida 2020-10-21",
+        "WORKER_ADDED New, Nia", "DAY_ADDED New, Nia 2020-10-16"), found);
+    final File csv = new File(this.tempDir, "WorkerChanges.csv");
+    SurveyDiff.write(changes, csv);
+    final List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+    assertEquals(8, lines.size());
+    assertEquals("Change,Last Name,First Name,VR #,Day", lines.get(0));
+    assertEquals("DAY_DROPPED,Doe,Jane,VR-Doe,2020-10-13", lines.get(1));
+    assertEquals("WORKER_ADDED,New,Nia,VR-New,", lines.get(6));
+    //end testDiff
+  }
+
+  /**
+   * Insert a worker and their availability.
+   * @param c the Database.
+   * @param lastName last name of the worker.
+   * @param firstName first name of the worker.
+   * @param days the days the worker is available.
+   * @throws SQLException thrown if the data can not be inserted.
+   */
+  private static void insert(final Connection c, final String lastName, final String firstName, final String... days)
+      throws SQLException {
+    try (final Statement s = c.createStatement();
+        final PreparedStatement insertAvailable =
+            c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (IDENTITY(),?)")) {
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME) VALUES ('VR-" + lastName + "', '" + lastName
+          + "', '" + firstName + "')");
+      for (final String day : days) {
+        insertAvailable.setDate(1, Date.valueOf(day));
+        insertAvailable.executeUpdate();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class SurveyJobRunnerTest {
+
+  /**
+   * Directory for the test surveys.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SurveyJobRunner#runAll(java.util.List)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the runner can not warm up.
+   * @throws InterruptedException thrown if interrupted while running the jobs.
+   */
+  @Test
+  void testRunAll() throws IOException, SQLException, InterruptedException {
+    final SurveyJobRunner.Job north = new SurveyJobRunner.Job("North County", writeSurvey("north", 3), writeWorkers("north", 3));
+    final SurveyJobRunner.Job south = new SurveyJobRunner.Job("South County", writeSurvey("south", 5), writeWorkers("south", 5));
+    try (final SurveyJobRunner runner = new SurveyJobRunner(2, 256)) {
+      runner.warmUp();
+      final List<SurveyJobRunner.JobResult> results = runner.runAll(Arrays.asList(north, south));
+      assertTrue(results.get(0).isSuccessful(), () -> String.valueOf(results.get(0).getFailure()));
+      assertTrue(results.get(1).isSuccessful(), () -> String.valueOf(results.get(1).getFailure()));
+      assertNotEquals(results.get(0).getUrl(), results.get(1).getUrl());
+      final SurveyJobRunner.JobResult rerun = runner.runAll(Arrays.asList(new SurveyJobRunner.Job(
+          "North County Rerun", north.getAvailabilityFile(), north.getWorkerFile()))).get(0);
+      assertTrue(rerun.isSuccessful(), "North County is done with its output directory");
+      runner.setJobMemoryLimit(1);
+      assertFalse(runner.runAll(Arrays.asList(north)).get(0).isSuccessful(), "Over the job memory limit");
+      runner.setJobMemoryLimit(Long.MAX_VALUE);
+      final SurveyJobRunner.Job west = new SurveyJobRunner.Job("West County",
+          new File(new File(this.tempDir, "north"), "Availability.xlsx"), null);
+      // As if North County were still running.
+      runner.outputDirectories.put(new File(this.tempDir, "north").toPath().normalize(), north.getName());
+      final Throwable collision = runner.runAll(Arrays.asList(west)).get(0).getFailure();
+      assertTrue(collision instanceof IllegalStateException
+          && collision.getMessage().endsWith("as job North County does"), String.valueOf(collision));
+    }
+    assertEquals(3, workerRows("north"), "Only the North County workers");
+    assertEquals(5, workerRows("south"), "Only the South County workers");
+    //end testRunAll
+  }
+
+  /**
+   * Write a survey with one day sheet.
+   * @param county the directory for the survey.
+   * @param workers the number of workers available.
+   * @return the survey file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private File writeSurvey(final String county, final int workers) throws IOException {
+    final File dir = new File(this.tempDir, county);
+    dir.mkdirs();
+    final File file = new File(dir, "Availability.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      final String[][] rows = new String[workers][];
+      for (int w = 1; w <= workers; w++) {
+        rows[w - 1] = new String[] {county + w, "Pat", String.valueOf(w), "12", "Clerk", "Checked", ""};
+      }
+      TrainingRun.addDay(workbook, "10-13", TrainingRun.SURVEY_HEADERS, rows);
+      workbook.write(out);
+    }
+    return file;
+  }
+
+  /**
+   * Write a worker spreadsheet.
+   * @param county the directory for the survey.
+   * @param workers the number of workers.
+   * @return the worker file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private File writeWorkers(final String county, final int workers) throws IOException {
+    final File file = new File(new File(this.tempDir, county), "Workers.xlsx");
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      workbook.createSheet("Summary");
+      final String[] header = {"Notes", "First Name", "Last Name", "City", "Phone #", "Email", "Poll Worker Exp.",
+          "Proficient in another language?", "Location"};
+      for (int s = 1; s <= 2; s++) {
+        final Sheet sheet = workbook.createSheet("Workers" + s);
+        Row row = sheet.createRow(0);
+        for (int col = 0; col < header.length; col++) {
+          row.createCell(col).setCellValue(header[col]);
+        }
+        for (int w = 1; s == 1 && w <= workers; w++) {
+          row = sheet.createRow(w);
+          final String[] values = {"", "Pat", county + w, "Austin", "555-0100", "", "No", "No", "School"};
+          for (int col = 0; col < values.length; col++) {
+            row.createCell(col).setCellValue(values[col]);
+          }
+        }
+        sheet.createRow(sheet.getLastRowNum() + 1).createCell(1).setCellValue("");
+      }
+      workbook.write(out);
+    }
+    return file;
+  }
+
+  /**
+   * @param county the directory for the survey.
+   * @return the number of workers on the Workers sheet of the output.
+   * @throws IOException thrown if the output can not be read.
+   */
+  private int workerRows(final String county) throws IOException {
+    try (final XSSFWorkbook workbook =
+        new XSSFWorkbook(new File(new File(this.tempDir, county), "WorkerAvailability.xlsx").getPath())) {
+      return workbook.getSheet("Workers").getLastRowNum();
+    }
+  }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class SurveyMergeTest {
+
+  /**
+   * Directory for the test surveys.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SurveyMerge#merge(java.util.List)}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the merged data can not be read.
+   */
+  @Test
+  void testMerge() throws IOException, SQLException {
+    final File early = writeSurvey("early.xlsx", "Checked", "", "Checked", "");
+    final File followUp = writeSurvey("followUp.xlsx", "", "Checked", "Checked", "Checked");
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:mergeTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      final List<SurveyMerge.Conflict> conflicts =
+          new SurveyMerge(c, SurveyMerge.Policy.FLAG, true, executor).merge(Arrays.asList(early, followUp));
+      assertEquals(2, conflicts.size(), "Disagreement and both checked");
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM AVAILABILITY")) {
+        rs.next();
+        assertEquals(1, rs.getInt(1), "Only the 13th was agreed on");
+      }
+    } finally {
+      executor.shutdown();
+    }
+    //end testMerge
+  }
+
+  /**
+   * A union of surveys takes in the shifts of every 'Yes', a whole day taking in every shift.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the merged data can not be read.
+   */
+  @Test
+  void testMergeShifts() throws IOException, SQLException {
+    final File early = writeShiftSurvey("early.xlsx", new String[][] {
+        {"Doe", "Jane", "123", "12", "Clerk", "", "", "Checked", ""},
+        {"Roe", "Rick", "124", "12", "Judge", "", "", "Checked", ""}});
+    final File followUp = writeShiftSurvey("followUp.xlsx", new String[][] {
+        {"Doe", "Jane", "123", "12", "Clerk", "", "", "", "Checked"},
+        {"Roe", "Rick", "124", "12", "Judge", "Checked", "", "", ""}});
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:mergeShiftsTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      final SurveyMerge merge = new SurveyMerge(c, SurveyMerge.Policy.UNION, true, executor);
+      merge.setShifts(Shifts.parse("AM,PM"));
+      assertTrue(merge.merge(Arrays.asList(early, followUp)).isEmpty());
+      final List<String> found = new ArrayList<>();
+      try (final ResultSet rs = s.executeQuery("SELECT W.LAST_NAME, A.SHIFTS FROM WORKER W "
+          + "JOIN AVAILABILITY A ON W.ID = A.ID ORDER BY W.LAST_NAME")) {
+        while (rs.next()) {
+          found.add(rs.getString(1) + ' ' + rs.getString(2));
+        }
+      }
+      assertEquals(Arrays.asList("Doe 3", "Roe null"), found);
+    } finally {
+      executor.shutdown();
+    }
+    //end testMergeShifts
+  }
+
+  /**
+   * The worker details come from the latest survey, even when it only covers earlier days.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the merged data can not be read.
+   */
+  @Test
+  void testMergeWorkerDetails() throws IOException, SQLException {
+    final File early = writeDaySurvey("early.xlsx", "10-13", TrainingRun.SURVEY_HEADERS, new String[][] {
+        {"Doe", "Jane", "123", "12", "Clerk", "Checked", ""}});
+    final File followUp = writeDaySurvey("followUp.xlsx", "10-12", TrainingRun.SURVEY_HEADERS, new String[][] {
+        {"Doe", "Jane", "123", "14", "Judge", "Checked", ""}});
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:mergeDetailsTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();) {
+      assertTrue(new SurveyMerge(c, SurveyMerge.Policy.UNION, true, executor)
+          .merge(Arrays.asList(early, followUp)).isEmpty());
+      try (final ResultSet rs = s.executeQuery("SELECT PRECINCT, ROLE, "
+          + "(SELECT COUNT(*) FROM AVAILABILITY) FROM WORKER")) {
+        rs.next();
+        assertEquals("14", rs.getString(1), "Precinct of the follow-up");
+        assertEquals("Judge", rs.getString(2), "Role of the follow-up");
+        assertEquals(2, rs.getInt(3), "Both days available");
+        assertFalse(rs.next(), "One worker");
+      }
+    } finally {
+      executor.shutdown();
+    }
+    //end testMergeWorkerDetails
+  }
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.SurveyMerge#resolve(java.util.List, java.util.List)}.
+   */
+  @Test
+  void testResolve() {
+    final AvailabilityRecord yes = new AvailabilityRecord("Doe", "Jane", "123", "12", "Clerk", null, true, false, "a");
+    final AvailabilityRecord no = new AvailabilityRecord("Doe", "Jane", "123", "12", "Clerk", null, false, true, "b");
+    final List<AvailabilityRecord> answers = Arrays.asList(yes, no);
+    final List<SurveyMerge.Conflict> conflicts = new ArrayList<>();
+    assertNull(new SurveyMerge(null, SurveyMerge.Policy.LATEST, true, null).resolve(answers, conflicts));
+    assertSame(yes, new SurveyMerge(null, SurveyMerge.Policy.UNION, true, null).resolve(answers, conflicts));
+    assertTrue(conflicts.isEmpty());
+    assertNull(new SurveyMerge(null, SurveyMerge.Policy.FLAG, true, null).resolve(answers, conflicts));
+    assertEquals(1, conflicts.size());
+    //end testResolve
+  }
+
+  /**
+   * Write a survey for one worker with sheets for Oct 12 & 13.
+   * @param name the file name.
+   * @param answers the Yes and No values for the 12th, then the 13th.
+   * @return the survey file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private File writeSurvey(final String name, final String... answers) throws IOException {
+    final File file = new File(this.tempDir, name);
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      for (int day = 0; day < 2; day++) {
+        TrainingRun.addDay(workbook, "10-1" + (day + 2), TrainingRun.SURVEY_HEADERS, new String[][] {
+            {"Doe", "Jane", "123", "12", "Clerk", answers[day * 2], answers[day * 2 + 1]}});
+      }
+      workbook.write(out);
+    }
+    return file;
+  }
+
+  /**
+   * Write a survey with a sheet for Oct 13, with AM & PM columns.
+   * @param name the file name.
+   * @param workers the worker rows.
+   * @return the survey file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private File writeShiftSurvey(final String name, final String[][] workers) throws IOException {
+    return writeDaySurvey(name, "10-13", TrainingRun.SHIFT_SURVEY_HEADERS, workers);
+  }
+
+  /**
+   * Write a survey with a sheet for one day.
+   * @param name the file name.
+   * @param day the sheet name, such as "10-13".
+   * @param header the header row.
+   * @param workers the worker rows.
+   * @return the survey file.
+   * @throws IOException thrown if the file can not be written.
+   */
+  private File writeDaySurvey(final String name, final String day, final String[] header,
+      final String[][] workers) throws IOException {
+    final File file = new File(this.tempDir, name);
+    try (final XSSFWorkbook workbook = new XSSFWorkbook();
+        final OutputStream out = new FileOutputStream(file)) {
+      TrainingRun.addDay(workbook, day, header, workers);
+      workbook.write(out);
+    }
+    return file;
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class WorkbookPublisherTest {
+
+  /**
+   * Directory for the spreadsheets.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Collects the records it is sent.
+   */
+  private static class Collector<T> implements RecordFlow.Subscriber<T> {
+
+    /**
+     * The records received.
+     */
+    final List<T> items = new ArrayList<>();
+
+    /**
+     * The subscription.
+     */
+    RecordFlow.Subscription subscription;
+
+    /**
+     * Set on complete.
+     */
+    boolean complete;
+
+    /**
+     * The failure, if any.
+     */
+    Throwable error;
+
+    @Override
+    public void onSubscribe(final RecordFlow.Subscription newSubscription) {
+      this.subscription = newSubscription;
+    }
+
+    @Override
+    public void onNext(final T item) {
+      this.items.add(item);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      this.error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      this.complete = true;
+    }
+
+  }
+
+  /**
+   * Test that records are only sent as requested.
+   * @throws IOException thrown if an exception occurs during testing.
+   */
+  @Test
+  void testDemand() throws IOException {
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    final ParseAvailablityXLSX parser = new ParseAvailablityXLSX(survey, null, false);
+    final Collector<AvailabilityRecord> collector = new Collector<>();
+    parser.publisher(null).subscribe(collector);
+    assertTrue(collector.items.isEmpty());
+    collector.subscription.request(10);
+    assertEquals(10, collector.items.size());
+    assertFalse(collector.complete);
+    collector.subscription.request(Long.MAX_VALUE);
+    assertTrue(collector.complete);
+    assertNull(collector.error);
+    final List<AvailabilityRecord> read = parser.read();
+    assertEquals(18 * 50, read.size());
+    assertEquals(read.size(), collector.items.size());
+    assertEquals(read.get(read.size() - 1).toString(), collector.items.get(read.size() - 1).toString());
+    assertNotNull(parser.getHeaderStyle());
+
+    final Collector<AvailabilityRecord> cancelled = new Collector<>();
+    parser.publisher(null).subscribe(cancelled);
+    cancelled.subscription.request(5);
+    cancelled.subscription.cancel();
+    cancelled.subscription.request(5);
+    assertEquals(5, cancelled.items.size());
+    assertFalse(cancelled.complete);
+
+    final Collector<AvailabilityRecord> invalid = new Collector<>();
+    parser.publisher(null).subscribe(invalid);
+    invalid.subscription.request(0);
+    assertTrue(invalid.error instanceof IllegalArgumentException);
+    //end testDemand
+  }
+
+  /**
+   * Test loading the Database through the {@link AbstractParserXLSX.DatabaseSubscriber}s.
+   * @throws Exception thrown if an exception occurs during testing.
+   */
+  @Test
+  void testLoader() throws Exception {
+    final File workers = TrainingRun.writeWorkers(new File(this.tempDir, "Workers.xlsx"));
+    final File survey = TrainingRun.writeSurvey(new File(this.tempDir, "Availability.xlsx"));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:workbookPublisherTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement()) {
+      final ParseWorkerXLSX workerParser = new ParseWorkerXLSX(workers, c);
+      final ParseWorkerXLSX.Loader workerLoader = workerParser.new Loader();
+      workerParser.publisher(executor).subscribe(workerLoader);
+      assertEquals(50, workerLoader.getCompletion().get(1, TimeUnit.MINUTES).intValue());
+
+      final ParseAvailablityXLSX surveyParser = new ParseAvailablityXLSX(survey, c, false);
+      final ParseAvailablityXLSX.Loader surveyLoader = surveyParser.new Loader();
+      surveyParser.publisher(executor).subscribe(surveyLoader);
+      assertEquals(18 * 50, surveyLoader.getCompletion().get(1, TimeUnit.MINUTES).intValue());
+
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM WORKER")) {
+        rs.next();
+        assertEquals(50, rs.getInt(1));
+      }
+      try (final ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM AVAILABILITY")) {
+        rs.next();
+        assertEquals(18 * 50 / 2, rs.getInt(1));
+      }
+      try (final ResultSet rs = s.executeQuery("SELECT LANGUAGES, VR_ID FROM WORKER WHERE LAST_NAME = 'Worker5'")) {
+        rs.next();
+        assertEquals("Spanish", rs.getString(1));
+        assertEquals("1005", rs.getString(2));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    //end testLoader
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class WriteCSVTest {
+
+  /**
+   * Directory for the exported files.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.WriteCSV#write()}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testWrite() throws IOException, SQLException {
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:writeCsvTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();
+        final PreparedStatement insertAvailable =
+            c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (?,?)")) {
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE, EXPERIENCED) "
+          + "VALUES ('123', 'Doe', 'Jane', 12, 'Clerk', '1')");
+      s.execute("INSERT INTO WORKER (LAST_NAME, FIRST_NAME, CITY) VALUES ('Roe', 'Rick', 'Austin')");
+      // The views show the month of the latest day, as the workbook does.
+      for (final int day : new int[] {13, 20}) {
+        insertAvailable.setInt(1, 0);
+        insertAvailable.setDate(2, Date.valueOf(LocalDate.now().withDayOfMonth(day)));
+        insertAvailable.executeUpdate();
+      }
+      // Another month, not shown.
+      insertAvailable.setDate(2, Date.valueOf(LocalDate.now().withDayOfMonth(15).minusMonths(1)));
+      insertAvailable.executeUpdate();
+      new WriteCSV(this.tempDir, c, CSVFormat.TDF, ".tsv").write();
+    }
+    final List<String> workers = read("Workers");
+    assertEquals(3, workers.size());
+    assertEquals("Note\tLast Name\tFirst Name\tVR #\tCity\tPhone\tEmail\tExperienced\tLanguages\tLocation\t"
+        + "Precinct\tRole\t13\t14\t15\t16\t17\t18\t19\t20\t21\t22\t23\t24\t25\t26\t27\t28\t29\t30", workers.get(0));
+    assertEquals("\tDoe\tJane\t123\t\t\t\tYes\t\t\t12\tClerk\tX\t\t\t\t\t\t\tX\t\t\t\t\t\t\t\t\t\t",
+        workers.get(1));
+    assertEquals("\tRoe\tRick\t\tAustin\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t", workers.get(2));
+    final List<String> week = read("Oct_12-19");
+    assertEquals("Last Name\tFirst Name\tVR #\tPrecinct\tRole\t12\t13\t14\t15\t16\t17\t18", week.get(0));
+    assertEquals("Doe\tJane\t123\t12\tClerk\t\tX\t\t\t\t\t", week.get(1));
+    assertEquals(3, read("Oct_26-30").size());
+    final List<String> notScheduled = read("NotScheduled");
+    assertEquals(2, notScheduled.size());
+    assertEquals("\tRoe\tRick\t\tAustin\t\t\t\t\t\t\t", notScheduled.get(1));
+    //end testWrite
+  }
+
+  /**
+   * @param name the name of the view.
+   * @return the lines of the exported view.
+   * @throws IOException thrown if the file can not be read.
+   */
+  private List<String> read(final String name) throws IOException {
+    return Files.readAllLines(new File(this.tempDir, "WorkerAvailability-" + name + ".tsv").toPath(),
+        StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020
+ *
+ * This code is licensed under the GPLv2.
+ */
+package com.j2eeguys.dems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author gorky@j2eeguys.com
+ *
+ */
+class WritePartitionedXLSXTest {
+
+  /**
+   * Directory for the workbooks.
+   */
+  @TempDir
+  File tempDir;
+
+  /**
+   * Test method for {@link com.j2eeguys.dems.WritePartitionedXLSX#write()}.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testWrite() throws IOException, SQLException {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:writePartitionedTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();
+        final PreparedStatement insertAvailable =
+            c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (?,?)");
+        final Workbook template = WorkbookFactory.create(true)) {
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE, EXPERIENCED) "
+          + "VALUES ('123', 'Doe', 'Jane', 12, 'Clerk', '1')");
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) "
+          + "VALUES ('456', 'Able', 'Amy', 12, 'Judge')");
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT) VALUES ('789', 'Poe', 'Pat', 7)");
+      s.execute("INSERT INTO WORKER (LAST_NAME, FIRST_NAME) VALUES ('Roe', 'Rick')");
+      for (final int day : new int[] {13, 20}) {
+        insertAvailable.setInt(1, 0);
+        insertAvailable.setDate(2, Date.valueOf(LocalDate.now().withDayOfMonth(day)));
+        insertAvailable.executeUpdate();
+      }
+      // Another month, shown by neither writer.
+      insertAvailable.setDate(2, Date.valueOf(LocalDate.now().withDayOfMonth(15).minusMonths(1)));
+      insertAvailable.executeUpdate();
+      final CellStyle headerStyle = template.createCellStyle();
+      final WritePartitionedXLSX byPrecinct = new WritePartitionedXLSX(this.tempDir, c, headerStyle, false, executor, 1);
+      byPrecinct.write();
+      assertEquals(Arrays.asList("WorkerAvailability-Precinct_None.xlsx", "WorkerAvailability-Precinct_7.xlsx",
+          "WorkerAvailability-Precinct_12.xlsx"), names(byPrecinct));
+      try (final Workbook workbook = WorkbookFactory.create(byPrecinct.getWritten().get(2), null, true)) {
+        assertEquals(4, workbook.getNumberOfSheets());
+        final Sheet workers = workbook.getSheet("Workers");
+        assertEquals(3, workers.getPhysicalNumberOfRows());
+        assertEquals("Able", workers.getRow(1).getCell(1).getStringCellValue());
+        assertEquals("Doe", workers.getRow(2).getCell(1).getStringCellValue());
+        assertEquals("Yes", workers.getRow(2).getCell(7).getStringCellValue());
+        assertEquals("12", workers.getRow(2).getCell(10).getStringCellValue());
+        assertEquals("X", workers.getRow(2).getCell(12).getStringCellValue());
+        assertEquals("X", workers.getRow(2).getCell(19).getStringCellValue());
+        assertNull(workers.getRow(2).getCell(14));
+        assertNull(workers.getRow(1).getCell(12));
+        final Sheet week = workbook.getSheet("Oct 19-26");
+        assertEquals("19", week.getRow(0).getCell(5).getStringCellValue());
+        assertEquals("X", week.getRow(2).getCell(6).getStringCellValue());
+      }
+      final WritePartitionedXLSX byRole = new WritePartitionedXLSX(this.tempDir, c, headerStyle, true, null, 4);
+      byRole.write();
+      assertEquals(Arrays.asList("WorkerAvailability-Precinct_None-None.xlsx",
+          "WorkerAvailability-Precinct_7-None.xlsx", "WorkerAvailability-Precinct_12-Clerk.xlsx",
+          "WorkerAvailability-Precinct_12-Judge.xlsx"), names(byRole));
+      try (final Workbook workbook = new WriteXLSX(this.tempDir, c, headerStyle).buildOutput()) {
+        final Sheet workers = workbook.getSheet("Workers");
+        assertEquals("Doe", workers.getRow(2).getCell(1).getStringCellValue());
+        assertEquals("X", workers.getRow(2).getCell(12).getStringCellValue());
+        assertNull(workers.getRow(2).getCell(14));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    //end testWrite
+  }
+
+  /**
+   * @param writer the writer.
+   * @return the names of the workbooks written.
+   */
+  private static List<String> names(final WritePartitionedXLSX writer) {
+    final List<String> names = new ArrayList<>();
+    for (final File file : writer.getWritten()) {
+      names.add(file.getName());
+    }
+    return names;
+  }
+
+}
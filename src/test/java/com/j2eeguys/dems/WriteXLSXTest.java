@@ -6,15 +6,26 @@
 package com.j2eeguys.dems;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
 
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbookFactory;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * @author gorky@j2eeguys.com
@@ -22,6 +33,12 @@ import org.junit.jupiter.api.Test;
  */
 class WriteXLSXTest {
 
+  /**
+   * Directory for the workbook.
+   */
+  @TempDir
+  File tempDir;
+
   /**
    * Test method for {@link com.j2eeguys.dems.WriteXLSX#addHeaderRow(org.apache.poi.ss.usermodel.Sheet, int, int, String...)}.
    * @throws IOException thrown if an exception occurs during testing.
@@ -37,8 +54,48 @@ class WriteXLSXTest {
       assertEquals(1, sheet.getPhysicalNumberOfRows());
       Row row = sheet.getRow(0);
       assertEquals(12, row.getPhysicalNumberOfCells());
+      parser.columnWidths.createCell(sheet.createRow(1), 0, "Featherstonehaugh");
+      parser.columnWidths.apply(sheet);
+      assertEquals((17 + ColumnWidths.PADDING) * 256, sheet.getColumnWidth(0), "Widest value");
+      assertEquals((10 + ColumnWidths.PADDING) * 256, sheet.getColumnWidth(1), "Header only");
+      assertEquals((2 + ColumnWidths.PADDING) * 256, sheet.getColumnWidth(5), "Day column");
     }
     //end testAddHeader
   }
 
+  /**
+   * Test method for {@link com.j2eeguys.dems.WriteXLSX#buildOutput()}: only the month of the latest available
+   * day is shown.
+   * @throws IOException thrown if an exception occurs during testing.
+   * @throws SQLException thrown if the test data can not be loaded.
+   */
+  @Test
+  void testShownMonth() throws IOException, SQLException {
+    try (final SurveyAvailability sa = new SurveyAvailability("jdbc:hsqldb:mem:writeXLSXTest;shutdown=true");
+        final Connection c = sa.setupDB(true);
+        final Statement s = c.createStatement();
+        final PreparedStatement insertAvailable =
+            c.prepareStatement("INSERT INTO AVAILABILITY (id, DAY) VALUES (0,?)");
+        final Workbook template = WorkbookFactory.create(true)) {
+      assertEquals(YearMonth.now(), SheetLayout.shownMonth(c), "No availability");
+      s.execute("INSERT INTO WORKER (VR_ID, LAST_NAME, FIRST_NAME, PRECINCT, ROLE) "
+          + "VALUES ('123', 'Doe', 'Jane', 12, 'Clerk')");
+      for (final String day : new String[] {"2020-10-13", "2020-09-15", "2020-10-20"}) {
+        insertAvailable.setDate(1, Date.valueOf(day));
+        insertAvailable.executeUpdate();
+      }
+      assertEquals(YearMonth.of(2020, 10), SheetLayout.shownMonth(c));
+      try (final Workbook workbook = new WriteXLSX(this.tempDir, c, template.createCellStyle()).buildOutput()) {
+        final Sheet workers = workbook.getSheet("Workers");
+        assertEquals("X", workers.getRow(1).getCell(12).getStringCellValue(), "10-13");
+        assertNull(workers.getRow(1).getCell(14), "09-15");
+        assertEquals("X", workers.getRow(1).getCell(19).getStringCellValue(), "10-20");
+        final Sheet week = workbook.getSheet("Oct 12-19");
+        assertEquals("X", week.getRow(1).getCell(6).getStringCellValue(), "10-13");
+        assertNull(week.getRow(1).getCell(8), "09-15");
+      }
+    }
+    //end testShownMonth
+  }
+
 }